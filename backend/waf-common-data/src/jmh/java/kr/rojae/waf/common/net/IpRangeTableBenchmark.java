@@ -0,0 +1,128 @@
+package kr.rojae.waf.common.net;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IpRangeTable} 빌드/열기 시간, 메모리, 조회 비용 측정 (임의 IPv4 entries 개, 4개 중 1개는 /24)
+ *
+ * 메모리는 시간이 아니라서 setup 에서 한 번 재서 출력한다: 테이블 파일 바이트/건과,
+ * 비교용으로 같은 형태의 주소를 HashSet&lt;String&gt; 에 담았을 때의 힙을 표본(최대 100만 건)으로 잰 값.
+ *   ./gradlew :waf-common-data:jmh -Pjmh.includes=IpRangeTableBenchmark
+ */
+@State(Scope.Benchmark)
+public class IpRangeTableBenchmark {
+
+    private static final int HASH_SET_SAMPLE = 1_000_000;
+    private static final int QUERIES = 1 << 20;
+
+    @Param({"1000000", "10000000"})
+    private int entries;
+
+    private Path file;
+    private IpRangeTable table;
+    private int[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("reputation-bench", ".table");
+        table = build(entries, file);
+
+        SplittableRandom random = new SplittableRandom(7);
+        queries = new int[QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextInt();
+        }
+
+        System.out.printf("%nentries=%d ranges=%d fileBytes=%d bytesPerEntry=%.2f hashSetBytesPerEntry=%d%n",
+                entries, table.ipv4Ranges(), table.bytes(), (double) table.bytes() / entries,
+                hashSetBytesPerEntry(Math.min(entries, HASH_SET_SAMPLE)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        table = null;
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * 피드 entries 건 추가 + 정렬/병합 + 파일 쓰기
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long build() throws IOException {
+        Path target = Files.createTempFile("reputation-bench", ".table");
+        try {
+            return build(entries, target).bytes();
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    /**
+     * mmap + 버킷 인덱스 생성 (피드 교체 시 요청 경로 밖에서 드는 비용)
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IpRangeTable open() throws IOException {
+        return IpRangeTable.open(file);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean lookup() {
+        return table.containsIpv4(queries[next++ & (QUERIES - 1)]);
+    }
+
+    private static IpRangeTable build(int entries, Path target) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        IpRangeTable.Builder builder = new IpRangeTable.Builder();
+        for (int i = 0; i < entries; i++) {
+            long start = random.nextInt() & 0xFFFFFFFFL;
+            long end = i % 4 == 0 ? Math.min(0xFFFFFFFFL, (start & ~0xFFL) + 255) : start;
+            builder.addIpv4(i % 4 == 0 ? start & ~0xFFL : start, end);
+        }
+        return builder.writeTo(target);
+    }
+
+    /**
+     * 같은 형태의 주소 문자열을 HashSet 에 담았을 때 건당 힙 (근사치)
+     */
+    private static long hashSetBytesPerEntry(int sample) {
+        SplittableRandom random = new SplittableRandom(7);
+        long before = usedHeap();
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < sample; i++) {
+            int ip = random.nextInt();
+            set.add((ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF));
+        }
+        long used = usedHeap() - before;
+        return set.isEmpty() ? 0 : Math.max(0, used) / set.size();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,87 @@
+package kr.rojae.waf.common.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link RateLimiter} 동시성 확장성 측정 (tryAcquire 처리량)
+ *
+ * - spread: keys 개 키에 고르게 분산 (일반 트래픽)
+ * - hot: 모든 스레드가 키 하나에 몰림 (단일 IP flood, CAS 경합 최악)
+ * - churn: 매번 새 키 (IP 스캔, 추가/축출 경로). maxKeys 를 넘어도 크기가 유지되는지 teardown 에서 출력한다
+ *
+ * 스레드 수는 -t 로 바꿔 가며 잰다.
+ *   ./gradlew :waf-common-data:jmh -Pjmh.includes=RateLimiterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RateLimiterBenchmark {
+
+    @Param({"spread", "hot", "churn"})
+    private String scenario;
+
+    @Param({"100000"})
+    private int keys;
+
+    @Param({"100000"})
+    private int maxKeys;
+
+    private RateLimiter limiter;
+    private String[] pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 한도에 걸리지 않게 넉넉히 잡아서 매 호출이 CAS 경로를 타게 한다
+        limiter = new RateLimiter(scenario, 1_000_000_000L, Duration.ofSeconds(1), 1_000_000_000, maxKeys);
+        pool = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            pool[i] = "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nscenario=%s trackedKeys=%d capacity=%d evicted=%d%n",
+                scenario, limiter.size(), limiter.capacity(), limiter.evicted());
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private static final AtomicInteger SEEDS = new AtomicInteger();
+
+        private SplittableRandom random;
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int seed = SEEDS.getAndIncrement();
+            random = new SplittableRandom(seed);
+            sequence = (long) seed << 40;
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Decision tryAcquire(Client client) {
+        String key = switch (scenario) {
+            case "hot" -> pool[0];
+            case "churn" -> Long.toString(client.sequence++);
+            default -> pool[client.random.nextInt(pool.length)];
+        };
+        return limiter.tryAcquire(key);
+    }
+}
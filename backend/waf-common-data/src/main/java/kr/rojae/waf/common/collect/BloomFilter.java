@@ -0,0 +1,86 @@
+package kr.rojae.waf.common.collect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter: "확실히 없음"을 상수 시간에 답하는 앞단 필터
+ *
+ * - 비트 배열 크기는 2 의 거듭제곱으로 올림하고, 인덱스는 64 비트 해시 하나를 둘로 나눠 double hashing 으로 만든다.
+ * - 추가는 여러 스레드에서 동시에 해도 되고(CAS 로 비트 설정), 조회는 잠금이 없다.
+ * - 삭제는 지원하지 않는다. 항목이 빠지면 새로 만들어 교체한다.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitMask;
+    private final int hashes;
+
+    /**
+     * @param expectedEntries 넣을 항목 수
+     * @param falsePositiveRate expectedEntries 개를 넣었을 때 목표 오탐률 (0 ~ 1)
+     */
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        long n = Math.max(1, expectedEntries);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        // 올림하기 전에 본다 (올림이 long 범위를 넘으면 음수가 되어 64 비트로 잘못 만들어진다)
+        if (bits > (1L << 36)) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bits + " bits");
+        }
+        bits = Math.max(64, Long.highestOneBit(bits - 1) << 1);
+        this.words = new AtomicLongArray((int) (bits >>> 6));
+        this.bitMask = bits - 1;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    }
+
+    public void put(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + (long) i * h2) & bitMask;
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + (long) i * h2) & bitMask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bits() {
+        return bitMask + 1;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    /**
+     * 문자열용 64 비트 해시 (FNV-1a + murmur3 fmix64)
+     */
+    public static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,92 @@
+package kr.rojae.waf.common.collect;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TinyLFU 빈도 추정기: 4 비트 카운터 count-min sketch
+ *
+ * - long 하나에 4 비트 카운터 16 개. 키마다 4 개 카운터를 올리고, 빈도는 그중 최솟값(최대 15)이다.
+ * - 증가 횟수가 sampleSize(용량의 10 배)에 이르면 모든 카운터를 절반으로 줄여(aging) 최근 빈도를 따라간다.
+ * - 증가는 CAS 라 여러 스레드에서 동시에 해도 되고, aging 중 들어온 증가 몇 개가 섞이는 정도의 오차는 허용한다.
+ */
+public final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param capacity 빈도를 비교할 캐시 용량 (카운터 수는 용량 이상으로 2 의 거듭제곱 올림)
+     */
+    public FrequencySketch(int capacity) {
+        int size = Math.max(8, Integer.highestOneBit(Math.max(1, capacity) - 1) << 1);
+        this.table = new AtomicLongArray(size);
+        this.tableMask = size - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, capacity));
+    }
+
+    /**
+     * @return 추정 빈도 (0 ~ 15)
+     */
+    public int frequency(long hash) {
+        int start = (int) (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int shift = (start + i) << 2;
+            frequency = Math.min(frequency, (int) ((table.get(index) >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    public void increment(long hash) {
+        int start = (int) (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int shift = counter << 2;
+        long mask = 0xFL << shift;
+        while (true) {
+            long word = table.get(index);
+            if ((word & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, word, word + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 모든 카운터를 절반으로 (aging)
+     */
+    private void reset() {
+        additions.set(0);
+        for (int i = 0; i < table.length(); i++) {
+            long word;
+            do {
+                word = table.get(i);
+            } while (!table.compareAndSet(i, word, (word >>> 1) & RESET_MASK));
+        }
+    }
+
+    private int indexOf(long hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+}
@@ -0,0 +1,142 @@
+package kr.rojae.waf.common.collect;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * int -> int 해시맵 (open addressing, linear probing)
+ *
+ * - 키/값을 int 배열에 그대로 담아 박싱과 엔트리 객체 할당이 없다.
+ * - {@link Integer#MIN_VALUE} 는 빈 칸 표시라 키로 쓸 수 없다.
+ * - 삭제는 지원하지 않는다 (룰 id -> 슬롯처럼 늘어나기만 하는 매핑용).
+ *
+ * 스레드 안전하지 않다. 여러 스레드에서 쓰면 호출하는 쪽에서 동기화한다.
+ */
+public final class IntIntHashMap {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return 키가 없으면 missing
+     */
+    public int get(int key, int missing) {
+        checkKey(key);
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == EMPTY) {
+                return missing;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        checkKey(key);
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public void put(int key, int value) {
+        checkKey(key);
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size >= resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        for (int k : keys) {
+            if (k != EMPTY) {
+                action.accept(k);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != EMPTY) {
+                int slot = mix(k) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * 연속된 룰 id 가 같은 칸 근처에 몰리지 않도록 섞는다 (murmur3 fmix32)
+     */
+    private static int mix(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static void checkKey(int key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE cannot be used as a key");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package kr.rojae.waf.common.collect;
+
+/**
+ * MurmurHash3 x64 128 비트를 바이트 단위로 흘려 넣으며 계산한다 (결과는 한 번에 계산한 것과 같다)
+ *
+ * - 필드 여러 개를 이어 붙이지 않고 그대로 넣을 수 있어 요청마다 할당이 없다. 필드 경계는 {@link #putField} 가 길이로 구분한다.
+ * - 상태를 가진 객체라 스레드 간에 공유하지 말고 {@link #reset} 으로 재사용한다.
+ */
+public final class Murmur3Hasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+    private long k1;
+    private long k2;
+    private int buffered;
+    private long length;
+    private boolean finished;
+
+    public Murmur3Hasher() {
+        reset(0);
+    }
+
+    public Murmur3Hasher reset(long seed) {
+        h1 = seed;
+        h2 = seed;
+        k1 = 0;
+        k2 = 0;
+        buffered = 0;
+        length = 0;
+        finished = false;
+        return this;
+    }
+
+    public Murmur3Hasher putByte(int b) {
+        long v = b & 0xFFL;
+        if (buffered < 8) {
+            k1 |= v << (buffered << 3);
+        } else {
+            k2 |= v << ((buffered - 8) << 3);
+        }
+        length++;
+        if (++buffered == 16) {
+            mixBlock();
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putBytes(byte[] bytes, int offset, int count) {
+        for (int i = offset, end = offset + count; i < end; i++) {
+            putByte(bytes[i]);
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putLong(long value) {
+        for (int i = 0; i < 8; i++) {
+            putByte((int) (value >>> (i << 3)));
+        }
+        return this;
+    }
+
+    /**
+     * 문자열 한 필드. ASCII 는 1 바이트, 그 밖의 문자는 0xFF + UTF-16 2 바이트로 넣고 끝에 길이를 붙인다 (null 은 길이 -1)
+     */
+    public Murmur3Hasher putField(CharSequence value) {
+        if (value == null) {
+            return putLong(-1);
+        }
+        int n = value.length();
+        for (int i = 0; i < n; i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                putByte(ch);
+            } else {
+                putByte(0xFF);
+                putByte(ch >>> 8);
+                putByte(ch);
+            }
+        }
+        return putLong(n);
+    }
+
+    /**
+     * 지금까지 넣은 바이트의 해시 상위 64 비트. {@link #low()} 와 함께 읽은 뒤 {@link #reset} 한다
+     */
+    public long high() {
+        finish();
+        return h1;
+    }
+
+    public long low() {
+        finish();
+        return h2;
+    }
+
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (buffered > 0) {
+            long t1 = k1;
+            long t2 = k2;
+            if (buffered > 8) {
+                t2 *= C2;
+                t2 = Long.rotateLeft(t2, 33);
+                t2 *= C1;
+                h2 ^= t2;
+            }
+            t1 *= C1;
+            t1 = Long.rotateLeft(t1, 31);
+            t1 *= C2;
+            h1 ^= t1;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+    }
+
+    private void mixBlock() {
+        long t1 = k1;
+        long t2 = k2;
+        t1 *= C1;
+        t1 = Long.rotateLeft(t1, 31);
+        t1 *= C2;
+        h1 ^= t1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        t2 *= C2;
+        t2 = Long.rotateLeft(t2, 33);
+        t2 *= C1;
+        h2 ^= t2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        k1 = 0;
+        k2 = 0;
+        buffered = 0;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
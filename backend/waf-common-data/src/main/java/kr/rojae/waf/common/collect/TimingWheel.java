@@ -0,0 +1,117 @@
+package kr.rojae.waf.common.collect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 계층형 타이밍 휠: 만료 시각이 있는 항목을 넣어 두고, 시간이 흐른 만큼 advance 하면 만료된 항목을 돌려준다
+ *
+ * - 단계마다 64 칸. 0 단계 한 칸은 tickMillis, n 단계 한 칸은 tickMillis * 64^n 이다.
+ * - 아래 단계가 한 바퀴 돌 때마다 윗 단계의 한 칸을 아래로 다시 나눠 담는다 (cascade).
+ * - 추가/만료는 항목당 O(단계 수)이고, 만료 시각으로 정렬하거나 전체를 훑지 않는다.
+ * - 항목은 만료 시각이 지난 뒤(최대 한 tick 늦게) 나오고, 먼저 나오지는 않는다.
+ *
+ * 스레드 안전하지 않다. 여러 스레드에서 쓰면 호출하는 쪽에서 동기화한다.
+ */
+public final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final List<Entry<T>>[][] slots;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param levels 단계 수. 만료까지 tickMillis * 64^levels 이내인 항목을 cascade 없이 담을 수 있다 (넘는 항목도 담긴다)
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int levels, long nowMillis) {
+        if (tickMillis <= 0 || levels <= 0 || levels > 10) {
+            throw new IllegalArgumentException("tickMillis=" + tickMillis + ", levels=" + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.slots = new List[levels][SLOTS];
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * @return 이미 만료된 시각이면 넣지 않고 false
+     */
+    public boolean add(T item, long expiresAtMillis) {
+        // 만료 시각이 속한 tick 의 다음 tick 에 꺼낸다 (만료 전에 나오지 않도록)
+        long tick = expiresAtMillis / tickMillis + 1;
+        if (tick <= currentTick) {
+            return false;
+        }
+        place(new Entry<>(item, tick));
+        size++;
+        return true;
+    }
+
+    /**
+     * nowMillis 까지 시간을 진행시키고 만료된 항목을 expired 로 넘긴다
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            for (int level = 1; level < levels && (currentTick & ((1L << (BITS * level)) - 1)) == 0; level++) {
+                List<Entry<T>> bucket = take(level, (int) ((currentTick >>> (BITS * level)) & MASK));
+                if (bucket != null) {
+                    for (Entry<T> entry : bucket) {
+                        reschedule(entry, expired);
+                    }
+                }
+            }
+            List<Entry<T>> bucket = take(0, (int) (currentTick & MASK));
+            if (bucket != null) {
+                for (Entry<T> entry : bucket) {
+                    reschedule(entry, expired);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void reschedule(Entry<T> entry, Consumer<T> expired) {
+        if (entry.tick() <= currentTick) {
+            size--;
+            expired.accept(entry.item());
+        } else {
+            place(entry);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.tick() - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((entry.tick() >>> (BITS * level)) & MASK);
+        List<Entry<T>> bucket = slots[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayList<>(4);
+            slots[level][slot] = bucket;
+        }
+        bucket.add(entry);
+    }
+
+    private List<Entry<T>> take(int level, int slot) {
+        List<Entry<T>> bucket = slots[level][slot];
+        slots[level][slot] = null;
+        return bucket;
+    }
+
+    private record Entry<T>(T item, long tick) {
+    }
+}
@@ -0,0 +1,62 @@
+package kr.rojae.waf.common.net;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * CIDR 목록 -> 같은 주소 집합을 덮는 최소 CIDR 목록
+ *
+ * 겹치거나 포함되는 범위, 맞닿은 범위(10.0.0.0/25 + 10.0.0.128/25 -> 10.0.0.0/24)를 합친다.
+ * 결과는 IPv4 다음 IPv6, 주소 오름차순이다.
+ */
+public final class CidrAggregator {
+
+    private CidrAggregator() {
+    }
+
+    public static List<IpPrefix> aggregate(Collection<IpPrefix> prefixes) {
+        List<IpPrefix> sorted = new ArrayList<>(prefixes);
+        sorted.sort(null);
+
+        List<IpPrefix> result = new ArrayList<>();
+        BigInteger start = null;
+        BigInteger end = null;
+        boolean ipv4 = true;
+        for (IpPrefix prefix : sorted) {
+            if (start != null && prefix.isIpv4() == ipv4
+                    && prefix.first().compareTo(end.add(BigInteger.ONE)) <= 0) {
+                end = end.max(prefix.last());
+                continue;
+            }
+            if (start != null) {
+                split(start, end, ipv4, result);
+            }
+            start = prefix.first();
+            end = prefix.last();
+            ipv4 = prefix.isIpv4();
+        }
+        if (start != null) {
+            split(start, end, ipv4, result);
+        }
+        return result;
+    }
+
+    /**
+     * [start, end] 범위를 정렬된 최소 CIDR 블록으로 나눈다
+     */
+    private static void split(BigInteger start, BigInteger end, boolean ipv4, List<IpPrefix> out) {
+        int maxBits = ipv4 ? 32 : 128;
+        while (start.compareTo(end) <= 0) {
+            // start 에서 시작할 수 있는 가장 큰 정렬 블록
+            int hostBits = start.signum() == 0 ? maxBits : start.getLowestSetBit();
+            BigInteger remaining = end.subtract(start).add(BigInteger.ONE);
+            while (hostBits > 0 && BigInteger.ONE.shiftLeft(hostBits).compareTo(remaining) > 0) {
+                hostBits--;
+            }
+            out.add(IpPrefix.of(start, maxBits - hostBits, ipv4));
+            start = start.add(BigInteger.ONE.shiftLeft(hostBits));
+        }
+    }
+}
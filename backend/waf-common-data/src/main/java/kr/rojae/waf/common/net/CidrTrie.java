@@ -0,0 +1,129 @@
+package kr.rojae.waf.common.net;
+
+/**
+ * CIDR -> 값 압축 radix(Patricia) 트라이. 가장 긴 프리픽스 매칭.
+ *
+ * - IPv4 / IPv6 는 루트를 따로 둔다.
+ * - 자식이 하나뿐인 경로는 노드 하나로 압축되어 노드 수는 저장된 프리픽스 수의 2배를 넘지 않고,
+ *   조회는 프리픽스 길이(최대 32/128 비트)에 비례한다.
+ * - 삭제는 지원하지 않는다 (화이트리스트처럼 변경 시 새로 만들어 통째로 교체하는 용도).
+ *
+ * 만든 뒤 읽기만 하면 여러 스레드에서 동시에 조회해도 된다. put 은 호출하는 쪽에서 동기화한다.
+ */
+public final class CidrTrie<V> {
+
+    private Node<V> ipv4;
+    private Node<V> ipv6;
+    private int size;
+
+    /**
+     * 같은 프리픽스가 있으면 값을 바꾼다
+     *
+     * @return 이전 값 (없으면 null)
+     */
+    public V put(IpPrefix prefix, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        Node<V> root = prefix.isIpv4() ? ipv4 : ipv6;
+        if (root == null) {
+            setRoot(prefix, new Node<>(prefix, value));
+            size++;
+            return null;
+        }
+
+        Node<V> parent = null;
+        int dir = 0;
+        Node<V> cur = root;
+        while (cur != null) {
+            int common = prefix.commonLength(cur.prefix);
+            if (common < cur.prefix.length()) {
+                // cur 위에 분기점이 필요하다
+                Node<V> replacement;
+                if (common == prefix.length()) {
+                    replacement = new Node<>(prefix, value);
+                    replacement.children[cur.prefix.bit(common)] = cur;
+                } else {
+                    replacement = new Node<>(prefix.truncate(common), null);
+                    replacement.children[cur.prefix.bit(common)] = cur;
+                    replacement.children[prefix.bit(common)] = new Node<>(prefix, value);
+                }
+                if (parent == null) {
+                    setRoot(prefix, replacement);
+                } else {
+                    parent.children[dir] = replacement;
+                }
+                size++;
+                return null;
+            }
+            if (cur.prefix.length() == prefix.length()) {
+                V previous = cur.value;
+                cur.value = value;
+                if (previous == null) {
+                    size++;
+                }
+                return previous;
+            }
+            parent = cur;
+            dir = prefix.bit(cur.prefix.length());
+            cur = cur.children[dir];
+        }
+        parent.children[dir] = new Node<>(prefix, value);
+        size++;
+        return null;
+    }
+
+    /**
+     * @param address 4 또는 16 바이트 ({@link IpPrefix#parseAddress})
+     * @return 주소를 포함하는 가장 긴 프리픽스의 값, 없으면 null
+     */
+    public V longestMatch(byte[] address) {
+        Entry<V> entry = longestMatchEntry(address);
+        return entry != null ? entry.value() : null;
+    }
+
+    /**
+     * @return 매칭된 프리픽스와 값, 없으면 null
+     */
+    public Entry<V> longestMatchEntry(byte[] address) {
+        Node<V> cur = address.length == 4 ? ipv4 : ipv6;
+        Node<V> best = null;
+        while (cur != null && cur.prefix.contains(address)) {
+            if (cur.value != null) {
+                best = cur;
+            }
+            if (cur.prefix.length() == cur.prefix.maxBits()) {
+                break;
+            }
+            cur = cur.children[IpPrefix.bit(address, cur.prefix.length())];
+        }
+        return best != null ? new Entry<>(best.prefix, best.value) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void setRoot(IpPrefix prefix, Node<V> node) {
+        if (prefix.isIpv4()) {
+            ipv4 = node;
+        } else {
+            ipv6 = node;
+        }
+    }
+
+    public record Entry<V>(IpPrefix prefix, V value) {}
+
+    private static final class Node<V> {
+        final IpPrefix prefix;
+        // null 이면 분기용 노드
+        V value;
+        @SuppressWarnings("unchecked")
+        final Node<V>[] children = new Node[2];
+
+        Node(IpPrefix prefix, V value) {
+            this.prefix = prefix;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package kr.rojae.waf.common.net;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * IPv4/IPv6 CIDR 프리픽스 (예: 10.0.0.0/8, 2001:db8::/32). 단일 주소는 /32, /128.
+ *
+ * - 프리픽스 길이 밖의 비트는 0 으로 정규화한다 (10.1.2.3/8 -> 10.0.0.0/8).
+ * - IPv4-mapped IPv6 (::ffff:a.b.c.d) 는 IPv4 로 취급한다.
+ * - 파싱은 리터럴만 받는다. 호스트 이름은 DNS 조회 없이 거부한다.
+ */
+public final class IpPrefix implements Comparable<IpPrefix> {
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]+");
+
+    private final byte[] address;
+    private final int length;
+
+    private IpPrefix(byte[] address, int length) {
+        this.address = address;
+        this.length = length;
+    }
+
+    /**
+     * @throws IllegalArgumentException IP 리터럴/CIDR 이 아니거나 길이가 범위를 벗어날 때
+     */
+    public static IpPrefix parse(String cidr) {
+        if (cidr == null || cidr.isBlank()) {
+            throw new IllegalArgumentException("IP or CIDR is required");
+        }
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        String literal = slash < 0 ? value : value.substring(0, slash);
+        byte[] address = parseAddress(literal);
+        int maxBits = address.length * 8;
+        int length = maxBits;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+            // ::ffff:10.0.0.0/104 처럼 mapped 주소에 IPv6 길이를 쓴 경우
+            if (literal.indexOf(':') >= 0 && address.length == 4) {
+                length -= 96;
+            }
+            if (length < 0 || length > maxBits) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+        }
+        return of(address, length);
+    }
+
+    /**
+     * @param address 4 또는 16 바이트
+     */
+    public static IpPrefix of(byte[] address, int length) {
+        if (address.length != 4 && address.length != 16) {
+            throw new IllegalArgumentException("Address must be 4 or 16 bytes");
+        }
+        if (length < 0 || length > address.length * 8) {
+            throw new IllegalArgumentException("Invalid prefix length: " + length);
+        }
+        byte[] masked = Arrays.copyOf(address, address.length);
+        for (int i = 0; i < masked.length; i++) {
+            int keep = Math.max(0, Math.min(8, length - i * 8));
+            masked[i] &= (byte) (0xFF << (8 - keep));
+        }
+        return new IpPrefix(masked, length);
+    }
+
+    /**
+     * 범위 시작 값(정수)과 길이로 생성 ({@link CidrAggregator} 용)
+     */
+    static IpPrefix of(BigInteger first, int length, boolean ipv4) {
+        int bytes = ipv4 ? 4 : 16;
+        byte[] raw = first.toByteArray();
+        byte[] address = new byte[bytes];
+        int copy = Math.min(raw.length, bytes);
+        System.arraycopy(raw, raw.length - copy, address, bytes - copy, copy);
+        return of(address, length);
+    }
+
+    /**
+     * IP 리터럴 -> 4/16 바이트. mapped 주소는 4 바이트.
+     */
+    public static byte[] parseAddress(String literal) {
+        if (literal == null) {
+            throw new IllegalArgumentException("IP address is required");
+        }
+        String value = literal.trim();
+        if (value.startsWith("[") && value.endsWith("]")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        boolean v6 = value.indexOf(':') >= 0;
+        if (v6 ? !IPV6.matcher(value).matches() : !IPV4.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid IP address: " + literal);
+        }
+        if (!v6) {
+            for (String octet : value.split("\\.")) {
+                if (Integer.parseInt(octet) > 255) {
+                    throw new IllegalArgumentException("Invalid IP address: " + literal);
+                }
+            }
+        }
+        try {
+            // 리터럴만 통과시켰으므로 DNS 조회가 일어나지 않는다
+            return InetAddress.getByName(value).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IP address: " + literal);
+        }
+    }
+
+    public boolean isIpv4() {
+        return address.length == 4;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int maxBits() {
+        return address.length * 8;
+    }
+
+    /**
+     * i 번째 비트 (0 = 최상위)
+     */
+    public int bit(int i) {
+        return bit(address, i);
+    }
+
+    static int bit(byte[] address, int i) {
+        return (address[i >>> 3] >>> (7 - (i & 7))) & 1;
+    }
+
+    /**
+     * 같은 주소 체계이고 앞 length 비트가 같으면 true
+     */
+    public boolean contains(byte[] other) {
+        if (other.length != address.length) {
+            return false;
+        }
+        int full = length >>> 3;
+        for (int i = 0; i < full; i++) {
+            if (address[i] != other[i]) {
+                return false;
+            }
+        }
+        int rest = length & 7;
+        if (rest == 0) {
+            return true;
+        }
+        int mask = 0xFF << (8 - rest);
+        return (address[full] & mask) == (other[full] & mask);
+    }
+
+    public boolean contains(IpPrefix other) {
+        return other.length >= length && contains(other.address);
+    }
+
+    /**
+     * 두 프리픽스가 앞에서부터 같은 비트 수 (짧은 쪽 길이까지만)
+     */
+    int commonLength(IpPrefix other) {
+        int max = Math.min(length, other.length);
+        int i = 0;
+        while (i + 8 <= max && address[i >>> 3] == other.address[i >>> 3]) {
+            i += 8;
+        }
+        while (i < max && bit(i) == other.bit(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 앞 newLength 비트만 남긴 프리픽스
+     */
+    IpPrefix truncate(int newLength) {
+        return of(address, newLength);
+    }
+
+    public BigInteger first() {
+        return new BigInteger(1, address);
+    }
+
+    public BigInteger last() {
+        return first().add(BigInteger.ONE.shiftLeft(maxBits() - length)).subtract(BigInteger.ONE);
+    }
+
+    public byte[] address() {
+        return Arrays.copyOf(address, address.length);
+    }
+
+    @Override
+    public int compareTo(IpPrefix other) {
+        if (address.length != other.address.length) {
+            return Integer.compare(address.length, other.address.length);
+        }
+        int c = Arrays.compareUnsigned(address, other.address);
+        return c != 0 ? c : Integer.compare(length, other.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IpPrefix other && length == other.length && Arrays.equals(address, other.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(address) + length;
+    }
+
+    /**
+     * 항상 CIDR 표기 (단일 주소도 /32, /128)
+     */
+    @Override
+    public String toString() {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress() + "/" + length;
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
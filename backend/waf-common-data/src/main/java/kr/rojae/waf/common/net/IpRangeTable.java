@@ -0,0 +1,453 @@
+package kr.rojae.waf.common.net;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 정렬된 IP 범위 테이블 (읽기 전용, 파일을 mmap 해서 조회)
+ *
+ * 수백만 개의 IP/CIDR/범위를 문자열 Set 대신 원시 값 배열로 담는다. 겹치거나 맞닿은 범위는 빌드할 때 합쳐지므로
+ * 조회는 시작 주소에 대한 이진 탐색 한 번이다. 데이터는 힙 밖(page cache)에 있어 GC 대상이 아니고,
+ * IPv4 조회는 객체를 만들지 않는다.
+ *
+ * 범위가 수백만 개면 전체 이진 탐색은 단계마다 캐시 미스라 수백 ns 가 든다. 그래서 IPv4 는 열 때 상위 20비트별
+ * 첫 범위 위치(힙 4MB)를 만들어 두고, 조회는 해당 구간(1,000만 건이어도 평균 10개 남짓) 안에서만 탐색한다.
+ * 무작위 주소 조회도 색인 1번 + 데이터 1~2 캐시 라인이라 100ns 안팎이다.
+ *
+ * 파일 형식 (little-endian):
+ * <pre>
+ * [magic:int][format:int][ipv4Count:int][ipv6Count:int]
+ * ipv4Count x [start:int][end:int]                          (부호 없는 비교)
+ * ipv6Count x [startHi:long][startLo:long][endHi:long][endLo:long]
+ * </pre>
+ *
+ * 조회는 여러 스레드에서 동시에 해도 된다 (절대 위치 읽기만 한다).
+ */
+public final class IpRangeTable {
+
+    private static final int MAGIC = 0x57524E47; // "WRNG"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int IPV4_ENTRY_BYTES = 8;
+    private static final int IPV6_ENTRY_BYTES = 32;
+
+    private static final int BUCKET_SHIFT = 12;
+
+    public static final IpRangeTable EMPTY = new IpRangeTable(emptyBuffer(), emptyBuffer(), 0, 0, 0);
+
+    private final ByteBuffer ipv4;
+    // 상위 20비트 b -> start >= (b << 12) 인 첫 범위 위치 (길이 2^20 + 1, 범위가 없으면 null)
+    private final int[] ipv4Buckets;
+    private final ByteBuffer ipv6;
+    private final int ipv4Count;
+    private final int ipv6Count;
+    private final long bytes;
+
+    private IpRangeTable(ByteBuffer ipv4, ByteBuffer ipv6, int ipv4Count, int ipv6Count, long bytes) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.ipv4Count = ipv4Count;
+        this.ipv6Count = ipv6Count;
+        this.bytes = bytes;
+        this.ipv4Buckets = buildBuckets(ipv4, ipv4Count);
+    }
+
+    private static int[] buildBuckets(ByteBuffer ipv4, int count) {
+        if (count == 0) {
+            return null;
+        }
+        int[] buckets = new int[(1 << (32 - BUCKET_SHIFT)) + 1];
+        int bucket = 0;
+        for (int i = 0; i < count; i++) {
+            int startBucket = ipv4.getInt(i * IPV4_ENTRY_BYTES) >>> BUCKET_SHIFT;
+            while (bucket <= startBucket) {
+                buckets[bucket++] = i;
+            }
+        }
+        while (bucket < buckets.length) {
+            buckets[bucket++] = count;
+        }
+        return buckets;
+    }
+
+    /**
+     * 빌드된 테이블 파일을 mmap 한다. 채널은 바로 닫아도 매핑은 GC 될 때까지 유지된다.
+     * 같은 경로에 새 파일을 rename 으로 덮어써도 이미 연 테이블은 이전 내용을 계속 본다.
+     *
+     * @throws IOException 파일이 없거나 형식이 맞지 않을 때
+     */
+    public static IpRangeTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not an IP range table: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT) {
+                throw new IOException("Not an IP range table: " + file);
+            }
+            int v4 = header.getInt(8);
+            int v6 = header.getInt(12);
+            long v4Bytes = (long) v4 * IPV4_ENTRY_BYTES;
+            long v6Bytes = (long) v6 * IPV6_ENTRY_BYTES;
+            if (v4 < 0 || v6 < 0 || HEADER_BYTES + v4Bytes + v6Bytes != size) {
+                throw new IOException("Truncated IP range table: " + file);
+            }
+            MappedByteBuffer ipv4 = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, v4Bytes);
+            MappedByteBuffer ipv6 = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + v4Bytes, v6Bytes);
+            return new IpRangeTable(ipv4.order(ByteOrder.LITTLE_ENDIAN), ipv6.order(ByteOrder.LITTLE_ENDIAN),
+                    v4, v6, size);
+        }
+    }
+
+    /**
+     * 주소 문자열 조회. IPv4 는 할당 없이 처리하고 IPv6 는 {@link IpPrefix#parseAddress} 를 거친다.
+     *
+     * @return IP 리터럴이 아니면 false
+     */
+    public boolean contains(CharSequence ip) {
+        long v4 = parseIpv4(ip, 0, ip.length());
+        if (v4 >= 0) {
+            return containsIpv4((int) v4);
+        }
+        if (ipv6Count == 0) {
+            return false;
+        }
+        try {
+            return contains(IpPrefix.parseAddress(ip.toString()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param address 4 또는 16 바이트
+     */
+    public boolean contains(byte[] address) {
+        if (address.length == 4) {
+            return containsIpv4(ByteBuffer.wrap(address).getInt());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(address);
+        return containsIpv6(buffer.getLong(), buffer.getLong());
+    }
+
+    public boolean containsIpv4(int ip) {
+        if (ipv4Count == 0) {
+            return false;
+        }
+        // start <= ip 인 마지막 범위. 이 구간 앞 범위(found 초기값)가 구간까지 이어져 있을 수 있다
+        int bucket = ip >>> BUCKET_SHIFT;
+        int lo = ipv4Buckets[bucket];
+        int hi = ipv4Buckets[bucket + 1] - 1;
+        int found = lo - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(ipv4.getInt(mid * IPV4_ENTRY_BYTES), ip) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && Integer.compareUnsigned(ip, ipv4.getInt(found * IPV4_ENTRY_BYTES + 4)) <= 0;
+    }
+
+    public boolean containsIpv6(long high, long low) {
+        int lo = 0;
+        int hi = ipv6Count - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int base = mid * IPV6_ENTRY_BYTES;
+            if (compare(ipv6.getLong(base), ipv6.getLong(base + 8), high, low) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return false;
+        }
+        int base = found * IPV6_ENTRY_BYTES;
+        return compare(high, low, ipv6.getLong(base + 16), ipv6.getLong(base + 24)) <= 0;
+    }
+
+    public int ipv4Ranges() {
+        return ipv4Count;
+    }
+
+    public int ipv6Ranges() {
+        return ipv6Count;
+    }
+
+    /**
+     * 파일 크기 (= 매핑된 메모리 크기)
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 점 표기 IPv4 -> 부호 없는 32비트 값. 할당하지 않는다.
+     *
+     * @return IPv4 리터럴이 아니면 -1
+     */
+    public static long parseIpv4(CharSequence s, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                result = (result << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octets != 3 || value < 0) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int c = Long.compareUnsigned(aHigh, bHigh);
+        return c != 0 ? c : Long.compareUnsigned(aLow, bLow);
+    }
+
+    private static ByteBuffer emptyBuffer() {
+        return ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 피드 -> 테이블 파일 빌더
+     *
+     * 한 줄에 IP, CIDR, "시작-끝" 범위 하나. '#' / ';' 뒤는 주석이고 첫 공백 이후(점수, 태그 등)는 무시한다.
+     * IPv4 는 범위 하나를 long 하나(시작 << 32 | 끝)에 담아 정렬하므로 1,000만 건도 80MB 배열 하나로 끝난다.
+     */
+    public static final class Builder {
+
+        private long[] ipv4 = new long[1024];
+        private int ipv4Size;
+        private long[] ipv6 = new long[4 * 64];
+        private int ipv6Size;
+        private long accepted;
+        private long rejected;
+
+        /**
+         * @return 범위로 인식했으면 true (빈 줄/주석은 false 지만 rejected 로 세지 않는다)
+         */
+        public boolean add(CharSequence line) {
+            int from = 0;
+            int to = line.length();
+            for (int i = 0; i < to; i++) {
+                char c = line.charAt(i);
+                if (c == '#' || c == ';') {
+                    to = i;
+                    break;
+                }
+            }
+            while (from < to && Character.isWhitespace(line.charAt(from))) {
+                from++;
+            }
+            int end = from;
+            while (end < to && !Character.isWhitespace(line.charAt(end)) && line.charAt(end) != ',') {
+                end++;
+            }
+            if (from == end) {
+                return false;
+            }
+
+            long v4 = parseIpv4(line, from, end);
+            if (v4 >= 0) {
+                addIpv4(v4, v4);
+                accepted++;
+                return true;
+            }
+            try {
+                String token = line.subSequence(from, end).toString();
+                int dash = token.indexOf('-');
+                if (dash > 0) {
+                    byte[] start = IpPrefix.parseAddress(token.substring(0, dash));
+                    byte[] last = IpPrefix.parseAddress(token.substring(dash + 1));
+                    if (start.length != last.length) {
+                        throw new IllegalArgumentException("Mixed address family: " + token);
+                    }
+                    addRange(new BigInteger(1, start), new BigInteger(1, last), start.length == 4);
+                } else {
+                    IpPrefix prefix = IpPrefix.parse(token);
+                    addRange(prefix.first(), prefix.last(), prefix.isIpv4());
+                }
+                accepted++;
+                return true;
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                return false;
+            }
+        }
+
+        public void addIpv4(long start, long end) {
+            if (start > end) {
+                return;
+            }
+            if (ipv4Size == ipv4.length) {
+                ipv4 = Arrays.copyOf(ipv4, ipv4.length * 2);
+            }
+            // 부호 비트를 뒤집어 부호 있는 정렬 = 부호 없는 (start, end) 정렬
+            ipv4[ipv4Size++] = ((start << 32) | end) ^ Long.MIN_VALUE;
+        }
+
+        public void addIpv6(long startHigh, long startLow, long endHigh, long endLow) {
+            if (compare(startHigh, startLow, endHigh, endLow) > 0) {
+                return;
+            }
+            if (ipv6Size * 4 == ipv6.length) {
+                ipv6 = Arrays.copyOf(ipv6, ipv6.length * 2);
+            }
+            int base = ipv6Size++ * 4;
+            ipv6[base] = startHigh;
+            ipv6[base + 1] = startLow;
+            ipv6[base + 2] = endHigh;
+            ipv6[base + 3] = endLow;
+        }
+
+        public long accepted() {
+            return accepted;
+        }
+
+        public long rejected() {
+            return rejected;
+        }
+
+        /**
+         * 정렬/병합 후 임시 파일 -> fsync -> rename 으로 쓴다
+         *
+         * @return 쓴 파일을 연 테이블
+         */
+        public IpRangeTable writeTo(Path target) throws IOException {
+            long[] v4 = mergeIpv4();
+            long[] v6 = mergeIpv6();
+            int v4Count = v4.length;
+            int v6Count = v6.length / 4;
+
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(FORMAT).putInt(v4Count).putInt(v6Count);
+                for (long range : v4) {
+                    if (buffer.remaining() < IPV4_ENTRY_BYTES) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putInt((int) (range >>> 32)).putInt((int) range);
+                }
+                for (int i = 0; i < v6.length; i += 4) {
+                    if (buffer.remaining() < IPV6_ENTRY_BYTES) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(v6[i]).putLong(v6[i + 1]).putLong(v6[i + 2]).putLong(v6[i + 3]);
+                }
+                flush(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return open(target);
+        }
+
+        private void addRange(BigInteger start, BigInteger end, boolean isIpv4) {
+            if (isIpv4) {
+                addIpv4(start.longValue(), end.longValue());
+            } else {
+                addIpv6(start.shiftRight(64).longValue(), start.longValue(), end.shiftRight(64).longValue(), end.longValue());
+            }
+        }
+
+        /**
+         * @return 겹치거나 맞닿은 범위를 합친 (start << 32 | end) 배열
+         */
+        private long[] mergeIpv4() {
+            long[] sorted = Arrays.copyOf(ipv4, ipv4Size);
+            Arrays.parallelSort(sorted);
+            int out = 0;
+            long curStart = -1;
+            long curEnd = -1;
+            for (long packed : sorted) {
+                long range = packed ^ Long.MIN_VALUE;
+                long start = range >>> 32;
+                long end = range & 0xFFFFFFFFL;
+                if (curStart >= 0 && start <= curEnd + 1) {
+                    curEnd = Math.max(curEnd, end);
+                    continue;
+                }
+                if (curStart >= 0) {
+                    sorted[out++] = (curStart << 32) | curEnd;
+                }
+                curStart = start;
+                curEnd = end;
+            }
+            if (curStart >= 0) {
+                sorted[out++] = (curStart << 32) | curEnd;
+            }
+            return Arrays.copyOf(sorted, out);
+        }
+
+        /**
+         * @return 합친 범위 (4 long 씩)
+         */
+        private long[] mergeIpv6() {
+            Integer[] order = new Integer[ipv6Size];
+            for (int i = 0; i < ipv6Size; i++) {
+                order[i] = i * 4;
+            }
+            Arrays.sort(order, (a, b) -> compare(ipv6[a], ipv6[a + 1], ipv6[b], ipv6[b + 1]));
+            long[] merged = new long[ipv6Size * 4];
+            int out = 0;
+            for (int base : order) {
+                if (out > 0) {
+                    int last = out - 4;
+                    long nextHigh = merged[last + 3] == -1L ? merged[last + 2] + 1 : merged[last + 2];
+                    long nextLow = merged[last + 3] + 1;
+                    boolean touches = (merged[last + 2] == -1L && merged[last + 3] == -1L)
+                            || compare(ipv6[base], ipv6[base + 1], nextHigh, nextLow) <= 0;
+                    if (touches) {
+                        if (compare(ipv6[base + 2], ipv6[base + 3], merged[last + 2], merged[last + 3]) > 0) {
+                            merged[last + 2] = ipv6[base + 2];
+                            merged[last + 3] = ipv6[base + 3];
+                        }
+                        continue;
+                    }
+                }
+                System.arraycopy(ipv6, base, merged, out, 4);
+                out += 4;
+            }
+            return Arrays.copyOf(merged, out);
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
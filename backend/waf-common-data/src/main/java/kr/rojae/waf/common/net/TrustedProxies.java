@@ -0,0 +1,77 @@
+package kr.rojae.waf.common.net;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 신뢰하는 프록시(CIDR 목록) 뒤에서 클라이언트 주소를 고른다.
+ *
+ * - 소켓 주소가 신뢰 프록시일 때만 X-Forwarded-For 를 읽는다.
+ * - 값은 오른쪽(가장 가까운 hop)부터 보고, 신뢰 프록시를 건너뛴 첫 주소를 클라이언트로 본다.
+ *   왼쪽 값은 클라이언트가 마음대로 넣을 수 있어서 키로 쓰지 않는다.
+ * - 주소가 아닌 hop(호스트 이름, 포트 포함 등)을 만나면 그 바로 오른쪽 hop 에서 멈춘다.
+ * - 목록이 비어 있으면 항상 소켓 주소.
+ *
+ * 만든 뒤에는 읽기만 하므로 여러 스레드에서 동시에 써도 된다.
+ */
+public final class TrustedProxies {
+
+    private final CidrTrie<Boolean> proxies = new CidrTrie<>();
+
+    /**
+     * @throws IllegalArgumentException CIDR 형식이 아닌 항목이 있을 때
+     */
+    public TrustedProxies(Collection<String> cidrs) {
+        for (String cidr : cidrs) {
+            if (cidr != null && !cidr.isBlank()) {
+                proxies.put(IpPrefix.parse(cidr.strip()), Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * 등록된 CIDR 수
+     */
+    public int size() {
+        return proxies.size();
+    }
+
+    public boolean contains(byte[] address) {
+        return address != null && proxies.longestMatch(address) != null;
+    }
+
+    /**
+     * @param peer         소켓 주소 (4 또는 16 바이트)
+     * @param forwardedFor 전달 헤더 값들. 헤더가 여러 줄이면 순서대로 이어 붙인 것으로 본다
+     * @return 클라이언트 주소. peer 가 null 이면 null
+     */
+    public byte[] clientAddress(byte[] peer, List<String> forwardedFor) {
+        if (forwardedFor == null || forwardedFor.isEmpty() || !contains(peer)) {
+            return peer;
+        }
+        byte[] client = peer;
+        for (int line = forwardedFor.size() - 1; line >= 0; line--) {
+            String value = forwardedFor.get(line);
+            for (int end = value.length(); end >= 0; ) {
+                int comma = value.lastIndexOf(',', end - 1);
+                String hop = value.substring(comma + 1, end).strip();
+                end = comma;
+                if (hop.isEmpty()) {
+                    continue;
+                }
+                byte[] address;
+                try {
+                    address = IpPrefix.parseAddress(hop);
+                } catch (IllegalArgumentException e) {
+                    return client;
+                }
+                if (!contains(address)) {
+                    return address;
+                }
+                client = address;
+            }
+        }
+        // 전부 신뢰 프록시면 가장 왼쪽
+        return client;
+    }
+}
@@ -0,0 +1,56 @@
+package kr.rojae.waf.common.ratelimit;
+
+import kr.rojae.waf.common.net.TrustedProxies;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 클라이언트 IP 별 rate limit (app.rate-limit.routes) 빈 등록. waf-common-data 를 쓰는 서비스에 자동으로 적용된다
+ *
+ * - 서블릿 서비스(dashboard, social): {@link RateLimitServletFilter} 를 ForwardedHeaderFilter 다음, Spring Security 앞에 등록
+ * - 리액티브 게이트웨이: {@link RateLimitRegistry} 만 등록하고, 요청 제한은 게이트웨이의 EdgeRateLimitFilter 가 한다
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConfigurationProperties(prefix = "app.rate-limit")
+    public RateLimitProperties rateLimitProperties() {
+        return new RateLimitProperties();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimitRegistry rateLimitRegistry(RateLimitProperties rateLimitProperties) {
+        return new RateLimitRegistry(rateLimitProperties);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletFilterConfiguration {
+
+        /**
+         * ForwardedHeaderFilter(HIGHEST_PRECEDENCE) 다음, Security filter chain(-100) 앞
+         */
+        private static final int FILTER_ORDER = -200;
+
+        @Bean
+        public FilterRegistrationBean<RateLimitServletFilter> rateLimitFilter(RateLimitRegistry rateLimitRegistry,
+                                                                              RateLimitProperties rateLimitProperties) {
+            FilterRegistrationBean<RateLimitServletFilter> registration = new FilterRegistrationBean<>(
+                    new RateLimitServletFilter(rateLimitRegistry, rateLimitProperties.getClientIpHeader(),
+                            new TrustedProxies(rateLimitProperties.getTrustedProxies())));
+            registration.setOrder(FILTER_ORDER);
+            registration.setEnabled(!rateLimitRegistry.isEmpty());
+            return registration;
+        }
+    }
+}
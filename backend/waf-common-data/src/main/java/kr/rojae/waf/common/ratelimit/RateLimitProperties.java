@@ -0,0 +1,81 @@
+package kr.rojae.waf.common.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * app.rate-limit 설정
+ *
+ * <pre>
+ * app:
+ *   rate-limit:
+ *     max-keys: 100000
+ *     trusted-proxies: 10.0.0.0/8,172.16.0.0/12
+ *     routes:
+ *       - name: auth
+ *         path: /auth/**
+ *         permits: 10
+ *         period: 1m
+ *       - name: api
+ *         path: /api/**
+ *         methods: POST,PUT,DELETE
+ *         permits: 20
+ *         period: 1s
+ *         burst: 40
+ * </pre>
+ *
+ * routes 는 위에서부터 처음 맞는 것 하나만 적용한다.
+ */
+@Getter
+@Setter
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * route 별로 추적할 최대 클라이언트 수
+     */
+    private int maxKeys = 100_000;
+
+    /**
+     * 클라이언트 IP 를 읽을 헤더. 소켓 주소가 trusted-proxies 안일 때만 읽는다
+     */
+    private String clientIpHeader = "X-Forwarded-For";
+
+    /**
+     * 전달 헤더를 믿을 프록시 CIDR 목록 (비우면 항상 소켓 주소)
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    private List<Route> routes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Route {
+
+        private String name;
+
+        /**
+         * 정확한 경로, 또는 "/prefix/**" 형태
+         */
+        private String path = "/**";
+
+        /**
+         * 비어 있으면 모든 메서드
+         */
+        private List<String> methods = new ArrayList<>();
+
+        private long permits;
+
+        private Duration period = Duration.ofSeconds(1);
+
+        /**
+         * 한 번에 허용할 최대 요청 수 (0 이면 permits)
+         */
+        private int burst;
+    }
+}
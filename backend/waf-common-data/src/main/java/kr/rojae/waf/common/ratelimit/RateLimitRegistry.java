@@ -0,0 +1,80 @@
+package kr.rojae.waf.common.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * route(경로 + 메서드)별 {@link RateLimiter} 목록. 요청마다 처음 맞는 route 의 limiter 를 돌려준다
+ */
+public final class RateLimitRegistry {
+
+    private final List<Entry> entries;
+
+    public RateLimitRegistry(RateLimitProperties properties) {
+        this.entries = properties.getRoutes().stream()
+                .map(route -> new Entry(
+                        pathPrefix(route.getPath()),
+                        route.getPath().endsWith("/**"),
+                        route.getMethods().stream().map(m -> m.strip().toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet()),
+                        new RateLimiter(route.getName() != null ? route.getName() : route.getPath(),
+                                route.getPermits(), route.getPeriod(), route.getBurst(), properties.getMaxKeys())))
+                .toList();
+    }
+
+    /**
+     * @return 맞는 route 가 없으면 null (제한 없음)
+     */
+    public RateLimiter resolve(String method, String path) {
+        for (Entry entry : entries) {
+            if (entry.matches(method, path)) {
+                return entry.limiter();
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public List<Map<String, Object>> status() {
+        return entries.stream().map(entry -> {
+            RateLimiter limiter = entry.limiter();
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("name", limiter.name());
+            status.put("path", entry.wildcard() ? entry.path() + "/**" : entry.path());
+            status.put("methods", entry.methods());
+            status.put("permits", limiter.permits());
+            status.put("period", limiter.period().toString());
+            status.put("burst", limiter.burst());
+            status.put("trackedKeys", limiter.size());
+            status.put("capacity", limiter.capacity());
+            status.put("allowed", limiter.allowed());
+            status.put("rejected", limiter.rejected());
+            status.put("evicted", limiter.evicted());
+            return status;
+        }).toList();
+    }
+
+    private static String pathPrefix(String pattern) {
+        return pattern.endsWith("/**") ? pattern.substring(0, pattern.length() - 3) : pattern;
+    }
+
+    private record Entry(String path, boolean wildcard, Set<String> methods, RateLimiter limiter) {
+
+        boolean matches(String method, String requestPath) {
+            if (!methods.isEmpty() && !methods.contains(method)) {
+                return false;
+            }
+            if (!wildcard) {
+                return requestPath.equals(path);
+            }
+            return requestPath.startsWith(path)
+                    && (requestPath.length() == path.length() || path.isEmpty() || requestPath.charAt(path.length()) == '/');
+        }
+    }
+}
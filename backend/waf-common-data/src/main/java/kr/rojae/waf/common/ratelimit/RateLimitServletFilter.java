@@ -0,0 +1,87 @@
+package kr.rojae.waf.common.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletRequestWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kr.rojae.waf.common.net.IpPrefix;
+import kr.rojae.waf.common.net.TrustedProxies;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 서블릿(Spring MVC) 서비스용 rate limit 필터. 한도를 넘으면 429 + Retry-After
+ *
+ * Spring Security 보다 앞에 등록해서 인증 처리 비용도 아낀다.
+ * 클라이언트 키는 {@link TrustedProxies} 로 고른다. ForwardedHeaderFilter 가 바꾼 getRemoteAddr(XFF 가장 왼쪽 값)는
+ * 클라이언트가 정할 수 있으므로 감싸지 않은 원래 요청의 소켓 주소와 헤더를 읽는다.
+ */
+public class RateLimitServletFilter extends OncePerRequestFilter {
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final RateLimitRegistry registry;
+    private final String clientIpHeader;
+    private final TrustedProxies trustedProxies;
+
+    public RateLimitServletFilter(RateLimitRegistry registry, String clientIpHeader, TrustedProxies trustedProxies) {
+        this.registry = registry;
+        this.clientIpHeader = clientIpHeader == null || clientIpHeader.isBlank() ? null : clientIpHeader;
+        this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimiter limiter = registry.resolve(request.getMethod(), path);
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RateLimiter.Decision decision = limiter.tryAcquire(clientKey(request));
+        if (decision.allowed()) {
+            response.setHeader(REMAINING_HEADER, Long.toString(decision.remaining()));
+            chain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+        response.setHeader(REMAINING_HEADER, "0");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"rate limit exceeded\",\"limit\":\"" + limiter.name() + "\"}");
+    }
+
+    /**
+     * 클라이언트 주소 바이트를 그대로 키로 쓴다 (IPv4 는 4 글자, 게이트웨이와 같은 형식)
+     */
+    private String clientKey(HttpServletRequest request) {
+        ServletRequest socket = request;
+        while (socket instanceof ServletRequestWrapper wrapper) {
+            socket = wrapper.getRequest();
+        }
+        String remoteAddr = socket.getRemoteAddr();
+        byte[] peer;
+        try {
+            peer = IpPrefix.parseAddress(remoteAddr);
+        } catch (IllegalArgumentException e) {
+            return remoteAddr;
+        }
+        List<String> forwarded = clientIpHeader != null && trustedProxies.contains(peer)
+                && socket instanceof HttpServletRequest http
+                ? Collections.list(http.getHeaders(clientIpHeader))
+                : List.of();
+        return new String(trustedProxies.clientAddress(peer, forwarded), StandardCharsets.ISO_8859_1);
+    }
+}
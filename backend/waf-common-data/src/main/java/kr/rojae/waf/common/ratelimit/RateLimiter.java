@@ -0,0 +1,207 @@
+package kr.rojae.waf.common.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 키(클라이언트 IP 등)별 토큰 버킷 rate limiter
+ *
+ * GCRA(generic cell rate algorithm)로 구현해서 키당 상태는 TAT(theoretical arrival time) long 하나이고,
+ * 잠금 없이 CAS 로만 갱신한다. 버킷이 가득 찬 키(TAT &lt;= now)는 없는 키와 동작이 같으므로 지워도 된다.
+ *
+ * 키는 stripe 별 맵에 나눠 담고 stripe 마다 용량을 둔다. 용량이 차면 새 키를 넣을 때 CLOCK 처럼 ring 을 돌며
+ * 표본 몇 개 중 가득 찬 키를, 없으면 TAT 가 가장 오래된 키를 지운다 (근사 LRU). 그래서 서로 다른 IP 가
+ * 수백만 개 들어와도 메모리는 maxKeys 에서 멈춘다. 지워진 키는 다음 요청 때 가득 찬 버킷으로 다시 시작한다.
+ */
+public final class RateLimiter {
+
+    private static final int SAMPLE = 8;
+
+    private final String name;
+    private final long permits;
+    private final Duration period;
+    private final int burst;
+    /** 토큰 하나가 다시 차는 시간 */
+    private final long emissionNanos;
+    /** 한 번에 몰아 쓸 수 있는 양 (emission * burst) */
+    private final long toleranceNanos;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param permits period 동안 허용할 요청 수
+     * @param burst   한 번에 허용할 최대 요청 수 (0 이하면 permits)
+     * @param maxKeys 추적할 최대 키 수 (근사치)
+     */
+    public RateLimiter(String name, long permits, Duration period, int burst, int maxKeys) {
+        if (permits <= 0 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("permits and period must be positive: " + permits + " / " + period);
+        }
+        this.name = name;
+        this.permits = permits;
+        this.period = period;
+        this.burst = burst > 0 ? burst : (int) Math.min(permits, Integer.MAX_VALUE);
+        this.emissionNanos = Math.max(1, period.toNanos() / permits);
+        this.toleranceNanos = emissionNanos > Long.MAX_VALUE / this.burst ? Long.MAX_VALUE : emissionNanos * this.burst;
+
+        int count = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        int stripeCapacity = Math.max(SAMPLE, maxKeys / count);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        this.stripeMask = count - 1;
+    }
+
+    public Decision tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    /**
+     * @param now System.nanoTime() 기준 현재 시각
+     */
+    public Decision tryAcquire(String key, long now) {
+        int h = key.hashCode();
+        Stripe stripe = stripes[(h ^ (h >>> 16)) & stripeMask];
+        AtomicLong tat = stripe.map.get(key);
+        if (tat == null) {
+            tat = insert(stripe, key, now);
+        }
+
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + emissionNanos;
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return new Decision(false, 0, wait);
+            }
+            if (tat.compareAndSet(current, next)) {
+                allowed.increment();
+                return new Decision(true, (toleranceNanos - (next - now)) / emissionNanos, 0);
+            }
+        }
+    }
+
+    private AtomicLong insert(Stripe stripe, String key, long now) {
+        AtomicLong created = new AtomicLong(now);
+        synchronized (stripe) {
+            AtomicLong existing = stripe.map.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing;
+            }
+            if (stripe.count < stripe.ring.length) {
+                stripe.ring[stripe.count++] = key;
+            } else {
+                stripe.ring[evict(stripe, now)] = key;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * ring 의 hand 부터 SAMPLE 칸을 보고, 가득 찬 버킷(TAT &lt;= now)이 있으면 그것을, 없으면 TAT 가 가장 오래된 키를 지운다
+     *
+     * @return 비워진 ring 칸
+     */
+    private int evict(Stripe stripe, long now) {
+        String[] ring = stripe.ring;
+        int victim = stripe.hand;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLE; i++) {
+            int slot = (stripe.hand + i) % ring.length;
+            long tat = stripe.map.get(ring[slot]).get();
+            if (tat <= now) {
+                victim = slot;
+                break;
+            }
+            if (tat < oldest) {
+                oldest = tat;
+                victim = slot;
+            }
+        }
+        stripe.map.remove(ring[victim]);
+        stripe.hand = (victim + 1) % ring.length;
+        evicted.increment();
+        return victim;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long permits() {
+        return permits;
+    }
+
+    public Duration period() {
+        return period;
+    }
+
+    public int burst() {
+        return burst;
+    }
+
+    /**
+     * 현재 추적 중인 키 수
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.count;
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return stripes[0].ring.length * stripes.length;
+    }
+
+    public long allowed() {
+        return allowed.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    /**
+     * 키 조회/CAS 는 잠금 없이 map 으로, 키 추가/축출만 stripe 잠금 아래에서 ring(CLOCK)으로 한다
+     */
+    private static final class Stripe {
+        final ConcurrentHashMap<String, AtomicLong> map;
+        final String[] ring;
+        volatile int count;
+        int hand;
+
+        Stripe(int capacity) {
+            this.map = new ConcurrentHashMap<>(Math.min(capacity, 1 << 12));
+            this.ring = new String[capacity];
+        }
+    }
+
+    /**
+     * @param remaining       허용된 경우 남은 요청 수
+     * @param retryAfterNanos 거절된 경우 다음 요청이 허용될 때까지 남은 시간
+     */
+    public record Decision(boolean allowed, long remaining, long retryAfterNanos) {
+
+        /**
+         * Retry-After 헤더 값 (초, 올림)
+         */
+        public long retryAfterSeconds() {
+            return Math.max(1, (retryAfterNanos + 999_999_999L) / 1_000_000_000L);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package kr.rojae.waf.common.text;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 바이트 단위 Aho-Corasick 다중 패턴 매처 (ModSecurity @pm 과 같은 의미)
+ *
+ * - 실패 링크를 미리 풀어 둔 DFA 테이블(상태 x 256)이라 입력 1바이트당 배열 조회 1번으로 끝난다.
+ * - ignoreCase 면 ASCII 대소문자를 구분하지 않는다 (@pm 과 동일).
+ * - 문자열 입력은 UTF-8 로 인코딩한 바이트 기준으로 매칭한다.
+ *
+ * - {@link #tagged} 로 만들면 패턴마다 64비트 태그를 붙여 상태별로 미리 OR 해 두고,
+ *   {@link #step}/{@link #tags} 로 호출자가 바이트를 하나씩 (디코딩하면서) 먹이며 매칭 태그를 할당 없이 모을 수 있다.
+ *
+ * 생성 후에는 불변이라 여러 스레드에서 공유해도 된다.
+ */
+public final class AhoCorasick {
+
+    private static final int ALPHABET = 256;
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final int[] next;
+    private final int[][] outputs;
+    private final int[] dictLink;
+    private final long[] stateTags;
+    private final boolean ignoreCase;
+    private final int patternCount;
+
+    private AhoCorasick(int[] next, int[][] outputs, int[] dictLink, long[] stateTags, boolean ignoreCase, int patternCount) {
+        this.next = next;
+        this.outputs = outputs;
+        this.dictLink = dictLink;
+        this.stateTags = stateTags;
+        this.ignoreCase = ignoreCase;
+        this.patternCount = patternCount;
+    }
+
+    public static AhoCorasick caseInsensitive(List<String> patterns) {
+        return of(patterns, true);
+    }
+
+    public static AhoCorasick of(List<String> patterns, boolean ignoreCase) {
+        return build(patterns, null, ignoreCase);
+    }
+
+    /**
+     * @param tags 패턴별 태그 (patterns 와 같은 순서). 상태의 태그는 그 상태에서 끝나는 모든 패턴 태그의 OR
+     */
+    public static AhoCorasick tagged(List<String> patterns, long[] tags, boolean ignoreCase) {
+        if (tags.length != patterns.size()) {
+            throw new IllegalArgumentException("tags.length != patterns.size()");
+        }
+        return build(patterns, tags, ignoreCase);
+    }
+
+    private static AhoCorasick build(List<String> patterns, long[] tags, boolean ignoreCase) {
+        // 1. trie
+        List<int[]> gotos = new ArrayList<>();
+        List<int[]> own = new ArrayList<>();
+        gotos.add(newRow());
+        own.add(NO_OUTPUT);
+
+        for (int p = 0; p < patterns.size(); p++) {
+            byte[] bytes = patterns.get(p).getBytes(StandardCharsets.UTF_8);
+            if (bytes.length == 0) {
+                continue;
+            }
+            int state = 0;
+            for (byte b : bytes) {
+                int c = fold(b & 0xFF, ignoreCase);
+                int target = gotos.get(state)[c];
+                if (target < 0) {
+                    target = gotos.size();
+                    gotos.get(state)[c] = target;
+                    gotos.add(newRow());
+                    own.add(NO_OUTPUT);
+                }
+                state = target;
+            }
+            int[] out = own.get(state);
+            int[] grown = Arrays.copyOf(out, out.length + 1);
+            grown[out.length] = p;
+            own.set(state, grown);
+        }
+
+        // 2. BFS 로 실패 링크를 풀어 DFA 전이 테이블 생성
+        int states = gotos.size();
+        int[] next = new int[states * ALPHABET];
+        int[] fail = new int[states];
+        int[] dictLink = new int[states];
+        Arrays.fill(dictLink, -1);
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+
+        int[] root = gotos.get(0);
+        for (int c = 0; c < ALPHABET; c++) {
+            int target = root[c];
+            if (target < 0) {
+                next[c] = 0;
+            } else {
+                next[c] = target;
+                fail[target] = 0;
+                queue[tail++] = target;
+            }
+        }
+
+        while (head < tail) {
+            int state = queue[head++];
+            int[] row = gotos.get(state);
+            int base = state * ALPHABET;
+            int failBase = fail[state] * ALPHABET;
+            for (int c = 0; c < ALPHABET; c++) {
+                int target = row[c];
+                if (target < 0) {
+                    next[base + c] = next[failBase + c];
+                } else {
+                    next[base + c] = target;
+                    int f = next[failBase + c];
+                    fail[target] = f;
+                    dictLink[target] = own.get(f).length > 0 ? f : dictLink[f];
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        long[] stateTags = null;
+        if (tags != null) {
+            // BFS 순서라 dictLink 대상 상태는 항상 먼저 계산되어 있다
+            stateTags = new long[states];
+            for (int i = -1; i < tail; i++) {
+                int state = i < 0 ? 0 : queue[i];
+                long mask = dictLink[state] >= 0 ? stateTags[dictLink[state]] : 0L;
+                for (int p : own.get(state)) {
+                    mask |= tags[p];
+                }
+                stateTags[state] = mask;
+            }
+        }
+
+        if (ignoreCase) {
+            // 대문자 입력도 소문자 전이를 타도록 테이블에 복사해 매칭 루프에서 fold 를 없앤다
+            for (int s = 0; s < states; s++) {
+                int base = s * ALPHABET;
+                for (int c = 'A'; c <= 'Z'; c++) {
+                    next[base + c] = next[base + c + ('a' - 'A')];
+                }
+            }
+        }
+
+        return new AhoCorasick(next, own.toArray(int[][]::new), dictLink, stateTags, ignoreCase, patterns.size());
+    }
+
+    /**
+     * 시작 상태 (입력 경계에서 다시 시작할 때)
+     */
+    public static int initialState() {
+        return 0;
+    }
+
+    /**
+     * state 에서 바이트 b(0..255) 하나를 먹인 다음 상태
+     */
+    public int step(int state, int b) {
+        return next[state * ALPHABET + b];
+    }
+
+    /**
+     * state 에서 끝나는 패턴들의 태그 OR ({@link #tagged} 로 만든 경우만, 아니면 0)
+     */
+    public long tags(int state) {
+        return stateTags != null ? stateTags[state] : 0L;
+    }
+
+    /**
+     * 입력에 등장한 패턴들의 태그 OR. 할당 없이 끝까지 스캔한다
+     */
+    public long matchTags(byte[] input, int offset, int length) {
+        if (stateTags == null) {
+            return 0L;
+        }
+        long mask = 0L;
+        int state = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            state = next[state * ALPHABET + (input[i] & 0xFF)];
+            mask |= stateTags[state];
+        }
+        return mask;
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * 패턴 중 하나라도 포함하면 true (첫 매칭에서 바로 반환)
+     */
+    public boolean containsAny(byte[] input, int offset, int length) {
+        int state = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            state = next[state * ALPHABET + (input[i] & 0xFF)];
+            if (outputs[state].length > 0 || dictLink[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean containsAny(CharSequence input) {
+        int state = 0;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char ch = input.charAt(i);
+            if (ch < 0x80) {
+                state = next[state * ALPHABET + ch];
+                if (outputs[state].length > 0 || dictLink[state] >= 0) {
+                    return true;
+                }
+            } else {
+                byte[] encoded = encode(input, i);
+                if (Character.isHighSurrogate(ch) && i + 1 < n) {
+                    i++;
+                }
+                for (byte b : encoded) {
+                    state = next[state * ALPHABET + (b & 0xFF)];
+                    if (outputs[state].length > 0 || dictLink[state] >= 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 입력에 등장한 모든 패턴의 인덱스
+     */
+    public BitSet matchAll(CharSequence input) {
+        BitSet matched = new BitSet(patternCount);
+        int state = 0;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char ch = input.charAt(i);
+            if (ch < 0x80) {
+                state = next[state * ALPHABET + ch];
+                collect(state, matched);
+            } else {
+                byte[] encoded = encode(input, i);
+                if (Character.isHighSurrogate(ch) && i + 1 < n) {
+                    i++;
+                }
+                for (byte b : encoded) {
+                    state = next[state * ALPHABET + (b & 0xFF)];
+                    collect(state, matched);
+                }
+            }
+        }
+        return matched;
+    }
+
+    private void collect(int state, BitSet matched) {
+        for (int s = outputs[state].length > 0 ? state : dictLink[state]; s >= 0; s = dictLink[s]) {
+            for (int p : outputs[s]) {
+                matched.set(p);
+            }
+        }
+    }
+
+    private static byte[] encode(CharSequence input, int index) {
+        char ch = input.charAt(index);
+        if (Character.isHighSurrogate(ch) && index + 1 < input.length()) {
+            return input.subSequence(index, index + 2).toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return String.valueOf(ch).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int fold(int c, boolean ignoreCase) {
+        return ignoreCase && c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
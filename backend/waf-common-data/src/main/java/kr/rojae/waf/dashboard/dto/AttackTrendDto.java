@@ -0,0 +1,13 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record AttackTrendDto(
+        LocalDateTime bucket,
+        Long attackCount,
+        Long blockedCount,
+        Long allowedCount
+) {}
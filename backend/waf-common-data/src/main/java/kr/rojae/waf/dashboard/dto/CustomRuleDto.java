@@ -4,7 +4,7 @@ import lombok.Builder;
 
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 public record CustomRuleDto(
         String id,
         String name,
@@ -13,6 +13,10 @@ public record CustomRuleDto(
         Boolean enabled,
         String description,
         Integer priority,
+        // ModSecurity 룰 id (900000~999999). 생성 시 겹치지 않게 할당해 저장한다
+        Integer modsecId,
+        RuleCostDto cost,
+        RuleHitStatsDto hits,
         LocalDateTime createdAt,
         LocalDateTime updatedAt
 ) {}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record DeadRuleDto(
+        String id,
+        String name,
+        String action,
+        Boolean enabled,
+        Integer modsecId,
+        LocalDateTime createdAt,
+        LocalDateTime lastHitAt,
+        Long meanNanosPerMatch
+) {}
@@ -0,0 +1,10 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+@Builder
+public record EntitySummaryDto(
+        String entity,
+        String key,
+        Long count
+) {}
@@ -0,0 +1,18 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record IpAttackSummaryDto(
+        String clientIp,
+        String countryCode,
+        Long attackCount,
+        Double avgAnomalyScore,
+        Integer maxAnomalyScore,
+        Long uniqueRules,
+        Long uniqueUris,
+        LocalDateTime firstSeen,
+        LocalDateTime lastSeen
+) {}
@@ -0,0 +1,18 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder
+public record RuleCostDto(
+        Long worstNanosPerMatch,
+        Long meanNanosPerMatch,
+        String worstInput,
+        Integer samples,
+        List<String> warnings,
+        Boolean rejected,
+        String reason,
+        LocalDateTime profiledAt
+) {}
@@ -0,0 +1,16 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record RuleHitStatsDto(
+        Integer modsecId,
+        Long lastHour,
+        Long last24Hours,
+        Long last7Days,
+        Long last30Days,
+        Double perMinute,
+        LocalDateTime lastHitAt
+) {}
@@ -0,0 +1,12 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+@Builder
+public record RuleImportErrorDto(
+        Integer index,
+        String id,
+        String name,
+        String message,
+        RuleCostDto cost
+) {}
@@ -0,0 +1,20 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record RuleImportResultDto(
+        Integer received,
+        Integer created,
+        Integer updated,
+        Integer unchanged,
+        Integer failed,
+        Boolean applied,
+        Long ruleSetVersion,
+        String ruleSetHash,
+        Long validationMillis,
+        Long elapsedMillis,
+        List<RuleImportErrorDto> errors
+) {}
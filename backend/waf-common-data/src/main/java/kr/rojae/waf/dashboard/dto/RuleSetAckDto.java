@@ -0,0 +1,22 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+/**
+ * WAF 노드 rule agent 의 적용 결과 (Kafka waf-rule-acks, key = nodeId)
+ *
+ * @param status WRITTEN(파일 반영) / APPLIED(nginx 리로드 확인) / FAILED
+ */
+@Builder
+public record RuleSetAckDto(
+        String nodeId,
+        Long version,
+        String hash,
+        String status,
+        String message,
+        Instant receivedAt,
+        Instant appliedAt,
+        Instant sentAt
+) {}
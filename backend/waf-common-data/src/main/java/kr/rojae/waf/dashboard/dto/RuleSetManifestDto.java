@@ -0,0 +1,22 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * 배포된 rule-set 의 manifest (Kafka waf-rule-sets 의 "manifest" 키 값)
+ *
+ * @param index        nginx 가 include 하는 Include 목록 파일 이름
+ * @param indexContent Include 목록 파일 내용
+ */
+@Builder
+public record RuleSetManifestDto(
+        Long version,
+        String hash,
+        Integer ruleCount,
+        String generatedAt,
+        String index,
+        String indexContent,
+        List<RuleShardDto> files
+) {}
@@ -0,0 +1,18 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+/**
+ * rule-set shard 1개 (rules.d/*.conf). manifest 항목일 때는 content 가 없다.
+ *
+ * @param encoding content 인코딩: identity 또는 gzip (gzip 후 base64)
+ */
+@Builder
+public record RuleShardDto(
+        String name,
+        String hash,
+        Integer rules,
+        Long version,
+        String encoding,
+        String content
+) {}
@@ -0,0 +1,24 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.List;
+
+@Builder
+public record RuleSimulationDto(
+        String ruleId,
+        String pattern,
+        String source,
+        Instant from,
+        Instant to,
+        Long scanned,
+        Long hits,
+        Double hitRatio,
+        Long errors,
+        List<EntitySummaryDto> topUris,
+        List<String> samples,
+        Long elapsedMillis,
+        Long eventsPerSecond,
+        Boolean truncated
+) {}
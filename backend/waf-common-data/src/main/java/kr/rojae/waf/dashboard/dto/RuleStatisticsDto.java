@@ -0,0 +1,14 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+@Builder
+public record RuleStatisticsDto(
+        String ruleId,
+        String category,
+        String severity,
+        Long triggerCount,
+        Long blockedCount,
+        Long allowedCount,
+        Integer activeDays
+) {}
@@ -4,7 +4,7 @@ import lombok.Builder;
 
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 public record WafLogDto(
         String id,
         LocalDateTime timestamp,
@@ -18,5 +18,7 @@ public record WafLogDto(
         String message,
         Boolean blocked,
         String userAgent,
-        Long responseTime
+        Long responseTime,
+        // 위협 인텔 피드에 있는 출발지 IP
+        Boolean knownThreat
 ) {}
\ No newline at end of file
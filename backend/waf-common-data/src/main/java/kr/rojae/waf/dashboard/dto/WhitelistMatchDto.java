@@ -0,0 +1,15 @@
+package kr.rojae.waf.dashboard.dto;
+
+import lombok.Builder;
+
+/**
+ * IP 화이트리스트 조회 결과. 여러 항목에 걸리면 가장 긴 프리픽스 항목.
+ */
+@Builder
+public record WhitelistMatchDto(
+        String ip,
+        Boolean matched,
+        String id,
+        String cidr,
+        String description
+) {}
@@ -0,0 +1,85 @@
+package kr.rojae.waf.common.collect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    @Test
+    void everyInsertedItemIsReported() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            String item = UUID.randomUUID().toString();
+            items.add(item);
+            filter.put(BloomFilter.hash(item));
+        }
+
+        assertThat(items).allMatch(item -> filter.mightContain(BloomFilter.hash(item)));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put(BloomFilter.hash("in-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(BloomFilter.hash("out-" + i))) {
+                falsePositives++;
+            }
+        }
+        // 2 의 거듭제곱으로 올림한 만큼 여유가 있으므로 목표의 두 배를 넘지 않아야 한다
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void concurrentPutsLoseNoBits() throws Exception {
+        BloomFilter filter = new BloomFilter(80_000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        filter.put(BloomFilter.hash(thread + "-" + i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertThat(filter.mightContain(BloomFilter.hash(t + "-" + i))).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void sizesBitsToPowerOfTwo() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+
+        assertThat(Long.bitCount(filter.bits())).isEqualTo(1);
+        assertThat(filter.bits()).isGreaterThanOrEqualTo(9586);
+        assertThat(filter.hashes()).isBetween(7, 14);
+        assertThatThrownBy(() -> new BloomFilter(Long.MAX_VALUE / 2, 0.01))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
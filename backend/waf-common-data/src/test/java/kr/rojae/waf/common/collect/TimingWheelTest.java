@@ -0,0 +1,104 @@
+package kr.rojae.waf.common.collect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void alreadyExpiredItemIsRejected() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 3, NOW);
+
+        assertThat(wheel.add("past", NOW - 1)).isFalse();
+        assertThat(wheel.add("now", NOW + 1)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void itemExpiresWithinOneTickAfterItsExpiry() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 3, NOW);
+        wheel.add("a", NOW + 5_500);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(NOW + 5_500, expired::add);
+        assertThat(expired).isEmpty();
+
+        wheel.advance(NOW + 6_000, expired::add);
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void itemsOnUpperLevelsCascadeDownAndExpireOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 3, NOW);
+        // 0 단계(64 tick) 를 넘는 항목, 1 단계(4096 tick) 를 넘는 항목, 전체 범위(64^3 tick)를 넘는 항목
+        wheel.add("level1", NOW + 70_000);
+        wheel.add("level2", NOW + 7_200_000);
+        wheel.add("overflow", NOW + 300_000_000);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(NOW + 70_000, expired::add);
+        assertThat(expired).isEmpty();
+        wheel.advance(NOW + 71_000, expired::add);
+        assertThat(expired).containsExactly("level1");
+
+        wheel.advance(NOW + 7_200_000, expired::add);
+        assertThat(expired).containsExactly("level1");
+        wheel.advance(NOW + 7_201_000, expired::add);
+        assertThat(expired).containsExactly("level1", "level2");
+
+        wheel.advance(NOW + 300_000_000, expired::add);
+        assertThat(expired).containsExactly("level1", "level2");
+        wheel.advance(NOW + 300_001_000, expired::add);
+        assertThat(expired).containsExactly("level1", "level2", "overflow");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void randomExpiriesAcrossSlotRolloversAreNeverEarlyOrMoreThanOneTickLate() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 3, NOW);
+        SplittableRandom random = new SplittableRandom(42);
+        Map<Integer, Long> expiries = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            long expiresAt = NOW + random.nextLong(1, 3 * 3_600_000L);
+            expiries.put(i, expiresAt);
+            wheel.add(i, expiresAt);
+        }
+
+        long now = NOW;
+        Map<Integer, Long> expiredAt = new HashMap<>();
+        while (now < NOW + 3 * 3_600_000L + TICK) {
+            now += random.nextLong(1, 90_000);
+            long at = now;
+            wheel.advance(at, item -> expiredAt.put(item, at));
+            for (Map.Entry<Integer, Long> entry : expiredAt.entrySet()) {
+                assertThat(entry.getValue()).isGreaterThan(expiries.get(entry.getKey()));
+            }
+            for (Map.Entry<Integer, Long> entry : expiries.entrySet()) {
+                // 한 번에 여러 tick 을 진행시키므로 늦은 정도는 advance 간격 + 한 tick 이내
+                if (entry.getValue() + TICK <= at - 90_000) {
+                    assertThat(expiredAt).containsKey(entry.getKey());
+                }
+            }
+        }
+        assertThat(expiredAt).hasSize(5_000);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThatThrownBy(() -> new TimingWheel<>(0, 3, NOW)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TimingWheel<>(TICK, 0, NOW)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
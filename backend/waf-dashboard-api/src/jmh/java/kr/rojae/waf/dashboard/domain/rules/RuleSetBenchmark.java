@@ -0,0 +1,235 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import kr.rojae.waf.common.text.AhoCorasick;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 룰셋 요청당 평가 비용 비교: 룰마다 @rx 하나 vs 묶음(@pm / alternation 선필터)
+ *
+ * ModSecurity 평가 방식을 JVM 에서 흉내 낸다. 선필터는 {@link AhoCorasick}(= @pm) 와 합친 정규식,
+ * 멤버 룰은 선필터에 걸린 묶음에서만 평가한다. 두 방식의 룰별 매칭 결과가 다르면 setup 에서 실패한다.
+ *
+ * 룰은 rules 개를 합성하거나 rulesFile(GET /api/rules/export 의 ndjson)에서 읽고,
+ * URI 는 룰 프로파일러 코퍼스(기본 + corpusFile)를 쓴다.
+ *   ./gradlew :waf-dashboard-api:jmh -Pjmh.includes=RuleSetBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RuleSetBenchmark {
+
+    private static final String[] ACTIONS = {"BLOCK", "LOG"};
+    private static final String[] WORDS = {
+            "admin", "login", "wp-", "phpmyadmin", "cgi-bin", "shell", "passwd", "backup", "config", "debug",
+            "select", "union", "script", "eval", "exec", "upload", "xmlrpc", "actuator", "console", "setup"
+    };
+
+    @Param({"200", "2000"})
+    private int rules;
+
+    @Param({""})
+    private String rulesFile;
+
+    @Param({""})
+    private String corpusFile;
+
+    private List<Evaluator> perPattern;
+    private List<Evaluator> merged;
+    private String[] uris;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<CustomRuleDto> enabled = (rulesFile.isBlank() ? synthesize(rules) : load(Path.of(rulesFile))).stream()
+                .filter(rule -> Boolean.TRUE.equals(rule.enabled()))
+                .sorted(RuleSetPlanner.EVALUATION_ORDER)
+                .toList();
+        RulePatternProfiler profiler = new RulePatternProfiler(new ObjectMapper(), corpusFile,
+                200_000, Duration.ofMillis(50), Duration.ofSeconds(1));
+        uris = profiler.corpusUris().toArray(String[]::new);
+
+        perPattern = compile(RuleSetPlanner.plan(enabled, false));
+        merged = compile(RuleSetPlanner.plan(enabled, true));
+
+        // 같은 입력에 대해 어떤 룰이 매칭되는지 비교 (귀속 정보가 유지되는지)
+        int mismatches = 0;
+        for (String uri : uris) {
+            if (!matchedIds(perPattern, uri).equals(matchedIds(merged, uri))) {
+                mismatches++;
+            }
+        }
+        if (mismatches > 0) {
+            throw new IllegalStateException(mismatches + " of " + uris.length
+                    + " URIs matched a different set of rules after merging");
+        }
+    }
+
+    @Benchmark
+    public int perPattern() {
+        return evaluate(perPattern);
+    }
+
+    @Benchmark
+    public int merged() {
+        return evaluate(merged);
+    }
+
+    /**
+     * 코퍼스 한 바퀴. 반환값(매칭 수)은 JMH 가 소비한다.
+     */
+    private int evaluate(List<Evaluator> evaluators) {
+        int matched = 0;
+        for (String uri : uris) {
+            for (Evaluator evaluator : evaluators) {
+                matched += evaluator.evaluate(uri, null);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 리터럴 / 접두 / 접미 / 정확히 일치 / 정규식을 섞은 룰. 같은 seed 면 같은 룰셋이다.
+     */
+    private static List<CustomRuleDto> synthesize(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<CustomRuleDto> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)] + i;
+            String pattern = switch (i % 5) {
+                case 0 -> word;
+                case 1 -> "^/" + word;
+                case 2 -> "\\." + word + "$";
+                case 3 -> "^/" + word + "/index\\.php$";
+                default -> "/" + word + "/[0-9]+\\?(id|q)=";
+            };
+            result.add(CustomRuleDto.builder()
+                    .id("bench-" + i)
+                    .name("bench rule " + i)
+                    .pattern(pattern)
+                    .action(ACTIONS[random.nextInt(ACTIONS.length)])
+                    .enabled(true)
+                    .priority(RuleSetPlanner.DEFAULT_PRIORITY)
+                    .modsecId(RuleSetPlanner.MODSEC_ID_MIN + i)
+                    .build());
+        }
+        return result;
+    }
+
+    private static List<CustomRuleDto> load(Path file) throws IOException {
+        ObjectMapper mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        List<CustomRuleDto> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (!line.isBlank()) {
+                    result.add(mapper.readValue(line, CustomRuleDto.class));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static BitSet matchedIds(List<Evaluator> evaluators, String uri) {
+        BitSet ids = new BitSet();
+        for (Evaluator evaluator : evaluators) {
+            evaluator.evaluate(uri, ids);
+        }
+        return ids;
+    }
+
+    private static List<Evaluator> compile(List<RuleSetPlanner.RuleGroup> groups) {
+        List<Evaluator> evaluators = new ArrayList<>();
+        for (RuleSetPlanner.RuleGroup group : groups) {
+            List<Member> members = group.rules().stream().map(Member::new).toList();
+            switch (group.kind()) {
+                case LITERAL -> {
+                    AhoCorasick prefilter = AhoCorasick.caseInsensitive(
+                            group.rules().stream().map(RuleSetPlanner.PlannedRule::argument).toList());
+                    evaluators.add(new Evaluator(prefilter::containsAny, members));
+                }
+                case REGEX -> {
+                    Matcher prefilter = Pattern.compile(group.prefilter().substring("@rx ".length())).matcher("");
+                    evaluators.add(new Evaluator(uri -> prefilter.reset(uri).find(), members));
+                }
+                case SINGLE -> members.forEach(member -> evaluators.add(new Evaluator(null, List.of(member))));
+            }
+        }
+        return evaluators;
+    }
+
+    private interface Prefilter {
+        boolean test(String uri);
+    }
+
+    /**
+     * 선필터(없으면 null) + 멤버 룰. 반환값은 매칭된 멤버 수.
+     */
+    private record Evaluator(Prefilter prefilter, List<Member> members) {
+
+        int evaluate(String uri, BitSet matchedIds) {
+            if (prefilter != null && !prefilter.test(uri)) {
+                return 0;
+            }
+            int matched = 0;
+            for (Member member : members) {
+                if (member.matches(uri)) {
+                    matched++;
+                    if (matchedIds != null) {
+                        matchedIds.set(member.id);
+                    }
+                }
+            }
+            return matched;
+        }
+    }
+
+    private static final class Member {
+        private final int id;
+        private final RuleSetPlanner.MatchType type;
+        private final String argument;
+        private final Matcher matcher;
+
+        Member(RuleSetPlanner.PlannedRule rule) {
+            this.id = rule.modsecId();
+            this.type = rule.type();
+            this.argument = rule.argument();
+            this.matcher = type == RuleSetPlanner.MatchType.REGEX ? Pattern.compile(argument).matcher("") : null;
+        }
+
+        boolean matches(String uri) {
+            return switch (type) {
+                case CONTAINS -> uri.contains(argument);
+                case BEGINS_WITH -> uri.startsWith(argument);
+                case ENDS_WITH -> uri.endsWith(argument);
+                case EQUALS -> uri.equals(argument);
+                case REGEX -> matcher.reset(uri).find();
+            };
+        }
+    }
+}
@@ -3,11 +3,13 @@ package kr.rojae.waf.dashboard;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(
     scanBasePackages = {"kr.rojae.waf"},
     exclude = { SecurityAutoConfiguration.class }
 )
+@EnableScheduling
 public class DashboardApiApplication {
     public static void main(String[] args) {
         SpringApplication.run(DashboardApiApplication.class, args);
@@ -0,0 +1,63 @@
+package kr.rojae.waf.dashboard.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@Configuration
+public class ClickHouseConfig {
+
+    @Value("${app.clickhouse.url}")
+    private String clickhouseUrl;
+
+    @Value("${app.clickhouse.username}")
+    private String clickhouseUsername;
+
+    @Value("${app.clickhouse.password}")
+    private String clickhousePassword;
+
+    @Value("${app.clickhouse.pool-size:8}")
+    private int poolSize;
+
+    @Value("${app.clickhouse.fetch-size:10000}")
+    private int fetchSize;
+
+    /**
+     * ClickHouse HTTP 커넥션 풀 (HikariCP)
+     * ClickHouse 가 떠있지 않아도 애플리케이션 기동은 실패하지 않도록 initializationFailTimeout = -1
+     */
+    @Bean(name = "clickHouseDataSource", destroyMethod = "close")
+    public HikariDataSource clickHouseDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("clickhouse-pool");
+        config.setDriverClassName("com.clickhouse.jdbc.ClickHouseDriver");
+        config.setJdbcUrl(clickhouseUrl);
+        config.setUsername(clickhouseUsername);
+        config.setPassword(clickhousePassword);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(3000);
+        config.setInitializationFailTimeout(-1);
+        config.setReadOnly(false);
+        // LZ4 압축 응답 + 결과를 한 번에 버퍼링하지 않고 스트리밍으로 디코딩
+        config.addDataSourceProperty("compress", "true");
+        config.addDataSourceProperty("compress_algorithm", "LZ4");
+        // INSERT 요청 본문도 LZ4 로 압축해서 전송 (대량 적재 시 네트워크 비용 절감)
+        config.addDataSourceProperty("decompress", "true");
+        config.addDataSourceProperty("decompress_algorithm", "LZ4");
+        config.addDataSourceProperty("socket_timeout", "30000");
+        return new HikariDataSource(config);
+    }
+
+    @Bean(name = "clickHouseJdbcTemplate")
+    public NamedParameterJdbcTemplate clickHouseJdbcTemplate(
+            @Qualifier("clickHouseDataSource") HikariDataSource dataSource) {
+        NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(dataSource);
+        template.getJdbcTemplate().setFetchSize(fetchSize);
+        return template;
+    }
+}
@@ -0,0 +1,207 @@
+package kr.rojae.waf.dashboard.domain.event;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * ModSecurity JSON audit log (waf-realtime-events) -> {@link WafEvent}
+ *
+ * - 룰이 하나도 매칭되지 않은 트랜잭션은 분석 대상이 아니므로 건너뛴다
+ * - 대표 룰은 가장 심각한 메시지 기준, tags 는 전체 메시지의 합집합
+ * - anomaly_score 가 로그에 없으면 CRS 기본 점수(critical 5, error 4, warning 3, notice 2)로 계산
+ * - blocked 는 응답 코드(403 은 앱의 인증 실패일 수도 있다)가 아니라 차단 룰 매칭으로 판단:
+ *   CRS 차단 평가 룰(949xxx 요청, 959xxx 응답) 또는 커스텀 BLOCK 룰(tag custom + block)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ModSecurityEventParser {
+
+    private static final DateTimeFormatter MODSEC_TIME =
+            DateTimeFormatter.ofPattern("EEE MMM d HH:mm:ss yyyy", Locale.ENGLISH);
+
+    private static final String[] SEVERITY_NAMES = {
+            "EMERGENCY", "ALERT", "CRITICAL", "ERROR", "WARNING", "NOTICE", "INFO", "DEBUG"
+    };
+
+    private static final Map<String, String> RULE_PREFIX_CATEGORY = Map.of(
+            "913", "scanner",
+            "930", "lfi",
+            "931", "rfi",
+            "932", "rce",
+            "933", "php",
+            "941", "xss",
+            "942", "sqli",
+            "943", "session-fixation",
+            "944", "java"
+    );
+
+    private final ObjectMapper objectMapper;
+
+    public Optional<WafEvent> parse(String json) {
+        try {
+            JsonNode root = objectMapper.readTree(json);
+            JsonNode tx = root.path("transaction");
+            if (tx.isMissingNode()) {
+                return Optional.empty();
+            }
+
+            JsonNode messages = tx.path("messages");
+            if (!messages.isArray() || messages.isEmpty()) {
+                messages = root.path("messages");
+            }
+            if (!messages.isArray() || messages.isEmpty()) {
+                return Optional.empty();
+            }
+
+            JsonNode primary = null;
+            int primarySeverity = Integer.MAX_VALUE;
+            int computedScore = 0;
+            boolean scanner = false;
+            boolean blocked = false;
+            Set<String> tags = new LinkedHashSet<>();
+            for (JsonNode message : messages) {
+                JsonNode details = message.path("details");
+                int severity = details.path("severity").asInt(SEVERITY_NAMES.length - 1);
+                computedScore += anomalyPoints(severity);
+                if (severity < primarySeverity) {
+                    primarySeverity = severity;
+                    primary = message;
+                }
+                details.path("tags").forEach(tag -> tags.add(tag.asText()));
+                scanner |= details.path("ruleId").asText().startsWith("913");
+                blocked |= isBlocking(details);
+            }
+            scanner |= tags.stream().anyMatch(tag -> tag.contains("scanner"));
+
+            JsonNode details = primary.path("details");
+            String ruleId = details.path("ruleId").asText("");
+            JsonNode request = tx.path("request");
+            JsonNode geo = root.path("geoip");
+
+            return Optional.of(WafEvent.builder()
+                    .timestamp(parseTimestamp(tx.path("time_stamp").asText(null)))
+                    .txId(tx.path("unique_id").asText(tx.path("id").asText("")))
+                    .clientIp(tx.path("client_ip").asText(""))
+                    .uri(request.path("uri").asText(""))
+                    .method(request.path("method").asText(""))
+                    .statusCode(tx.path("response").path("http_code").asInt(0))
+                    .ruleId(ruleId)
+                    .anomalyScore(tx.has("anomaly_score") ? tx.path("anomaly_score").asInt() : computedScore)
+                    .blocked(blocked)
+                    .severity(primarySeverity < SEVERITY_NAMES.length ? SEVERITY_NAMES[primarySeverity] : "")
+                    .category(category(ruleId, tags))
+                    .msg(primary.path("message").asText(details.path("msg").asText("")))
+                    .classificationTrack(root.path("classification").asText(root.path("track").asText("")))
+                    .userAgent(header(request.path("headers"), "User-Agent"))
+                    .countryCode(geo.path("country_code2").asText(geo.path("country_code").asText("")))
+                    .city(geo.path("city_name").asText(""))
+                    .scannerDetected(scanner)
+                    .tags(new ArrayList<>(tags))
+                    .build());
+        } catch (Exception e) {
+            log.debug("Failed to parse ModSecurity event: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 트랜잭션에서 매칭된 모든 룰 id. 트리를 만들지 않고 토큰만 훑는다 (룰 히트 집계용).
+     */
+    public void forEachRuleId(String json, IntConsumer action) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            for (JsonToken token; (token = parser.nextToken()) != null; ) {
+                if (token != JsonToken.FIELD_NAME || !"ruleId".equals(parser.currentName())) {
+                    continue;
+                }
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NUMBER_INT) {
+                    action.accept(parser.getIntValue());
+                } else if (value == JsonToken.VALUE_STRING) {
+                    String text = parser.getText();
+                    if (!text.isEmpty() && text.length() < 10 && text.chars().allMatch(Character::isDigit)) {
+                        action.accept(Integer.parseInt(text));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Failed to scan rule ids: {}", e.getMessage());
+        }
+    }
+
+    private LocalDateTime parseTimestamp(String value) {
+        if (value != null) {
+            try {
+                return LocalDateTime.parse(value.replaceAll("\\s+", " "), MODSEC_TIME);
+            } catch (DateTimeParseException e) {
+                log.debug("Unexpected ModSecurity time_stamp: {}", value);
+            }
+        }
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    private static boolean isBlocking(JsonNode details) {
+        String ruleId = details.path("ruleId").asText("");
+        if (ruleId.startsWith("949") || ruleId.startsWith("959")) {
+            return true;
+        }
+        boolean custom = false;
+        boolean block = false;
+        for (JsonNode tag : details.path("tags")) {
+            custom |= "custom".equals(tag.asText());
+            block |= "block".equals(tag.asText());
+        }
+        return custom && block;
+    }
+
+    private static int anomalyPoints(int severity) {
+        return switch (severity) {
+            case 0, 1, 2 -> 5;
+            case 3 -> 4;
+            case 4 -> 3;
+            case 5 -> 2;
+            default -> 0;
+        };
+    }
+
+    private static String category(String ruleId, Set<String> tags) {
+        for (String tag : tags) {
+            if (tag.startsWith("attack-")) {
+                return tag.substring("attack-".length());
+            }
+        }
+        if (ruleId.length() >= 3) {
+            return RULE_PREFIX_CATEGORY.getOrDefault(ruleId.substring(0, 3), "other");
+        }
+        return "other";
+    }
+
+    private static String header(JsonNode headers, String name) {
+        Iterator<Map.Entry<String, JsonNode>> fields = headers.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().equalsIgnoreCase(name)) {
+                return field.getValue().asText("");
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,32 @@
+package kr.rojae.waf.dashboard.domain.event;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ModSecurity 트랜잭션 1건을 분석용 스키마(waf_analytics.events)에 맞춰 평탄화한 이벤트
+ */
+@Builder
+public record WafEvent(
+        LocalDateTime timestamp,
+        String txId,
+        String clientIp,
+        String uri,
+        String method,
+        int statusCode,
+        String ruleId,
+        int anomalyScore,
+        // WAF 가 요청을 막았는지 (응답 코드가 아니라 매칭된 차단 룰로 판단)
+        boolean blocked,
+        String severity,
+        String category,
+        String msg,
+        String classificationTrack,
+        String userAgent,
+        String countryCode,
+        String city,
+        boolean scannerDetected,
+        List<String> tags
+) {}
@@ -0,0 +1,10 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
+
+import java.util.List;
+
+public interface EntitySummarySource extends QuerySource {
+
+    List<EntitySummaryDto> topEntities(QuerySpec spec, String entity, int limit);
+}
@@ -0,0 +1,22 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public record LogSearchFilter(
+        String severity,
+        String attackType,
+        String clientIp
+) {
+
+    /**
+     * 필터가 요구하는 필드 목록 (백엔드 선택 시 사용)
+     */
+    public Set<String> requiredFields() {
+        Set<String> fields = new HashSet<>();
+        if (severity != null && !severity.isEmpty()) fields.add("severity");
+        if (attackType != null && !attackType.isEmpty()) fields.add("attack_type");
+        if (clientIp != null && !clientIp.isEmpty()) fields.add("client_ip");
+        return fields;
+    }
+}
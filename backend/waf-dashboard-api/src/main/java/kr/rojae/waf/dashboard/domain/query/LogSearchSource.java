@@ -0,0 +1,10 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import kr.rojae.waf.dashboard.dto.WafLogDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface LogSearchSource extends QuerySource {
+
+    Page<WafLogDto> searchLogs(QuerySpec spec, LogSearchFilter filter, Pageable pageable);
+}
@@ -0,0 +1,7 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+public enum QueryBackend {
+    INFLUXDB,
+    ELASTICSEARCH,
+    CLICKHOUSE
+}
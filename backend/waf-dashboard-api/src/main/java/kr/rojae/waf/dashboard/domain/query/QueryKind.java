@@ -0,0 +1,10 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+public enum QueryKind {
+    /** 시간 구간별 요청/차단 건수 */
+    TIME_SERIES,
+    /** 원본 로그 검색 (페이지 단위) */
+    LOG_SEARCH,
+    /** client_ip, attack_type 등 엔티티별 상위 N 집계 */
+    ENTITY_SUMMARY
+}
@@ -0,0 +1,150 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
+import kr.rojae.waf.dashboard.dto.WafLogDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 쿼리를 처리 가능한 백엔드 중 가장 저렴한 곳으로 라우팅
+ *
+ * - 후보: 필요한 필드를 제공하고 조회 범위가 보존 기간 안에 있는 백엔드
+ * - 순서: cost 오름차순, 최근 실패한 백엔드(cooldown 중)는 뒤로 밀린다
+ * - 실패 시 다음 후보로 fallback, 모든 라우팅 결정은 소요 시간과 함께 로그로 남긴다
+ */
+@Component
+@Slf4j
+public class QueryRouter {
+
+    private final List<TimeSeriesSource> timeSeriesSources;
+    private final List<LogSearchSource> logSearchSources;
+    private final List<EntitySummarySource> entitySummarySources;
+    private final Duration failureCooldown;
+
+    private final Map<QueryBackend, BackendHealth> health = new EnumMap<>(QueryBackend.class);
+
+    public QueryRouter(List<TimeSeriesSource> timeSeriesSources,
+                       List<LogSearchSource> logSearchSources,
+                       List<EntitySummarySource> entitySummarySources,
+                       @Value("${app.query.failure-cooldown:30s}") Duration failureCooldown) {
+        this.timeSeriesSources = timeSeriesSources;
+        this.logSearchSources = logSearchSources;
+        this.entitySummarySources = entitySummarySources;
+        this.failureCooldown = failureCooldown;
+        for (QueryBackend backend : QueryBackend.values()) {
+            health.put(backend, new BackendHealth());
+        }
+    }
+
+    public List<AttackTrendDto> timeSeries(QuerySpec spec) {
+        return route(spec, timeSeriesSources, source -> source.timeSeries(spec));
+    }
+
+    public Page<WafLogDto> searchLogs(QuerySpec spec, LogSearchFilter filter, Pageable pageable) {
+        return route(spec, logSearchSources, source -> source.searchLogs(spec, filter, pageable));
+    }
+
+    public List<EntitySummaryDto> topEntities(QuerySpec spec, String entity, int limit) {
+        return route(spec, entitySummarySources, source -> source.topEntities(spec, entity, limit));
+    }
+
+    /**
+     * 백엔드별 상태 (ping + 라우팅 통계)
+     */
+    public Map<String, Object> status() {
+        Map<String, QuerySource> sources = new LinkedHashMap<>();
+        timeSeriesSources.forEach(s -> sources.putIfAbsent(s.backend().name(), s));
+        logSearchSources.forEach(s -> sources.putIfAbsent(s.backend().name(), s));
+        entitySummarySources.forEach(s -> sources.putIfAbsent(s.backend().name(), s));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        sources.forEach((name, source) -> {
+            BackendHealth h = health.get(source.backend());
+            status.put(name, Map.of(
+                    "reachable", source.ping(),
+                    "coolingDown", !h.isAvailable(),
+                    "routed", h.routed.get(),
+                    "failures", h.failures.get(),
+                    "retentionDays", source.retention().toDays()
+            ));
+        });
+        return status;
+    }
+
+    private <S extends QuerySource, R> R route(QuerySpec spec, List<S> sources, Function<S, R> call) {
+        List<S> candidates = sources.stream()
+                .filter(source -> source.canServe(spec))
+                .sorted(Comparator
+                        .comparing((S source) -> !health.get(source.backend()).isAvailable())
+                        .thenComparingInt(source -> source.cost(spec)))
+                .toList();
+
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No backend can serve " + spec.kind()
+                    + " for fields " + spec.requiredFields() + " over " + spec.range());
+        }
+
+        List<String> plan = new ArrayList<>(candidates.size());
+        for (S candidate : candidates) {
+            plan.add(candidate.backend() + "(" + candidate.cost(spec) + ")");
+        }
+
+        RuntimeException lastError = null;
+        for (S source : candidates) {
+            BackendHealth h = health.get(source.backend());
+            long started = System.nanoTime();
+            try {
+                R result = call.apply(source);
+                h.recordSuccess();
+                log.info("Query routed: kind={} range={} fields={} -> {} in {} ms (plan={})",
+                        spec.kind(), spec.range(), spec.requiredFields(), source.backend(),
+                        elapsedMillis(started), plan);
+                return result;
+            } catch (RuntimeException e) {
+                h.recordFailure(failureCooldown);
+                log.warn("Query on {} failed after {} ms, trying next backend: {}",
+                        source.backend(), elapsedMillis(started), e.getMessage());
+                lastError = e;
+            }
+        }
+        throw new IllegalStateException("All backends failed for " + spec.kind() + " (plan=" + plan + ")", lastError);
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+
+    private static final class BackendHealth {
+        private final AtomicLong routed = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile long unavailableUntil = 0L;
+
+        boolean isAvailable() {
+            return System.currentTimeMillis() >= unavailableUntil;
+        }
+
+        void recordSuccess() {
+            routed.incrementAndGet();
+            unavailableUntil = 0L;
+        }
+
+        void recordFailure(Duration cooldown) {
+            failures.incrementAndGet();
+            unavailableUntil = System.currentTimeMillis() + cooldown.toMillis();
+        }
+    }
+}
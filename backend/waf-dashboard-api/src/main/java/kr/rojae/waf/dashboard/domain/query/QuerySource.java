@@ -0,0 +1,39 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * 조회 백엔드 공통 인터페이스
+ *
+ * 각 백엔드는 쿼리 종류별로 제공 가능한 필드, 데이터 보존 기간, 상대 비용을 선언하고
+ * {@link QueryRouter} 는 이를 기준으로 처리 가능한 백엔드 중 가장 저렴한 곳으로 보낸다.
+ */
+public interface QuerySource {
+
+    QueryBackend backend();
+
+    /**
+     * 쿼리 종류별 제공 가능한 필드 (빈 Set 이면 해당 종류 미지원)
+     */
+    Set<String> fields(QueryKind kind);
+
+    /**
+     * 조회 가능한 데이터 보존 기간
+     */
+    Duration retention();
+
+    /**
+     * 상대 비용 (낮을수록 우선)
+     */
+    int cost(QuerySpec spec);
+
+    boolean ping();
+
+    default boolean canServe(QuerySpec spec) {
+        Set<String> supported = fields(spec.kind());
+        return !supported.isEmpty()
+                && supported.containsAll(spec.requiredFields())
+                && spec.lookback().compareTo(retention()) <= 0;
+    }
+}
@@ -0,0 +1,41 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * 라우팅 판단에 필요한 쿼리 명세 (종류, 시간 범위, 필요한 필드)
+ */
+public record QuerySpec(
+        QueryKind kind,
+        Instant from,
+        Instant to,
+        Set<String> requiredFields
+) {
+
+    public static QuerySpec of(QueryKind kind, Instant from, Instant to, Set<String> requiredFields) {
+        return new QuerySpec(kind, from, to, Set.copyOf(requiredFields));
+    }
+
+    public Duration range() {
+        return Duration.between(from, to);
+    }
+
+    /**
+     * 현재 시점부터 조회 시작 시점까지의 거리 - 백엔드 보존 기간 판단용
+     */
+    public Duration lookback() {
+        return Duration.between(from, Instant.now());
+    }
+
+    /**
+     * 시계열 버킷 크기 (범위에 따라 자동 결정)
+     */
+    public Duration bucketSize() {
+        Duration range = range();
+        if (range.compareTo(Duration.ofDays(2)) <= 0) return Duration.ofHours(1);
+        if (range.compareTo(Duration.ofDays(31)) <= 0) return Duration.ofHours(6);
+        return Duration.ofDays(1);
+    }
+}
@@ -0,0 +1,10 @@
+package kr.rojae.waf.dashboard.domain.query;
+
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+
+import java.util.List;
+
+public interface TimeSeriesSource extends QuerySource {
+
+    List<AttackTrendDto> timeSeries(QuerySpec spec);
+}
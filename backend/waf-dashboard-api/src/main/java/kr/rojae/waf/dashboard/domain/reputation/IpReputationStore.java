@@ -0,0 +1,229 @@
+package kr.rojae.waf.dashboard.domain.reputation;
+
+import jakarta.annotation.PostConstruct;
+import kr.rojae.waf.common.net.IpRangeTable;
+import kr.rojae.waf.dashboard.dto.WafLogDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 위협 인텔 피드(IP / CIDR / 범위 목록) 기반 IP 평판 조회
+ *
+ * - feed-dir 의 모든 파일을 합쳐 {@link IpRangeTable} 파일로 빌드하고 mmap 으로 연다.
+ *   1,000만 건도 힙에는 색인 4MB 만 남고 범위 데이터는 page cache 에 있다.
+ * - 피드가 바뀌면(파일 목록/수정 시각) 새 테이블을 빌드해 volatile 참조를 통째로 교체한다. 조회 중인 스레드는
+ *   이전 테이블을 끝까지 본다.
+ * - 재시작 시에는 피드가 그대로면 빌드된 테이블 파일을 바로 연다.
+ */
+@Component
+@Slf4j
+public class IpReputationStore {
+
+    private final Path feedDir;
+    private final Path tableFile;
+
+    // reload() 직렬화 (피드 읽기 + 테이블 파일 쓰기)
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile IpRangeTable table = IpRangeTable.EMPTY;
+    private volatile String loadedFeeds;
+    private volatile Instant loadedAt;
+    private volatile long buildMillis;
+    private volatile long openMillis;
+    private volatile long acceptedLines;
+    private volatile long rejectedLines;
+    private volatile String lastError;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    public IpReputationStore(
+        @Value("${app.reputation.feed-dir:/app/reputation/feeds}") String feedDir,
+        @Value("${app.reputation.table-file:/app/custom-rules/.store/reputation.table}") String tableFile
+    ) {
+        this.feedDir = Path.of(feedDir);
+        this.tableFile = Path.of(tableFile);
+    }
+
+    @PostConstruct
+    public void load() {
+        String feeds = feedSignature();
+        if (Files.exists(tableFile) && feeds.equals(readSignature())) {
+            try {
+                long started = System.nanoTime();
+                table = IpRangeTable.open(tableFile);
+                openMillis = (System.nanoTime() - started) / 1_000_000;
+                loadedFeeds = feeds;
+                loadedAt = Instant.now();
+                log.info("Opened IP reputation table {} ({} IPv4 / {} IPv6 ranges, {} bytes) in {} ms",
+                        tableFile, table.ipv4Ranges(), table.ipv6Ranges(), table.bytes(), openMillis);
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to open IP reputation table {}, rebuilding: {}", tableFile, e.getMessage());
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * 피드가 바뀌었으면 다시 빌드
+     */
+    @Scheduled(fixedDelayString = "${app.reputation.refresh-interval:10m}", initialDelayString = "${app.reputation.refresh-interval:10m}")
+    public void refresh() {
+        String feeds = feedSignature();
+        if (feeds.equals(loadedFeeds)) {
+            return;
+        }
+        try {
+            reload();
+        } catch (IOException e) {
+            log.error("Failed to rebuild IP reputation table", e);
+        }
+    }
+
+    /**
+     * 피드 전체를 다시 읽어 테이블 빌드 -> 교체
+     */
+    public Map<String, Object> reload() throws IOException {
+        lock.lock();
+        try {
+            String feeds = feedSignature();
+            long started = System.nanoTime();
+            IpRangeTable.Builder builder = new IpRangeTable.Builder();
+            List<Path> files = feedFiles();
+            if (files.isEmpty()) {
+                table = IpRangeTable.EMPTY;
+                loadedFeeds = feeds;
+                loadedAt = Instant.now();
+                return status();
+            }
+            try {
+                for (Path file : files) {
+                    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        for (String line; (line = reader.readLine()) != null; ) {
+                            builder.add(line);
+                        }
+                    }
+                }
+                IpRangeTable next = builder.writeTo(tableFile);
+                Files.writeString(signatureFile(), feeds, StandardCharsets.UTF_8);
+                table = next;
+            } catch (IOException e) {
+                lastError = e.getMessage();
+                throw e;
+            }
+            buildMillis = (System.nanoTime() - started) / 1_000_000;
+            acceptedLines = builder.accepted();
+            rejectedLines = builder.rejected();
+            loadedFeeds = feeds;
+            loadedAt = Instant.now();
+            lastError = null;
+            reloads.incrementAndGet();
+            log.info("Built IP reputation table from {} feeds: {} entries ({} rejected) -> {} IPv4 / {} IPv6 ranges in {} ms",
+                    files.size(), acceptedLines, rejectedLines, table.ipv4Ranges(), table.ipv6Ranges(), buildMillis);
+            return status();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * IPv4 는 할당 없이 조회한다
+     */
+    public boolean isKnownThreat(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return false;
+        }
+        lookups.incrementAndGet();
+        boolean known = table.contains(ip);
+        if (known) {
+            hits.incrementAndGet();
+        }
+        return known;
+    }
+
+    public WafLogDto flag(WafLogDto entry) {
+        return entry.toBuilder().knownThreat(isKnownThreat(entry.clientIp())).build();
+    }
+
+    public Map<String, Object> status() {
+        IpRangeTable current = table;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("feedDir", feedDir.toString());
+        status.put("feeds", feedFiles().size());
+        status.put("tableFile", tableFile.toString());
+        status.put("ipv4Ranges", current.ipv4Ranges());
+        status.put("ipv6Ranges", current.ipv6Ranges());
+        status.put("mappedBytes", current.bytes());
+        status.put("acceptedLines", acceptedLines);
+        status.put("rejectedLines", rejectedLines);
+        status.put("loadedAt", loadedAt != null ? loadedAt.toString() : null);
+        status.put("buildMillis", buildMillis);
+        status.put("openMillis", openMillis);
+        status.put("reloads", reloads.get());
+        status.put("lookups", lookups.get());
+        status.put("hits", hits.get());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private List<Path> feedFiles() {
+        if (!Files.isDirectory(feedDir)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(feedDir)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Failed to list reputation feeds in {}: {}", feedDir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 피드 파일 이름/크기/수정 시각. 같으면 다시 빌드하지 않는다.
+     */
+    private String feedSignature() {
+        List<String> parts = new ArrayList<>();
+        for (Path file : feedFiles()) {
+            try {
+                FileTime modified = Files.getLastModifiedTime(file);
+                parts.add(file.getFileName() + ":" + Files.size(file) + ":" + modified.toMillis());
+            } catch (IOException e) {
+                parts.add(file.getFileName() + ":?");
+            }
+        }
+        return String.join(",", parts);
+    }
+
+    private String readSignature() {
+        try {
+            return Files.exists(signatureFile()) ? Files.readString(signatureFile(), StandardCharsets.UTF_8) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path signatureFile() {
+        return tableFile.resolveSibling(tableFile.getFileName() + ".feeds");
+    }
+}
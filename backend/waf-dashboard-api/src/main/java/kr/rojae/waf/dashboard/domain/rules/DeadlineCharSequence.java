@@ -0,0 +1,63 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+/**
+ * charAt 호출 4096번마다 deadline 을 확인해 폭주하는 정규식 매칭을 끊는 CharSequence
+ *
+ * 매칭마다 {@link #arm} 으로 deadline 을 건다. 넘으면 {@link BudgetExceeded} 를 던진다. 스레드마다 따로 쓴다.
+ */
+public final class DeadlineCharSequence implements CharSequence {
+    private String text;
+    private long deadline;
+    private int calls;
+
+    public DeadlineCharSequence(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param deadline System.nanoTime() 기준
+     */
+    public void arm(long deadline) {
+        this.deadline = deadline;
+        this.calls = 0;
+    }
+
+    /**
+     * 입력을 바꿔 재사용한다. Matcher 는 reset(CharSequence) 로 다시 걸어야 바뀐 길이를 본다
+     */
+    public void arm(String text, long deadline) {
+        this.text = text;
+        arm(deadline);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if ((++calls & 0xFFF) == 0 && System.nanoTime() > deadline) {
+            throw BudgetExceeded.INSTANCE;
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    public static final class BudgetExceeded extends RuntimeException {
+        static final BudgetExceeded INSTANCE = new BudgetExceeded();
+
+        private BudgetExceeded() {
+            super("match time budget exceeded", null, false, false);
+        }
+    }
+}
@@ -1,39 +1,72 @@
 package kr.rojae.waf.dashboard.domain.rules;
 
 import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleCostDto;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ModSecurityRuleManager {
 
-    private static final String CUSTOM_RULES_FILE = "/app/custom-rules/custom-rules.conf";
-    private static final String MODSEC_RULES_DIR = "/app/modsecurity-rules";
-    
+    private final RuleStore ruleStore;
+    private final RuleSetCompiler ruleSetCompiler;
+    private final RulePatternProfiler patternProfiler;
+
     private final ConcurrentHashMap<String, CustomRuleDto> rulesCache = new ConcurrentHashMap<>();
-    private final AtomicBoolean syncInProgress = new AtomicBoolean(false);
+    // 일괄 반영 중에는 컴파일러가 반쯤 반영된 캐시를 읽지 않도록 막는다
+    private final ReadWriteLock bulkLock = new ReentrantReadWriteLock();
+    private volatile boolean rulesLoaded = false;
+
+    /**
+     * 저장소에서 룰 복구 후 룰 파일 재생성 (재시작 시 빈 룰 파일로 덮어쓰지 않도록)
+     */
+    @PostConstruct
+    public void loadRules() {
+        try {
+            rulesCache.putAll(ruleStore.load());
+        } catch (IllegalStateException e) {
+            // 손상된 저장소에서 일부(또는 빈) 룰셋으로 뜨면 그게 배포되므로 기동을 멈춘다
+            throw new IllegalStateException("Custom rule store is corrupt, refusing to start: " + e.getMessage(), e);
+        } catch (Exception e) {
+            // 저장소를 열 수 없으면 기존 룰 파일을 그대로 두고 룰 변경만 실패시킨다
+            log.error("Failed to load custom rules from rule store, keeping existing rule file", e);
+            return;
+        }
+        migrateModsecIds();
+        rulesLoaded = true;
+        log.info("Loaded {} custom rules from rule store", rulesCache.size());
+        triggerFileSync();
+    }
 
     /**
      * 메모리 캐시에서 모든 커스텀 룰 조회
      */
     public List<CustomRuleDto> getAllRules() {
+        bulkLock.readLock().lock();
         try {
             return new ArrayList<>(rulesCache.values());
         } catch (Exception e) {
             log.error("Error retrieving rules from cache", e);
             return List.of();
+        } finally {
+            bulkLock.readLock().unlock();
         }
     }
 
@@ -50,14 +83,15 @@ public class ModSecurityRuleManager {
     }
 
     /**
-     * 새 룰 생성 (메모리 캐시에 즉시 저장, 파일 동기화는 비동기)
+     * 새 룰 생성 (패턴 검증 -> 저장소 기록 -> 메모리 캐시, 파일 반영은 컴파일러가 비동기로)
      */
     public CustomRuleDto createRule(CustomRuleDto ruleDto) {
+        RuleCostDto cost = profilePattern(ruleDto);
         try {
             String ruleId = UUID.randomUUID().toString();
             LocalDateTime now = LocalDateTime.now();
             
-            CustomRuleDto newRule = CustomRuleDto.builder()
+            CustomRuleDto rule = CustomRuleDto.builder()
                     .id(ruleId)
                     .name(ruleDto.name())
                     .pattern(ruleDto.pattern())
@@ -65,12 +99,22 @@ public class ModSecurityRuleManager {
                     .enabled(ruleDto.enabled())
                     .description(ruleDto.description())
                     .priority(ruleDto.priority())
+                    .cost(cost)
                     .createdAt(now)
                     .updatedAt(now)
                     .build();
 
-            // 메모리 캐시에 저장
-            rulesCache.put(ruleId, newRule);
+            // id 할당부터 캐시 반영까지 다른 생성/일괄 반영과 겹치지 않게 한다
+            CustomRuleDto newRule;
+            bulkLock.writeLock().lock();
+            try {
+                newRule = assignModsecIds(List.of(rule)).get(0);
+                // 저장소에 기록(fsync)된 뒤 메모리 캐시에 반영
+                ruleStore.put(newRule);
+                rulesCache.put(ruleId, newRule);
+            } finally {
+                bulkLock.writeLock().unlock();
+            }
             
             log.info("Created custom rule: {} (ID: {})", newRule.name(), ruleId);
             triggerFileSync();
@@ -86,6 +130,7 @@ public class ModSecurityRuleManager {
      * 룰 수정
      */
     public CustomRuleDto updateRule(String id, CustomRuleDto ruleDto) {
+        RuleCostDto cost = profilePattern(ruleDto);
         try {
             CustomRuleDto existingRule = getRule(id);
             if (existingRule == null) {
@@ -100,10 +145,13 @@ public class ModSecurityRuleManager {
                     .enabled(ruleDto.enabled())
                     .description(ruleDto.description())
                     .priority(ruleDto.priority())
+                    .modsecId(existingRule.modsecId())
+                    .cost(cost)
                     .createdAt(existingRule.createdAt())
                     .updatedAt(LocalDateTime.now())
                     .build();
 
+            ruleStore.put(updatedRule);
             rulesCache.put(id, updatedRule);
             
             log.info("Updated custom rule: {} (ID: {})", updatedRule.name(), id);
@@ -121,6 +169,7 @@ public class ModSecurityRuleManager {
      */
     public void deleteRule(String id) {
         try {
+            ruleStore.delete(id);
             rulesCache.remove(id);
             
             log.info("Deleted custom rule: {}", id);
@@ -149,10 +198,13 @@ public class ModSecurityRuleManager {
                     .enabled(!existingRule.enabled()) // Toggle
                     .description(existingRule.description())
                     .priority(existingRule.priority())
+                    .modsecId(existingRule.modsecId())
+                    .cost(existingRule.cost())
                     .createdAt(existingRule.createdAt())
                     .updatedAt(LocalDateTime.now())
                     .build();
 
+            ruleStore.put(toggledRule);
             rulesCache.put(id, toggledRule);
             
             log.info("Toggled rule {} to {}", id, toggledRule.enabled() ? "enabled" : "disabled");
@@ -166,129 +218,119 @@ public class ModSecurityRuleManager {
     }
 
     /**
-     * 파일 동기화 트리거 (비동기)
+     * 검증을 마친 룰 일괄 반영 (저장소 커밋 1회 -> 메모리 캐시 -> 컴파일 1회).
+     * modsecId 가 없거나 다른 룰과 겹치면 새로 할당한다.
+     * 반환된 future 는 이 룰들이 포함된 rule-set version 이 배포되면 완료된다.
      */
-    private void triggerFileSync() {
-        if (!syncInProgress.compareAndSet(false, true)) {
-            log.debug("File sync already in progress, skipping");
-            return;
+    public CompletableFuture<RuleSetCompiler.RuleSetVersion> applyBulk(List<CustomRuleDto> rules) {
+        bulkLock.writeLock().lock();
+        try {
+            List<CustomRuleDto> assigned = assignModsecIds(rules);
+            ruleStore.putAll(assigned);
+            assigned.forEach(rule -> rulesCache.put(rule.id(), rule));
+        } finally {
+            bulkLock.writeLock().unlock();
         }
 
-        // 비동기로 파일 동기화 실행
-        new Thread(() -> {
-            try {
-                syncRulesToFile();
-            } finally {
-                syncInProgress.set(false);
-            }
-        }).start();
+        log.info("Applied {} custom rules in bulk", rules.size());
+        return ruleSetCompiler.requestCompile(this::getAllRules);
     }
 
     /**
-     * 주기적 파일 동기화 (5분마다)
+     * modsecId 가 없는(이전 버전에서 만든) 룰이나 id 가 겹치는 룰에 id 를 할당해 저장한다.
+     * 겹치는 id 가 하나라도 있으면 nginx 가 룰셋 전체를 거부한다.
      */
-    @Scheduled(fixedRate = 300000) // 5분
-    public void scheduledFileSync() {
-        if (syncInProgress.get()) {
-            log.debug("Sync already in progress, skipping scheduled sync");
+    private void migrateModsecIds() {
+        List<CustomRuleDto> rules = new ArrayList<>(rulesCache.values());
+        List<CustomRuleDto> changed = assignModsecIds(rules).stream()
+                .filter(rule -> !rule.modsecId().equals(rulesCache.get(rule.id()).modsecId()))
+                .toList();
+        if (changed.isEmpty()) {
             return;
         }
-        
-        log.debug("Starting scheduled file sync");
-        triggerFileSync();
+        try {
+            ruleStore.putAll(changed);
+        } catch (Exception e) {
+            // 다음 기동 때 같은 순서로 다시 할당된다
+            log.warn("Failed to persist assigned ModSecurity ids for {} rules", changed.size(), e);
+        }
+        changed.forEach(rule -> rulesCache.put(rule.id(), rule));
+        log.info("Assigned ModSecurity ids to {} custom rules", changed.size());
     }
 
     /**
-     * 메모리 캐시의 룰을 ModSecurity 파일로 동기화
+     * 범위 밖이거나 없거나 다른 룰과 겹치는 modsecId 를 {@link RuleSetPlanner#allocateModsecId} 로 바꾼다.
+     * 이미 id 를 가진 룰이 먼저 자리를 잡고, 나머지는 생성 순서대로 할당한다. bulkLock 쓰기 잠금 안에서 호출한다.
      */
-    private void syncRulesToFile() {
-        try {
-            List<CustomRuleDto> rules = getAllRules();
-            
-            // 커스텀 룰 파일 생성
-            File customRulesFile = new File(CUSTOM_RULES_FILE);
-            customRulesFile.getParentFile().mkdirs();
-            
-            try (FileWriter writer = new FileWriter(customRulesFile)) {
-                writer.write("# WAF Custom Rules - Auto-generated from memory cache\n");
-                writer.write("# Last updated: " + LocalDateTime.now() + "\n\n");
-                
-                for (CustomRuleDto rule : rules) {
-                    if (rule.enabled()) {
-                        writer.write(generateModSecurityRule(rule));
-                        writer.write("\n\n");
-                    }
+    private List<CustomRuleDto> assignModsecIds(List<CustomRuleDto> rules) {
+        Set<String> replaced = new HashSet<>();
+        rules.forEach(rule -> replaced.add(rule.id()));
+        Set<Integer> used = new HashSet<>();
+        rulesCache.values().stream()
+                .filter(rule -> rule.modsecId() != null && !replaced.contains(rule.id()))
+                .forEach(rule -> used.add(rule.modsecId()));
+
+        List<CustomRuleDto> ordered = rules.stream()
+                .sorted(Comparator.comparing((CustomRuleDto rule) -> rule.modsecId() == null)
+                        .thenComparing(CustomRuleDto::createdAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(CustomRuleDto::id))
+                .toList();
+        List<CustomRuleDto> result = new ArrayList<>(ordered.size());
+        for (CustomRuleDto rule : ordered) {
+            Integer id = rule.modsecId();
+            if (id == null || !RuleSetPlanner.isCustomModsecId(id) || used.contains(id)) {
+                int allocated = RuleSetPlanner.allocateModsecId(rule.id(), used::contains);
+                if (id != null) {
+                    log.warn("ModSecurity id {} of rule {} is taken or out of range, reassigned to {}",
+                            id, rule.id(), allocated);
                 }
+                rule = rule.toBuilder().modsecId(allocated).build();
             }
-            
-            log.info("Synced {} rules to file: {}", rules.size(), CUSTOM_RULES_FILE);
-            
-            // ModSecurity 설정 파일에 include 추가 (한 번만)
-            ensureCustomRulesIncluded();
-            
-            // 신호 파일 생성 (Nginx가 이를 감지하여 룰 리로드)
-            createReloadSignal();
-            
-        } catch (Exception e) {
-            log.error("Error syncing rules to file", e);
+            used.add(rule.modsecId());
+            result.add(rule);
         }
+        return result;
     }
 
     /**
-     * ModSecurity 룰 문법으로 변환
+     * 배포 전 패턴 검증. 거부되면 측정 결과를 담아 {@link RulePatternRejectedException} 을 던진다.
      */
-    private String generateModSecurityRule(CustomRuleDto rule) {
-        int ruleId = 900000 + Math.abs(rule.id().hashCode() % 99999); // 900000~999999 범위
-        
-        String action = switch (rule.action()) {
-            case "BLOCK" -> "deny,status:403";
-            case "ALLOW" -> "allow";
-            case "LOG" -> "log";
-            default -> "log";
-        };
-        
-        return String.format("""
-                # Rule: %s
-                # Description: %s
-                # Priority: %d
-                SecRule REQUEST_URI "@rx %s" \\
-                    "id:%d,\\
-                    phase:2,\\
-                    %s,\\
-                    msg:'Custom Rule: %s',\\
-                    tag:'custom',\\
-                    tag:'%s'"
-                """, 
-                rule.name(),
-                rule.description(),
-                rule.priority(),
-                rule.pattern(),
-                ruleId,
-                action,
-                rule.name(),
-                rule.action().toLowerCase()
-        );
+    private RuleCostDto profilePattern(CustomRuleDto ruleDto) {
+        RuleCostDto cost = patternProfiler.profile(ruleDto.pattern());
+        if (Boolean.TRUE.equals(cost.rejected())) {
+            log.warn("Rejected rule pattern '{}': {}", ruleDto.pattern(), cost.reason());
+            throw new RulePatternRejectedException(CustomRuleDto.builder()
+                    .id(ruleDto.id())
+                    .name(ruleDto.name())
+                    .pattern(ruleDto.pattern())
+                    .action(ruleDto.action())
+                    .enabled(ruleDto.enabled())
+                    .description(ruleDto.description())
+                    .priority(ruleDto.priority())
+                    .cost(cost)
+                    .build());
+        }
+        return cost;
     }
 
     /**
-     * ModSecurity 메인 설정에 커스텀 룰 파일 include 추가
+     * 룰 파일 컴파일 요청 (debounce 후 단일 컴파일 스레드에서 반영)
      */
-    private void ensureCustomRulesIncluded() {
-        // 이 부분은 ModSecurity 설정 파일 구조에 따라 구현
-        // 일반적으로 modsecurity.conf 또는 nginx 설정에서 include 처리
-        log.debug("Custom rules file should be included in ModSecurity configuration");
+    private void triggerFileSync() {
+        ruleSetCompiler.requestCompile(this::getAllRules);
     }
 
     /**
-     * 리로드 신호 파일 생성
+     * 주기적 파일 동기화 (5분마다). 내용이 같으면 컴파일러가 쓰기를 생략한다.
      */
-    private void createReloadSignal() {
-        try {
-            File signalFile = new File("/tmp/modsec_reload_signal");
-            signalFile.createNewFile();
-            log.debug("Created reload signal file");
-        } catch (IOException e) {
-            log.warn("Failed to create reload signal file", e);
+    @Scheduled(fixedRate = 300000) // 5분
+    public void scheduledFileSync() {
+        if (!rulesLoaded) {
+            log.debug("Rule store not loaded, skipping scheduled sync");
+            return;
         }
+
+        log.debug("Starting scheduled file sync");
+        triggerFileSync();
     }
-}
\ No newline at end of file
+}
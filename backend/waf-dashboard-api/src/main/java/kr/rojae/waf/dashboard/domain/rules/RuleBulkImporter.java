@@ -0,0 +1,390 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleCostDto;
+import kr.rojae.waf.dashboard.dto.RuleImportErrorDto;
+import kr.rojae.waf.dashboard.dto.RuleImportResultDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 커스텀 룰 일괄 가져오기/내보내기
+ *
+ * 가져오기:
+ * 1. 본문을 스트리밍으로 읽는다. 첫 문자가 '[' 면 JSON 배열, 아니면 한 줄에 룰 1개(NDJSON).
+ *    NDJSON 은 줄 단위로 파싱해 깨진 줄도 오류 목록에 남긴다.
+ * 2. 필드 검증 후 패턴 검증(ReDoS/비용)을 워커 스레드에서 병렬로 돌린다. 같은 패턴은 한 번만 재고,
+ *    id 와 패턴이 그대로인 기존 룰은 저장된 측정값을 재사용한다.
+ * 3. 저장소 커밋 1회 + 컴파일 1회로 반영되어 rule-set version 이 하나만 오른다.
+ *    atomic(기본) 이면 한 건이라도 실패할 때 아무것도 반영하지 않는다.
+ *
+ * 내보내기는 평가 순서대로 NDJSON(기본) 또는 JSON 배열로 스트리밍한다. 내보낸 파일은 그대로 다시 가져올 수 있다.
+ */
+@Service
+@Slf4j
+public class RuleBulkImporter {
+
+    private static final Set<String> ACTIONS = Set.of("BLOCK", "ALLOW", "LOG");
+
+    private final ModSecurityRuleManager ruleManager;
+    private final RulePatternProfiler patternProfiler;
+    private final RuleSetCompiler ruleSetCompiler;
+    private final ObjectMapper objectMapper;
+    private final int maxRules;
+    private final int workers;
+    private final Duration deployTimeout;
+    private final Duration profileBudget;
+
+    public RuleBulkImporter(
+        ModSecurityRuleManager ruleManager,
+        RulePatternProfiler patternProfiler,
+        RuleSetCompiler ruleSetCompiler,
+        ObjectMapper objectMapper,
+        @Value("${app.rules.bulk.max-rules:10000}") int maxRules,
+        @Value("${app.rules.bulk.workers:0}") int workers,
+        @Value("${app.rules.bulk.deploy-timeout:30s}") Duration deployTimeout,
+        @Value("${app.rules.bulk.profile-budget:30s}") Duration profileBudget
+    ) {
+        this.ruleManager = ruleManager;
+        this.patternProfiler = patternProfiler;
+        this.ruleSetCompiler = ruleSetCompiler;
+        this.objectMapper = objectMapper;
+        this.maxRules = maxRules;
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.deployTimeout = deployTimeout;
+        this.profileBudget = profileBudget;
+    }
+
+    /**
+     * @param atomic true 면 오류가 하나라도 있을 때 아무것도 반영하지 않는다
+     * @throws IllegalArgumentException 룰 수 초과 또는 JSON 배열 자체가 깨진 경우
+     */
+    public RuleImportResultDto importRules(InputStream body, boolean atomic) throws IOException {
+        long started = System.nanoTime();
+        List<Candidate> candidates = read(body);
+
+        Map<String, CustomRuleDto> existing = ruleManager.getAllRules().stream()
+                .collect(Collectors.toMap(CustomRuleDto::id, Function.identity()));
+        List<RuleImportErrorDto> errors = new ArrayList<>();
+        List<Candidate> valid = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+
+        // 새 룰이 modsecId 를 지정했으면 기존 룰/같은 가져오기 안의 다른 룰과 겹치지 않아야 한다
+        Map<Integer, String> modsecOwners = new HashMap<>();
+        existing.values().forEach(rule -> modsecOwners.put(RuleSetPlanner.modsecId(rule), rule.id()));
+
+        for (Candidate candidate : candidates) {
+            String message = candidate.parseError() != null ? candidate.parseError() : validate(candidate.rule());
+            if (message == null && candidate.rule().id() != null && !seenIds.add(candidate.rule().id())) {
+                message = "Duplicate id in import: " + candidate.rule().id();
+            }
+            if (message == null) {
+                message = checkModsecId(candidate.rule(), existing, modsecOwners);
+            }
+            if (message != null) {
+                errors.add(error(candidate, message, null));
+            } else {
+                valid.add(candidate);
+            }
+        }
+
+        Map<String, RuleCostDto> costs = profile(valid, existing);
+        long validationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<CustomRuleDto> changes = new ArrayList<>();
+        int created = 0;
+        int updated = 0;
+        int unchanged = 0;
+        for (Candidate candidate : valid) {
+            CustomRuleDto rule = candidate.rule();
+            RuleCostDto cost = costs.get(rule.pattern());
+            if (Boolean.TRUE.equals(cost.rejected())) {
+                errors.add(error(candidate, "Pattern rejected: " + cost.reason(), cost));
+                continue;
+            }
+            CustomRuleDto previous = rule.id() != null ? existing.get(rule.id()) : null;
+            if (previous != null && sameDefinition(previous, rule)) {
+                unchanged++;
+                continue;
+            }
+            changes.add(CustomRuleDto.builder()
+                    .id(rule.id() != null ? rule.id() : UUID.randomUUID().toString())
+                    .name(rule.name())
+                    .pattern(rule.pattern())
+                    .action(rule.action())
+                    .enabled(rule.enabled() != null ? rule.enabled() : Boolean.TRUE)
+                    .description(rule.description())
+                    .priority(rule.priority())
+                    // 기존 룰은 id 를 유지하고, 새 룰은 지정한 id 또는 반영 시 할당
+                    .modsecId(previous != null ? previous.modsecId() : rule.modsecId())
+                    .cost(cost)
+                    .createdAt(previous != null ? previous.createdAt() : now)
+                    .updatedAt(now)
+                    .build());
+            if (previous != null) {
+                updated++;
+            } else {
+                created++;
+            }
+        }
+        errors.sort(Comparator.comparing(RuleImportErrorDto::index));
+
+        boolean apply = !changes.isEmpty() && (errors.isEmpty() || !atomic);
+        RuleSetCompiler.RuleSetVersion version = apply ? deploy(changes) : ruleSetCompiler.currentVersion();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        log.info("Bulk import: {} received, {} created, {} updated, {} unchanged, {} failed, applied={} in {}ms",
+                candidates.size(), created, updated, unchanged, errors.size(), apply, elapsedMillis);
+
+        return RuleImportResultDto.builder()
+                .received(candidates.size())
+                .created(apply ? created : 0)
+                .updated(apply ? updated : 0)
+                .unchanged(unchanged)
+                .failed(errors.size())
+                .applied(apply)
+                .ruleSetVersion(version != null ? version.version() : null)
+                .ruleSetHash(version != null ? version.hash() : null)
+                .validationMillis(validationMillis)
+                .elapsedMillis(elapsedMillis)
+                .errors(errors)
+                .build();
+    }
+
+    /**
+     * @param ndjson false 면 JSON 배열
+     */
+    public void exportRules(OutputStream out, boolean ndjson) throws IOException {
+        List<CustomRuleDto> rules = ruleManager.getAllRules().stream()
+                .sorted(RuleSetPlanner.EVALUATION_ORDER)
+                .toList();
+        // 응답 스트림은 호출한 쪽이 닫는다
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (SequenceWriter sequence = ndjson
+                ? writer.withRootValueSeparator("\n").writeValues(out)
+                : writer.writeValuesAsArray(out)) {
+            sequence.writeAll(rules);
+        }
+        if (ndjson) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private List<Candidate> read(InputStream body) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body, 64 * 1024);
+        ObjectReader reader = objectMapper.readerFor(CustomRuleDto.class);
+        List<Candidate> candidates = new ArrayList<>();
+
+        if (firstNonWhitespace(in) == '[') {
+            try (MappingIterator<CustomRuleDto> values = reader.readValues(in)) {
+                while (values.hasNextValue()) {
+                    checkLimit(candidates.size());
+                    candidates.add(new Candidate(candidates.size(), values.nextValue(), null));
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON array at rule " + candidates.size()
+                        + ": " + e.getOriginalMessage(), e);
+            }
+            return candidates;
+        }
+
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        for (String line; (line = lines.readLine()) != null; ) {
+            if (line.isBlank()) {
+                continue;
+            }
+            checkLimit(candidates.size());
+            try {
+                candidates.add(new Candidate(candidates.size(), reader.readValue(line), null));
+            } catch (JsonProcessingException e) {
+                candidates.add(new Candidate(candidates.size(), null, "Malformed JSON: " + e.getOriginalMessage()));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 패턴 -> 측정값. 새 패턴만 병렬로 잰다.
+     * 가져오기 전체 측정 시간은 profile-budget 까지이고, 그 안에 못 잰 패턴은 검증 안 된 채 배포하지 않도록 거부한다.
+     */
+    private Map<String, RuleCostDto> profile(List<Candidate> candidates, Map<String, CustomRuleDto> existing) {
+        Map<String, RuleCostDto> costs = new HashMap<>();
+        Map<String, CompletableFuture<RuleCostDto>> pending = new HashMap<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("rule-import-", 0).daemon(true).factory())) {
+            for (Candidate candidate : candidates) {
+                CustomRuleDto rule = candidate.rule();
+                CustomRuleDto previous = rule.id() != null ? existing.get(rule.id()) : null;
+                if (previous != null && rule.pattern().equals(previous.pattern()) && previous.cost() != null
+                        && !Boolean.TRUE.equals(previous.cost().rejected())) {
+                    costs.putIfAbsent(rule.pattern(), previous.cost());
+                    continue;
+                }
+                if (!costs.containsKey(rule.pattern())) {
+                    pending.computeIfAbsent(rule.pattern(),
+                            pattern -> CompletableFuture.supplyAsync(() -> patternProfiler.profile(pattern), executor));
+                }
+            }
+            long deadline = System.nanoTime() + profileBudget.toNanos();
+            for (Map.Entry<String, CompletableFuture<RuleCostDto>> entry : pending.entrySet()) {
+                costs.putIfAbsent(entry.getKey(), await(entry.getValue(), deadline));
+            }
+            // 아직 시작 안 한 측정은 버린다. 실행 중인 측정은 패턴별 예산(total-budget) 안에 끝난다
+            executor.shutdownNow();
+        }
+        return costs;
+    }
+
+    private RuleCostDto await(CompletableFuture<RuleCostDto> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return notProfiled("Import profiling budget of " + profileBudget + " exhausted, import fewer rules at once");
+        } catch (ExecutionException e) {
+            return notProfiled("Profiling failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return notProfiled("Profiling interrupted");
+        }
+    }
+
+    private static RuleCostDto notProfiled(String reason) {
+        return RuleCostDto.builder()
+                .rejected(true)
+                .reason(reason)
+                .profiledAt(LocalDateTime.now())
+                .build();
+    }
+
+    private RuleSetCompiler.RuleSetVersion deploy(List<CustomRuleDto> changes) {
+        CompletableFuture<RuleSetCompiler.RuleSetVersion> deployed = ruleManager.applyBulk(changes);
+        try {
+            return deployed.get(deployTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 저장소/캐시에는 반영됐고 배포는 컴파일러가 이어서 한다
+            log.warn("Bulk import stored but rule set not deployed within {}", deployTimeout);
+            return null;
+        } catch (ExecutionException e) {
+            log.error("Bulk import stored but rule set compilation failed", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static String validate(CustomRuleDto rule) {
+        if (rule == null) {
+            return "Rule is null";
+        }
+        if (rule.name() == null || rule.name().isBlank()) {
+            return "name is required";
+        }
+        if (rule.pattern() == null || rule.pattern().isBlank()) {
+            return "pattern is required";
+        }
+        if (rule.action() == null || !ACTIONS.contains(rule.action())) {
+            return "action must be one of " + ACTIONS;
+        }
+        return null;
+    }
+
+    /**
+     * 새 룰이 지정한 modsecId 검사. 통과하면 owners 에 등록한다 (기존 룰 수정은 저장된 id 를 유지하므로 보지 않는다)
+     */
+    private static String checkModsecId(CustomRuleDto rule, Map<String, CustomRuleDto> existing,
+                                        Map<Integer, String> owners) {
+        Integer id = rule.modsecId();
+        if (id == null || (rule.id() != null && existing.containsKey(rule.id()))) {
+            return null;
+        }
+        if (!RuleSetPlanner.isCustomModsecId(id)) {
+            return "modsecId must be within " + RuleSetPlanner.MODSEC_ID_MIN + "~" + RuleSetPlanner.MODSEC_ID_MAX;
+        }
+        String owner = owners.putIfAbsent(id, rule.id() != null ? rule.id() : "");
+        if (owner != null) {
+            return "modsecId " + id + " is already used by rule " + (owner.isEmpty() ? "(new)" : owner);
+        }
+        return null;
+    }
+
+    private static boolean sameDefinition(CustomRuleDto previous, CustomRuleDto rule) {
+        return Objects.equals(previous.name(), rule.name())
+                && Objects.equals(previous.pattern(), rule.pattern())
+                && Objects.equals(previous.action(), rule.action())
+                && Objects.equals(previous.enabled(), rule.enabled() != null ? rule.enabled() : Boolean.TRUE)
+                && Objects.equals(previous.description(), rule.description())
+                && Objects.equals(previous.priority(), rule.priority());
+    }
+
+    private void checkLimit(int count) {
+        if (count >= maxRules) {
+            throw new IllegalArgumentException("Too many rules in one import (max " + maxRules + ")");
+        }
+    }
+
+    private static int firstNonWhitespace(BufferedInputStream in) throws IOException {
+        in.mark(64 * 1024);
+        int c;
+        do {
+            c = in.read();
+        } while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+        in.reset();
+        return c;
+    }
+
+    private static RuleImportErrorDto error(Candidate candidate, String message, RuleCostDto cost) {
+        CustomRuleDto rule = candidate.rule();
+        return RuleImportErrorDto.builder()
+                .index(candidate.index())
+                .id(rule != null ? rule.id() : null)
+                .name(rule != null ? rule.name() : null)
+                .message(message)
+                .cost(cost)
+                .build();
+    }
+
+    /**
+     * @param index      본문 안에서의 순번 (0부터, 빈 줄 제외)
+     * @param parseError 파싱 실패 사유 (rule 은 null)
+     */
+    private record Candidate(int index, CustomRuleDto rule, String parseError) {}
+}
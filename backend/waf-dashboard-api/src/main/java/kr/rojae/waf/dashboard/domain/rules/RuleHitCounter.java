@@ -0,0 +1,407 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kr.rojae.waf.common.collect.IntIntHashMap;
+import kr.rojae.waf.dashboard.domain.event.ModSecurityEventParser;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.DeadRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleHitStatsDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 커스텀 룰별 히트 카운터 (실시간 이벤트 -> ModSecurity 룰 id -> {@link CustomRuleDto})
+ *
+ * - 룰 id(900000~999999) -> 슬롯은 {@link IntIntHashMap}, 카운터는 슬롯별 고정 폭 링 버퍼(분 60칸, 시간 24칸,
+ *   일 retention-days 칸)라 이벤트 1건 처리에 할당이 없다. 칸마다 epoch 를 같이 두어 오래된 칸은 쓸 때 비운다.
+ * - 일 단위 카운터와 마지막 히트 시각은 주기적으로 파일에 저장되어 재시작 후에도 dead-rule 판정이 이어진다.
+ * - dead rule: N 일 넘게 존재했는데 최근 N 일 동안 히트가 0 인 룰. 관측 기간이 N 일보다 짧으면 complete=false.
+ */
+@Component
+@Slf4j
+public class RuleHitCounter {
+
+    private static final int CUSTOM_ID_MIN = 900000;
+    private static final int CUSTOM_ID_MAX = 999999;
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24;
+    private static final int INITIAL_SLOTS = 256;
+
+    private final ModSecurityEventParser parser;
+    private final ModSecurityRuleManager ruleManager;
+    private final ObjectMapper objectMapper;
+    private final Path snapshotFile;
+    private final int retentionDays;
+
+    // 아래 배열은 모두 this 로 동기화한다
+    private final IntIntHashMap slots = new IntIntHashMap(INITIAL_SLOTS);
+    private int slotCount;
+    private int[] slotIds = new int[INITIAL_SLOTS];
+    private long[] lastHit = new long[INITIAL_SLOTS];
+    private long[] minuteCounts = new long[INITIAL_SLOTS * MINUTES];
+    private long[] minuteEpochs = new long[INITIAL_SLOTS * MINUTES];
+    private long[] hourCounts = new long[INITIAL_SLOTS * HOURS];
+    private long[] hourEpochs = new long[INITIAL_SLOTS * HOURS];
+    private long[] dayCounts;
+    private long[] dayEpochs;
+    private long observedSince;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private volatile Instant lastSavedAt;
+
+    public RuleHitCounter(
+        ModSecurityEventParser parser,
+        ModSecurityRuleManager ruleManager,
+        ObjectMapper objectMapper,
+        @Value("${app.rules.hits.snapshot-file:/app/custom-rules/.store/rule-hits.json}") String snapshotFile,
+        @Value("${app.rules.hits.retention-days:90}") int retentionDays
+    ) {
+        this.parser = parser;
+        this.ruleManager = ruleManager;
+        this.objectMapper = objectMapper;
+        this.snapshotFile = Path.of(snapshotFile);
+        this.retentionDays = Math.max(retentionDays, 1);
+        this.dayCounts = new long[INITIAL_SLOTS * this.retentionDays];
+        this.dayEpochs = new long[INITIAL_SLOTS * this.retentionDays];
+        // epoch 0 칸이 "오늘 0건" 으로 읽히지 않도록 비어 있는 칸은 -1
+        Arrays.fill(minuteEpochs, -1);
+        Arrays.fill(hourEpochs, -1);
+        Arrays.fill(dayEpochs, -1);
+        this.observedSince = Instant.now().getEpochSecond();
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            Snapshot snapshot = objectMapper.readValue(snapshotFile.toFile(), Snapshot.class);
+            long today = epochDay(Instant.now().getEpochSecond());
+            synchronized (this) {
+                observedSince = Math.min(observedSince, snapshot.observedSince());
+                for (SnapshotRule rule : snapshot.rules()) {
+                    int slot = slot(rule.id());
+                    lastHit[slot] = Math.max(lastHit[slot], rule.lastHit());
+                    rule.days().forEach((day, count) -> {
+                        if (day > today - retentionDays && day <= today) {
+                            int index = slot * retentionDays + (int) Math.floorMod(day, (long) retentionDays);
+                            dayEpochs[index] = day;
+                            dayCounts[index] = count;
+                        }
+                    });
+                }
+            }
+            log.info("Loaded rule hit counters for {} rules from {}", snapshot.rules().size(), snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load rule hit counters from {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 실시간 이벤트(ModSecurity audit JSON) 1건 반영
+     */
+    public void record(String json) {
+        events.incrementAndGet();
+        long now = Instant.now().getEpochSecond();
+        parser.forEachRuleId(json, id -> {
+            if (id >= CUSTOM_ID_MIN && id <= CUSTOM_ID_MAX) {
+                hit(id, now);
+            }
+        });
+    }
+
+    /**
+     * 룰 목록에 히트 통계를 붙인다 (GET /api/rules 응답용, 저장되는 룰에는 붙이지 않는다)
+     */
+    public List<CustomRuleDto> withHits(List<CustomRuleDto> rules) {
+        long now = Instant.now().getEpochSecond();
+        List<CustomRuleDto> result = new ArrayList<>(rules.size());
+        synchronized (this) {
+            for (CustomRuleDto rule : rules) {
+                result.add(CustomRuleDto.builder()
+                        .id(rule.id())
+                        .name(rule.name())
+                        .pattern(rule.pattern())
+                        .action(rule.action())
+                        .enabled(rule.enabled())
+                        .description(rule.description())
+                        .priority(rule.priority())
+                        .modsecId(rule.modsecId())
+                        .cost(rule.cost())
+                        .hits(stats(RuleSetPlanner.modsecId(rule), now))
+                        .createdAt(rule.createdAt())
+                        .updatedAt(rule.updatedAt())
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 최근 days 일 동안 히트가 없는 룰. 평가 비용(meanNanosPerMatch) 큰 순.
+     */
+    public Map<String, Object> deadRules(int days) {
+        int window = Math.max(1, Math.min(days, retentionDays));
+        long now = Instant.now().getEpochSecond();
+        LocalDateTime bornBefore = LocalDateTime.now().minusDays(window);
+        List<DeadRuleDto> dead = new ArrayList<>();
+        long observedFrom;
+
+        synchronized (this) {
+            observedFrom = observedSince;
+            long today = epochDay(now);
+            for (CustomRuleDto rule : ruleManager.getAllRules()) {
+                if (rule.createdAt() != null && rule.createdAt().isAfter(bornBefore)) {
+                    continue;
+                }
+                int id = RuleSetPlanner.modsecId(rule);
+                int slot = slots.get(id, -1);
+                if (slot >= 0 && sum(dayCounts, dayEpochs, slot, retentionDays, today - window + 1, today) > 0) {
+                    continue;
+                }
+                dead.add(DeadRuleDto.builder()
+                        .id(rule.id())
+                        .name(rule.name())
+                        .action(rule.action())
+                        .enabled(rule.enabled())
+                        .modsecId(id)
+                        .createdAt(rule.createdAt())
+                        .lastHitAt(slot >= 0 ? toLocalDateTime(lastHit[slot]) : null)
+                        .meanNanosPerMatch(rule.cost() != null ? rule.cost().meanNanosPerMatch() : null)
+                        .build());
+            }
+        }
+        dead.sort(Comparator.comparing(DeadRuleDto::meanNanosPerMatch,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+
+        long observedDays = TimeUnit.SECONDS.toDays(now - observedFrom);
+        long savedNanos = dead.stream()
+                .filter(rule -> Boolean.TRUE.equals(rule.enabled()) && rule.meanNanosPerMatch() != null)
+                .mapToLong(DeadRuleDto::meanNanosPerMatch)
+                .sum();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("days", window);
+        report.put("observedSince", toLocalDateTime(observedFrom));
+        report.put("observedDays", observedDays);
+        // 관측 기간이 window 보다 짧으면 "히트 없음" 이 "아직 못 봤음" 일 수 있다
+        report.put("complete", observedDays >= window);
+        report.put("count", dead.size());
+        report.put("estimatedNanosPerRequestSaved", savedNanos);
+        report.put("rules", dead);
+        return report;
+    }
+
+    /**
+     * dead rule 을 한 번에 비활성화 (rule-set version 1개). 관측 기간이 부족하면 force 없이는 거부한다.
+     */
+    public Map<String, Object> disableDeadRules(int days, boolean force) {
+        Map<String, Object> report = deadRules(days);
+        if (!Boolean.TRUE.equals(report.get("complete")) && !force) {
+            throw new IllegalStateException("Hit counters cover only " + report.get("observedDays")
+                    + " days, less than the requested " + report.get("days") + " days");
+        }
+
+        @SuppressWarnings("unchecked")
+        List<DeadRuleDto> dead = (List<DeadRuleDto>) report.get("rules");
+        LocalDateTime now = LocalDateTime.now();
+        List<CustomRuleDto> disabled = new ArrayList<>();
+        for (DeadRuleDto candidate : dead) {
+            CustomRuleDto rule = ruleManager.getRule(candidate.id());
+            if (rule == null || !Boolean.TRUE.equals(rule.enabled())) {
+                continue;
+            }
+            disabled.add(CustomRuleDto.builder()
+                    .id(rule.id())
+                    .name(rule.name())
+                    .pattern(rule.pattern())
+                    .action(rule.action())
+                    .enabled(false)
+                    .description(rule.description())
+                    .priority(rule.priority())
+                    .modsecId(rule.modsecId())
+                    .cost(rule.cost())
+                    .createdAt(rule.createdAt())
+                    .updatedAt(now)
+                    .build());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("days", report.get("days"));
+        result.put("disabled", disabled.stream().map(CustomRuleDto::id).toList());
+        if (!disabled.isEmpty()) {
+            RuleSetCompiler.RuleSetVersion version = ruleManager.applyBulk(disabled).join();
+            result.put("ruleSetVersion", version.version());
+        }
+        log.info("Disabled {} custom rules without hits in {} days", disabled.size(), report.get("days"));
+        return result;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (this) {
+            status.put("trackedRules", slotCount);
+            status.put("observedSince", toLocalDateTime(observedSince));
+        }
+        status.put("events", events.get());
+        status.put("hits", hits.get());
+        status.put("retentionDays", retentionDays);
+        status.put("snapshotFile", snapshotFile.toString());
+        status.put("lastSavedAt", lastSavedAt != null ? lastSavedAt.toString() : null);
+        return status;
+    }
+
+    /**
+     * 일 단위 카운터 저장 (5분마다 + 종료 시)
+     */
+    @Scheduled(fixedRate = 300000)
+    @PreDestroy
+    public void saveSnapshot() {
+        Snapshot snapshot;
+        long today = epochDay(Instant.now().getEpochSecond());
+        synchronized (this) {
+            List<SnapshotRule> rules = new ArrayList<>(slotCount);
+            for (int slot = 0; slot < slotCount; slot++) {
+                Map<Long, Long> days = new LinkedHashMap<>();
+                for (int i = 0; i < retentionDays; i++) {
+                    int index = slot * retentionDays + i;
+                    if (dayCounts[index] > 0 && dayEpochs[index] > today - retentionDays) {
+                        days.put(dayEpochs[index], dayCounts[index]);
+                    }
+                }
+                rules.add(new SnapshotRule(slotIds[slot], lastHit[slot], days));
+            }
+            snapshot = new Snapshot(observedSince, rules);
+        }
+
+        try {
+            Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            lastSavedAt = Instant.now();
+        } catch (IOException e) {
+            log.warn("Failed to save rule hit counters to {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private synchronized void hit(int id, long epochSecond) {
+        hits.incrementAndGet();
+        int slot = slot(id);
+        lastHit[slot] = epochSecond;
+        long minute = epochSecond / 60;
+        increment(minuteCounts, minuteEpochs, slot, MINUTES, minute);
+        increment(hourCounts, hourEpochs, slot, HOURS, minute / 60);
+        increment(dayCounts, dayEpochs, slot, retentionDays, epochDay(epochSecond));
+    }
+
+    /**
+     * this 로 동기화된 상태에서 호출
+     */
+    private RuleHitStatsDto stats(int id, long now) {
+        int slot = slots.get(id, -1);
+        if (slot < 0) {
+            return RuleHitStatsDto.builder()
+                    .modsecId(id).lastHour(0L).last24Hours(0L).last7Days(0L).last30Days(0L).perMinute(0.0)
+                    .build();
+        }
+        long minute = now / 60;
+        long hour = minute / 60;
+        long day = epochDay(now);
+        long lastHour = sum(minuteCounts, minuteEpochs, slot, MINUTES, minute - MINUTES + 1, minute);
+        return RuleHitStatsDto.builder()
+                .modsecId(id)
+                .lastHour(lastHour)
+                .last24Hours(sum(hourCounts, hourEpochs, slot, HOURS, hour - HOURS + 1, hour))
+                .last7Days(sum(dayCounts, dayEpochs, slot, retentionDays, day - 6, day))
+                .last30Days(sum(dayCounts, dayEpochs, slot, retentionDays, day - 29, day))
+                .perMinute(lastHour / (double) MINUTES)
+                .lastHitAt(lastHit[slot] > 0 ? toLocalDateTime(lastHit[slot]) : null)
+                .build();
+    }
+
+    /**
+     * 룰 id 의 슬롯 (없으면 새로 만든다). this 로 동기화된 상태에서 호출
+     */
+    private int slot(int id) {
+        int slot = slots.get(id, -1);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (slotCount == slotIds.length) {
+            int capacity = slotIds.length * 2;
+            slotIds = Arrays.copyOf(slotIds, capacity);
+            lastHit = Arrays.copyOf(lastHit, capacity);
+            minuteCounts = Arrays.copyOf(minuteCounts, capacity * MINUTES);
+            minuteEpochs = grow(minuteEpochs, capacity * MINUTES);
+            hourCounts = Arrays.copyOf(hourCounts, capacity * HOURS);
+            hourEpochs = grow(hourEpochs, capacity * HOURS);
+            dayCounts = Arrays.copyOf(dayCounts, capacity * retentionDays);
+            dayEpochs = grow(dayEpochs, capacity * retentionDays);
+        }
+        slot = slotCount++;
+        slotIds[slot] = id;
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private static long[] grow(long[] epochs, int length) {
+        int old = epochs.length;
+        long[] grown = Arrays.copyOf(epochs, length);
+        Arrays.fill(grown, old, length, -1);
+        return grown;
+    }
+
+    private static void increment(long[] counts, long[] epochs, int slot, int width, long epoch) {
+        int index = slot * width + (int) Math.floorMod(epoch, (long) width);
+        if (epochs[index] != epoch) {
+            epochs[index] = epoch;
+            counts[index] = 0;
+        }
+        counts[index]++;
+    }
+
+    private static long sum(long[] counts, long[] epochs, int slot, int width, long from, long to) {
+        long total = 0;
+        for (int i = slot * width, end = i + width; i < end; i++) {
+            if (epochs[i] >= from && epochs[i] <= to) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    private static long epochDay(long epochSecond) {
+        return Math.floorDiv(epochSecond, 86_400L);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+
+    record Snapshot(long observedSince, List<SnapshotRule> rules) {}
+
+    record SnapshotRule(int id, long lastHit, Map<Long, Long> days) {}
+}
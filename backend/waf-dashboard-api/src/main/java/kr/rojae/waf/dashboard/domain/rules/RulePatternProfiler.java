@@ -0,0 +1,499 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.dto.RuleCostDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 커스텀 룰 패턴 사전 검증 (배포 전 ReDoS/비용 측정)
+ *
+ * 1. 컴파일 (문법 오류는 즉시 거부)
+ * 2. 정적 휴리스틱: 중첩 수량자 (a+)+, 겹치는 분기의 반복 (a|ab)*, 연속된 .* 와일드카드
+ * 3. 벤치마크: 기본 URI + 코퍼스 파일 + 패턴 리터럴로 만든 적대적 입력(반복 후 불일치 문자)에 대해
+ *    매칭당 ns 측정. 입력마다 deadline 을 거는 CharSequence 로 감싸 폭주하는 백트래킹도 시간 안에 끊는다.
+ *
+ * 최악 ns/match 가 max-nanos-per-match 를 넘거나 deadline 에 걸리면 거부한다.
+ * java.util.regex 와 ModSecurity 의 PCRE 는 엔진이 다르지만 백트래킹 폭주 유형은 같다.
+ */
+@Component
+@Slf4j
+public class RulePatternProfiler {
+
+    private static final List<String> BASE_CORPUS = List.of(
+            "/",
+            "/index.html",
+            "/api/users?id=1",
+            "/api/products/12345/reviews?page=2&size=20&sort=createdAt,desc",
+            "/static/js/main.4f3a9c1e.chunk.js",
+            "/search?q=' OR 1=1--",
+            "/search?q=1 UNION SELECT username,password FROM users",
+            "/?q=<script>alert(document.cookie)</script>",
+            "/../../../../etc/passwd",
+            "/%2e%2e%2f%2e%2e%2f%2e%2e%2fetc%2fpasswd",
+            "/cgi-bin/test.cgi?cmd=;cat%20/etc/passwd",
+            "/wp-login.php?redirect_to=http%3A%2F%2Fexample.com%2Fwp-admin%2F",
+            "/download?file=" + "a".repeat(512),
+            "/" + "%41".repeat(256)
+    );
+    private static final int PUMP_SHORT = 256;
+    private static final int PUMP_GROWTH = 16;
+    // 이보다 짧은 매칭은 측정 잡음이 커서 초선형 판정에서 제외
+    private static final long SUPERLINEAR_FLOOR_NANOS = 1_000_000;
+    private static final int MAX_PUMP_CHARS = 8;
+    private static final int MAX_CORPUS = 5000;
+    // {n,m} 도 m 이 이 이상이면 백트래킹 관점에서 무한 반복과 같게 본다
+    private static final int LARGE_REPEAT = 64;
+
+    private final ObjectMapper objectMapper;
+    private final String corpusFile;
+    private final long maxNanosPerMatch;
+    private final long inputBudgetNanos;
+    private final long totalBudgetNanos;
+
+    private volatile List<String> corpus;
+
+    public RulePatternProfiler(
+        ObjectMapper objectMapper,
+        @Value("${app.rules.profiler.corpus-file:}") String corpusFile,
+        @Value("${app.rules.profiler.max-nanos-per-match:200000}") long maxNanosPerMatch,
+        @Value("${app.rules.profiler.input-budget:50ms}") Duration inputBudget,
+        @Value("${app.rules.profiler.total-budget:1s}") Duration totalBudget
+    ) {
+        this.objectMapper = objectMapper;
+        this.corpusFile = corpusFile;
+        this.maxNanosPerMatch = maxNanosPerMatch;
+        this.inputBudgetNanos = inputBudget.toNanos();
+        this.totalBudgetNanos = totalBudget.toNanos();
+    }
+
+    /**
+     * 패턴 비용 측정. 거부 여부는 {@link RuleCostDto#rejected()} 로 판단한다.
+     *
+     * - 코퍼스(실제 URI) 중 최악 ns/match 가 max-nanos-per-match 를 넘으면 거부
+     * - 적대적 입력은 짧은/긴(16배) 두 길이로 재서 시간이 길이보다 훨씬 빨리 늘면(초선형) 거부
+     */
+    public RuleCostDto profile(String pattern) {
+        if (pattern == null || pattern.isBlank()) {
+            return rejected("Pattern is empty", List.of());
+        }
+
+        Pattern compiled;
+        try {
+            compiled = Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            return rejected("Invalid regex: " + e.getDescription() + " at index " + e.getIndex(), List.of());
+        }
+
+        List<String> warnings = analyze(pattern);
+        long totalDeadline = System.nanoTime() + totalBudgetNanos;
+        Benchmark benchmark = new Benchmark();
+        String input = null;
+        try {
+            for (String uri : corpus()) {
+                if (System.nanoTime() > totalDeadline) {
+                    warnings.add("Total time budget exhausted after " + benchmark.samples + " inputs");
+                    break;
+                }
+                input = uri;
+                benchmark.record(uri, measure(compiled, uri));
+            }
+
+            benchmark.adversarial = true;
+            for (String unit : pumpUnits(pattern)) {
+                if (System.nanoTime() > totalDeadline) {
+                    break;
+                }
+                String shortInput = pumped(unit, PUMP_SHORT);
+                String longInput = pumped(unit, PUMP_SHORT * PUMP_GROWTH);
+                input = shortInput;
+                long shortNanos = measure(compiled, shortInput);
+                input = longInput;
+                long longNanos = measure(compiled, longInput);
+                benchmark.record(shortInput, shortNanos);
+                benchmark.record(longInput, longNanos);
+
+                // 선형이면 약 16배. 제곱 이상(256배)에 가까우면 초선형으로 본다.
+                if (longNanos > SUPERLINEAR_FLOOR_NANOS && longNanos > shortNanos * PUMP_GROWTH * 4) {
+                    return benchmark.result(warnings, true, "Superlinear matching time: "
+                            + shortNanos + "ns at " + shortInput.length() + " chars -> "
+                            + longNanos + "ns at " + longInput.length() + " chars");
+                }
+            }
+        } catch (DeadlineCharSequence.BudgetExceeded e) {
+            benchmark.record(input, inputBudgetNanos);
+            return benchmark.result(warnings, true,
+                    "Catastrophic backtracking: a single match exceeded " + inputBudgetNanos / 1_000_000 + "ms");
+        } catch (StackOverflowError e) {
+            // 분기 반복이 입력 길이만큼 재귀한다. PCRE 에서도 recursion limit 에 걸려 룰이 오동작한다.
+            benchmark.record(input, inputBudgetNanos);
+            return benchmark.result(warnings, true,
+                    "Regex recursion depth grows with input length (stack overflow on " + input.length() + " chars)");
+        }
+
+        boolean tooExpensive = benchmark.corpusWorst > maxNanosPerMatch;
+        return benchmark.result(warnings, tooExpensive, tooExpensive
+                ? "Worst-case " + benchmark.corpusWorst + "ns per match on real URIs exceeds limit of "
+                        + maxNanosPerMatch + "ns"
+                : null);
+    }
+
+    /**
+     * 측정에 쓰는 URI 코퍼스 (룰셋 벤치마크에서도 같은 입력을 쓴다)
+     */
+    public List<String> corpusUris() {
+        return corpus();
+    }
+
+    /**
+     * 입력 1건의 매칭당 ns. 최소 측정 시간(0.2ms)을 채울 때까지 반복한 평균을 3회 재서 최솟값을 쓴다
+     * (GC/JIT 컴파일 잡음 제거).
+     */
+    private long measure(Pattern compiled, String input) {
+        DeadlineCharSequence text = new DeadlineCharSequence(input);
+        Matcher matcher = compiled.matcher(text);
+
+        // JIT 이 붙기 전 첫 실행들은 버린다
+        long warmupEnd = System.nanoTime() + 1_000_000;
+        for (int i = 0; i < 50 && System.nanoTime() < warmupEnd; i++) {
+            text.arm(System.nanoTime() + inputBudgetNanos);
+            matcher.reset();
+            matcher.find();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            int iterations = 0;
+            long started = System.nanoTime();
+            long elapsed;
+            do {
+                text.arm(System.nanoTime() + inputBudgetNanos);
+                matcher.reset();
+                matcher.find();
+                iterations++;
+                elapsed = System.nanoTime() - started;
+            } while (elapsed < 200_000 && iterations < 1000);
+            best = Math.min(best, elapsed / iterations);
+        }
+        return best;
+    }
+
+    /**
+     * 정적 휴리스틱. 문자 클래스/이스케이프를 건너뛰며 그룹 단위로 수량자를 추적한다.
+     */
+    private List<String> analyze(String pattern) {
+        List<String> warnings = new ArrayList<>();
+        Deque<Group> stack = new ArrayDeque<>();
+        Group top = new Group();
+        int wildcardRun = 0;
+
+        int i = 0;
+        int n = pattern.length();
+        while (i < n) {
+            char c = pattern.charAt(i);
+            String atom = null;
+            Group closed = null;
+
+            if (c == '\\' && i + 1 < n) {
+                char e = pattern.charAt(i + 1);
+                atom = "wdsWDS".indexOf(e) >= 0 ? "class" : String.valueOf(e);
+                i += 2;
+            } else if (c == '[') {
+                int end = classEnd(pattern, i);
+                atom = "class";
+                i = end + 1;
+            } else if (c == '(') {
+                stack.push(top);
+                top = new Group();
+                i++;
+                // (?: (?= (?<name> 등 그룹 modifier 는 atom 이 아니다
+                if (i < n && pattern.charAt(i) == '?') {
+                    while (i < n && pattern.charAt(i) != ':' && pattern.charAt(i) != ')' && pattern.charAt(i) != '>') {
+                        i++;
+                    }
+                    if (i < n && pattern.charAt(i) != ')') {
+                        i++;
+                    }
+                }
+                continue;
+            } else if (c == ')') {
+                closed = top;
+                closed.endBranch();
+                top = stack.isEmpty() ? new Group() : stack.pop();
+                atom = closed.firstAtom();
+                i++;
+            } else if (c == '|') {
+                top.endBranch();
+                wildcardRun = 0;
+                i++;
+                continue;
+            } else if (c == '.') {
+                atom = "class";
+                i++;
+            } else if ("*+?{".indexOf(c) >= 0) {
+                // 앞 atom 이 없는 수량자 (이미 처리된 수량자 뒤 lazy/possessive 표기 등)
+                i++;
+                continue;
+            } else {
+                atom = String.valueOf(c);
+                i++;
+            }
+
+            // atom 뒤 수량자
+            boolean unbounded = false;
+            boolean quantified = false;
+            if (i < n) {
+                char q = pattern.charAt(i);
+                if (q == '*' || q == '+') {
+                    unbounded = true;
+                    quantified = true;
+                    i++;
+                } else if (q == '?') {
+                    quantified = true;
+                    i++;
+                } else if (q == '{') {
+                    int close = pattern.indexOf('}', i);
+                    if (close > 0) {
+                        String bounds = pattern.substring(i + 1, close);
+                        unbounded = bounds.endsWith(",") || upperBound(bounds) >= LARGE_REPEAT;
+                        quantified = true;
+                        i = close + 1;
+                    }
+                }
+                if (i < n && (pattern.charAt(i) == '+' || pattern.charAt(i) == '?')) {
+                    // possessive/lazy 표기
+                    i++;
+                }
+            }
+
+            if (closed != null && unbounded) {
+                if (closed.containsUnbounded) {
+                    warnings.add("Nested quantifier at index " + (i - 1) + " (e.g. (a+)+ ) can backtrack exponentially");
+                }
+                if (closed.hasOverlappingBranches()) {
+                    warnings.add("Repeated alternation with overlapping branches at index " + (i - 1));
+                }
+            }
+
+            boolean atomUnbounded = unbounded || closed != null && closed.containsUnbounded;
+            if (atomUnbounded) {
+                top.containsUnbounded = true;
+            }
+            top.addAtom(atom);
+
+            if (unbounded && "class".equals(atom)) {
+                wildcardRun++;
+                if (wildcardRun == 2) {
+                    warnings.add("Adjacent unbounded wildcards at index " + (i - 1) + " (e.g. .*.* ) backtrack polynomially");
+                }
+            } else if (!quantified || unbounded) {
+                wildcardRun = 0;
+            }
+        }
+        return warnings;
+    }
+
+    /**
+     * 적대적 입력의 반복 단위: 패턴에 나오는 리터럴 문자 각각 + 그 문자들을 이어붙인 문자열
+     */
+    private List<String> pumpUnits(String pattern) {
+        Set<Character> pumps = new LinkedHashSet<>();
+        for (int i = 0; i < pattern.length() && pumps.size() < MAX_PUMP_CHARS; i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                char e = pattern.charAt(++i);
+                pumps.add(switch (e) {
+                    case 'd' -> '1';
+                    case 'w' -> 'a';
+                    case 's' -> ' ';
+                    default -> Character.isLetterOrDigit(e) ? 'a' : e;
+                });
+            } else if (".*+?()[]{}|^$".indexOf(c) < 0) {
+                pumps.add(c);
+            }
+        }
+        pumps.add('a');
+
+        List<String> units = new ArrayList<>();
+        StringBuilder alphabet = new StringBuilder();
+        for (char pump : pumps) {
+            units.add(String.valueOf(pump));
+            alphabet.append(pump);
+        }
+        units.add(alphabet.toString());
+        return units;
+    }
+
+    /**
+     * 반복 단위를 length 자 이상으로 늘리고 끝에 불일치 문자를 붙여 백트래킹을 최대로 유도한다
+     */
+    private static String pumped(String unit, int length) {
+        return "/" + unit.repeat(Math.max(1, length / unit.length())) + "\u0000!";
+    }
+
+    /**
+     * 기본 코퍼스 + 코퍼스 파일 (한 줄에 URI 1개, 또는 uri 필드를 가진 JSON 라인)
+     */
+    private List<String> corpus() {
+        List<String> loaded = corpus;
+        if (loaded != null) {
+            return loaded;
+        }
+
+        List<String> lines = new ArrayList<>(BASE_CORPUS);
+        if (!corpusFile.isBlank() && Files.isReadable(Path.of(corpusFile))) {
+            Set<String> seen = new HashSet<>(lines);
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(corpusFile), StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null && lines.size() < MAX_CORPUS; ) {
+                    String uri = line.strip();
+                    if (uri.startsWith("{")) {
+                        JsonNode node = objectMapper.readTree(uri).findValue("uri");
+                        uri = node != null ? node.asText() : "";
+                    }
+                    if (!uri.isEmpty() && seen.add(uri)) {
+                        lines.add(uri);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to read rule profiler corpus {}: {}", corpusFile, e.getMessage());
+            }
+        }
+        corpus = List.copyOf(lines);
+        log.info("Rule profiler corpus loaded: {} URIs", corpus.size());
+        return corpus;
+    }
+
+    private RuleCostDto rejected(String reason, List<String> warnings) {
+        return RuleCostDto.builder()
+                .samples(0)
+                .warnings(warnings)
+                .rejected(true)
+                .reason(reason)
+                .profiledAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static int classEnd(String pattern, int start) {
+        int i = start + 1;
+        if (i < pattern.length() && pattern.charAt(i) == '^') {
+            i++;
+        }
+        if (i < pattern.length() && pattern.charAt(i) == ']') {
+            i++;
+        }
+        while (i < pattern.length() && pattern.charAt(i) != ']') {
+            i += pattern.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i, pattern.length() - 1);
+    }
+
+    private static int upperBound(String bounds) {
+        String upper = bounds.substring(bounds.indexOf(',') + 1).trim();
+        try {
+            return Integer.parseInt(upper);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String abbreviate(String input) {
+        if (input == null || input.length() <= 80) {
+            return input;
+        }
+        return input.substring(0, 80) + "...(" + input.length() + " chars)";
+    }
+
+    /**
+     * 측정 누적값
+     */
+    private static final class Benchmark {
+        private long worst;
+        private long corpusWorst;
+        private long sum;
+        private int samples;
+        private String worstInput;
+        private boolean adversarial;
+
+        void record(String input, long nanos) {
+            samples++;
+            sum += nanos;
+            if (nanos > worst) {
+                worst = nanos;
+                worstInput = input;
+            }
+            if (!adversarial && nanos > corpusWorst) {
+                corpusWorst = nanos;
+            }
+        }
+
+        RuleCostDto result(List<String> warnings, boolean rejected, String reason) {
+            return RuleCostDto.builder()
+                    .worstNanosPerMatch(worst)
+                    .meanNanosPerMatch(samples > 0 ? sum / samples : 0)
+                    .worstInput(abbreviate(worstInput))
+                    .samples(samples)
+                    .warnings(warnings)
+                    .rejected(rejected)
+                    .reason(reason)
+                    .profiledAt(LocalDateTime.now())
+                    .build();
+        }
+    }
+
+    /**
+     * 그룹 분석 상태. 분기별 첫 atom 으로 겹침 여부를 본다.
+     */
+    private static final class Group {
+        private final List<String> branchFirstAtoms = new ArrayList<>();
+        private String currentFirst;
+        private boolean containsUnbounded;
+
+        void addAtom(String atom) {
+            if (currentFirst == null) {
+                currentFirst = atom;
+            }
+        }
+
+        void endBranch() {
+            branchFirstAtoms.add(currentFirst);
+            currentFirst = null;
+        }
+
+        String firstAtom() {
+            return branchFirstAtoms.isEmpty() ? null : branchFirstAtoms.get(0);
+        }
+
+        boolean hasOverlappingBranches() {
+            if (branchFirstAtoms.size() < 2) {
+                return false;
+            }
+            Set<String> seen = new HashSet<>();
+            for (String first : branchFirstAtoms) {
+                // 빈 분기, 문자 클래스는 다른 분기와 겹친다고 본다
+                if (first == null || "class".equals(first) || !seen.add(first)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
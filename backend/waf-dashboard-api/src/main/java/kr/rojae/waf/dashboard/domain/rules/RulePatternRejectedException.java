@@ -0,0 +1,18 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import lombok.Getter;
+
+/**
+ * 패턴 검증(ReDoS/비용)에서 거부된 룰. rule.cost() 에 거부 사유와 측정값이 담긴다.
+ */
+@Getter
+public class RulePatternRejectedException extends RuntimeException {
+
+    private final CustomRuleDto rule;
+
+    public RulePatternRejectedException(CustomRuleDto rule) {
+        super("Rule pattern rejected: " + rule.cost().reason());
+        this.rule = rule;
+    }
+}
@@ -0,0 +1,593 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+import kr.rojae.waf.dashboard.dto.RuleShardDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 커스텀 룰 -> ModSecurity 설정 컴파일러 (단일 writer)
+ *
+ * 출력 (custom-rules 볼륨, nginx 의 /etc/modsecurity/custom-rules):
+ * - rules.d/pNNNNNNNNNN-R-cNN-action-kind.conf : priority/action/비용 단계/묶음 종류별 shard. 해당 룰이 바뀔 때만 다시 쓴다.
+ * - custom-rules.conf : shard Include 목록. shard 구성이 바뀔 때만 바뀐다.
+ * - manifest.json     : version, 전체 hash, shard 별 hash. 항상 마지막에 원자적으로 교체된다.
+ *                       nginx 는 manifest hash 가 바뀔 때만 리로드하고 결과를 .applied 에 남긴다.
+ *
+ * - debounce 구간 안의 변경은 한 번의 컴파일로 합친다. 컴파일 중 들어온 변경은 다음 컴파일로 이어진다.
+ * - 전체 hash 가 같으면 아무 파일도 쓰지 않는다. version 은 내용이 바뀔 때만 1 오른다.
+ * - 룰 묶음(@pm / alternation 선필터)과 평가 순서는 {@link RuleSetPlanner} 참고.
+ * - {@link RuleShardContributor} 가 주는 파일(IP 화이트리스트 등)도 rules.d/ 에 같이 배포한다.
+ * - {@link RuleSetDistributor} 가 있으면 컴파일마다 같은 내용을 여러 WAF 노드로 배포한다 (변경분만 전송은 distributor 몫).
+ */
+@Component
+@Slf4j
+public class RuleSetCompiler {
+
+    private static final String SHARD_DIR = "rules.d";
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String APPLIED_FILE = ".applied";
+    // 묶음 선필터 룰 id 범위 (커스텀 룰 900000~999999 바로 아래)
+    private static final int PREFILTER_ID_BASE = 899000;
+    private static final int PREFILTER_ID_RANGE = 1000;
+    private static final int LATENCY_SAMPLES = 256;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<RuleSetDistributor> distributor;
+    private final ObjectProvider<RuleShardContributor> contributors;
+    private final Path rulesFile;
+    private final Path rulesDir;
+    private final long debounceMillis;
+    private final boolean mergePatterns;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rule-set-compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final ConcurrentLinkedQueue<CompletableFuture<RuleSetVersion>> waiters = new ConcurrentLinkedQueue<>();
+    // 룰 저장소를 읽기 전(null)에는 빈 룰로 덮어쓰지 않도록 컴파일하지 않는다
+    private volatile Supplier<List<CustomRuleDto>> source;
+    // 아직 배포되지 않은 가장 오래된 변경 요청 시각 (0 = 없음)
+    private final AtomicLong oldestPendingNanos = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong unchangedSkips = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong shardsWritten = new AtomicLong();
+    private final AtomicLong shardsUnchanged = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    // 변경 요청 -> 파일 배포, 변경 요청 -> nginx 적용
+    private final LatencyWindow writeLatency = new LatencyWindow();
+    private final LatencyWindow applyLatency = new LatencyWindow();
+
+    // 컴파일 스레드에서만 변경
+    private volatile Manifest manifest;
+    private final Map<Long, Long> requestedNanosByVersion = new HashMap<>();
+
+    private volatile RuleSetVersion current;
+    private volatile long lastCompileMillis;
+    private volatile Instant lastCompiledAt;
+    private volatile List<String> lastChangedFiles = List.of();
+    private volatile String lastError;
+    private volatile long appliedVersion = -1;
+    private volatile Instant appliedAt;
+
+    public RuleSetCompiler(
+        ObjectMapper objectMapper,
+        ObjectProvider<RuleSetDistributor> distributor,
+        ObjectProvider<RuleShardContributor> contributors,
+        @Value("${app.rules.output-file:/app/custom-rules/custom-rules.conf}") String rulesFile,
+        @Value("${app.rules.compile-debounce:200ms}") Duration debounce,
+        @Value("${app.rules.merge-patterns:true}") boolean mergePatterns,
+        @Value("${app.rules.applied-poll-interval:2s}") Duration appliedPollInterval
+    ) {
+        this.objectMapper = objectMapper;
+        this.distributor = distributor;
+        this.contributors = contributors;
+        this.rulesFile = Path.of(rulesFile).toAbsolutePath();
+        this.rulesDir = this.rulesFile.getParent();
+        this.debounceMillis = debounce.toMillis();
+        this.mergePatterns = mergePatterns;
+        this.manifest = readManifest();
+        this.current = new RuleSetVersion(manifest.version(), manifest.hash(), manifest.ruleCount(), null);
+
+        long pollMillis = appliedPollInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::checkApplied, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 컴파일 요청. debounce 후 source 의 최신 룰로 컴파일하며,
+     * 반환된 future 는 이 요청 이후의 변경을 포함한 rule-set 이 배포(또는 변경 없음 확인)되면 완료된다.
+     */
+    public CompletableFuture<RuleSetVersion> requestCompile(Supplier<List<CustomRuleDto>> rules) {
+        source = rules;
+        return schedule();
+    }
+
+    /**
+     * 마지막으로 받은 룰 source 로 다시 컴파일 ({@link RuleShardContributor} 내용이 바뀌었을 때).
+     * 아직 룰이 로드되지 않았으면 컴파일하지 않고 현재 버전을 돌려준다. 룰 로드 후 첫 컴파일에 함께 반영된다.
+     */
+    public CompletableFuture<RuleSetVersion> requestCompile() {
+        if (source == null) {
+            log.info("Custom rules not loaded yet, deferring rule set compile");
+            return CompletableFuture.completedFuture(current);
+        }
+        return schedule();
+    }
+
+    private CompletableFuture<RuleSetVersion> schedule() {
+        requests.incrementAndGet();
+        oldestPendingNanos.compareAndSet(0, System.nanoTime());
+        CompletableFuture<RuleSetVersion> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::compile, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return waiter;
+    }
+
+    public RuleSetVersion currentVersion() {
+        return current;
+    }
+
+    public Map<String, Object> status() {
+        RuleSetVersion deployed = current;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("version", deployed.version());
+        status.put("hash", deployed.hash());
+        status.put("ruleCount", deployed.ruleCount());
+        status.put("deployedAt", deployed.deployedAt() != null ? deployed.deployedAt().toString() : null);
+        status.put("appliedVersion", appliedVersion >= 0 ? appliedVersion : null);
+        status.put("appliedAt", appliedAt != null ? appliedAt.toString() : null);
+        status.put("file", rulesFile.toString());
+        status.put("shards", manifest.files().size());
+        status.put("lastChangedFiles", lastChangedFiles);
+        status.put("pending", scheduled.get());
+        status.put("requests", requests.get());
+        status.put("compilations", compilations.get());
+        status.put("unchangedSkips", unchangedSkips.get());
+        status.put("shardsWritten", shardsWritten.get());
+        status.put("shardsUnchanged", shardsUnchanged.get());
+        status.put("reloads", reloads.get());
+        status.put("failures", failures.get());
+        status.put("writeLatencyMs", writeLatency.snapshot());
+        status.put("applyLatencyMs", applyLatency.snapshot());
+        status.put("lastCompiledAt", lastCompiledAt != null ? lastCompiledAt.toString() : null);
+        status.put("lastCompileMillis", lastCompileMillis);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 컴파일 스레드에서만 실행된다
+     */
+    private void compile() {
+        // 플래그를 먼저 내려야 컴파일 중 들어온 변경이 다음 컴파일을 예약한다
+        scheduled.set(false);
+        List<CompletableFuture<RuleSetVersion>> batch = new ArrayList<>();
+        for (CompletableFuture<RuleSetVersion> waiter; (waiter = waiters.poll()) != null; ) {
+            batch.add(waiter);
+        }
+        long requestedNanos = oldestPendingNanos.getAndSet(0);
+
+        long started = System.currentTimeMillis();
+        try {
+            List<CustomRuleDto> rules = source.get().stream()
+                    .filter(CustomRuleDto::enabled)
+                    .sorted(RuleSetPlanner.EVALUATION_ORDER)
+                    .toList();
+            Map<String, Shard> shards = render(rules);
+            String index = renderIndex(shards.keySet());
+
+            List<ManifestFile> files = new ArrayList<>(shards.size());
+            StringBuilder combined = new StringBuilder(rulesFile.getFileName() + ":" + sha256(index));
+            shards.forEach((name, shard) -> {
+                String hash = sha256(shard.content());
+                files.add(new ManifestFile(name, hash, shard.rules()));
+                combined.append('\n').append(name).append(':').append(hash);
+            });
+            String hash = sha256(combined.toString());
+
+            if (hash.equals(manifest.hash()) && Files.exists(rulesFile)) {
+                unchangedSkips.incrementAndGet();
+                log.debug("Rule set unchanged (version {}, hash {}), skipping write", manifest.version(), hash);
+            } else {
+                Instant now = Instant.now();
+                Manifest next = new Manifest(manifest.version() + 1, hash, rules.size(), now.toString(),
+                        rulesFile.getFileName().toString(), files);
+                List<String> changed = deploy(next, shards, index);
+                manifest = next;
+                current = new RuleSetVersion(next.version(), hash, rules.size(), now);
+                lastChangedFiles = changed;
+                if (requestedNanos > 0) {
+                    writeLatency.record((System.nanoTime() - requestedNanos) / 1_000_000);
+                    requestedNanosByVersion.put(next.version(), requestedNanos);
+                }
+                log.info("Deployed rule set version {} ({} rules, {} shards, changed {})",
+                        next.version(), rules.size(), files.size(), changed);
+            }
+
+            distribute(shards, index);
+
+            compilations.incrementAndGet();
+            lastError = null;
+            batch.forEach(waiter -> waiter.complete(current));
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            lastError = e.getMessage();
+            log.error("Rule set compilation failed", e);
+            batch.forEach(waiter -> waiter.completeExceptionally(e));
+        } finally {
+            lastCompiledAt = Instant.now();
+            lastCompileMillis = System.currentTimeMillis() - started;
+        }
+    }
+
+    /**
+     * 바뀐 shard -> index -> 안 쓰는 shard 삭제 -> manifest 순서로 쓴다.
+     * manifest 가 마지막이라 nginx 는 항상 완성된 파일 집합을 보고 리로드한다.
+     *
+     * @return 바뀐 파일 목록 (삭제는 "-" 접두)
+     */
+    private List<String> deploy(Manifest next, Map<String, Shard> shards, String index) throws IOException {
+        Map<String, String> previous = new HashMap<>();
+        manifest.files().forEach(file -> previous.put(file.name(), file.hash()));
+
+        List<String> changed = new ArrayList<>();
+        Path shardDir = rulesDir.resolve(SHARD_DIR);
+        Files.createDirectories(shardDir);
+        for (ManifestFile file : next.files()) {
+            Path path = rulesDir.resolve(file.name());
+            if (file.hash().equals(previous.get(file.name())) && Files.exists(path)) {
+                shardsUnchanged.incrementAndGet();
+                continue;
+            }
+            writeAtomically(path, shards.get(file.name()).content());
+            shardsWritten.incrementAndGet();
+            changed.add(file.name());
+        }
+
+        String deployedIndex = Files.exists(rulesFile) ? Files.readString(rulesFile, StandardCharsets.UTF_8) : null;
+        if (!index.equals(deployedIndex)) {
+            writeAtomically(rulesFile, index);
+            changed.add(rulesFile.getFileName().toString());
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardDir, "*.{conf,data}")) {
+            for (Path path : stream) {
+                String name = SHARD_DIR + "/" + path.getFileName();
+                if (!shards.containsKey(name)) {
+                    Files.deleteIfExists(path);
+                    changed.add("-" + name);
+                }
+            }
+        }
+
+        writeAtomically(rulesDir.resolve(MANIFEST_FILE), objectMapper.writeValueAsString(next));
+        return changed;
+    }
+
+    /**
+     * 현재 manifest 와 shard 내용을 distributor 로 넘긴다. 배포 실패는 로컬 배포를 막지 않고 다음 컴파일에서 다시 시도된다.
+     */
+    private void distribute(Map<String, Shard> shards, String index) {
+        RuleSetDistributor target = distributor.getIfAvailable();
+        if (target == null) {
+            return;
+        }
+        Manifest deployed = manifest;
+        Map<String, String> contents = new TreeMap<>();
+        shards.forEach((name, shard) -> contents.put(name, shard.content()));
+        try {
+            target.publish(RuleSetManifestDto.builder()
+                    .version(deployed.version())
+                    .hash(deployed.hash())
+                    .ruleCount(deployed.ruleCount())
+                    .generatedAt(deployed.generatedAt())
+                    .index(deployed.index())
+                    .indexContent(index)
+                    .files(deployed.files().stream()
+                            .map(file -> RuleShardDto.builder()
+                                    .name(file.name())
+                                    .hash(file.hash())
+                                    .rules(file.rules())
+                                    .build())
+                            .toList())
+                    .build(), contents);
+        } catch (RuntimeException e) {
+            log.warn("Failed to distribute rule set version {}: {}", deployed.version(), e.getMessage());
+        }
+    }
+
+    /**
+     * shard 경로(이름순 = 평가 순서) -> 내용
+     */
+    private Map<String, Shard> render(List<CustomRuleDto> rules) {
+        Map<String, StringBuilder> bodies = new TreeMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        Set<Integer> prefilterIds = new HashSet<>();
+
+        for (RuleSetPlanner.RuleGroup group : RuleSetPlanner.plan(rules, mergePatterns)) {
+            String key = group.shardKey();
+            String name = SHARD_DIR + "/" + key + ".conf";
+            StringBuilder body = bodies.computeIfAbsent(name,
+                    n -> new StringBuilder("# WAF Custom Rules - " + key + " (auto-generated, do not edit)\n\n"));
+            counts.merge(name, group.rules().size(), Integer::sum);
+
+            if (group.kind() == RuleSetPlanner.GroupKind.SINGLE) {
+                for (RuleSetPlanner.PlannedRule rule : group.rules()) {
+                    body.append(generateModSecurityRule(rule)).append("\n\n");
+                }
+                continue;
+            }
+
+            // 선필터 id/marker 는 shard 키에서 정해 다른 shard 가 바뀌어도 이 shard 내용은 그대로다
+            int prefilterId = PREFILTER_ID_BASE + Math.floorMod(key.hashCode(), PREFILTER_ID_RANGE);
+            while (!prefilterIds.add(prefilterId)) {
+                prefilterId = PREFILTER_ID_BASE + (prefilterId - PREFILTER_ID_BASE + 1) % PREFILTER_ID_RANGE;
+            }
+            String marker = "END_CUSTOM_" + key.toUpperCase().replace('-', '_');
+
+            // 선필터에 안 걸리면 묶음 전체를 건너뛴다
+            body.append(String.format("""
+                    # Group: %s %s, priority %d (%d rules)
+                    SecRule %s "!%s" \\
+                        "id:%d,\\
+                        phase:%d,\\
+                        pass,\\
+                        nolog,\\
+                        skipAfter:%s"
+
+                    """,
+                    group.action(),
+                    group.kind().name().toLowerCase(),
+                    RuleSetPlanner.priority(group.rules().get(0).rule()),
+                    group.rules().size(),
+                    RuleSetPlanner.TARGET,
+                    group.prefilter(),
+                    prefilterId,
+                    RuleSetPlanner.phase(RuleSetPlanner.TARGET),
+                    marker
+            ));
+            for (RuleSetPlanner.PlannedRule rule : group.rules()) {
+                body.append(generateModSecurityRule(rule)).append("\n\n");
+            }
+            body.append("SecMarker ").append(marker).append("\n\n");
+        }
+
+        Map<String, Shard> shards = new TreeMap<>();
+        bodies.forEach((name, body) -> shards.put(name, new Shard(body.toString(), counts.get(name))));
+        contributors.orderedStream().forEach(contributor -> {
+            for (RuleShardContributor.ContributedShard shard : contributor.shards()) {
+                String name = SHARD_DIR + "/" + shard.name();
+                if (shards.putIfAbsent(name, new Shard(shard.content(), shard.rules())) != null) {
+                    throw new IllegalStateException("Duplicate rule shard: " + name);
+                }
+            }
+        });
+        return shards;
+    }
+
+    /**
+     * nginx 가 include 하는 파일. 상대 경로 Include 는 이 파일 위치 기준으로 풀린다.
+     * version/시각을 넣지 않아야 shard 구성이 같을 때 내용도 같다. 데이터 파일(.conf 가 아닌 것)은 넣지 않는다.
+     */
+    private String renderIndex(Set<String> shardNames) {
+        StringBuilder index = new StringBuilder("# WAF Custom Rules - Auto-generated, do not edit\n"
+                + "# Version and hashes: " + MANIFEST_FILE + "\n\n");
+        for (String name : shardNames) {
+            if (!name.endsWith(".conf")) {
+                continue;
+            }
+            index.append("Include ").append(name).append('\n');
+        }
+        return index.toString();
+    }
+
+    /**
+     * ModSecurity 룰 문법으로 변환
+     */
+    private String generateModSecurityRule(RuleSetPlanner.PlannedRule planned) {
+        CustomRuleDto rule = planned.rule();
+
+        String action = switch (rule.action()) {
+            case "BLOCK" -> "deny,status:403";
+            // 허용된 요청은 본문 버퍼링/검사를 건너뛰고 이후 룰 평가도 끝낸다
+            case "ALLOW" -> "allow,ctl:requestBodyAccess=Off,ctl:responseBodyAccess=Off";
+            case "LOG" -> "log";
+            default -> "log";
+        };
+
+        return String.format("""
+                # Rule: %s
+                # Description: %s
+                # Priority: %d
+                SecRule %s "%s %s" \\
+                    "id:%d,\\
+                    phase:%d,\\
+                    %s,\\
+                    msg:'Custom Rule: %s',\\
+                    tag:'custom',\\
+                    tag:'%s'"
+                """,
+                rule.name(),
+                rule.description(),
+                RuleSetPlanner.priority(rule),
+                RuleSetPlanner.TARGET,
+                planned.type().operator(),
+                planned.argument(),
+                planned.modsecId(),
+                RuleSetPlanner.phase(RuleSetPlanner.TARGET),
+                action,
+                rule.name(),
+                rule.action().toLowerCase()
+        );
+    }
+
+    /**
+     * nginx 가 리로드 후 남긴 .applied ("version hash epochSeconds") 를 읽어 리로드 횟수/적용 지연을 기록한다.
+     * 컴파일 스레드에서 실행된다.
+     */
+    private void checkApplied() {
+        Path applied = rulesDir.resolve(APPLIED_FILE);
+        try {
+            if (!Files.exists(applied)) {
+                return;
+            }
+            String[] fields = Files.readString(applied, StandardCharsets.UTF_8).trim().split("\\s+");
+            long version = Long.parseLong(fields[0]);
+            if (version == appliedVersion) {
+                return;
+            }
+            boolean firstRead = appliedVersion < 0;
+            appliedVersion = version;
+            appliedAt = fields.length > 2 ? Instant.ofEpochSecond(Long.parseLong(fields[2])) : Instant.now();
+            if (firstRead) {
+                // 기동 전에 적용된 리로드는 세지 않는다
+                return;
+            }
+            reloads.incrementAndGet();
+            Long requestedNanos = requestedNanosByVersion.get(version);
+            if (requestedNanos != null) {
+                applyLatency.record((System.nanoTime() - requestedNanos) / 1_000_000);
+            }
+            // 리로드가 여러 version 을 한 번에 적용했으면 그 이전 version 의 대기 기록도 끝난다
+            requestedNanosByVersion.keySet().removeIf(v -> v <= version);
+            log.info("Rule set version {} applied by WAF", version);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed to read {}: {}", applied, e.getMessage());
+        }
+    }
+
+    /**
+     * 임시 파일 작성 -> fsync -> rename. ModSecurity 가 반쯤 쓰인 파일을 읽는 일이 없다.
+     */
+    private void writeAtomically(Path target, String content) throws IOException {
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync not supported for {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * 배포된 manifest 를 읽어 재시작 후에도 version 이 이어지고 안 바뀐 shard 는 다시 쓰지 않게 한다
+     */
+    private Manifest readManifest() {
+        Path path = rulesDir.resolve(MANIFEST_FILE);
+        if (Files.exists(path)) {
+            try {
+                return objectMapper.readValue(path.toFile(), Manifest.class);
+            } catch (IOException e) {
+                log.warn("Failed to read rule manifest {}: {}", path, e.getMessage());
+            }
+        }
+        return new Manifest(0, null, 0, null, rulesFile.getFileName().toString(), List.of());
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 배포된 rule-set 식별 정보
+     */
+    public record RuleSetVersion(long version, String hash, int ruleCount, Instant deployedAt) {}
+
+    /**
+     * manifest.json. hash 는 index 와 shard 별 "이름:hash" 를 합친 값이다.
+     */
+    record Manifest(long version, String hash, int ruleCount, String generatedAt, String index,
+                    List<ManifestFile> files) {}
+
+    record ManifestFile(String name, String hash, int rules) {}
+
+    private record Shard(String content, int rules) {}
+
+    private static final class LatencyWindow {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private long count;
+
+        synchronized void record(long millis) {
+            samples[(int) (count++ % LATENCY_SAMPLES)] = millis;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, LATENCY_SAMPLES));
+            Arrays.sort(sorted);
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", count);
+            snapshot.put("p50", percentile(sorted, 0.50));
+            snapshot.put("p99", percentile(sorted, 0.99));
+            snapshot.put("max", sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+            return snapshot;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            return sorted.length > 0 ? sorted[(int) Math.ceil(p * sorted.length) - 1] : 0;
+        }
+    }
+}
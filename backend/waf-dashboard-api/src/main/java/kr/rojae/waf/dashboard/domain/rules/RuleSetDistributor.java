@@ -0,0 +1,23 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+
+import java.util.Map;
+
+/**
+ * 컴파일된 rule-set 을 여러 WAF 노드로 배포
+ *
+ * publish 는 컴파일 스레드에서 컴파일마다(내용이 같아도) 호출되므로 이미 보낸 내용은 구현체가 걸러낸다.
+ */
+public interface RuleSetDistributor {
+
+    /**
+     * @param shards shard 이름(rules.d/*.conf) -> 내용
+     */
+    void publish(RuleSetManifestDto manifest, Map<String, String> shards);
+
+    /**
+     * 노드별 적용 version 과 수렴 상태
+     */
+    Map<String, Object> status();
+}
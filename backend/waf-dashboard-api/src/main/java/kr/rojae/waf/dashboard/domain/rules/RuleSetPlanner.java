@@ -0,0 +1,267 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 커스텀 룰 -> ModSecurity 룰 묶음 계획
+ *
+ * 룰마다 @rx 를 하나씩 만들면 요청마다 룰 수만큼 정규식이 돈다. 그래서
+ * - 리터럴/접두사/접미사 패턴은 같은 action 끼리 하나의 @pm(Aho-Corasick) 선필터로 묶고
+ * - 합칠 수 있는 정규식은 같은 action 끼리 하나의 alternation 선필터로 묶는다.
+ * 선필터에 걸리지 않으면 skipAfter 로 묶음 전체를 건너뛰고, 걸렸을 때만 멤버 룰을 하나씩 평가하므로
+ * 룰별 id/msg/tag(귀속 정보)는 그대로 유지된다.
+ *
+ * 평가 순서는 {@link #EVALUATION_ORDER} (priority -> ALLOW 우선 -> 측정 비용 -> 이름/id) 로 고정되고,
+ * 묶음은 같은 priority 안에서만 만든다. 같은 룰셋이면 항상 같은 파일이 나온다.
+ */
+final class RuleSetPlanner {
+
+    static final String TARGET = "REQUEST_URI";
+    static final int DEFAULT_PRIORITY = 100;
+    // 커스텀 룰 ModSecurity id 범위
+    static final int MODSEC_ID_MIN = 900000;
+    static final int MODSEC_ID_MAX = 999999;
+
+    /**
+     * 낮은 priority 먼저. 같은 priority 면 ALLOW(단락) -> BLOCK -> LOG, 싼 패턴 먼저, 마지막으로 이름/id.
+     */
+    static final Comparator<CustomRuleDto> EVALUATION_ORDER = Comparator
+            .comparingInt(RuleSetPlanner::priority)
+            .thenComparingInt(RuleSetPlanner::actionRank)
+            .thenComparingLong(RuleSetPlanner::cost)
+            .thenComparing(rule -> rule.name() != null ? rule.name() : "")
+            .thenComparing(CustomRuleDto::id);
+
+    private static final String REGEX_META = ".[]{}()*+?|^$";
+    // 역참조, 이름 있는 그룹, 인라인 플래그는 다른 패턴과 합치면 의미가 바뀐다
+    private static final Pattern UNMERGEABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?(?![:=!]|<[=!])");
+
+    private RuleSetPlanner() {
+    }
+
+    enum MatchType {
+        CONTAINS("@contains"),
+        BEGINS_WITH("@beginsWith"),
+        ENDS_WITH("@endsWith"),
+        EQUALS("@streq"),
+        REGEX("@rx");
+
+        private final String operator;
+
+        MatchType(String operator) {
+            this.operator = operator;
+        }
+
+        String operator() {
+            return operator;
+        }
+    }
+
+    enum GroupKind { LITERAL, REGEX, SINGLE }
+
+    /**
+     * @param argument 연산자 인자 (리터럴이면 이스케이프를 푼 문자열, 정규식이면 원본 패턴)
+     */
+    record PlannedRule(CustomRuleDto rule, int modsecId, MatchType type, String argument) {}
+
+    record RuleGroup(GroupKind kind, String action, List<PlannedRule> rules) {
+
+        /**
+         * 배포 파일 단위 키. 이름순 = 평가 순서 (priority -> action -> 비용 단계 -> 묶음 종류)
+         *
+         * priority 는 음수도 이름순이 유지되도록 int 최솟값만큼 더한 10자리, 비용 단계는 첫 멤버(묶음에서 가장 싼 룰)
+         * 비용의 2진 자릿수(00~63, 미측정은 63)다. 측정값이 조금 흔들려도 파일 이름이 바뀌지 않도록 단계로 나눈다.
+         */
+        String shardKey() {
+            CustomRuleDto first = rules.get(0).rule();
+            return "p%010d-%d-c%02d-%s-%s".formatted((long) priority(first) - Integer.MIN_VALUE, actionRank(first),
+                    costBucket(first), action.toLowerCase(), kind.name().toLowerCase());
+        }
+
+        /**
+         * 선필터 연산자 + 인자. SINGLE 은 선필터가 없다.
+         */
+        String prefilter() {
+            return switch (kind) {
+                case LITERAL -> "@pm " + rules.stream().map(PlannedRule::argument).distinct()
+                        .collect(Collectors.joining(" "));
+                case REGEX -> "@rx " + rules.stream().map(rule -> "(?:" + rule.argument() + ")")
+                        .collect(Collectors.joining("|"));
+                case SINGLE -> null;
+            };
+        }
+    }
+
+    /**
+     * @param merge false 면 기존처럼 룰마다 @rx 하나 (벤치마크 비교/문제 발생 시 되돌리기용)
+     */
+    static List<RuleGroup> plan(List<CustomRuleDto> rules, boolean merge) {
+        List<RuleGroup> groups = new ArrayList<>();
+        Map<String, List<PlannedRule>> merged = new LinkedHashMap<>();
+        // 묶음은 첫 멤버가 나온 위치에 둔다
+        Map<String, Integer> slots = new LinkedHashMap<>();
+
+        for (CustomRuleDto rule : rules) {
+            PlannedRule planned = merge ? classify(rule) : asRegex(rule);
+            GroupKind kind = planned.type() == MatchType.REGEX
+                    ? (merge && isMergeableRegex(planned.argument()) ? GroupKind.REGEX : GroupKind.SINGLE)
+                    : GroupKind.LITERAL;
+            if (kind == GroupKind.SINGLE) {
+                groups.add(new RuleGroup(GroupKind.SINGLE, rule.action(), List.of(planned)));
+                continue;
+            }
+            String key = kind + ":" + rule.action() + ":" + priority(rule);
+            if (!merged.containsKey(key)) {
+                slots.put(key, groups.size());
+                groups.add(null);
+            }
+            merged.computeIfAbsent(key, k -> new ArrayList<>()).add(planned);
+        }
+
+        slots.forEach((key, slot) -> {
+            List<PlannedRule> members = merged.get(key);
+            GroupKind kind = GroupKind.valueOf(key.substring(0, key.indexOf(':')));
+            // 멤버가 하나면 선필터가 오히려 비용이다
+            groups.set(slot, new RuleGroup(members.size() > 1 ? kind : GroupKind.SINGLE,
+                    members.get(0).rule().action(), List.copyOf(members)));
+        });
+        return groups;
+    }
+
+    /**
+     * 대상 변수로 정하는 phase. URI/헤더만 보는 룰은 본문을 기다릴 필요 없이 phase 1 에서 평가한다.
+     */
+    static int phase(String target) {
+        return switch (target) {
+            case "REQUEST_URI", "REQUEST_FILENAME", "REQUEST_METHOD", "REQUEST_HEADERS", "REMOTE_ADDR", "ARGS_GET" -> 1;
+            default -> 2;
+        };
+    }
+
+    static int priority(CustomRuleDto rule) {
+        return rule.priority() != null ? rule.priority() : DEFAULT_PRIORITY;
+    }
+
+    private static int actionRank(CustomRuleDto rule) {
+        return switch (rule.action() != null ? rule.action() : "") {
+            case "ALLOW" -> 0;
+            case "BLOCK" -> 1;
+            default -> 2;
+        };
+    }
+
+    /**
+     * 측정하지 않은(이전에 만든) 룰은 맨 뒤
+     */
+    private static long cost(CustomRuleDto rule) {
+        return rule.cost() != null && rule.cost().meanNanosPerMatch() != null
+                ? rule.cost().meanNanosPerMatch()
+                : Long.MAX_VALUE;
+    }
+
+    private static int costBucket(CustomRuleDto rule) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(0, cost(rule)));
+    }
+
+    /**
+     * 저장된 id. 할당 전(이전 버전에서 만든) 룰이면 예전처럼 룰 id 해시 위치
+     */
+    static int modsecId(CustomRuleDto rule) {
+        return rule.modsecId() != null ? rule.modsecId() : hashSlot(rule.id());
+    }
+
+    /**
+     * 룰 id 해시 위치부터 다음 빈 id 를 찾는다 (끝에 닿으면 범위 처음부터).
+     * 해시가 겹치지 않으면 예전 id 와 같아서 기존 히트 통계가 이어진다.
+     *
+     * @throws IllegalStateException 범위의 id 를 모두 쓰고 있을 때
+     */
+    static int allocateModsecId(String ruleId, IntPredicate used) {
+        int range = MODSEC_ID_MAX - MODSEC_ID_MIN + 1;
+        int start = hashSlot(ruleId) - MODSEC_ID_MIN;
+        for (int i = 0; i < range; i++) {
+            int candidate = MODSEC_ID_MIN + (start + i) % range;
+            if (!used.test(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No free ModSecurity rule id in " + MODSEC_ID_MIN + "~" + MODSEC_ID_MAX);
+    }
+
+    static boolean isCustomModsecId(int id) {
+        return id >= MODSEC_ID_MIN && id <= MODSEC_ID_MAX;
+    }
+
+    private static int hashSlot(String ruleId) {
+        return MODSEC_ID_MIN + Math.abs(ruleId.hashCode() % 99999);
+    }
+
+    private static PlannedRule classify(CustomRuleDto rule) {
+        String pattern = rule.pattern();
+        boolean anchoredStart = pattern.startsWith("^");
+        boolean anchoredEnd = pattern.endsWith("$") && !isEscaped(pattern, pattern.length() - 1);
+        String body = pattern.substring(anchoredStart ? 1 : 0, pattern.length() - (anchoredEnd ? 1 : 0));
+
+        String literal = unescapeLiteral(body);
+        if (literal == null) {
+            return asRegex(rule);
+        }
+        MatchType type = anchoredStart && anchoredEnd ? MatchType.EQUALS
+                : anchoredStart ? MatchType.BEGINS_WITH
+                : anchoredEnd ? MatchType.ENDS_WITH
+                : MatchType.CONTAINS;
+        return new PlannedRule(rule, modsecId(rule), type, literal);
+    }
+
+    private static PlannedRule asRegex(CustomRuleDto rule) {
+        return new PlannedRule(rule, modsecId(rule), MatchType.REGEX, rule.pattern());
+    }
+
+    /**
+     * 정규식 메타문자가 없는 패턴이면 이스케이프를 푼 리터럴, 아니면 null.
+     * @pm 인자는 공백으로 구분되므로 공백/따옴표/역슬래시가 든 리터럴은 정규식으로 남긴다.
+     */
+    private static String unescapeLiteral(String body) {
+        if (body.isEmpty()) {
+            return null;
+        }
+        StringBuilder literal = new StringBuilder(body.length());
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= body.length() || Character.isLetterOrDigit(body.charAt(i + 1))) {
+                    return null; // \d, \w, \x41 등 문자 클래스/코드
+                }
+                c = body.charAt(++i);
+            } else if (REGEX_META.indexOf(c) >= 0) {
+                return null;
+            }
+            if (Character.isWhitespace(c) || c == '"' || c == '\'' || c == '\\') {
+                return null;
+            }
+            literal.append(c);
+        }
+        return literal.toString();
+    }
+
+    private static boolean isMergeableRegex(String pattern) {
+        return !UNMERGEABLE.matcher(pattern).find();
+    }
+
+    private static boolean isEscaped(String pattern, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && pattern.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+}
@@ -0,0 +1,24 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import java.util.List;
+
+/**
+ * 커스텀 룰 외에 rule-set 에 함께 배포할 파일 (예: IP 화이트리스트 룰 + @ipMatchFromFile 데이터)
+ *
+ * {@link RuleSetCompiler} 가 컴파일마다 호출해 rules.d/ 아래 shard 로 넣는다. 같은 manifest hash 에 포함되므로
+ * 내용이 바뀌면 nginx 리로드와 WAF 노드 배포가 커스텀 룰과 똑같이 일어난다.
+ * 내용이 바뀌면 {@link RuleSetCompiler#requestCompile()} 을 호출한다.
+ */
+public interface RuleShardContributor {
+
+    /**
+     * 컴파일 스레드에서 호출된다. 빠르게 반환해야 한다.
+     */
+    List<ContributedShard> shards();
+
+    /**
+     * @param name    rules.d/ 아래 파일 이름. ".conf" 는 Include 목록에 들어가고 그 밖(".data" 등)은 룰이 참조하는 데이터 파일
+     * @param rules   manifest 에 기록할 룰 수
+     */
+    record ContributedShard(String name, String content, int rules) {}
+}
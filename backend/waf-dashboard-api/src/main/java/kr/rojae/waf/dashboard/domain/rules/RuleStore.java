@@ -0,0 +1,32 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 커스텀 룰 영속 저장소
+ *
+ * put/delete 는 디스크에 기록(fsync)된 뒤에 반환되어야 한다.
+ */
+public interface RuleStore {
+
+    /**
+     * 저장된 전체 룰 복구 (기동 시 1회)
+     *
+     * @throws IllegalStateException 저장된 데이터가 손상되어 전체 룰을 복구할 수 없을 때
+     */
+    Map<String, CustomRuleDto> load();
+
+    void put(CustomRuleDto rule);
+
+    /**
+     * 여러 룰을 한 번의 커밋(fsync)으로 기록
+     */
+    void putAll(Collection<CustomRuleDto> rules);
+
+    void delete(String id);
+
+    Map<String, Object> status();
+}
@@ -0,0 +1,334 @@
+package kr.rojae.waf.dashboard.domain.whitelist;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import kr.rojae.waf.common.net.CidrAggregator;
+import kr.rojae.waf.common.net.CidrTrie;
+import kr.rojae.waf.common.net.IpPrefix;
+import kr.rojae.waf.dashboard.domain.rules.RuleSetCompiler;
+import kr.rojae.waf.dashboard.domain.rules.RuleShardContributor;
+import kr.rojae.waf.dashboard.dto.WhitelistDto;
+import kr.rojae.waf.dashboard.dto.WhitelistMatchDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * IP 화이트리스트 (IPv4/IPv6 주소 또는 CIDR)
+ *
+ * - 항목은 JSON 파일 하나에 저장한다 (임시 파일 -> rename). 변경이 드물어 변경마다 전체를 다시 쓴다.
+ * - 활성 항목으로 {@link CidrTrie} 를 새로 만들어 통째로 교체한다. 조회는 잠금 없이 프리픽스 길이에 비례한다.
+ * - WAF 에는 겹치거나 맞닿은 범위를 합친 CIDR 목록을 rules.d/ip-whitelist.data 로, 이를 읽는
+ *   @ipMatchFromFile 룰 하나를 rules.d/p00000-0-allow-ip-whitelist.conf 로 배포한다 ({@link RuleShardContributor}).
+ *   ModSecurity 는 목록을 자체 radix 트리로 올려 요청마다 주소 한 번만 조회한다.
+ */
+@Component
+@Slf4j
+public class WhitelistManager implements RuleShardContributor {
+
+    // 묶음 선필터(899000~) 바로 아래
+    static final int RULE_ID = 898000;
+    // 커스텀 룰 shard(p + 10자리 priority) 보다 이름순으로 앞이라 같은 phase 의 커스텀 룰보다 먼저 평가된다
+    private static final String RULE_FILE = "p00000-0-allow-ip-whitelist.conf";
+    private static final String DATA_FILE = "ip-whitelist.data";
+
+    private final ObjectMapper objectMapper;
+    private final RuleSetCompiler ruleSetCompiler;
+    private final Path storeFile;
+
+    // 변경은 lock 으로 동기화한다 (파일 저장 중에도 잡고 있어서 monitor 대신 ReentrantLock)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, WhitelistDto> entries = new LinkedHashMap<>();
+    private volatile Compiled compiled = Compiled.EMPTY;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+    private volatile Instant lastSavedAt;
+
+    public WhitelistManager(
+        ObjectMapper objectMapper,
+        RuleSetCompiler ruleSetCompiler,
+        @Value("${app.whitelist.store-file:/app/custom-rules/.store/whitelist.json}") String storeFile
+    ) {
+        this.objectMapper = objectMapper;
+        this.ruleSetCompiler = ruleSetCompiler;
+        this.storeFile = Path.of(storeFile);
+    }
+
+    @PostConstruct
+    public void load() {
+        lock.lock();
+        try {
+            if (Files.exists(storeFile)) {
+                try {
+                    List<WhitelistDto> stored = objectMapper.readValue(storeFile.toFile(), new TypeReference<>() {});
+                    for (WhitelistDto entry : stored) {
+                        try {
+                            IpPrefix.parse(entry.ip());
+                            entries.put(entry.id(), entry);
+                        } catch (IllegalArgumentException e) {
+                            log.warn("Skipping invalid whitelist entry {}: {}", entry.id(), e.getMessage());
+                        }
+                    }
+                } catch (IOException e) {
+                    log.error("Failed to load whitelist from {}", storeFile, e);
+                }
+            }
+            rebuild();
+            log.info("Loaded {} whitelist entries ({} CIDRs after aggregation)", entries.size(), compiled.cidrs().size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<WhitelistDto> getAll() {
+        lock.lock();
+        try {
+            return new ArrayList<>(entries.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<WhitelistDto> get(String id) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(entries.get(id));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException ip 가 IP/CIDR 리터럴이 아닐 때
+     */
+    public WhitelistDto create(WhitelistDto request) {
+        lock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            WhitelistDto entry = WhitelistDto.builder()
+                    .id(UUID.randomUUID().toString())
+                    .ip(normalize(request.ip()))
+                    .description(request.description())
+                    .enabled(request.enabled() == null || request.enabled())
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build();
+            commit(entry.id(), entry);
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 없으면 empty
+     * @throws IllegalArgumentException ip 가 IP/CIDR 리터럴이 아닐 때
+     */
+    public Optional<WhitelistDto> update(String id, WhitelistDto request) {
+        lock.lock();
+        try {
+            WhitelistDto existing = entries.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+            WhitelistDto entry = WhitelistDto.builder()
+                    .id(id)
+                    .ip(request.ip() != null ? normalize(request.ip()) : existing.ip())
+                    .description(request.description() != null ? request.description() : existing.description())
+                    .enabled(request.enabled() != null ? request.enabled() : existing.enabled())
+                    .createdAt(existing.createdAt())
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            commit(id, entry);
+            return Optional.of(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<WhitelistDto> toggle(String id) {
+        lock.lock();
+        try {
+            WhitelistDto existing = entries.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+            return update(id, WhitelistDto.builder().enabled(!Boolean.TRUE.equals(existing.enabled())).build());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean delete(String id) {
+        lock.lock();
+        try {
+            if (!entries.containsKey(id)) {
+                return false;
+            }
+            commit(id, null);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 활성 항목 중 ip 를 포함하는 가장 긴 프리픽스 항목
+     *
+     * @throws IllegalArgumentException ip 가 IP 리터럴이 아닐 때
+     */
+    public WhitelistMatchDto match(String ip) {
+        byte[] address = IpPrefix.parseAddress(ip);
+        lookups.incrementAndGet();
+        CidrTrie.Entry<WhitelistDto> hit = compiled.trie().longestMatchEntry(address);
+        if (hit == null) {
+            return WhitelistMatchDto.builder().ip(ip).matched(false).build();
+        }
+        matches.incrementAndGet();
+        return WhitelistMatchDto.builder()
+                .ip(ip)
+                .matched(true)
+                .id(hit.value().id())
+                .cidr(hit.value().ip())
+                .description(hit.value().description())
+                .build();
+    }
+
+    /**
+     * WAF 에 배포되는 합쳐진 CIDR 목록 (ip-whitelist.data 내용)
+     */
+    public List<String> compiledCidrs() {
+        return compiled.cidrs().stream().map(IpPrefix::toString).toList();
+    }
+
+    @Override
+    public List<ContributedShard> shards() {
+        Compiled current = compiled;
+        if (current.cidrs().isEmpty()) {
+            // 빈 @ipMatchFromFile 파일은 ModSecurity 가 거부하므로 룰 자체를 뺀다
+            return List.of();
+        }
+        StringBuilder data = new StringBuilder();
+        current.cidrs().forEach(cidr -> data.append(cidr).append('\n'));
+        // 상대 경로는 이 룰 파일이 있는 rules.d/ 기준으로 풀린다
+        String rule = String.format("""
+                # WAF IP Whitelist (auto-generated, do not edit)
+                # Addresses: %s
+                SecRule REMOTE_ADDR "@ipMatchFromFile %s" \\
+                    "id:%d,\\
+                    phase:1,\\
+                    allow,\\
+                    ctl:requestBodyAccess=Off,\\
+                    ctl:responseBodyAccess=Off,\\
+                    nolog,\\
+                    msg:'IP Whitelist',\\
+                    tag:'WHITELIST_IP'"
+                """, DATA_FILE, DATA_FILE, RULE_ID);
+        return List.of(
+                new ContributedShard(DATA_FILE, data.toString(), 0),
+                new ContributedShard(RULE_FILE, rule, 1)
+        );
+    }
+
+    public Map<String, Object> status() {
+        Compiled current = compiled;
+        Map<String, Object> status = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            status.put("entries", entries.size());
+        } finally {
+            lock.unlock();
+        }
+        status.put("enabled", current.enabled());
+        status.put("cidrs", current.cidrs().size());
+        status.put("ipv4Cidrs", current.cidrs().stream().filter(IpPrefix::isIpv4).count());
+        status.put("ipv6Cidrs", current.cidrs().stream().filter(cidr -> !cidr.isIpv4()).count());
+        status.put("trieSize", current.trie().size());
+        status.put("lookups", lookups.get());
+        status.put("matches", matches.get());
+        status.put("builtAt", current.builtAt().toString());
+        status.put("buildMicros", current.buildMicros());
+        status.put("storeFile", storeFile.toString());
+        status.put("lastSavedAt", lastSavedAt != null ? lastSavedAt.toString() : null);
+        status.put("ruleSetVersion", ruleSetCompiler.currentVersion().version());
+        return status;
+    }
+
+    /**
+     * 변경 반영 후 저장 -> 트라이 재생성 -> rule-set 재컴파일. 저장에 실패하면 메모리도 바꾸지 않는다.
+     *
+     * @param entry null 이면 삭제
+     */
+    private void commit(String id, WhitelistDto entry) {
+        Map<String, WhitelistDto> next = new LinkedHashMap<>(entries);
+        if (entry == null) {
+            next.remove(id);
+        } else {
+            next.put(id, entry);
+        }
+        save(next.values());
+        entries.clear();
+        entries.putAll(next);
+        rebuild();
+        ruleSetCompiler.requestCompile();
+    }
+
+    private void save(Collection<WhitelistDto> values) {
+        try {
+            Files.createDirectories(storeFile.toAbsolutePath().getParent());
+            Path tmp = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), new ArrayList<>(values));
+            Files.move(tmp, storeFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            lastSavedAt = Instant.now();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save whitelist to " + storeFile, e);
+        }
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        CidrTrie<WhitelistDto> trie = new CidrTrie<>();
+        List<IpPrefix> prefixes = new ArrayList<>();
+        // 같은 프리픽스가 여러 번 있으면 먼저 만든 항목이 남도록 최신 항목부터 넣는다
+        entries.values().stream()
+                .filter(entry -> Boolean.TRUE.equals(entry.enabled()))
+                .sorted(Comparator.comparing(WhitelistDto::createdAt, Comparator.nullsFirst(Comparator.reverseOrder())))
+                .forEach(entry -> {
+                    IpPrefix prefix = IpPrefix.parse(entry.ip());
+                    trie.put(prefix, entry);
+                    prefixes.add(prefix);
+                });
+        compiled = new Compiled(trie, CidrAggregator.aggregate(prefixes), prefixes.size(), Instant.now(),
+                (System.nanoTime() - started) / 1000);
+    }
+
+    private static String normalize(String ip) {
+        IpPrefix.parse(ip);
+        return ip.trim();
+    }
+
+    private record Compiled(CidrTrie<WhitelistDto> trie, List<IpPrefix> cidrs, int enabled, Instant builtAt,
+                            long buildMicros) {
+        static final Compiled EMPTY = new Compiled(new CidrTrie<>(), List.of(), 0, Instant.EPOCH, 0);
+    }
+}
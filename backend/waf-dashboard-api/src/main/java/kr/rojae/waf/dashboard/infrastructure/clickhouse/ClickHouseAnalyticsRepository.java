@@ -0,0 +1,216 @@
+package kr.rojae.waf.dashboard.infrastructure.clickhouse;
+
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.IpAttackSummaryDto;
+import kr.rojae.waf.dashboard.dto.RuleStatisticsDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * waf_analytics 스키마(clickhouse/init.sql) 조회용 Repository
+ *
+ * SummingMergeTree 테이블은 머지 전 파트가 남아 있을 수 있으므로 항상 sum() + GROUP BY 로 다시 집계한다.
+ * 머지 시 합산되어 의미가 깨지는 컬럼(avg_anomaly_score, unique_* 등)은 summary 테이블에서 읽지 않고,
+ * 필요하면 events 원본 테이블에서 파티션(date) 범위로 직접 집계한다.
+ */
+@Repository
+@Slf4j
+public class ClickHouseAnalyticsRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ClickHouseAnalyticsRepository(@Qualifier("clickHouseJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<RuleStatisticsDto> findRuleStatistics(LocalDate from, LocalDate to, int limit) {
+        String sql = """
+                SELECT rule_id,
+                       any(category)      AS category,
+                       any(severity)      AS severity,
+                       sum(trigger_count) AS trigger_count,
+                       sum(blocked_count) AS blocked_count,
+                       sum(allowed_count) AS allowed_count,
+                       uniqExact(date)    AS active_days
+                FROM waf_analytics.rule_statistics
+                WHERE date BETWEEN :from AND :to
+                GROUP BY rule_id
+                ORDER BY trigger_count DESC
+                LIMIT :limit
+                """;
+
+        List<RuleStatisticsDto> stats = new ArrayList<>();
+        stream("rule statistics", sql, rangeParams(from, to).addValue("limit", limit), rs ->
+                stats.add(RuleStatisticsDto.builder()
+                        .ruleId(rs.getString("rule_id"))
+                        .category(rs.getString("category"))
+                        .severity(rs.getString("severity"))
+                        .triggerCount(rs.getLong("trigger_count"))
+                        .blockedCount(rs.getLong("blocked_count"))
+                        .allowedCount(rs.getLong("allowed_count"))
+                        .activeDays(rs.getInt("active_days"))
+                        .build()));
+        return stats;
+    }
+
+    public List<IpAttackSummaryDto> findTopAttackers(LocalDate from, LocalDate to, int limit) {
+        String sql = """
+                SELECT IPv4NumToString(client_ip) AS ip,
+                       any(country_code)          AS country_code,
+                       sum(attack_count)          AS attack_count,
+                       min(first_seen)            AS first_seen,
+                       max(last_seen)             AS last_seen
+                FROM waf_analytics.ip_attack_summary
+                WHERE date BETWEEN :from AND :to
+                GROUP BY client_ip
+                ORDER BY attack_count DESC
+                LIMIT :limit
+                """;
+
+        List<IpAttackSummaryDto> summaries = new ArrayList<>();
+        stream("top attackers", sql, rangeParams(from, to).addValue("limit", limit), rs ->
+                summaries.add(IpAttackSummaryDto.builder()
+                        .clientIp(rs.getString("ip"))
+                        .countryCode(rs.getString("country_code"))
+                        .attackCount(rs.getLong("attack_count"))
+                        .firstSeen(dateTime(rs, "first_seen"))
+                        .lastSeen(dateTime(rs, "last_seen"))
+                        .build()));
+        return summaries;
+    }
+
+    public Optional<IpAttackSummaryDto> findIpSummary(String clientIp, LocalDate from, LocalDate to) {
+        String sql = """
+                SELECT IPv4NumToString(client_ip) AS ip,
+                       any(country_code)          AS country_code,
+                       count()                    AS attack_count,
+                       avg(anomaly_score)         AS avg_anomaly_score,
+                       max(anomaly_score)         AS max_anomaly_score,
+                       uniqExact(rule_id)         AS unique_rules,
+                       uniqExact(uri)             AS unique_uris,
+                       min(timestamp)             AS first_seen,
+                       max(timestamp)             AS last_seen
+                FROM waf_analytics.events
+                WHERE date BETWEEN :from AND :to
+                  AND client_ip = toIPv4(:ip)
+                  AND anomaly_score > 0
+                GROUP BY client_ip
+                """;
+
+        List<IpAttackSummaryDto> result = new ArrayList<>(1);
+        stream("ip summary", sql, rangeParams(from, to).addValue("ip", clientIp), rs ->
+                result.add(IpAttackSummaryDto.builder()
+                        .clientIp(rs.getString("ip"))
+                        .countryCode(rs.getString("country_code"))
+                        .attackCount(rs.getLong("attack_count"))
+                        .avgAnomalyScore(rs.getDouble("avg_anomaly_score"))
+                        .maxAnomalyScore(rs.getInt("max_anomaly_score"))
+                        .uniqueRules(rs.getLong("unique_rules"))
+                        .uniqueUris(rs.getLong("unique_uris"))
+                        .firstSeen(dateTime(rs, "first_seen"))
+                        .lastSeen(dateTime(rs, "last_seen"))
+                        .build()));
+        return result.stream().findFirst();
+    }
+
+    /**
+     * 일 단위 추이 (rule_statistics, 180일 보존)
+     */
+    public List<AttackTrendDto> findDailyTrend(LocalDate from, LocalDate to) {
+        String sql = """
+                SELECT toDateTime(date)   AS bucket,
+                       sum(trigger_count) AS attack_count,
+                       sum(blocked_count) AS blocked_count,
+                       sum(allowed_count) AS allowed_count
+                FROM waf_analytics.rule_statistics
+                WHERE date BETWEEN :from AND :to
+                GROUP BY date
+                ORDER BY date
+                """;
+
+        List<AttackTrendDto> trend = new ArrayList<>();
+        stream("daily trend", sql, rangeParams(from, to), rs ->
+                trend.add(AttackTrendDto.builder()
+                        .bucket(dateTime(rs, "bucket"))
+                        .attackCount(rs.getLong("attack_count"))
+                        .blockedCount(rs.getLong("blocked_count"))
+                        .allowedCount(rs.getLong("allowed_count"))
+                        .build()));
+        return trend;
+    }
+
+    /**
+     * 시간 단위 추이 (ip_attack_summary, 90일 보존) - blocked/allowed 구분 없음
+     */
+    public List<AttackTrendDto> findHourlyTrend(LocalDate from, LocalDate to) {
+        String sql = """
+                SELECT toDateTime(date) + toIntervalHour(hour) AS bucket,
+                       sum(attack_count)                       AS attack_count
+                FROM waf_analytics.ip_attack_summary
+                WHERE date BETWEEN :from AND :to
+                GROUP BY date, hour
+                ORDER BY date, hour
+                """;
+
+        List<AttackTrendDto> trend = new ArrayList<>();
+        stream("hourly trend", sql, rangeParams(from, to), rs ->
+                trend.add(AttackTrendDto.builder()
+                        .bucket(dateTime(rs, "bucket"))
+                        .attackCount(rs.getLong("attack_count"))
+                        .build()));
+        return trend;
+    }
+
+    public boolean ping() {
+        try {
+            Integer one = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT 1", Integer.class);
+            return one != null && one == 1;
+        } catch (Exception e) {
+            log.debug("ClickHouse ping failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 결과를 한 번에 List 로 적재하지 않고 row 단위로 디코딩 (RowCallbackHandler)
+     *
+     * @throws DataAccessException ClickHouse 연결/쿼리 실패. 빈 결과와 구분되도록 그대로 던진다
+     */
+    private void stream(String name, String sql, MapSqlParameterSource params, RowCallbackHandler handler) {
+        long started = System.nanoTime();
+        int[] rows = {0};
+        try {
+            jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                handler.processRow(rs);
+            });
+            log.debug("ClickHouse {} query: {} rows in {} ms", name, rows[0], (System.nanoTime() - started) / 1_000_000);
+        } catch (DataAccessException e) {
+            log.error("Error querying ClickHouse {}", name, e);
+            throw e;
+        }
+    }
+
+    private MapSqlParameterSource rangeParams(LocalDate from, LocalDate to) {
+        return new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to);
+    }
+
+    private LocalDateTime dateTime(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column, LocalDateTime.class);
+    }
+}
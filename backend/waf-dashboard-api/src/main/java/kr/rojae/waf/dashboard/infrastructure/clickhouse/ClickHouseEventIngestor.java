@@ -0,0 +1,407 @@
+package kr.rojae.waf.dashboard.infrastructure.clickhouse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kr.rojae.waf.dashboard.domain.event.ModSecurityEventParser;
+import kr.rojae.waf.dashboard.domain.event.WafEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kafka(waf-realtime-events) -> ClickHouse(waf_analytics.events) 배치 적재
+ *
+ * 파티션별로 버퍼링하다가 batch-size 또는 max-delay 에 도달하면 한 번에 INSERT 한다.
+ * exactly-once 보장:
+ * - INSERT 전에 "pending=끝offset" 메타데이터로 시작 offset 을 커밋해 배치 경계를 기록
+ * - INSERT 는 topic-partition-시작-끝 offset 을 insert_deduplication_token 으로 사용
+ * - INSERT 성공 후에만 끝 offset 커밋
+ * 커밋 전에 죽으면 재시작 시 같은 경계로 배치를 다시 만들고, ClickHouse 가 같은 토큰의 블록을 버린다.
+ *
+ * 같은 배치가 max-rewinds 번 되감겨도 실패하는데 ClickHouse 는 응답하면 (장애가 아니라 배치 내용 문제)
+ * 행을 JSON 으로 dead-letter 토픽에 보내고 건너뛴다. ClickHouse 가 응답하지 않으면 유실 없이 계속 되감는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.clickhouse.ingest", name = "enabled", havingValue = "true")
+@Slf4j
+public class ClickHouseEventIngestor {
+
+    private static final String PENDING_PREFIX = "pending=";
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final ModSecurityEventParser parser;
+    private final ClickHouseEventWriter writer;
+    private final ClickHouseAnalyticsRepository analyticsRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<String> topics;
+    private final String groupId;
+    private final String deadLetterTopic;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int maxRewinds;
+
+    private final Map<TopicPartition, PartitionBatch> batches = new HashMap<>();
+    private final IngestStats stats = new IngestStats();
+
+    private volatile boolean running;
+    private Consumer<String, String> consumer;
+    private Thread worker;
+
+    public ClickHouseEventIngestor(
+        ConsumerFactory<String, String> consumerFactory,
+        ModSecurityEventParser parser,
+        ClickHouseEventWriter writer,
+        ClickHouseAnalyticsRepository analyticsRepository,
+        KafkaTemplate<String, String> kafkaTemplate,
+        ObjectMapper objectMapper,
+        @Value("${app.clickhouse.ingest.topics:waf-realtime-events}") List<String> topics,
+        @Value("${app.clickhouse.ingest.group-id:clickhouse-ingest}") String groupId,
+        @Value("${app.clickhouse.ingest.dead-letter-topic:waf-realtime-events-clickhouse-dlq}") String deadLetterTopic,
+        @Value("${app.clickhouse.ingest.batch-size:50000}") int batchSize,
+        @Value("${app.clickhouse.ingest.max-delay:5s}") Duration maxDelay,
+        @Value("${app.clickhouse.ingest.max-attempts:5}") int maxAttempts,
+        @Value("${app.clickhouse.ingest.initial-backoff:200ms}") Duration initialBackoff,
+        @Value("${app.clickhouse.ingest.max-backoff:10s}") Duration maxBackoff,
+        @Value("${app.clickhouse.ingest.max-rewinds:3}") int maxRewinds
+    ) {
+        this.consumerFactory = consumerFactory;
+        this.parser = parser;
+        this.writer = writer;
+        this.analyticsRepository = analyticsRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topics = topics;
+        this.groupId = groupId;
+        this.deadLetterTopic = deadLetterTopic;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxRewinds = maxRewinds;
+    }
+
+    @PostConstruct
+    public void start() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(Math.min(batchSize, 10000)));
+        overrides.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(1024 * 1024));
+        overrides.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "500");
+        consumer = consumerFactory.createConsumer(groupId, "clickhouse-ingest", null, overrides);
+
+        running = true;
+        worker = new Thread(this::run, "clickhouse-ingest");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("ClickHouse ingest started: topics={}, batchSize={}, maxDelay={}", topics, batchSize, maxDelay);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (worker != null) {
+            worker.join(maxDelay.plusSeconds(10).toMillis());
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = stats.snapshot();
+        status.put("running", running && worker != null && worker.isAlive());
+        status.put("topics", topics);
+        status.put("batchSize", batchSize);
+        status.put("maxDelayMs", maxDelay.toMillis());
+        return status;
+    }
+
+    private void run() {
+        try {
+            consumer.subscribe(topics, new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    for (TopicPartition tp : partitions) {
+                        PartitionBatch batch = batches.remove(tp);
+                        if (batch != null && !batch.isEmpty()) {
+                            flush(batch);
+                        }
+                    }
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+                    for (TopicPartition tp : partitions) {
+                        PartitionBatch batch = new PartitionBatch(tp);
+                        OffsetAndMetadata offset = committed.get(tp);
+                        if (offset != null && offset.metadata() != null && offset.metadata().startsWith(PENDING_PREFIX)) {
+                            // 이전 INSERT 결과를 모르는 배치 - 같은 경계로 다시 만들어 중복 제거 토큰을 맞춘다
+                            batch.sealAt = Long.parseLong(offset.metadata().substring(PENDING_PREFIX.length()));
+                            log.info("Recovering pending batch on {}: offsets [{}, {})", tp, offset.offset(), batch.sealAt);
+                        }
+                        batches.put(tp, batch);
+                    }
+                }
+            });
+
+            while (running) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(500));
+                // INSERT 실패로 되감은 파티션 - 이번 poll 의 나머지 레코드는 다음 poll 에서 다시 받는다
+                Set<TopicPartition> rewound = new HashSet<>();
+                for (ConsumerRecord<String, String> record : records) {
+                    TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+                    if (rewound.contains(tp)) {
+                        continue;
+                    }
+                    PartitionBatch batch = batches.computeIfAbsent(tp, PartitionBatch::new);
+                    if (batch.sealAt >= 0 && record.offset() >= batch.sealAt) {
+                        if (batch.isEmpty()) {
+                            batch.sealAt = -1;
+                        } else if (!flush(batch)) {
+                            rewound.add(tp);
+                            continue;
+                        }
+                    }
+                    batch.add(record.offset(), parser.parse(record.value()).orElse(null));
+                    stats.consumed.incrementAndGet();
+                    if ((batch.rows.size() >= batchSize || batch.nextOffset == batch.sealAt) && !flush(batch)) {
+                        rewound.add(tp);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                for (PartitionBatch batch : new ArrayList<>(batches.values())) {
+                    if (!batch.isEmpty() && now - batch.createdAt >= maxDelay.toMillis() && batch.sealAt < 0) {
+                        flush(batch);
+                    }
+                }
+            }
+            batches.values().stream().filter(batch -> !batch.isEmpty()).toList().forEach(this::flush);
+        } catch (WakeupException e) {
+            if (running) {
+                log.error("Unexpected wakeup in ClickHouse ingest loop", e);
+            }
+        } catch (Exception e) {
+            log.error("ClickHouse ingest loop terminated", e);
+        } finally {
+            running = false;
+            consumer.close(Duration.ofSeconds(5));
+            log.info("ClickHouse ingest stopped");
+        }
+    }
+
+    /**
+     * 배치 하나를 INSERT 하고 offset 을 커밋한다. 재시도가 모두 실패하면 시작 offset 으로 되감아 다시 읽는다.
+     * 같은 배치가 max-rewinds 번째 실패하고 ClickHouse 가 응답하면 dead-letter 로 보내고 건너뛴다.
+     */
+    private boolean flush(PartitionBatch batch) {
+        TopicPartition tp = batch.partition;
+        long start = batch.startOffset;
+        long end = batch.nextOffset;
+        List<WafEvent> rows = batch.rows;
+        batch.reset();
+
+        String token = tp.topic() + "-" + tp.partition() + "-" + start + "-" + end;
+        consumer.commitSync(Map.of(tp, new OffsetAndMetadata(start, PENDING_PREFIX + end)));
+
+        long backoff = initialBackoff.toMillis();
+        String error = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long started = System.nanoTime();
+            try {
+                writer.insert(rows, token);
+                long elapsedNanos = System.nanoTime() - started;
+                consumer.commitSync(Map.of(tp, new OffsetAndMetadata(end)));
+                stats.recordBatch(rows.size(), elapsedNanos);
+                log.debug("Inserted {} rows into ClickHouse ({}) in {} ms", rows.size(), token, elapsedNanos / 1_000_000);
+                return true;
+            } catch (Exception e) {
+                stats.retries.incrementAndGet();
+                error = e.getMessage();
+                log.warn("ClickHouse insert {} failed (attempt {}/{}): {}", token, attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    sleep(backoff);
+                    backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+                }
+            }
+        }
+
+        stats.failedBatches.incrementAndGet();
+        batch.failures = batch.failedStart == start ? batch.failures + 1 : 1;
+        batch.failedStart = start;
+        if (batch.failures >= maxRewinds && analyticsRepository.ping() && deadLetter(rows, token, error)) {
+            consumer.commitSync(Map.of(tp, new OffsetAndMetadata(end)));
+            stats.deadLetteredRows.addAndGet(rows.size());
+            log.error("ClickHouse batch {} failed {} times while ClickHouse is reachable, sent {} rows to {} and skipped",
+                    token, batch.failures, rows.size(), deadLetterTopic);
+            return true;
+        }
+
+        // 경계(pending 메타데이터)는 이미 커밋되어 있으므로 되감아 읽으면 같은 토큰으로 다시 시도된다
+        log.error("Giving up on ClickHouse batch {} after {} attempts, rewinding to offset {}", token, maxAttempts, start);
+        if (consumer.assignment().contains(tp)) {
+            consumer.seek(tp, start);
+            batch.sealAt = end;
+        }
+        sleep(maxBackoff.toMillis());
+        return false;
+    }
+
+    /**
+     * @return 모든 행을 보냈으면 true (하나라도 실패하면 배치를 되감아 다시 시도한다)
+     */
+    private boolean deadLetter(List<WafEvent> rows, String token, String error) {
+        try {
+            List<CompletableFuture<?>> sends = new ArrayList<>(rows.size());
+            for (WafEvent row : rows) {
+                ProducerRecord<String, String> record =
+                        new ProducerRecord<>(deadLetterTopic, row.txId(), objectMapper.writeValueAsString(row));
+                record.headers().add("clickhouse-batch", token.getBytes(StandardCharsets.UTF_8));
+                record.headers().add("clickhouse-error", String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+                sends.add(kafkaTemplate.send(record));
+            }
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Failed to dead-letter ClickHouse batch {}: {}", token, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 파티션별 버퍼 - 연속된 offset 구간 [startOffset, nextOffset) 의 파싱 결과
+     */
+    private static final class PartitionBatch {
+        private final TopicPartition partition;
+        private List<WafEvent> rows = new ArrayList<>();
+        private long startOffset = -1;
+        private long nextOffset = -1;
+        private long createdAt;
+        // 복구 중인 배치의 끝 offset (-1 이면 없음)
+        private long sealAt = -1;
+        // 마지막으로 실패한 배치의 시작 offset 과 연속 실패 횟수 (reset 해도 유지)
+        private long failedStart = -1;
+        private int failures;
+
+        PartitionBatch(TopicPartition partition) {
+            this.partition = partition;
+        }
+
+        void add(long offset, WafEvent event) {
+            if (startOffset < 0) {
+                startOffset = offset;
+                createdAt = System.currentTimeMillis();
+            }
+            nextOffset = offset + 1;
+            if (event != null) {
+                rows.add(event);
+            }
+        }
+
+        boolean isEmpty() {
+            return startOffset < 0;
+        }
+
+        void reset() {
+            rows = new ArrayList<>();
+            startOffset = -1;
+            nextOffset = -1;
+            sealAt = -1;
+        }
+    }
+
+    private static final class IngestStats {
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicLong consumed = new AtomicLong();
+        private final AtomicLong insertedRows = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong failedBatches = new AtomicLong();
+        private final AtomicLong deadLetteredRows = new AtomicLong();
+        private final AtomicLong insertNanos = new AtomicLong();
+        private volatile long lastBatchRows;
+        private volatile long lastBatchMillis;
+        private volatile long maxBatchMillis;
+        private volatile long lastInsertAt;
+
+        void recordBatch(int rows, long elapsedNanos) {
+            insertedRows.addAndGet(rows);
+            batches.incrementAndGet();
+            insertNanos.addAndGet(elapsedNanos);
+            lastBatchRows = rows;
+            lastBatchMillis = elapsedNanos / 1_000_000;
+            maxBatchMillis = Math.max(maxBatchMillis, lastBatchMillis);
+            lastInsertAt = System.currentTimeMillis();
+        }
+
+        Map<String, Object> snapshot() {
+            long rows = insertedRows.get();
+            long count = batches.get();
+            double uptimeSeconds = Math.max(1, System.currentTimeMillis() - startedAt) / 1000.0;
+            double insertSeconds = insertNanos.get() / 1_000_000_000.0;
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("consumedRecords", consumed.get());
+            snapshot.put("insertedRows", rows);
+            snapshot.put("batches", count);
+            snapshot.put("retries", retries.get());
+            snapshot.put("failedBatches", failedBatches.get());
+            snapshot.put("deadLetteredRows", deadLetteredRows.get());
+            snapshot.put("rowsPerSecond", Math.round(rows / uptimeSeconds));
+            snapshot.put("insertRowsPerSecond", insertSeconds > 0 ? Math.round(rows / insertSeconds) : 0);
+            snapshot.put("avgBatchLatencyMs", count > 0 ? insertNanos.get() / count / 1_000_000 : 0);
+            snapshot.put("lastBatchLatencyMs", lastBatchMillis);
+            snapshot.put("maxBatchLatencyMs", maxBatchMillis);
+            snapshot.put("lastBatchRows", lastBatchRows);
+            snapshot.put("lastInsertAt", lastInsertAt > 0 ? Instant.ofEpochMilli(lastInsertAt).toString() : null);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package kr.rojae.waf.dashboard.infrastructure.clickhouse;
+
+import kr.rojae.waf.dashboard.domain.event.WafEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * waf_analytics.events 배치 INSERT
+ *
+ * 행 단위 INSERT 는 ClickHouse 에서 part 를 폭증시키므로 반드시 큰 배치로 한 번에 보낸다.
+ * JDBC batch 는 드라이버가 단일 INSERT (RowBinary, LZ4 요청 압축) 로 변환한다.
+ * insert_deduplication_token 이 같은 재시도/재처리 배치는 서버에서 중복 제거된다.
+ */
+@Component
+@Slf4j
+public class ClickHouseEventWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO waf_analytics.events
+                (timestamp, tx_id, client_ip, uri, method, status_code, rule_id, anomaly_score, blocked, severity,
+                 category, msg, classification_track, user_agent, country_code, city, is_scanner_detected, tags)
+            SETTINGS insert_deduplication_token = '%s'
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final Inet4Address UNSPECIFIED = ipv4(new byte[4]);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClickHouseEventWriter(@Qualifier("clickHouseJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate.getJdbcTemplate();
+    }
+
+    /**
+     * @param dedupToken 배치를 식별하는 토큰 (topic-partition-시작offset-끝offset)
+     */
+    public void insert(List<WafEvent> events, String dedupToken) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL.formatted(sanitize(dedupToken)), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                WafEvent event = events.get(i);
+                ps.setObject(1, event.timestamp());
+                ps.setString(2, event.txId());
+                ps.setObject(3, parseIpv4(event.clientIp()));
+                ps.setString(4, event.uri());
+                ps.setString(5, event.method());
+                ps.setInt(6, event.statusCode());
+                ps.setString(7, event.ruleId());
+                ps.setInt(8, Math.min(event.anomalyScore(), 65535));
+                ps.setBoolean(9, event.blocked());
+                ps.setString(10, event.severity());
+                ps.setString(11, event.category());
+                ps.setString(12, event.msg());
+                ps.setString(13, event.classificationTrack());
+                ps.setString(14, event.userAgent());
+                ps.setString(15, event.countryCode());
+                ps.setString(16, event.city());
+                ps.setBoolean(17, event.scannerDetected());
+                ps.setObject(18, event.tags().toArray(String[]::new));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    private static String sanitize(String token) {
+        return token.replaceAll("[^A-Za-z0-9._:-]", "_");
+    }
+
+    /**
+     * 점 표기 IPv4 만 받아들인다 (IPv6/호스트명은 DNS 조회 없이 0.0.0.0 처리)
+     */
+    static Inet4Address parseIpv4(String ip) {
+        if (ip == null) {
+            return UNSPECIFIED;
+        }
+        byte[] octets = new byte[4];
+        int octet = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) return UNSPECIFIED;
+            } else if (c == '.' && value >= 0 && octet < 4) {
+                octets[octet++] = (byte) value;
+                value = -1;
+            } else {
+                return UNSPECIFIED;
+            }
+        }
+        return octet == 4 ? ipv4(octets) : UNSPECIFIED;
+    }
+
+    private static Inet4Address ipv4(byte[] octets) {
+        try {
+            return (Inet4Address) InetAddress.getByAddress(octets);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
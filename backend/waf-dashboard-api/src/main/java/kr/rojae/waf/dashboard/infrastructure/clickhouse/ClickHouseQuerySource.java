@@ -0,0 +1,193 @@
+package kr.rojae.waf.dashboard.infrastructure.clickhouse;
+
+import kr.rojae.waf.dashboard.domain.query.EntitySummarySource;
+import kr.rojae.waf.dashboard.domain.query.LogSearchFilter;
+import kr.rojae.waf.dashboard.domain.query.LogSearchSource;
+import kr.rojae.waf.dashboard.domain.query.QueryBackend;
+import kr.rojae.waf.dashboard.domain.query.QueryKind;
+import kr.rojae.waf.dashboard.domain.query.QuerySpec;
+import kr.rojae.waf.dashboard.domain.query.TimeSeriesSource;
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
+import kr.rojae.waf.dashboard.dto.WafLogDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ClickHouse 조회 백엔드 (waf_analytics.events)
+ *
+ * 컬럼 단위 집계 + date 파티션 pruning 덕분에 범위가 길어져도 비용이 거의 일정하다.
+ * 로그 검색도 가능하지만 attack_type/response_time 컬럼이 없어 Elasticsearch 보다 뒤에 둔다.
+ *
+ * 추이/상위 N 은 공격 이벤트만 센다: 점수가 붙었거나 WAF 가 차단한 이벤트 (ALLOW/LOG 커스텀 룰만 걸린 요청은 제외).
+ * 차단 여부는 응답 코드가 아니라 blocked 컬럼(차단 룰 매칭)으로 본다.
+ */
+@Component
+@Slf4j
+public class ClickHouseQuerySource implements TimeSeriesSource, LogSearchSource, EntitySummarySource {
+
+    private static final Set<String> LOG_FIELDS = Set.of(
+            "timestamp", "client_ip", "method", "uri", "status_code", "severity", "country", "message", "blocked",
+            "user_agent");
+
+    private static final Map<String, String> ENTITY_COLUMNS = Map.of(
+            "client_ip", "IPv4NumToString(client_ip)",
+            "rule_id", "rule_id",
+            "country", "country_code",
+            "severity", "severity",
+            "method", "method",
+            "uri", "uri");
+
+    private static final String TIME_FILTER = """
+            date BETWEEN toDate(:from) AND toDate(:to)
+              AND timestamp BETWEEN :from AND :to""";
+
+    private static final String ATTACK_FILTER = "(anomaly_score > 0 OR blocked)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ClickHouseAnalyticsRepository analyticsRepository;
+
+    public ClickHouseQuerySource(@Qualifier("clickHouseJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate,
+                                 ClickHouseAnalyticsRepository analyticsRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.analyticsRepository = analyticsRepository;
+    }
+
+    @Override
+    public QueryBackend backend() {
+        return QueryBackend.CLICKHOUSE;
+    }
+
+    @Override
+    public Set<String> fields(QueryKind kind) {
+        return switch (kind) {
+            case TIME_SERIES -> Set.of("timestamp", "count", "blocked");
+            case LOG_SEARCH -> LOG_FIELDS;
+            case ENTITY_SUMMARY -> ENTITY_COLUMNS.keySet();
+        };
+    }
+
+    @Override
+    public Duration retention() {
+        // events TTL timestamp + INTERVAL 1 YEAR
+        return Duration.ofDays(365);
+    }
+
+    @Override
+    public int cost(QuerySpec spec) {
+        return spec.kind() == QueryKind.LOG_SEARCH ? 15 : 5;
+    }
+
+    @Override
+    public boolean ping() {
+        return analyticsRepository.ping();
+    }
+
+    @Override
+    public List<AttackTrendDto> timeSeries(QuerySpec spec) {
+        String sql = """
+                SELECT toStartOfInterval(timestamp, toIntervalSecond(:bucket)) AS bucket,
+                       count()                                                   AS attack_count,
+                       countIf(blocked)                                          AS blocked_count
+                FROM waf_analytics.events
+                WHERE %s
+                  AND %s
+                GROUP BY bucket
+                ORDER BY bucket
+                """.formatted(TIME_FILTER, ATTACK_FILTER);
+
+        MapSqlParameterSource params = timeParams(spec).addValue("bucket", spec.bucketSize().toSeconds());
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> {
+            long total = rs.getLong("attack_count");
+            long blocked = rs.getLong("blocked_count");
+            return AttackTrendDto.builder()
+                    .bucket(rs.getObject("bucket", LocalDateTime.class))
+                    .attackCount(total)
+                    .blockedCount(blocked)
+                    .allowedCount(total - blocked)
+                    .build();
+        });
+    }
+
+    @Override
+    public List<EntitySummaryDto> topEntities(QuerySpec spec, String entity, int limit) {
+        String sql = """
+                SELECT %s AS entity_key, count() AS cnt
+                FROM waf_analytics.events
+                WHERE %s
+                  AND %s
+                GROUP BY entity_key
+                ORDER BY cnt DESC
+                LIMIT :limit
+                """.formatted(ENTITY_COLUMNS.get(entity), TIME_FILTER, ATTACK_FILTER);
+
+        return jdbcTemplate.query(sql, timeParams(spec).addValue("limit", limit), (rs, rowNum) ->
+                EntitySummaryDto.builder()
+                        .entity(entity)
+                        .key(rs.getString("entity_key"))
+                        .count(rs.getLong("cnt"))
+                        .build());
+    }
+
+    @Override
+    public Page<WafLogDto> searchLogs(QuerySpec spec, LogSearchFilter filter, Pageable pageable) {
+        StringBuilder where = new StringBuilder(TIME_FILTER);
+        MapSqlParameterSource params = timeParams(spec);
+        if (filter.severity() != null && !filter.severity().isEmpty()) {
+            where.append(" AND severity = :severity");
+            params.addValue("severity", filter.severity());
+        }
+        if (filter.clientIp() != null && !filter.clientIp().isEmpty()) {
+            where.append(" AND client_ip = toIPv4(:clientIp)");
+            params.addValue("clientIp", filter.clientIp());
+        }
+
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT count() FROM waf_analytics.events WHERE " + where, params, Long.class);
+
+        String sql = """
+                SELECT tx_id, timestamp, IPv4NumToString(client_ip) AS ip, method, uri, status_code,
+                       category, severity, country_code, msg, blocked, user_agent
+                FROM waf_analytics.events
+                WHERE %s
+                ORDER BY timestamp DESC
+                LIMIT :size OFFSET :offset
+                """.formatted(where);
+        params.addValue("size", pageable.getPageSize()).addValue("offset", pageable.getOffset());
+
+        List<WafLogDto> logs = jdbcTemplate.query(sql, params, (rs, rowNum) -> WafLogDto.builder()
+                .id(rs.getString("tx_id"))
+                .timestamp(rs.getObject("timestamp", LocalDateTime.class))
+                .clientIp(rs.getString("ip"))
+                .method(rs.getString("method"))
+                .uri(rs.getString("uri"))
+                .statusCode(rs.getInt("status_code"))
+                .attackType(rs.getString("category"))
+                .severity(rs.getString("severity"))
+                .country(rs.getString("country_code"))
+                .message(rs.getString("msg"))
+                .blocked(rs.getBoolean("blocked"))
+                .userAgent(rs.getString("user_agent"))
+                .build());
+        return new PageImpl<>(logs, pageable, total != null ? total : 0L);
+    }
+
+    private MapSqlParameterSource timeParams(QuerySpec spec) {
+        return new MapSqlParameterSource()
+                .addValue("from", LocalDateTime.ofInstant(spec.from(), ZoneOffset.UTC))
+                .addValue("to", LocalDateTime.ofInstant(spec.to(), ZoneOffset.UTC));
+    }
+}
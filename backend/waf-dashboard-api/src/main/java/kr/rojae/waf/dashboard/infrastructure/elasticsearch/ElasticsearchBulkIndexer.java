@@ -0,0 +1,594 @@
+package kr.rojae.waf.dashboard.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kr.rojae.waf.dashboard.domain.event.ModSecurityEventParser;
+import kr.rojae.waf.dashboard.domain.event.WafEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.elasticsearch.client.ResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kafka(waf-realtime-events) -> Elasticsearch(waf-logs-yyyy.MM.dd, 롤오버 세대는 {@link WafLogIndexManager} 가 결정) _bulk 적재
+ *
+ * - 문서는 {@link WafLogDocument} 매핑(Spring Data converter)으로 변환, _id 는 ModSecurity unique_id 라 재처리해도 멱등
+ * - 배치 크기는 AIMD: 지연이 목표치를 넘거나 429 가 나면 절반으로, 여유가 있으면 min-batch-size 만큼 증가
+ * - 동시에 보내는 _bulk 요청 수는 Semaphore 로 제한하고, 꽉 차면 poll 을 멈춰 Kafka 쪽으로 backpressure 를 건다
+ * - 실패한 item 은 backoff 후 재전송, 매핑 오류(400)처럼 재시도해도 안 되는 문서는 dead-letter 토픽으로 보낸다
+ * - 재시도가 모두 실패한 배치는 커밋하지 않고 시작 offset 으로 되감아 다시 읽는다 (ES 장애가 길어도 유실 없음).
+ *   되감은 파티션은 잠시 pause 하고 poll 루프에서 resume 한다 (rebalance 콜백 안에서 잠들지 않음)
+ * - offset 은 앞선 배치가 모두 끝난 구간까지만 커밋
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.elasticsearch.ingest", name = "enabled", havingValue = "true")
+@Slf4j
+public class ElasticsearchBulkIndexer {
+
+    private static final int LATENCY_SAMPLES = 2048;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final ModSecurityEventParser parser;
+    private final ElasticsearchClient client;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ElasticsearchConverter converter;
+    private final WafLogIndexManager indexManager;
+    private final List<String> topics;
+    private final String deadLetterTopic;
+    private final String groupId;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetLatencyMs;
+    private final int maxInFlight;
+    private final Duration maxDelay;
+    private final int maxAttempts;
+
+    private final AtomicInteger batchSize;
+    private final Semaphore inFlight;
+    private final ExecutorService bulkExecutor;
+    private final ConcurrentLinkedQueue<PendingBatch> completed = new ConcurrentLinkedQueue<>();
+    private final Map<TopicPartition, TreeMap<Long, PendingBatch>> pending = new HashMap<>();
+    private final IndexStats stats = new IndexStats();
+    // 이번 poll 에서 되감은 파티션 - 남은 레코드는 다음 poll 에서 다시 받는다
+    private final Set<TopicPartition> rewound = new HashSet<>();
+    // 되감은 뒤 pause 한 파티션과 resume 시각
+    private final Map<TopicPartition, Long> pausedUntil = new HashMap<>();
+
+    private volatile boolean running;
+    private Consumer<String, String> consumer;
+    private Thread worker;
+    private PendingBatch buffer = new PendingBatch();
+
+    public ElasticsearchBulkIndexer(
+        ConsumerFactory<String, String> consumerFactory,
+        ModSecurityEventParser parser,
+        ElasticsearchClient client,
+        KafkaTemplate<String, String> kafkaTemplate,
+        ElasticsearchTemplate elasticsearchTemplate,
+        WafLogIndexManager indexManager,
+        @Value("${app.elasticsearch.ingest.topics:waf-realtime-events}") List<String> topics,
+        @Value("${app.elasticsearch.ingest.group-id:elasticsearch-ingest}") String groupId,
+        @Value("${app.elasticsearch.ingest.dead-letter-topic:waf-realtime-events-es-dlq}") String deadLetterTopic,
+        @Value("${app.elasticsearch.ingest.min-batch-size:500}") int minBatchSize,
+        @Value("${app.elasticsearch.ingest.max-batch-size:20000}") int maxBatchSize,
+        @Value("${app.elasticsearch.ingest.target-latency:1s}") Duration targetLatency,
+        @Value("${app.elasticsearch.ingest.max-in-flight:4}") int maxInFlight,
+        @Value("${app.elasticsearch.ingest.max-delay:2s}") Duration maxDelay,
+        @Value("${app.elasticsearch.ingest.max-attempts:8}") int maxAttempts
+    ) {
+        this.consumerFactory = consumerFactory;
+        this.parser = parser;
+        this.client = client;
+        this.kafkaTemplate = kafkaTemplate;
+        this.converter = elasticsearchTemplate.getElasticsearchConverter();
+        this.indexManager = indexManager;
+        this.topics = topics;
+        this.groupId = groupId;
+        this.deadLetterTopic = deadLetterTopic;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyMs = targetLatency.toMillis();
+        this.maxInFlight = maxInFlight;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = new AtomicInteger(Math.max(minBatchSize, Math.min(maxBatchSize, minBatchSize * 4)));
+        this.inFlight = new Semaphore(maxInFlight);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.bulkExecutor = Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread thread = new Thread(r, "es-bulk-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "5000");
+        overrides.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(512 * 1024));
+        overrides.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "200");
+        consumer = consumerFactory.createConsumer(groupId, "elasticsearch-ingest", null, overrides);
+
+        running = true;
+        worker = new Thread(this::run, "es-bulk-ingest");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Elasticsearch bulk ingest started: topics={}, batchSize={}..{}, maxInFlight={}, targetLatency={}ms",
+                topics, minBatchSize, maxBatchSize, maxInFlight, targetLatencyMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (worker != null) {
+            worker.join(30_000);
+        }
+        bulkExecutor.shutdownNow();
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = stats.snapshot();
+        status.put("running", running && worker != null && worker.isAlive());
+        status.put("batchSize", batchSize.get());
+        status.put("inFlight", maxInFlight - inFlight.availablePermits());
+        status.put("maxInFlight", maxInFlight);
+        status.put("targetLatencyMs", targetLatencyMs);
+        return status;
+    }
+
+    private void run() {
+        try {
+            consumer.subscribe(topics, new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    // 넘기기 전에 가진 레코드를 모두 색인하고 커밋
+                    dispatch();
+                    awaitAllInFlight();
+                    commitCompleted();
+                    partitions.forEach(pending::remove);
+                    partitions.forEach(pausedUntil::remove);
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                }
+            });
+
+            while (running) {
+                rewound.clear();
+                resumeDue();
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+                    if (rewound.contains(tp)) {
+                        continue;
+                    }
+                    buffer.track(tp, record.offset());
+                    parser.parse(record.value()).ifPresent(event -> buffer.operations.add(toOperation(event, record)));
+                    if (buffer.operations.size() >= batchSize.get()) {
+                        dispatch();
+                    }
+                }
+                if (!buffer.isEmpty() && System.currentTimeMillis() - buffer.createdAt >= maxDelay.toMillis()) {
+                    dispatch();
+                }
+                commitCompleted();
+            }
+            dispatch();
+            awaitAllInFlight();
+            commitCompleted();
+        } catch (WakeupException e) {
+            if (running) {
+                log.error("Unexpected wakeup in Elasticsearch ingest loop", e);
+            }
+        } catch (Exception e) {
+            log.error("Elasticsearch ingest loop terminated", e);
+        } finally {
+            running = false;
+            consumer.close(Duration.ofSeconds(5));
+            log.info("Elasticsearch bulk ingest stopped");
+        }
+    }
+
+    private BulkOperation toOperation(WafEvent event, ConsumerRecord<String, String> record) {
+        String id = event.txId() != null && !event.txId().isEmpty()
+                ? event.txId()
+                : record.topic() + "-" + record.partition() + "-" + record.offset();
+        WafLogDocument document = WafLogDocument.builder()
+                .id(id)
+                .timestamp(event.timestamp())
+                .clientIp(event.clientIp())
+                .method(event.method())
+                .uri(event.uri())
+                .statusCode(event.statusCode())
+                .attackType(event.category())
+                .severity(event.severity())
+                .country(event.countryCode())
+                .message(event.msg())
+                .blocked(event.blocked())
+                .userAgent(event.userAgent())
+                .build();
+        Document source = converter.mapObject(document);
+        String index = indexManager.writeIndex(event.timestamp().toLocalDate());
+        return BulkOperation.of(op -> op.index(idx -> idx.index(index).id(id).document(source)));
+    }
+
+    /**
+     * 현재 버퍼를 _bulk 요청으로 넘긴다. in-flight 한도에 걸리면 끝난 배치를 커밋하면서 기다린다.
+     */
+    private void dispatch() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        PendingBatch batch = buffer;
+        buffer = new PendingBatch();
+
+        try {
+            while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                commitCompleted();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (batch.ranges.keySet().stream().anyMatch(rewound::contains)) {
+            // 기다리는 동안 앞선 배치가 실패해 되감겼다 - 이 배치도 보내지 않고 다시 읽는다
+            Set<TopicPartition> assigned = consumer.assignment();
+            batch.ranges.forEach((tp, range) -> {
+                if (rewound.add(tp) && assigned.contains(tp)) {
+                    consumer.seek(tp, range[0]);
+                }
+            });
+            inFlight.release();
+            return;
+        }
+
+        batch.ranges.forEach((tp, range) -> pending.computeIfAbsent(tp, k -> new TreeMap<>()).put(range[0], batch));
+        bulkExecutor.execute(() -> {
+            try {
+                batch.failed = !index(batch.operations);
+            } catch (InterruptedException e) {
+                batch.failed = true;
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                batch.failed = true;
+                log.error("Unexpected bulk indexing failure", e);
+            } finally {
+                batch.done = true;
+                completed.add(batch);
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * @return 모든 문서가 색인(또는 dead-letter)되었으면 true, 재시도를 다 써도 남은 문서가 있으면 false
+     */
+    private boolean index(List<BulkOperation> operations) throws InterruptedException {
+        long backoff = 100;
+        for (int attempt = 1; attempt <= maxAttempts && !operations.isEmpty(); attempt++) {
+            long started = System.nanoTime();
+            try {
+                List<BulkOperation> request = operations;
+                BulkResponse response = client.bulk(b -> b.operations(request));
+                long latencyMs = (System.nanoTime() - started) / 1_000_000;
+
+                List<BulkOperation> retry = new ArrayList<>();
+                List<BulkResponseItem> items = response.items();
+                int rejected = 0;
+                int deadLettered = 0;
+                for (int i = 0; i < items.size(); i++) {
+                    BulkResponseItem item = items.get(i);
+                    if (item.error() == null) {
+                        continue;
+                    }
+                    // 400 (mapper_parsing_exception 등) 은 다시 보내도 같은 결과
+                    if (item.status() == 400 && deadLetter(operations.get(i), item)) {
+                        deadLettered++;
+                        continue;
+                    }
+                    if (item.status() == 429) {
+                        rejected++;
+                    } else {
+                        log.debug("Bulk item {} failed ({}): {}", item.id(), item.status(), item.error().reason());
+                    }
+                    retry.add(operations.get(i));
+                }
+                stats.recordBulk(items.size() - retry.size() - deadLettered, deadLettered, rejected, latencyMs);
+                adapt(latencyMs, rejected > 0);
+                operations = retry;
+            } catch (Exception e) {
+                long latencyMs = (System.nanoTime() - started) / 1_000_000;
+                boolean rejected = isRejected(e);
+                stats.recordError(rejected);
+                adapt(latencyMs, true);
+                log.warn("Bulk request of {} docs failed (attempt {}/{}, rejected={}): {}",
+                        operations.size(), attempt, maxAttempts, rejected, e.getMessage());
+            }
+            if (!operations.isEmpty() && attempt < maxAttempts) {
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+        if (!operations.isEmpty()) {
+            log.error("{} docs still failing after {} bulk attempts, batch will be re-read", operations.size(), maxAttempts);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 재시도해도 색인되지 않는 문서를 원문(변환된 _source)과 오류 사유 헤더로 dead-letter 토픽에 보낸다
+     *
+     * @return 보내지 못하면 false (다른 실패 문서처럼 재시도한다)
+     */
+    private boolean deadLetter(BulkOperation operation, BulkResponseItem item) {
+        try {
+            String source = ((Document) operation.index().document()).toJson();
+            ProducerRecord<String, String> record = new ProducerRecord<>(deadLetterTopic, item.id(), source);
+            record.headers().add("es-index", item.index().getBytes(StandardCharsets.UTF_8));
+            record.headers().add("es-error", String.valueOf(item.error().reason()).getBytes(StandardCharsets.UTF_8));
+            kafkaTemplate.send(record).get(10, TimeUnit.SECONDS);
+            log.warn("Bulk item {} rejected by {} ({}), sent to {}", item.id(), item.index(), item.error().type(), deadLetterTopic);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Failed to dead-letter bulk item {}: {}", item.id(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * AIMD: 혼잡(지연 초과, 429) 시 절반으로 줄이고 여유가 있으면 선형으로 늘린다
+     */
+    private void adapt(long latencyMs, boolean congested) {
+        batchSize.updateAndGet(size -> {
+            if (congested || latencyMs > targetLatencyMs) {
+                return Math.max(minBatchSize, size / 2);
+            }
+            if (latencyMs < targetLatencyMs / 2) {
+                return Math.min(maxBatchSize, size + minBatchSize);
+            }
+            return size;
+        });
+    }
+
+    private static boolean isRejected(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ElasticsearchException ee && ee.status() == 429) return true;
+            if (t instanceof ResponseException re && re.getResponse().getStatusLine().getStatusCode() == 429) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 파티션별로 앞선 배치가 모두 성공한 구간까지만 offset 커밋 (배치가 순서 없이 끝나도 유실 없음).
+     * 실패한 배치가 있으면 먼저 되감는다.
+     */
+    private void commitCompleted() {
+        if (completed.isEmpty()) {
+            return;
+        }
+        for (PendingBatch batch; (batch = completed.poll()) != null; ) {
+            if (batch.failed) {
+                rewind(batch);
+            }
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        pending.forEach((tp, batches) -> {
+            Iterator<Map.Entry<Long, PendingBatch>> it = batches.entrySet().iterator();
+            while (it.hasNext()) {
+                PendingBatch batch = it.next().getValue();
+                if (!batch.done) break;
+                offsets.put(tp, new OffsetAndMetadata(batch.ranges.get(tp)[1]));
+                it.remove();
+            }
+        });
+        if (!offsets.isEmpty()) {
+            try {
+                consumer.commitSync(offsets);
+            } catch (Exception e) {
+                log.warn("Failed to commit Elasticsearch ingest offsets: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 실패한 배치의 파티션을 배치 시작 offset 으로 되감는다. 같은 파티션의 뒤따르는 배치(진행 중 포함)와
+     * 아직 보내지 않은 버퍼는 버리고 다시 읽는다 (_id 가 같아 다시 색인해도 덮어쓰기)
+     */
+    private void rewind(PendingBatch failed) {
+        Map<TopicPartition, Long> seekTo = new HashMap<>();
+        failed.ranges.forEach((tp, range) -> {
+            TreeMap<Long, PendingBatch> batches = pending.get(tp);
+            // 앞선 배치 실패로 이미 버려졌거나 revoke 된 파티션
+            if (batches == null || batches.get(range[0]) != failed) {
+                return;
+            }
+            batches.tailMap(range[0], true).clear();
+            seekTo.put(tp, range[0]);
+        });
+        if (seekTo.isEmpty()) {
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            buffer.ranges.forEach((tp, range) -> seekTo.merge(tp, range[0], Math::min));
+            buffer = new PendingBatch();
+        }
+
+        stats.failedBatches.incrementAndGet();
+        Set<TopicPartition> assigned = consumer.assignment();
+        seekTo.forEach((tp, offset) -> {
+            if (assigned.contains(tp)) {
+                consumer.seek(tp, offset);
+            }
+            rewound.add(tp);
+        });
+        log.error("Elasticsearch bulk batch failed, rewinding {}", seekTo);
+
+        // rewind 는 onPartitionsRevoked 안에서도 불리므로 잠들지 않고 pause 로 재시도를 늦춘다
+        Set<TopicPartition> paused = new HashSet<>(seekTo.keySet());
+        paused.retainAll(assigned);
+        if (!paused.isEmpty()) {
+            consumer.pause(paused);
+            long until = System.currentTimeMillis() + MAX_BACKOFF_MS;
+            paused.forEach(tp -> pausedUntil.put(tp, until));
+        }
+    }
+
+    private void resumeDue() {
+        if (pausedUntil.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<TopicPartition> due = new HashSet<>();
+        pausedUntil.entrySet().removeIf(e -> e.getValue() <= now && due.add(e.getKey()));
+        due.retainAll(consumer.assignment());
+        if (!due.isEmpty()) {
+            consumer.resume(due);
+        }
+    }
+
+    private void awaitAllInFlight() {
+        try {
+            if (inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * _bulk 요청 하나 분량 - 파티션별 offset 구간 [start, end) 를 함께 기억한다
+     */
+    private static final class PendingBatch {
+        private final List<BulkOperation> operations = new ArrayList<>();
+        private final Map<TopicPartition, long[]> ranges = new HashMap<>();
+        private final long createdAt = System.currentTimeMillis();
+        private volatile boolean done;
+        private volatile boolean failed;
+
+        void track(TopicPartition tp, long offset) {
+            ranges.computeIfAbsent(tp, k -> new long[]{offset, offset + 1})[1] = offset + 1;
+        }
+
+        boolean isEmpty() {
+            return ranges.isEmpty();
+        }
+    }
+
+    private static final class IndexStats {
+        private final AtomicLong indexedDocs = new AtomicLong();
+        private final AtomicLong deadLetteredDocs = new AtomicLong();
+        private final AtomicLong failedBatches = new AtomicLong();
+        private final AtomicLong rejectedDocs = new AtomicLong();
+        private final AtomicLong bulkRequests = new AtomicLong();
+        private final AtomicLong bulkErrors = new AtomicLong();
+        private final AtomicLong rejectedRequests = new AtomicLong();
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private volatile long firstIndexedAt;
+
+        void recordBulk(int indexed, int deadLettered, int rejected, long latencyMs) {
+            if (firstIndexedAt == 0) {
+                firstIndexedAt = System.currentTimeMillis();
+            }
+            indexedDocs.addAndGet(indexed);
+            deadLetteredDocs.addAndGet(deadLettered);
+            rejectedDocs.addAndGet(rejected);
+            bulkRequests.incrementAndGet();
+            synchronized (latencies) {
+                latencies[latencyCount++ % LATENCY_SAMPLES] = latencyMs;
+            }
+        }
+
+        void recordError(boolean rejected) {
+            bulkErrors.incrementAndGet();
+            if (rejected) {
+                rejectedRequests.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long[] samples;
+            synchronized (latencies) {
+                samples = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+            }
+            Arrays.sort(samples);
+
+            long docs = indexedDocs.get();
+            double seconds = firstIndexedAt > 0 ? Math.max(1, System.currentTimeMillis() - firstIndexedAt) / 1000.0 : 0;
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("indexedDocs", docs);
+            snapshot.put("deadLetteredDocs", deadLetteredDocs.get());
+            snapshot.put("failedBatches", failedBatches.get());
+            snapshot.put("rejectedDocs", rejectedDocs.get());
+            snapshot.put("bulkRequests", bulkRequests.get());
+            snapshot.put("bulkErrors", bulkErrors.get());
+            snapshot.put("rejectedRequests", rejectedRequests.get());
+            snapshot.put("docsPerSecond", seconds > 0 ? Math.round(docs / seconds) : 0);
+            snapshot.put("p50LatencyMs", percentile(samples, 0.50));
+            snapshot.put("p99LatencyMs", percentile(samples, 0.99));
+            snapshot.put("maxLatencyMs", samples.length > 0 ? samples[samples.length - 1] : 0);
+            snapshot.put("since", firstIndexedAt > 0 ? Instant.ofEpochMilli(firstIndexedAt).toString() : null);
+            return snapshot;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package kr.rojae.waf.dashboard.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import kr.rojae.waf.dashboard.domain.query.EntitySummarySource;
+import kr.rojae.waf.dashboard.domain.query.LogSearchFilter;
+import kr.rojae.waf.dashboard.domain.query.LogSearchSource;
+import kr.rojae.waf.dashboard.domain.query.QueryBackend;
+import kr.rojae.waf.dashboard.domain.query.QueryKind;
+import kr.rojae.waf.dashboard.domain.query.QuerySpec;
+import kr.rojae.waf.dashboard.domain.query.TimeSeriesSource;
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
+import kr.rojae.waf.dashboard.dto.WafLogDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Elasticsearch 조회 백엔드
+ *
+ * 원본 문서를 가진 유일한 백엔드라 로그 검색에는 가장 적합하지만,
+ * 집계는 범위가 길어질수록 스캔 비용이 커지므로 cost 를 높게 잡는다.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ElasticsearchQuerySource implements TimeSeriesSource, LogSearchSource, EntitySummarySource {
+
+    private static final Set<String> LOG_FIELDS = Set.of(
+            "timestamp", "client_ip", "method", "uri", "status_code", "attack_type",
+            "severity", "country", "message", "blocked", "user_agent", "response_time");
+
+    private static final Map<String, String> ENTITY_FIELDS = Map.of(
+            "client_ip", "client_ip.keyword",
+            "attack_type", "attack_type.keyword",
+            "country", "country.keyword",
+            "severity", "severity.keyword",
+            "method", "method.keyword");
+
+    private final ElasticsearchTemplate elasticsearchTemplate;
+    private final ElasticsearchWafLogRepository logRepository;
+
+    @Override
+    public QueryBackend backend() {
+        return QueryBackend.ELASTICSEARCH;
+    }
+
+    @Override
+    public Set<String> fields(QueryKind kind) {
+        return switch (kind) {
+            case TIME_SERIES -> Set.of("timestamp", "count", "blocked");
+            case LOG_SEARCH -> LOG_FIELDS;
+            case ENTITY_SUMMARY -> ENTITY_FIELDS.keySet();
+        };
+    }
+
+    @Override
+    public Duration retention() {
+        // 인덱스 보존 기간은 별도로 관리 - 라우팅 관점에서는 제한 없음
+        return Duration.ofDays(36500);
+    }
+
+    @Override
+    public int cost(QuerySpec spec) {
+        if (spec.kind() == QueryKind.LOG_SEARCH) {
+            return 5;
+        }
+        return 20 + (int) Math.min(spec.range().toDays() * 2, 1000);
+    }
+
+    @Override
+    public boolean ping() {
+        try {
+            return elasticsearchTemplate.execute(client -> client.ping().value());
+        } catch (Exception e) {
+            log.debug("Elasticsearch ping failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Page<WafLogDto> searchLogs(QuerySpec spec, LogSearchFilter filter, Pageable pageable) {
+        return logRepository.searchWafLogs(pageable, filter.severity(), filter.attackType(), filter.clientIp(),
+                spec.from(), spec.to());
+    }
+
+    @Override
+    public List<AttackTrendDto> timeSeries(QuerySpec spec) {
+        String interval = spec.bucketSize().toSeconds() + "s";
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(timeRange(spec))
+                .withAggregation("buckets", Aggregation.of(a -> a
+                        .dateHistogram(h -> h.field("timestamp").fixedInterval(t -> t.time(interval)).minDocCount(1))
+                        .aggregations("blocked", sub -> sub.filter(f -> f.term(t -> t.field("blocked").value(true))))))
+                .withMaxResults(0)
+                .build();
+
+        Aggregate aggregate = aggregate(elasticsearchTemplate.search(query, WafLogDocument.class), "buckets");
+
+        List<AttackTrendDto> trend = new ArrayList<>();
+        for (var bucket : aggregate.dateHistogram().buckets().array()) {
+            long blocked = bucket.aggregations().get("blocked").filter().docCount();
+            trend.add(AttackTrendDto.builder()
+                    .bucket(LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket.key()), ZoneOffset.UTC))
+                    .attackCount(bucket.docCount())
+                    .blockedCount(blocked)
+                    .allowedCount(bucket.docCount() - blocked)
+                    .build());
+        }
+        return trend;
+    }
+
+    @Override
+    public List<EntitySummaryDto> topEntities(QuerySpec spec, String entity, int limit) {
+        String field = ENTITY_FIELDS.get(entity);
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(timeRange(spec))
+                .withAggregation("entities", Aggregation.of(a -> a.terms(t -> t.field(field).size(limit))))
+                .withMaxResults(0)
+                .build();
+
+        Aggregate aggregate = aggregate(elasticsearchTemplate.search(query, WafLogDocument.class), "entities");
+
+        List<EntitySummaryDto> summaries = new ArrayList<>();
+        for (var bucket : aggregate.sterms().buckets().array()) {
+            summaries.add(EntitySummaryDto.builder()
+                    .entity(entity)
+                    .key(bucket.key().stringValue())
+                    .count(bucket.docCount())
+                    .build());
+        }
+        return summaries;
+    }
+
+    private Query timeRange(QuerySpec spec) {
+        return Query.of(q -> q.range(r -> r
+                .field("timestamp")
+                .gte(JsonData.of(spec.from().toEpochMilli()))
+                .lte(JsonData.of(spec.to().toEpochMilli()))
+                .format("epoch_millis")));
+    }
+
+    private Aggregate aggregate(SearchHits<WafLogDocument> hits, String name) {
+        var aggregations = (ElasticsearchAggregations) hits.getAggregations();
+        if (aggregations == null) {
+            throw new IllegalStateException("Elasticsearch returned no aggregations");
+        }
+        return aggregations.aggregationsAsMap().get(name).aggregation().getAggregate();
+    }
+}
@@ -5,17 +5,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
 import org.springframework.data.elasticsearch.core.query.Criteria;
 import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Repository
@@ -23,40 +28,85 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ElasticsearchWafLogRepository {
 
+    private static final int STREAM_PAGE_SIZE = 5000;
+
     private final ElasticsearchTemplate elasticsearchTemplate;
 
     public Page<WafLogDto> findWafLogs(Pageable pageable, String severity, String attackType, String clientIp) {
         try {
-            Criteria criteria = new Criteria();
-            
-            // Add filters
-            if (severity != null && !severity.isEmpty()) {
-                criteria = criteria.and("severity.keyword").is(severity);
-            }
-            
-            if (attackType != null && !attackType.isEmpty()) {
-                criteria = criteria.and("attack_type.keyword").is(attackType);
-            }
-            
-            if (clientIp != null && !clientIp.isEmpty()) {
-                criteria = criteria.and("client_ip.keyword").is(clientIp);
-            }
-
-            Query query = new CriteriaQuery(criteria).setPageable(pageable);
-
-            SearchHits<WafLogDocument> searchHits = elasticsearchTemplate.search(query, WafLogDocument.class);
-            
-            List<WafLogDto> logs = searchHits.getSearchHits().stream()
-                    .map(hit -> convertToDto(hit.getContent()))
-                    .collect(Collectors.toList());
-            
-            return new PageImpl<>(logs, pageable, searchHits.getTotalHits());
+            return searchWafLogs(pageable, severity, attackType, clientIp, null, null);
         } catch (Exception e) {
             log.error("Error searching WAF logs", e);
             return Page.empty(pageable);
         }
     }
 
+    /**
+     * 시간 범위를 포함한 로그 검색. 예외를 삼키지 않으므로 호출 측(QueryRouter)에서 fallback 판단에 사용한다.
+     */
+    public Page<WafLogDto> searchWafLogs(Pageable pageable, String severity, String attackType, String clientIp,
+                                         Instant from, Instant to) {
+        Criteria criteria = new Criteria();
+
+        // Add filters
+        if (severity != null && !severity.isEmpty()) {
+            criteria = criteria.and("severity.keyword").is(severity);
+        }
+
+        if (attackType != null && !attackType.isEmpty()) {
+            criteria = criteria.and("attack_type.keyword").is(attackType);
+        }
+
+        if (clientIp != null && !clientIp.isEmpty()) {
+            criteria = criteria.and("client_ip.keyword").is(clientIp);
+        }
+
+        if (from != null && from.isAfter(Instant.EPOCH)) {
+            criteria = criteria.and("timestamp").greaterThanEqual(LocalDateTime.ofInstant(from, ZoneOffset.UTC));
+        }
+
+        if (to != null) {
+            criteria = criteria.and("timestamp").lessThanEqual(LocalDateTime.ofInstant(to, ZoneOffset.UTC));
+        }
+
+        Query query = new CriteriaQuery(criteria).setPageable(pageable);
+
+        SearchHits<WafLogDocument> searchHits = elasticsearchTemplate.search(query, WafLogDocument.class);
+
+        List<WafLogDto> logs = searchHits.getSearchHits().stream()
+                .map(hit -> convertToDto(hit.getContent()))
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(logs, pageable, searchHits.getTotalHits());
+    }
+
+    /**
+     * 시간 범위의 요청 URI 를 scroll 로 순차 전달 (uri 필드만 가져온다).
+     * sink 가 false 를 반환하면 중단한다. 반환값은 전달한 건수.
+     */
+    public long streamUris(Instant from, Instant to, Predicate<String> sink) {
+        Criteria criteria = new Criteria("timestamp")
+                .greaterThanEqual(LocalDateTime.ofInstant(from, ZoneOffset.UTC))
+                .lessThanEqual(LocalDateTime.ofInstant(to, ZoneOffset.UTC));
+        Query query = new CriteriaQuery(criteria).setPageable(PageRequest.of(0, STREAM_PAGE_SIZE));
+        query.addSourceFilter(new FetchSourceFilter(new String[]{"uri"}, null));
+
+        long count = 0;
+        try (SearchHitsIterator<WafLogDocument> hits = elasticsearchTemplate.searchForStream(query, WafLogDocument.class)) {
+            while (hits.hasNext()) {
+                String uri = hits.next().getContent().getUri();
+                if (uri == null) {
+                    continue;
+                }
+                count++;
+                if (!sink.test(uri)) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
     private WafLogDto convertToDto(WafLogDocument doc) {
         return WafLogDto.builder()
                 .id(doc.getId())
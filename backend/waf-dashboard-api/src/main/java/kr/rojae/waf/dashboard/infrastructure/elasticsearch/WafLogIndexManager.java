@@ -0,0 +1,313 @@
+package kr.rojae.waf.dashboard.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.IndexSettingBlocks;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndicesBlockOptions;
+import co.elastic.clients.elasticsearch.indices.IndicesStatsResponse;
+import co.elastic.clients.elasticsearch.indices.stats.IndexStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * waf-logs-* 인덱스 템플릿 + 라이프사이클 관리
+ *
+ * 인덱스 이름: waf-logs-yyyy.MM.dd (1세대), 크기 롤오버 시 waf-logs-yyyy.MM.dd-000002 ...
+ * 주기 작업 단계:
+ * - HOT : 오늘 쓰기 인덱스가 rollover-size 를 넘으면 다음 세대 인덱스 생성
+ * - WARM: warm-after + max-ingest-lag 가 지난 날짜의 인덱스는 1 segment 로 force-merge 후 write block + warm tier 선호.
+ *         그 날짜의 쓰기 인덱스면 먼저 쓰기를 다음 세대 이름으로 넘긴다. 다음 세대는 미리 만들지 않고
+ *         늦게 도착한 이벤트가 있을 때만 첫 _bulk 에서 생성되므로 날짜마다 빈 인덱스가 생기지 않는다.
+ * - 삭제: retention 이 지난 날짜의 인덱스 삭제
+ * write block 여부는 인덱스 설정(index.blocks.write)에서 읽으므로 재시작해도 다시 처리하지 않는다.
+ */
+@Component
+@Slf4j
+public class WafLogIndexManager {
+
+    private static final String TEMPLATE_NAME = "waf-logs";
+    private static final String TEMPLATE_RESOURCE = "elasticsearch/waf-logs-template.json";
+    private static final DateTimeFormatter INDEX_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    private static final Pattern INDEX_NAME = Pattern.compile("^(.+?)(\\d{4}\\.\\d{2}\\.\\d{2})(?:-(\\d{6}))?$");
+    private static final String WARM_SETTINGS = """
+            {"routing": {"allocation": {"include": {"_tier_preference": "data_warm,data_hot"}}}}""";
+
+    private final ElasticsearchClient client;
+    private final String indexPrefix;
+    private final long rolloverBytes;
+    private final Duration warmAfter;
+    private final Duration maxIngestLag;
+    private final Duration retention;
+
+    // 날짜별 현재 쓰기 세대
+    private final Map<LocalDate, Integer> writeGenerations = new ConcurrentHashMap<>();
+    // force-merge 요청 시각 (완료 전 중복 요청 방지)
+    private final Map<String, Instant> mergeRequested = new ConcurrentHashMap<>();
+    private final AtomicBoolean lifecycleInProgress = new AtomicBoolean(false);
+
+    private volatile boolean templateInstalled;
+    private volatile Instant lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile List<String> lastActions = List.of();
+    private volatile String lastError;
+
+    public WafLogIndexManager(
+        ElasticsearchClient client,
+        @Value("${app.elasticsearch.lifecycle.index-prefix:waf-logs-}") String indexPrefix,
+        @Value("${app.elasticsearch.lifecycle.rollover-size-mb:30720}") long rolloverSizeMb,
+        @Value("${app.elasticsearch.lifecycle.warm-after:2d}") Duration warmAfter,
+        @Value("${app.elasticsearch.lifecycle.max-ingest-lag:1d}") Duration maxIngestLag,
+        @Value("${app.elasticsearch.lifecycle.retention:90d}") Duration retention
+    ) {
+        this.client = client;
+        this.indexPrefix = indexPrefix;
+        this.rolloverBytes = rolloverSizeMb * 1024 * 1024;
+        this.warmAfter = warmAfter;
+        this.maxIngestLag = maxIngestLag;
+        this.retention = retention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        installTemplate();
+    }
+
+    /**
+     * 이벤트 시각이 속한 날짜의 현재 쓰기 인덱스
+     */
+    public String writeIndex(LocalDate date) {
+        return indexName(date, writeGenerations.getOrDefault(date, 1));
+    }
+
+    @Scheduled(fixedDelayString = "${app.elasticsearch.lifecycle.interval-ms:600000}", initialDelay = 60000)
+    public void scheduledLifecycle() {
+        runLifecycle();
+    }
+
+    /**
+     * 라이프사이클 1회 실행. 이미 실행 중이면 빈 목록을 반환한다.
+     */
+    public List<String> runLifecycle() {
+        if (!lifecycleInProgress.compareAndSet(false, true)) {
+            log.debug("Index lifecycle already in progress, skipping");
+            return List.of();
+        }
+
+        long started = System.currentTimeMillis();
+        List<String> actions = new ArrayList<>();
+        try {
+            if (!templateInstalled) {
+                installTemplate();
+            }
+
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            List<ManagedIndex> indices = listIndices();
+            refreshGenerations(indices);
+
+            for (ManagedIndex index : indices) {
+                if (index.date().isBefore(today.minusDays(retention.toDays()))) {
+                    client.indices().delete(d -> d.index(index.name()));
+                    mergeRequested.remove(index.name());
+                    actions.add("delete " + index.name());
+                } else if (isWarm(index.date(), today)) {
+                    toWarm(index, actions);
+                } else if (index.name().equals(writeIndex(index.date())) && index.sizeBytes() >= rolloverBytes) {
+                    rollover(index, actions);
+                }
+            }
+
+            lastError = null;
+            if (!actions.isEmpty()) {
+                log.info("Index lifecycle actions: {}", actions);
+            }
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("Index lifecycle run failed", e);
+        } finally {
+            lastRunAt = Instant.now();
+            lastRunMillis = System.currentTimeMillis() - started;
+            lastActions = List.copyOf(actions);
+            lifecycleInProgress.set(false);
+        }
+        return actions;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("templateInstalled", templateInstalled);
+        status.put("rolloverSizeMb", rolloverBytes / 1024 / 1024);
+        status.put("warmAfterDays", warmAfter.toDays());
+        status.put("maxIngestLagDays", maxIngestLag.toDays());
+        status.put("retentionDays", retention.toDays());
+        status.put("lastRunAt", lastRunAt != null ? lastRunAt.toString() : null);
+        status.put("lastRunMillis", lastRunMillis);
+        status.put("lastActions", lastActions);
+        status.put("lastError", lastError);
+
+        List<Map<String, Object>> indices = new ArrayList<>();
+        try {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            for (ManagedIndex index : listIndices()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("name", index.name());
+                row.put("phase", isWarm(index.date(), today) ? "WARM" : "HOT");
+                row.put("writeIndex", index.name().equals(writeIndex(index.date())));
+                row.put("docs", index.docs());
+                row.put("sizeBytes", index.sizeBytes());
+                row.put("segments", index.segments());
+                row.put("readOnly", index.writeBlocked());
+                indices.add(row);
+            }
+        } catch (Exception e) {
+            status.put("error", e.getMessage());
+        }
+        status.put("indices", indices);
+        return status;
+    }
+
+    private void installTemplate() {
+        try (InputStream template = new ClassPathResource(TEMPLATE_RESOURCE).getInputStream()) {
+            client.indices().putIndexTemplate(t -> t.name(TEMPLATE_NAME).withJson(template));
+            templateInstalled = true;
+            log.info("Installed index template {} for {}*", TEMPLATE_NAME, indexPrefix);
+        } catch (Exception e) {
+            log.warn("Failed to install index template {}: {}", TEMPLATE_NAME, e.getMessage());
+        }
+    }
+
+    /**
+     * 날짜 구간 [date, date + 1) 이 끝난 뒤 warm-after 에 최대 적재 지연(max-ingest-lag)까지 지났는지
+     */
+    private boolean isWarm(LocalDate date, LocalDate today) {
+        return date.isBefore(today.minusDays(warmAfter.toDays() + maxIngestLag.toDays() - 1));
+    }
+
+    private void rollover(ManagedIndex index, List<String> actions) throws Exception {
+        int next = index.generation() + 1;
+        String nextName = indexName(index.date(), next);
+        client.indices().create(c -> c.index(nextName));
+        writeGenerations.put(index.date(), next);
+        actions.add("rollover " + index.name() + " -> " + nextName);
+    }
+
+    /**
+     * 닫힌 인덱스: 쓰기 인덱스면 먼저 다음 세대로 쓰기를 넘기고 (인덱스는 만들지 않는다),
+     * force-merge(1 segment) 가 끝나면 write block + warm tier 로 이동
+     */
+    private void toWarm(ManagedIndex index, List<String> actions) throws Exception {
+        if (index.writeBlocked()) {
+            return;
+        }
+        if (index.name().equals(writeIndex(index.date()))) {
+            if (index.docs() == 0) {
+                // 늦은 이벤트를 받을 빈 세대는 막지 않고 둔다
+                return;
+            }
+            // 이미 만들어진 _bulk 요청이 끝나도록 block 은 다음 주기에
+            writeGenerations.merge(index.date(), index.generation() + 1, Math::max);
+            actions.add("hand off writes " + index.name() + " -> " + writeIndex(index.date()));
+            return;
+        }
+        if (index.segments() > 1) {
+            Instant requested = mergeRequested.get(index.name());
+            if (requested == null || requested.isBefore(Instant.now().minus(Duration.ofHours(6)))) {
+                // 완료까지 오래 걸리므로 task 로 돌리고 다음 주기에 segment 수로 완료 여부를 본다
+                client.indices().forcemerge(f -> f.index(index.name()).maxNumSegments(1L).waitForCompletion(false));
+                mergeRequested.put(index.name(), Instant.now());
+                actions.add("forcemerge " + index.name() + " (" + index.segments() + " segments)");
+            }
+            return;
+        }
+
+        client.indices().addBlock(b -> b.index(index.name()).block(IndicesBlockOptions.Write));
+        client.indices().putSettings(s -> s.index(index.name()).withJson(new StringReader(WARM_SETTINGS)));
+        mergeRequested.remove(index.name());
+        actions.add("read-only + warm " + index.name());
+    }
+
+    /**
+     * 가장 최근 세대가 이미 write block 이면 (다른 인스턴스가 막았거나 이전 버전이 막은 경우) 그다음 세대에 쓴다.
+     * 다음 세대 인덱스는 첫 _bulk 에서 템플릿으로 자동 생성된다.
+     */
+    private void refreshGenerations(List<ManagedIndex> indices) {
+        for (ManagedIndex index : indices) {
+            int generation = index.writeBlocked() ? index.generation() + 1 : index.generation();
+            writeGenerations.merge(index.date(), generation, Math::max);
+        }
+    }
+
+    private List<ManagedIndex> listIndices() throws Exception {
+        IndicesStatsResponse response = client.indices().stats(s -> s.index(indexPrefix + "*"));
+        Set<String> writeBlocked = writeBlockedIndices();
+
+        List<ManagedIndex> indices = new ArrayList<>();
+        response.indices().forEach((name, stats) -> {
+            Matcher matcher = INDEX_NAME.matcher(name);
+            if (!matcher.matches() || !matcher.group(1).equals(indexPrefix)) {
+                return;
+            }
+            IndexStats primaries = stats.primaries();
+            indices.add(new ManagedIndex(
+                    name,
+                    LocalDate.parse(matcher.group(2), INDEX_DATE),
+                    matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 1,
+                    primaries != null && primaries.docs() != null ? primaries.docs().count() : 0,
+                    primaries != null && primaries.store() != null ? primaries.store().sizeInBytes() : 0,
+                    primaries != null && primaries.segments() != null ? primaries.segments().count() : 0,
+                    writeBlocked.contains(name)
+            ));
+        });
+        indices.sort(Comparator.comparing(ManagedIndex::date).thenComparingInt(ManagedIndex::generation));
+        return indices;
+    }
+
+    private Set<String> writeBlockedIndices() throws Exception {
+        Set<String> blocked = new HashSet<>();
+        client.indices().getSettings(g -> g.index(indexPrefix + "*").name("index.blocks.write"))
+                .result().forEach((name, state) -> {
+                    IndexSettings settings = state.settings();
+                    if (settings == null) {
+                        return;
+                    }
+                    IndexSettingBlocks blocks = settings.index() != null && settings.index().blocks() != null
+                            ? settings.index().blocks()
+                            : settings.blocks();
+                    if (blocks != null && "true".equals(String.valueOf(blocks.write()))) {
+                        blocked.add(name);
+                    }
+                });
+        return blocked;
+    }
+
+    private String indexName(LocalDate date, int generation) {
+        String base = indexPrefix + date.format(INDEX_DATE);
+        return generation <= 1 ? base : base + "-%06d".formatted(generation);
+    }
+
+    private record ManagedIndex(String name, LocalDate date, int generation, long docs, long sizeBytes, long segments,
+                                boolean writeBlocked) {}
+}
@@ -0,0 +1,151 @@
+package kr.rojae.waf.dashboard.infrastructure.influxdb;
+
+import com.influxdb.client.InfluxDBClient;
+import kr.rojae.waf.dashboard.domain.query.EntitySummarySource;
+import kr.rojae.waf.dashboard.domain.query.QueryBackend;
+import kr.rojae.waf.dashboard.domain.query.QueryKind;
+import kr.rojae.waf.dashboard.domain.query.QuerySpec;
+import kr.rojae.waf.dashboard.domain.query.TimeSeriesSource;
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * InfluxDB 조회 백엔드 (waf_requests measurement)
+ *
+ * 최근 구간 집계는 가장 저렴하지만 raw point 를 스캔하므로 범위가 길어질수록 비용이 커진다.
+ * 원본 로그(uri, message 등)는 tag/field 로 보관하지 않으므로 로그 검색은 지원하지 않는다.
+ */
+@Component
+@Slf4j
+public class InfluxDBQuerySource implements TimeSeriesSource, EntitySummarySource {
+
+    private static final Set<String> ENTITY_TAGS = Set.of(
+            "client_ip", "attack_type", "country", "severity", "rule_id", "method");
+
+    private final InfluxDBClient influxDBClient;
+    private final String org;
+    private final String bucket;
+    private final Duration retention;
+
+    public InfluxDBQuerySource(
+        InfluxDBClient influxDBClient,
+        @Value("${app.influxdb.org}") String org,
+        @Value("${app.influxdb.bucket}") String bucket,
+        @Value("${app.query.influxdb.retention:30d}") Duration retention
+    ) {
+        this.influxDBClient = influxDBClient;
+        this.org = org;
+        this.bucket = bucket;
+        this.retention = retention;
+    }
+
+    @Override
+    public QueryBackend backend() {
+        return QueryBackend.INFLUXDB;
+    }
+
+    @Override
+    public Set<String> fields(QueryKind kind) {
+        return switch (kind) {
+            case TIME_SERIES -> Set.of("timestamp", "count", "blocked");
+            case LOG_SEARCH -> Set.of();
+            case ENTITY_SUMMARY -> ENTITY_TAGS;
+        };
+    }
+
+    @Override
+    public Duration retention() {
+        return retention;
+    }
+
+    @Override
+    public int cost(QuerySpec spec) {
+        // 1시간 1, 하루 5, 일주일 29 ...
+        return 1 + (int) Math.min(spec.range().toHours() / 6, 1000);
+    }
+
+    @Override
+    public boolean ping() {
+        try {
+            return influxDBClient.ping();
+        } catch (Exception e) {
+            log.debug("InfluxDB ping failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public List<AttackTrendDto> timeSeries(QuerySpec spec) {
+        String flux = """
+            from(bucket: "%s")
+              |> range(start: %s, stop: %s)
+              |> filter(fn: (r) => r._measurement == "waf_requests" and r._field == "count")
+              |> group(columns: ["blocked"])
+              |> aggregateWindow(every: %ds, fn: sum, createEmpty: false)
+              |> keep(columns: ["_time", "_value", "blocked"])
+        """.formatted(bucket, spec.from(), spec.to(), spec.bucketSize().toSeconds());
+
+        // bucket 시각 -> [total, blocked]
+        Map<Instant, long[]> buckets = new TreeMap<>();
+        for (var table : influxDBClient.getQueryApi().query(flux, org)) {
+            for (var record : table.getRecords()) {
+                if (record.getTime() == null || !(record.getValue() instanceof Number value)) continue;
+                long[] counts = buckets.computeIfAbsent(record.getTime(), t -> new long[2]);
+                counts[0] += value.longValue();
+                if ("true".equals(record.getValueByKey("blocked"))) {
+                    counts[1] += value.longValue();
+                }
+            }
+        }
+
+        List<AttackTrendDto> trend = new ArrayList<>(buckets.size());
+        buckets.forEach((time, counts) -> trend.add(AttackTrendDto.builder()
+                .bucket(LocalDateTime.ofInstant(time, ZoneOffset.UTC))
+                .attackCount(counts[0])
+                .blockedCount(counts[1])
+                .allowedCount(counts[0] - counts[1])
+                .build()));
+        return trend;
+    }
+
+    @Override
+    public List<EntitySummaryDto> topEntities(QuerySpec spec, String entity, int limit) {
+        String flux = """
+            from(bucket: "%s")
+              |> range(start: %s, stop: %s)
+              |> filter(fn: (r) => r._measurement == "waf_requests" and r._field == "count")
+              |> group(columns: ["%s"])
+              |> sum()
+              |> group()
+              |> sort(columns: ["_value"], desc: true)
+              |> limit(n: %d)
+        """.formatted(bucket, spec.from(), spec.to(), entity, limit);
+
+        List<EntitySummaryDto> summaries = new ArrayList<>();
+        for (var table : influxDBClient.getQueryApi().query(flux, org)) {
+            for (var record : table.getRecords()) {
+                Object key = record.getValueByKey(entity);
+                if (key == null || !(record.getValue() instanceof Number value)) continue;
+                summaries.add(EntitySummaryDto.builder()
+                        .entity(entity)
+                        .key(String.valueOf(key))
+                        .count(value.longValue())
+                        .build());
+            }
+        }
+        return summaries;
+    }
+}
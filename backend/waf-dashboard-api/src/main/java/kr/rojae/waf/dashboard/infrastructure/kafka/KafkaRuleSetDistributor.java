@@ -0,0 +1,274 @@
+package kr.rojae.waf.dashboard.infrastructure.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.domain.rules.RuleSetDistributor;
+import kr.rojae.waf.dashboard.dto.RuleSetAckDto;
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+import kr.rojae.waf.dashboard.dto.RuleShardDto;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Kafka 로 rule-set 배포 + 노드별 적용 결과(ack) 수집
+ *
+ * waf-rule-sets (compact, 항상 partition 0 으로 보내 순서 보장):
+ * - key = shard 이름(rules.d/*.conf), value = {@link RuleShardDto}. 삭제된 shard 는 tombstone.
+ * - key = "manifest", value = {@link RuleSetManifestDto}. shard 를 모두 보낸 뒤 마지막에 보낸다.
+ * compaction 후에도 키마다 최신 값이 남으므로, 새 노드는 처음부터 읽기만 하면 전체 rule-set 을 받는다.
+ * 바뀐 shard 만 보내므로 전송량은 노드 수와 무관하고 변경 크기에 비례한다.
+ *
+ * waf-rule-acks (compact, key = nodeId): 각 노드 rule agent 가 WRITTEN/APPLIED/FAILED 와 heartbeat 를 보낸다.
+ * 기동 시 처음부터 다시 읽어 노드 상태를 복구한다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.rules.distribution", name = "enabled", havingValue = "true")
+@Slf4j
+public class KafkaRuleSetDistributor implements RuleSetDistributor {
+
+    public static final String MANIFEST_KEY = "manifest";
+    private static final int PARTITION = 0;
+    // 큰 shard 는 압축해 producer 의 max.request.size(기본 1MB) 안에 들어가게 한다
+    private static final int GZIP_THRESHOLD = 64 * 1024;
+    private static final int PUBLISH_HISTORY = 32;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+    private final String ackTopic;
+    private final Duration sendTimeout;
+    private final Duration nodeTimeout;
+
+    // 컴파일 스레드에서만 변경
+    private final Map<String, String> publishedShards = new HashMap<>();
+    private String publishedHash;
+
+    private final Map<String, NodeState> nodes = new ConcurrentHashMap<>();
+    private final Map<Long, Instant> publishedAt = new ConcurrentHashMap<>();
+    private volatile RuleSetManifestDto latest;
+    private final AtomicLong shardsSent = new AtomicLong();
+    private final AtomicLong manifestsSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong acks = new AtomicLong();
+    private volatile String lastError;
+
+    public KafkaRuleSetDistributor(
+        KafkaTemplate<String, String> kafkaTemplate,
+        ObjectMapper objectMapper,
+        @Value("${app.rules.distribution.topic:waf-rule-sets}") String topic,
+        @Value("${app.rules.distribution.ack-topic:waf-rule-acks}") String ackTopic,
+        @Value("${app.rules.distribution.send-timeout:10s}") Duration sendTimeout,
+        @Value("${app.rules.distribution.node-timeout:90s}") Duration nodeTimeout
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+        this.ackTopic = ackTopic;
+        this.sendTimeout = sendTimeout;
+        this.nodeTimeout = nodeTimeout;
+    }
+
+    @Override
+    public void publish(RuleSetManifestDto manifest, Map<String, String> shards) {
+        if (manifest.hash() == null || manifest.hash().equals(publishedHash)) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        int changed = 0;
+        try {
+            for (RuleShardDto file : manifest.files()) {
+                if (file.hash().equals(publishedShards.get(file.name()))) {
+                    continue;
+                }
+                sends.add(send(file.name(), objectMapper.writeValueAsString(encode(file, manifest.version(),
+                        shards.get(file.name())))));
+                changed++;
+            }
+            for (String name : publishedShards.keySet()) {
+                if (manifest.files().stream().noneMatch(file -> file.name().equals(name))) {
+                    sends.add(send(name, null));
+                }
+            }
+            sends.add(send(MANIFEST_KEY, objectMapper.writeValueAsString(manifest)));
+
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 무엇이 전달됐는지 모르므로 다음 컴파일에서 전체를 다시 보낸다
+            publishedShards.clear();
+            publishedHash = null;
+            failures.incrementAndGet();
+            lastError = e.getMessage();
+            log.error("Failed to publish rule set version {} to {}", manifest.version(), topic, e);
+            return;
+        }
+
+        publishedShards.clear();
+        manifest.files().forEach(file -> publishedShards.put(file.name(), file.hash()));
+        publishedHash = manifest.hash();
+        latest = manifest;
+        shardsSent.addAndGet(changed);
+        manifestsSent.incrementAndGet();
+        lastError = null;
+        publishedAt.put(manifest.version(), Instant.now());
+        publishedAt.keySet().removeIf(version -> version <= manifest.version() - PUBLISH_HISTORY);
+        log.info("Published rule set version {} to {} ({} changed shards) in {} ms",
+                manifest.version(), topic, changed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @KafkaListener(
+            id = "rule-set-acks",
+            groupId = "dashboard-rule-acks-${HOSTNAME:local}",
+            topicPartitions = @TopicPartition(topic = "${app.rules.distribution.ack-topic:waf-rule-acks}",
+                    partitionOffsets = @PartitionOffset(partition = "0", initialOffset = "0"))
+    )
+    public void onAck(ConsumerRecord<String, String> record) {
+        if (record.value() == null) {
+            nodes.remove(record.key());
+            return;
+        }
+        try {
+            RuleSetAckDto ack = objectMapper.readValue(record.value(), RuleSetAckDto.class);
+            acks.incrementAndGet();
+            nodes.merge(ack.nodeId(), new NodeState(ack, Instant.ofEpochMilli(record.timestamp()), null),
+                    (previous, next) -> next.withFirstApplied(previous));
+            log.debug("Rule set ack from {}: version {} {}", ack.nodeId(), ack.version(), ack.status());
+        } catch (JsonProcessingException e) {
+            log.warn("Malformed rule set ack from {}: {}", record.key(), e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> status() {
+        RuleSetManifestDto target = latest;
+        Instant now = Instant.now();
+        Instant targetPublishedAt = target != null ? publishedAt.get(target.version()) : null;
+
+        List<Map<String, Object>> nodeStatus = new ArrayList<>();
+        int live = 0;
+        int converged = 0;
+        Instant lastApplied = null;
+        for (NodeState state : nodes.values()) {
+            RuleSetAckDto ack = state.ack();
+            boolean stale = state.lastSeen().isBefore(now.minus(nodeTimeout));
+            boolean upToDate = target != null && target.hash().equals(ack.hash()) && "APPLIED".equals(ack.status());
+            if (!stale) {
+                live++;
+                if (upToDate) {
+                    converged++;
+                    Instant applied = state.firstApplied() != null ? state.firstApplied() : ack.appliedAt();
+                    if (applied != null && (lastApplied == null || applied.isAfter(lastApplied))) {
+                        lastApplied = applied;
+                    }
+                }
+            }
+
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("nodeId", ack.nodeId());
+            node.put("version", ack.version());
+            node.put("status", ack.status());
+            node.put("converged", upToDate);
+            node.put("stale", stale);
+            node.put("behind", target != null && ack.version() != null ? target.version() - ack.version() : null);
+            node.put("appliedAt", ack.appliedAt() != null ? ack.appliedAt().toString() : null);
+            node.put("lastSeen", state.lastSeen().toString());
+            node.put("message", ack.message());
+            nodeStatus.add(node);
+        }
+        nodeStatus.sort(Comparator.comparing(node -> (String) node.get("nodeId")));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", true);
+        status.put("topic", topic);
+        status.put("ackTopic", ackTopic);
+        status.put("targetVersion", target != null ? target.version() : null);
+        status.put("targetHash", target != null ? target.hash() : null);
+        status.put("publishedAt", targetPublishedAt != null ? targetPublishedAt.toString() : null);
+        status.put("liveNodes", live);
+        status.put("convergedNodes", converged);
+        status.put("converged", live > 0 && converged == live);
+        // 게시 -> 마지막 노드 적용까지 걸린 시간 (모든 live 노드가 수렴했을 때만)
+        status.put("rolloutMillis", live > 0 && converged == live && targetPublishedAt != null && lastApplied != null
+                ? Math.max(0, Duration.between(targetPublishedAt, lastApplied).toMillis()) : null);
+        status.put("nodes", nodeStatus);
+        status.put("shardsSent", shardsSent.get());
+        status.put("manifestsSent", manifestsSent.get());
+        status.put("bytesSent", bytesSent.get());
+        status.put("acks", acks.get());
+        status.put("failures", failures.get());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private CompletableFuture<?> send(String key, String value) {
+        if (value != null) {
+            bytesSent.addAndGet(value.length());
+        }
+        return kafkaTemplate.send(topic, PARTITION, key, value);
+    }
+
+    private static RuleShardDto encode(RuleShardDto file, Long version, String content) throws IOException {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        boolean gzip = raw.length > GZIP_THRESHOLD;
+        return RuleShardDto.builder()
+                .name(file.name())
+                .hash(file.hash())
+                .rules(file.rules())
+                .version(version)
+                .encoding(gzip ? "gzip" : "identity")
+                .content(gzip ? Base64.getEncoder().encodeToString(gzip(raw)) : content)
+                .build();
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param firstApplied 지금 hash 를 처음 APPLIED 로 보고한 시각 (heartbeat 로 appliedAt 이 밀리지 않게)
+     */
+    private record NodeState(RuleSetAckDto ack, Instant lastSeen, Instant firstApplied) {
+
+        NodeState withFirstApplied(NodeState previous) {
+            if (!"APPLIED".equals(ack.status())) {
+                return this;
+            }
+            boolean sameHash = previous.ack().hash() != null && previous.ack().hash().equals(ack.hash())
+                    && "APPLIED".equals(previous.ack().status());
+            Instant first = sameHash && previous.firstApplied() != null ? previous.firstApplied() : ack.appliedAt();
+            return new NodeState(ack, lastSeen, first);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package kr.rojae.waf.dashboard.infrastructure.rulestore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import kr.rojae.waf.dashboard.domain.rules.RuleStore;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * append-only 변경 로그 + 주기적 스냅샷 기반 룰 저장소
+ *
+ * 파일 구성 (store-dir):
+ * - rules.snapshot : 특정 seq 까지의 전체 룰 (임시 파일 작성 -> fsync -> ATOMIC_MOVE)
+ * - rules.log      : 스냅샷 이후 변경분. 레코드 = [length:int][crc32c:int][json]
+ *
+ * 쓰기는 전용 스레드가 큐에 쌓인 레코드를 한 번에 write + fsync 하는 group commit 으로 처리해
+ * 대량 편집 시에도 레코드마다 fsync 비용을 치르지 않는다. putAll 은 룰 수와 관계없이 레코드 1개라서
+ * 복구 시 전부 반영되거나(CRC 통과) 전부 빠진다.
+ * 복구는 스냅샷 로드 후 로그를 mmap 으로 순차 재생하며, CRC 가 깨진 꼬리(쓰다 만 레코드)는 잘라낸다.
+ * 스냅샷은 로그를 비운 뒤의 유일한 원본이라, 읽을 수 없으면 빈 룰셋으로 복구하지 않고 load 가 실패한다.
+ * 커밋 중 write/fsync 가 실패하면 로그를 커밋 전 위치로 잘라 이후 커밋이 깨진 레코드 뒤에 붙지 않게 한다.
+ */
+@Component
+@Slf4j
+public class FileRuleStore implements RuleStore {
+
+    private static final String SNAPSHOT_FILE = "rules.snapshot";
+    private static final String LOG_FILE = "rules.log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_GROUP = 1024;
+    // 커밋 스레드 종료 신호. 채널을 쥔 스레드를 interrupt 하면 채널이 닫혀 쓰던 그룹이 깨진다
+    private static final PendingRecord STOP = new PendingRecord(null, new CompletableFuture<>());
+
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final int snapshotEvery;
+
+    // 스냅샷 작성용 현재 상태 (load 이후 put/delete 로 갱신)
+    // load() 의 복구(파일 읽기/truncate)를 한 번만 수행
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, CustomRuleDto> state = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong seq = new AtomicLong();
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedRecords = new AtomicLong();
+    private final AtomicLong fsyncNanos = new AtomicLong();
+    private volatile long snapshotSeq;
+    private volatile long recordsSinceSnapshot;
+    private volatile long recoveryMillis;
+    private volatile int recoveredRecords;
+    private volatile Instant lastSnapshotAt;
+
+    private FileChannel logChannel;
+    private Thread committer;
+    private volatile boolean running;
+    // 실패한 커밋을 되돌리지 못해 로그 끝을 믿을 수 없는 상태
+    private volatile IOException broken;
+
+    public FileRuleStore(
+        ObjectMapper objectMapper,
+        @Value("${app.rules.store-dir:/app/custom-rules/.store}") String storeDir,
+        @Value("${app.rules.snapshot-every:1000}") int snapshotEvery
+    ) {
+        this.objectMapper = objectMapper;
+        this.dir = Path.of(storeDir);
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    @Override
+    public Map<String, CustomRuleDto> load() {
+        lock.lock();
+        try {
+            if (running) {
+                return Map.copyOf(state);
+            }
+            long started = System.nanoTime();
+            try {
+                Files.createDirectories(dir);
+                state.clear();
+
+                Path snapshot = dir.resolve(SNAPSHOT_FILE);
+                if (Files.exists(snapshot)) {
+                    Snapshot s = objectMapper.readValue(readSnapshot(snapshot), Snapshot.class);
+                    s.rules().forEach(rule -> state.put(rule.id(), rule));
+                    snapshotSeq = s.seq();
+                }
+                seq.set(snapshotSeq);
+
+                Path logPath = dir.resolve(LOG_FILE);
+                int[] replayed = {0};
+                long validBytes = Files.exists(logPath) ? readRecords(logPath, payload -> {
+                    LogEntry entry = objectMapper.readValue(payload, LogEntry.class);
+                    if (entry.seq() <= snapshotSeq) {
+                        return;
+                    }
+                    apply(entry);
+                    seq.set(entry.seq());
+                    replayed[0]++;
+                }) : 0;
+
+                logChannel = openLog(logPath);
+                if (logChannel.size() > validBytes) {
+                    log.warn("Truncating torn tail of {} ({} -> {} bytes)", logPath, logChannel.size(), validBytes);
+                    logChannel.truncate(validBytes);
+                    logChannel.force(true);
+                }
+                logChannel.position(validBytes);
+                recordsSinceSnapshot = replayed[0];
+                recoveredRecords = replayed[0];
+                recoveryMillis = (System.nanoTime() - started) / 1_000_000;
+
+                running = true;
+                committer = new Thread(this::commitLoop, "rule-store-committer");
+                committer.setDaemon(true);
+                committer.start();
+
+                log.info("Rule store recovered {} rules (snapshot seq={}, replayed {} log records) in {} ms from {}",
+                        state.size(), snapshotSeq, replayed[0], recoveryMillis, dir);
+                return Map.copyOf(state);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load rule store from " + dir, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(CustomRuleDto rule) {
+        append(new LogEntry(0, rule, null, null));
+    }
+
+    @Override
+    public void putAll(Collection<CustomRuleDto> rules) {
+        if (!rules.isEmpty()) {
+            append(new LogEntry(0, null, null, List.copyOf(rules)));
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        append(new LogEntry(0, null, id, null));
+    }
+
+    @Override
+    public Map<String, Object> status() {
+        long commitCount = commits.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("dir", dir.toString());
+        status.put("rules", state.size());
+        status.put("seq", seq.get());
+        status.put("snapshotSeq", snapshotSeq);
+        status.put("lastSnapshotAt", lastSnapshotAt != null ? lastSnapshotAt.toString() : null);
+        status.put("recordsSinceSnapshot", recordsSinceSnapshot);
+        status.put("recoveredRecords", recoveredRecords);
+        status.put("recoveryMillis", recoveryMillis);
+        status.put("commits", commitCount);
+        status.put("committedRecords", committedRecords.get());
+        status.put("avgRecordsPerCommit", commitCount > 0 ? (double) committedRecords.get() / commitCount : 0);
+        status.put("avgFsyncMicros", commitCount > 0 ? fsyncNanos.get() / commitCount / 1000 : 0);
+        return status;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        running = false;
+        if (committer != null) {
+            queue.add(STOP);
+            committer.join(5000);
+            if (committer.isAlive()) {
+                // fsync 가 멈춘 경우. 채널을 닫으면 쓰던 그룹이 깨지므로 데몬 스레드에 맡긴다
+                log.warn("Rule store committer did not stop within 5s, leaving the log open");
+                return;
+            }
+        }
+        if (logChannel != null) {
+            logChannel.close();
+        }
+    }
+
+    /**
+     * 레코드를 커밋 큐에 넣고 fsync 가 끝날 때까지 기다린다
+     */
+    private void append(LogEntry entry) {
+        if (!running) {
+            throw new IllegalStateException("Rule store is not loaded");
+        }
+        if (broken != null) {
+            throw new IllegalStateException("Rule store log is unusable after a failed commit, restart to recover", broken);
+        }
+        PendingRecord record = new PendingRecord(entry, new CompletableFuture<>());
+        queue.add(record);
+        try {
+            record.done().join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to persist rule change", e.getCause());
+        }
+    }
+
+    private void commitLoop() {
+        List<PendingRecord> group = new ArrayList<>(MAX_GROUP);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            // fsync 하는 동안 쌓인 요청을 한 번에 묶는다. STOP 앞에 들어온 요청은 커밋하고 끝낸다
+            queue.drainTo(group, MAX_GROUP - 1);
+            stop = group.remove(STOP);
+            if (!group.isEmpty()) {
+                commit(group);
+            }
+            group.clear();
+        }
+        PendingRecord leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.done().completeExceptionally(new IllegalStateException("Rule store closed"));
+        }
+    }
+
+    private void commit(List<PendingRecord> group) {
+        if (broken != null) {
+            group.forEach(record -> record.done().completeExceptionally(broken));
+            return;
+        }
+        long seqBefore = seq.get();
+        long positionBefore;
+        try {
+            positionBefore = logChannel.position();
+        } catch (IOException e) {
+            group.forEach(record -> record.done().completeExceptionally(e));
+            return;
+        }
+        try {
+            List<ByteBuffer> frameList = new ArrayList<>(group.size());
+            List<LogEntry> entries = new ArrayList<>(group.size());
+            for (Iterator<PendingRecord> it = group.iterator(); it.hasNext(); ) {
+                PendingRecord record = it.next();
+                LogEntry entry = record.entry();
+                byte[] payload = objectMapper.writeValueAsBytes(
+                        new LogEntry(seq.get() + 1, entry.rule(), entry.id(), entry.rules()));
+                // 복구 때 읽지 못할 크기면 이 레코드만 거절한다
+                if (payload.length > MAX_RECORD_BYTES) {
+                    record.done().completeExceptionally(new IllegalArgumentException(
+                            "Rule change of " + payload.length + " bytes exceeds " + MAX_RECORD_BYTES + " bytes"));
+                    it.remove();
+                    continue;
+                }
+                entries.add(new LogEntry(seq.incrementAndGet(), entry.rule(), entry.id(), entry.rules()));
+                frameList.add(frame(payload));
+            }
+            if (group.isEmpty()) {
+                return;
+            }
+            ByteBuffer[] frames = frameList.toArray(ByteBuffer[]::new);
+
+            long started = System.nanoTime();
+            while (hasRemaining(frames)) {
+                logChannel.write(frames);
+            }
+            logChannel.force(false);
+            fsyncNanos.addAndGet(System.nanoTime() - started);
+
+            entries.forEach(this::apply);
+            commits.incrementAndGet();
+            committedRecords.addAndGet(group.size());
+            recordsSinceSnapshot += group.size();
+            group.forEach(record -> record.done().complete(null));
+        } catch (Exception e) {
+            log.error("Rule store commit of {} records failed", group.size(), e);
+            rollback(positionBefore, seqBefore);
+            group.forEach(record -> record.done().completeExceptionally(e));
+            return;
+        }
+
+        if (recordsSinceSnapshot >= snapshotEvery) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                log.warn("Rule store snapshot failed, log keeps growing until the next attempt", e);
+            }
+        }
+    }
+
+    /**
+     * 실패한 커밋이 남긴 (일부만 쓰인) 레코드를 잘라내고 seq 를 되돌린다.
+     * 잘라내지 못하면 이후 쓰기를 모두 거부한다 (깨진 레코드 뒤에 쓰면 재생 때 사라진다).
+     */
+    private void rollback(long position, long seqBefore) {
+        seq.set(seqBefore);
+        try {
+            logChannel.truncate(position);
+            logChannel.position(position);
+            logChannel.force(true);
+        } catch (IOException e) {
+            broken = e;
+            log.error("Failed to roll back rule store log to {} bytes, rejecting further writes", position, e);
+        }
+    }
+
+    private void apply(LogEntry entry) {
+        if (entry.rules() != null) {
+            entry.rules().forEach(rule -> state.put(rule.id(), rule));
+        } else if (entry.rule() != null) {
+            state.put(entry.rule().id(), entry.rule());
+        } else {
+            state.remove(entry.id());
+        }
+    }
+
+    /**
+     * 현재 상태를 스냅샷으로 기록하고 로그를 비운다. 커밋 스레드에서만 호출된다.
+     */
+    private void snapshot() throws IOException {
+        long upTo = seq.get();
+        byte[] payload = objectMapper.writeValueAsBytes(new Snapshot(upTo, new ArrayList<>(state.values())));
+
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer frame = frame(payload);
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        fsyncDirectory();
+
+        // 스냅샷 이후 seq 만 재생하므로 여기서 죽어도 로그의 이전 레코드는 무시된다
+        logChannel.truncate(0);
+        logChannel.position(0);
+        logChannel.force(true);
+
+        snapshotSeq = upTo;
+        recordsSinceSnapshot = 0;
+        lastSnapshotAt = Instant.now();
+        log.info("Rule store snapshot written: {} rules at seq {}", state.size(), upTo);
+    }
+
+    private void fsyncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 일부 파일시스템/OS 는 디렉터리 fsync 를 지원하지 않는다
+            log.debug("Directory fsync not supported for {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * mmap 으로 레코드를 순차 읽기. 반환값은 마지막으로 유효한 레코드의 끝 위치.
+     */
+    /**
+     * 스냅샷은 레코드 1개로 파일 전체를 채운다. 크기 제한은 로그 레코드(MAX_RECORD_BYTES)와 따로 int 길이 필드까지다.
+     *
+     * @throws IllegalStateException 길이가 파일 크기와 다르거나 CRC 가 맞지 않을 때
+     */
+    private static byte[] readSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size - HEADER_BYTES > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Rule store snapshot " + path + " has invalid size " + size);
+            }
+            ByteBuffer header = readFully(channel, ByteBuffer.allocate(HEADER_BYTES));
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length != size - HEADER_BYTES) {
+                throw new IllegalStateException("Rule store snapshot " + path + " is truncated or corrupt (length "
+                        + length + ", file " + size + " bytes)");
+            }
+            ByteBuffer payload = readFully(channel, ByteBuffer.allocate(length));
+            CRC32C crc = new CRC32C();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalStateException("Rule store snapshot " + path + " failed its checksum");
+            }
+            return payload.array();
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of " + channel);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * 로그 채널 열기 (테스트에서 실패하는 채널로 바꿔 끼운다)
+     */
+    FileChannel openLog(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private long readRecords(Path path, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                    return start;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                handler.accept(payload);
+            }
+            return buffer.position();
+        }
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return frame;
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) return true;
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface RecordHandler {
+        void accept(byte[] payload) throws IOException;
+    }
+
+    private record PendingRecord(LogEntry entry, CompletableFuture<Void> done) {}
+
+    /**
+     * rules 가 있으면 일괄 PUT, rule 이 있으면 PUT, 둘 다 없으면 id 삭제
+     */
+    record LogEntry(long seq, CustomRuleDto rule, String id, List<CustomRuleDto> rules) {}
+
+    record Snapshot(long seq, List<CustomRuleDto> rules) {}
+}
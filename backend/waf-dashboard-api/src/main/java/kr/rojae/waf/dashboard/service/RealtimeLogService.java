@@ -1,5 +1,6 @@
 package kr.rojae.waf.dashboard.service;
 
+import kr.rojae.waf.dashboard.domain.rules.RuleHitCounter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -17,11 +18,15 @@ public class RealtimeLogService {
 
     private final CopyOnWriteArrayList<SseEmitter> logEmitters = new CopyOnWriteArrayList<>();
     private final CopyOnWriteArrayList<SseEmitter> metricsEmitters = new CopyOnWriteArrayList<>();
+    private final RuleHitCounter ruleHitCounter;
 
     @KafkaListener(topics = "waf-realtime-events", groupId = "dashboard-realtime-group")
     public void handleRealtimeLog(String logMessage) {
         log.debug("Received kafka message: {}", logMessage);
-        
+
+        // 커스텀 룰 히트 집계 (할당 없는 카운터라 리스너 스레드에서 바로 처리)
+        ruleHitCounter.record(logMessage);
+
         // Parse and broadcast to all connected clients
         CompletableFuture.runAsync(() -> {
             broadcastLogMessage(logMessage);
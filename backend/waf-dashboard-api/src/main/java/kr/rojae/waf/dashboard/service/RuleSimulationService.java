@@ -0,0 +1,375 @@
+package kr.rojae.waf.dashboard.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.domain.rules.DeadlineCharSequence;
+import kr.rojae.waf.dashboard.domain.rules.RulePatternProfiler;
+import kr.rojae.waf.dashboard.domain.rules.RulePatternRejectedException;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
+import kr.rojae.waf.dashboard.dto.RuleCostDto;
+import kr.rojae.waf.dashboard.dto.RuleSimulationDto;
+import kr.rojae.waf.dashboard.infrastructure.elasticsearch.ElasticsearchWafLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 커스텀 룰 dry-run: 과거 요청 URI 에 패턴을 적용해 히트 수를 미리 본다
+ *
+ * - 소스: Elasticsearch (시간 범위 scroll, uri 필드만) 또는 capture-dir 아래 캡처 파일
+ *   (한 줄에 URI 1개 또는 uri 필드가 있는 JSON 라인, .gz 지원)
+ * - 패턴은 먼저 {@link RulePatternProfiler} 를 통과해야 한다 (룰 저장과 같은 ReDoS 검사).
+ * - 읽기 스레드가 1024건 단위 배치를 bounded 큐에 넣고, 코어 수만큼의 플랫폼 스레드 워커가 매칭한다.
+ *   큐가 차면 읽기가 멈추므로 메모리는 큐 크기 x 배치 크기로 제한된다. 동시에 하나만 돌린다.
+ * - 매칭은 {@link DeadlineCharSequence} 로 감싸 입력 하나가 input-budget 을, 전체가 max-duration 을 넘지 못한다.
+ *   max-duration 이 지나면 워커는 남은 배치를 매칭하지 않고 비우기만 한다.
+ * - 워커별 URI 집계는 고유 URI 수를 제한하므로 상위 URI 카운트는 근사치일 수 있다.
+ */
+@Service
+@Slf4j
+public class RuleSimulationService {
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int MAX_DISTINCT_URIS_PER_WORKER = 10_000;
+    private static final int TOP_URIS = 20;
+    private static final int MAX_SAMPLES = 20;
+    private static final String[] END_OF_STREAM = new String[0];
+
+    private final ElasticsearchWafLogRepository wafLogRepository;
+    private final RulePatternProfiler profiler;
+    private final ObjectMapper objectMapper;
+    private final Path captureDir;
+    private final Duration maxDuration;
+    private final long inputBudgetNanos;
+    private final int workers;
+    private final Semaphore running = new Semaphore(1);
+
+    public RuleSimulationService(
+        ElasticsearchWafLogRepository wafLogRepository,
+        RulePatternProfiler profiler,
+        ObjectMapper objectMapper,
+        @Value("${app.rules.simulation.capture-dir:/app/captures}") String captureDir,
+        @Value("${app.rules.simulation.max-duration:60s}") Duration maxDuration,
+        @Value("${app.rules.profiler.input-budget:50ms}") Duration inputBudget,
+        @Value("${app.rules.simulation.workers:0}") int workers
+    ) {
+        this.wafLogRepository = wafLogRepository;
+        this.profiler = profiler;
+        this.objectMapper = objectMapper;
+        this.captureDir = Path.of(captureDir).toAbsolutePath().normalize();
+        this.maxDuration = maxDuration;
+        this.inputBudgetNanos = inputBudget.toNanos();
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param source "elasticsearch" 또는 "file"
+     * @param file   source=file 일 때 capture-dir 기준 상대 경로
+     * @throws RulePatternRejectedException 프로파일러가 거부한 패턴 (측정 결과는 rule.cost())
+     * @throws IllegalArgumentException capture-dir 밖의 파일
+     * @throws RejectedExecutionException 다른 시뮬레이션이 돌고 있을 때
+     */
+    public RuleSimulationDto simulate(String ruleId, String pattern, String source,
+                                      Instant from, Instant to, String file) {
+        RuleCostDto cost = profiler.profile(pattern);
+        if (Boolean.TRUE.equals(cost.rejected())) {
+            throw new RulePatternRejectedException(CustomRuleDto.builder()
+                    .id(ruleId)
+                    .pattern(pattern)
+                    .cost(cost)
+                    .build());
+        }
+        Pattern compiled = Pattern.compile(pattern);
+        boolean fromFile = "file".equalsIgnoreCase(source);
+        Path capture = fromFile ? resolveCapture(file) : null;
+
+        if (!running.tryAcquire()) {
+            throw new RejectedExecutionException("Another rule simulation is running");
+        }
+        try {
+            return run(ruleId, pattern, compiled, fromFile, capture, source, from, to, file);
+        } finally {
+            running.release();
+        }
+    }
+
+    private RuleSimulationDto run(String ruleId, String pattern, Pattern compiled, boolean fromFile, Path capture,
+                                  String source, Instant from, Instant to, String file) {
+        long started = System.nanoTime();
+        long deadline = started + maxDuration.toNanos();
+        BlockingQueue<String[]> queue = new ArrayBlockingQueue<>(workers * 4);
+        AtomicBoolean truncated = new AtomicBoolean(false);
+        List<Worker> tasks = new ArrayList<>(workers);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("rule-simulation-", 0).daemon(true).factory())) {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                Worker worker = new Worker(compiled, queue, deadline, truncated);
+                tasks.add(worker);
+                futures.add(executor.submit(worker));
+            }
+
+            Batcher batcher = new Batcher(queue, deadline, truncated);
+            try {
+                if (fromFile) {
+                    readCapture(capture, batcher);
+                } else {
+                    wafLogRepository.streamUris(from, to, batcher);
+                }
+                batcher.flush();
+            } finally {
+                for (int i = 0; i < workers; i++) {
+                    putUninterruptibly(queue, END_OF_STREAM);
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read capture file " + file + ": " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Rule simulation failed", e);
+        }
+
+        return summarize(ruleId, pattern, fromFile ? "file:" + file : "elasticsearch", from, to,
+                tasks, System.nanoTime() - started, truncated.get());
+    }
+
+    private RuleSimulationDto summarize(String ruleId, String pattern, String source, Instant from, Instant to,
+                                        List<Worker> tasks, long elapsedNanos, boolean truncated) {
+        long scanned = 0;
+        long hits = 0;
+        long errors = 0;
+        Map<String, Long> uriCounts = new HashMap<>();
+        List<String> samples = new ArrayList<>();
+        for (Worker worker : tasks) {
+            scanned += worker.scanned;
+            hits += worker.hits;
+            errors += worker.errors;
+            worker.uriCounts.forEach((uri, count) -> uriCounts.merge(uri, count, Long::sum));
+            for (String sample : worker.samples) {
+                if (samples.size() < MAX_SAMPLES) {
+                    samples.add(sample);
+                }
+            }
+        }
+
+        List<EntitySummaryDto> topUris = uriCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_URIS)
+                .map(e -> EntitySummaryDto.builder().entity("uri").key(e.getKey()).count(e.getValue()).build())
+                .toList();
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        log.info("Simulated rule {} over {} events from {}: {} hits in {}ms{}",
+                ruleId, scanned, source, hits, elapsedMillis, truncated ? " (truncated)" : "");
+
+        return RuleSimulationDto.builder()
+                .ruleId(ruleId)
+                .pattern(pattern)
+                .source(source)
+                .from(from)
+                .to(to)
+                .scanned(scanned)
+                .hits(hits)
+                .hitRatio(scanned > 0 ? (double) hits / scanned : 0.0)
+                .errors(errors)
+                .topUris(topUris)
+                .samples(samples)
+                .elapsedMillis(elapsedMillis)
+                .eventsPerSecond(elapsedNanos > 0 ? scanned * 1_000_000_000L / elapsedNanos : 0)
+                .truncated(truncated)
+                .build();
+    }
+
+    private void readCapture(Path capture, Batcher batcher) throws IOException {
+        InputStream in = Files.newInputStream(capture);
+        if (capture.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 256 * 1024)) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (!line.isEmpty() && !batcher.test(line)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * capture-dir 밖의 파일은 읽지 않는다
+     */
+    private Path resolveCapture(String file) {
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("file is required when source=file");
+        }
+        Path path = captureDir.resolve(file).normalize();
+        if (!path.startsWith(captureDir) || !Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Capture file not found under " + captureDir + ": " + file);
+        }
+        return path;
+    }
+
+    private static void putUninterruptibly(BlockingQueue<String[]> queue, String[] batch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(batch);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 읽기 측: 줄을 배치로 묶어 큐에 넣는다. 제한 시간이 지나면(워커가 먼저 알아챈 경우 포함) false 를 반환해 소스 읽기를 멈춘다.
+     */
+    private static final class Batcher implements Predicate<String> {
+        private final BlockingQueue<String[]> queue;
+        private final long deadline;
+        private final AtomicBoolean truncated;
+        private String[] batch = new String[BATCH_SIZE];
+        private int size;
+
+        Batcher(BlockingQueue<String[]> queue, long deadline, AtomicBoolean truncated) {
+            this.queue = queue;
+            this.deadline = deadline;
+            this.truncated = truncated;
+        }
+
+        @Override
+        public boolean test(String line) {
+            batch[size++] = line;
+            if (size < BATCH_SIZE) {
+                return true;
+            }
+            flush();
+            if (truncated.get() || System.nanoTime() > deadline) {
+                truncated.set(true);
+                return false;
+            }
+            return true;
+        }
+
+        void flush() {
+            if (size == 0) {
+                return;
+            }
+            String[] full = size == BATCH_SIZE ? batch : Arrays.copyOf(batch, size);
+            putUninterruptibly(queue, full);
+            batch = new String[BATCH_SIZE];
+            size = 0;
+        }
+    }
+
+    /**
+     * 매칭 워커. 결과는 워커 로컬에 모았다가 종료 후 합친다.
+     */
+    private final class Worker implements Runnable {
+        private final Matcher matcher;
+        private final DeadlineCharSequence text = new DeadlineCharSequence("");
+        private final BlockingQueue<String[]> queue;
+        private final long deadline;
+        private final AtomicBoolean truncated;
+        private final Map<String, Long> uriCounts = new HashMap<>();
+        private final List<String> samples = new ArrayList<>();
+        private long scanned;
+        private long hits;
+        private long errors;
+
+        Worker(Pattern pattern, BlockingQueue<String[]> queue, long deadline, AtomicBoolean truncated) {
+            this.matcher = pattern.matcher("");
+            this.queue = queue;
+            this.deadline = deadline;
+            this.truncated = truncated;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (String[] batch; (batch = queue.take()) != END_OF_STREAM; ) {
+                    if (System.nanoTime() > deadline) {
+                        truncated.set(true);
+                    }
+                    // 제한 시간이 지나면 읽기 쪽이 큐에서 막히지 않게 남은 배치를 비우기만 한다
+                    for (int i = 0; i < batch.length && !truncated.get(); i++) {
+                        match(batch[i]);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void match(String line) {
+            scanned++;
+            try {
+                String uri = line.charAt(0) == '{' ? extractUri(line) : line;
+                if (uri == null) {
+                    return;
+                }
+                text.arm(uri, Math.min(deadline, System.nanoTime() + inputBudgetNanos));
+                if (!matcher.reset(text).find()) {
+                    return;
+                }
+                hits++;
+                if (uriCounts.size() < MAX_DISTINCT_URIS_PER_WORKER || uriCounts.containsKey(uri)) {
+                    uriCounts.merge(uri, 1L, Long::sum);
+                }
+                if (samples.size() < MAX_SAMPLES) {
+                    samples.add(uri);
+                }
+            } catch (DeadlineCharSequence.BudgetExceeded e) {
+                if (System.nanoTime() > deadline) {
+                    scanned--;
+                    truncated.set(true);
+                } else {
+                    // 이 입력 하나만 input-budget 을 넘었다
+                    errors++;
+                }
+            } catch (Exception | StackOverflowError e) {
+                errors++;
+            }
+        }
+
+        private String extractUri(String json) throws IOException {
+            JsonNode uri = objectMapper.readTree(json).findValue("uri");
+            return uri != null ? uri.asText() : null;
+        }
+    }
+}
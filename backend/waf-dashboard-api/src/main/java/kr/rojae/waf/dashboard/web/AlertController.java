@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -13,9 +14,6 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/alerts")
@@ -25,7 +23,6 @@ public class AlertController {
 
     private final AlertService alertService;
     private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
-    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter streamAlerts() {
@@ -49,9 +46,6 @@ public class AlertController {
             emitters.remove(emitter);
         });
         
-        // Start sending mock alerts every 30 seconds
-        startMockAlertGenerator();
-        
         return emitter;
     }
 
@@ -65,11 +59,11 @@ public class AlertController {
         return ResponseEntity.ok(recentAlerts);
     }
 
-    private void startMockAlertGenerator() {
-        executor.scheduleAtFixedRate(this::sendMockAlert, 0, 30, TimeUnit.SECONDS);
-    }
-
-    private void sendMockAlert() {
+    /**
+     * 30초마다 mock 알림 전송 (연결마다 작업을 띄우지 않고 공용 스케줄러 하나로 모든 연결에 보낸다)
+     */
+    @Scheduled(fixedRate = 30000)
+    public void sendMockAlert() {
         if (emitters.isEmpty()) {
             return;
         }
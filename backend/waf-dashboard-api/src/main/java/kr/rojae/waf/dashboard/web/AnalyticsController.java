@@ -0,0 +1,119 @@
+package kr.rojae.waf.dashboard.web;
+
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.IpAttackSummaryDto;
+import kr.rojae.waf.dashboard.dto.RuleStatisticsDto;
+import kr.rojae.waf.dashboard.infrastructure.clickhouse.ClickHouseAnalyticsRepository;
+import kr.rojae.waf.dashboard.infrastructure.clickhouse.ClickHouseEventIngestor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final ClickHouseAnalyticsRepository analyticsRepository;
+    private final ObjectProvider<ClickHouseEventIngestor> eventIngestor;
+
+    @GetMapping("/rules")
+    public ResponseEntity<List<RuleStatisticsDto>> getRuleStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        log.info("GET /api/analytics/rules?from={}&to={}&limit={}", from, to, limit);
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(analyticsRepository.findRuleStatistics(start, end, clamp(limit)));
+    }
+
+    @GetMapping("/ips")
+    public ResponseEntity<List<IpAttackSummaryDto>> getTopAttackers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        log.info("GET /api/analytics/ips?from={}&to={}&limit={}", from, to, limit);
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(analyticsRepository.findTopAttackers(start, end, clamp(limit)));
+    }
+
+    @GetMapping("/ips/{ip}")
+    public ResponseEntity<IpAttackSummaryDto> getIpSummary(
+            @PathVariable String ip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        log.info("GET /api/analytics/ips/{}?from={}&to={}", ip, from, to);
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+        return analyticsRepository.findIpSummary(ip, start, end)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 장기 추이 조회. granularity=DAY (기본, 최대 180일) / HOUR (최대 90일)
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<List<AttackTrendDto>> getTrends(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") String granularity
+    ) {
+        log.info("GET /api/analytics/trends?from={}&to={}&granularity={}", from, to, granularity);
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        if ("HOUR".equalsIgnoreCase(granularity)) {
+            LocalDate start = from != null ? from : end.minusDays(1);
+            return ResponseEntity.ok(analyticsRepository.findHourlyTrend(start, end));
+        }
+        LocalDate start = from != null ? from : end.minusDays(90);
+        return ResponseEntity.ok(analyticsRepository.findDailyTrend(start, end));
+    }
+
+    /**
+     * Kafka -> ClickHouse 적재 상태 (처리량 rows/sec, 배치 지연)
+     */
+    @GetMapping("/ingest")
+    public ResponseEntity<Map<String, Object>> getIngestStatus() {
+        log.info("GET /api/analytics/ingest");
+
+        ClickHouseEventIngestor ingestor = eventIngestor.getIfAvailable();
+        if (ingestor == null) {
+            return ResponseEntity.ok(Map.of("running", false, "enabled", false));
+        }
+        return ResponseEntity.ok(ingestor.status());
+    }
+
+    /**
+     * ClickHouse 장애는 "데이터 없음"(빈 목록/404)이 아니라 503 으로 알린다
+     */
+    @ExceptionHandler(DataAccessException.class)
+    public ResponseEntity<Map<String, Object>> handleClickHouseError(DataAccessException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "ClickHouse unavailable", "detail", String.valueOf(e.getMostSpecificCause().getMessage())));
+    }
+
+    private int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -1,13 +1,32 @@
 package kr.rojae.waf.dashboard.web;
 
+import jakarta.servlet.http.HttpServletRequest;
 import kr.rojae.waf.dashboard.domain.rules.ModSecurityRuleManager;
+import kr.rojae.waf.dashboard.domain.rules.RuleBulkImporter;
+import kr.rojae.waf.dashboard.domain.rules.RuleHitCounter;
+import kr.rojae.waf.dashboard.domain.rules.RulePatternRejectedException;
+import kr.rojae.waf.dashboard.domain.rules.RuleSetCompiler;
+import kr.rojae.waf.dashboard.domain.rules.RuleSetDistributor;
+import kr.rojae.waf.dashboard.domain.rules.RuleStore;
 import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleImportResultDto;
+import kr.rojae.waf.dashboard.service.RuleSimulationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/rules")
@@ -16,15 +35,105 @@ import java.util.List;
 public class CustomRuleController {
 
     private final ModSecurityRuleManager ruleManager;
+    private final RuleStore ruleStore;
+    private final RuleSetCompiler ruleSetCompiler;
+    private final RuleSimulationService simulationService;
+    private final RuleBulkImporter bulkImporter;
+    private final RuleHitCounter ruleHitCounter;
+    private final ObjectProvider<RuleSetDistributor> ruleSetDistributor;
 
     @GetMapping
     public ResponseEntity<List<CustomRuleDto>> getRules() {
         log.info("GET /api/rules");
         
-        List<CustomRuleDto> rules = ruleManager.getAllRules();
+        List<CustomRuleDto> rules = ruleHitCounter.withHits(ruleManager.getAllRules());
         return ResponseEntity.ok(rules);
     }
 
+    /**
+     * 룰 히트 카운터 상태 (추적 중인 룰 수, 관측 시작 시각, 저장 시각)
+     */
+    @GetMapping("/hits")
+    public ResponseEntity<Map<String, Object>> getHitCounterStatus() {
+        log.info("GET /api/rules/hits");
+        return ResponseEntity.ok(ruleHitCounter.status());
+    }
+
+    /**
+     * 최근 days 일 동안 한 번도 매칭되지 않은 룰 (평가 비용 큰 순)
+     */
+    @GetMapping("/dead")
+    public ResponseEntity<Map<String, Object>> getDeadRules(@RequestParam(defaultValue = "30") int days) {
+        log.info("GET /api/rules/dead - days: {}", days);
+        return ResponseEntity.ok(ruleHitCounter.deadRules(days));
+    }
+
+    /**
+     * dead rule 일괄 비활성화. 카운터 관측 기간이 days 보다 짧으면 force=true 가 필요하다.
+     */
+    @PostMapping("/dead/disable")
+    public ResponseEntity<Map<String, Object>> disableDeadRules(@RequestParam(defaultValue = "30") int days,
+                                                                @RequestParam(defaultValue = "false") boolean force) {
+        log.info("POST /api/rules/dead/disable - days: {}, force: {}", days, force);
+
+        try {
+            return ResponseEntity.ok(ruleHitCounter.disableDeadRules(days, force));
+        } catch (IllegalStateException e) {
+            log.warn("Refusing to disable dead rules: {}", e.getMessage());
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error disabling dead rules", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 룰 저장소 상태 (seq, 스냅샷, group commit 통계, 복구 시간)
+     */
+    @GetMapping("/store")
+    public ResponseEntity<Map<String, Object>> getStoreStatus() {
+        log.info("GET /api/rules/store");
+        return ResponseEntity.ok(ruleStore.status());
+    }
+
+    /**
+     * WAF 에 배포된 rule-set version/hash 와 컴파일 통계
+     */
+    @GetMapping("/version")
+    public ResponseEntity<Map<String, Object>> getRuleSetVersion() {
+        log.info("GET /api/rules/version");
+        return ResponseEntity.ok(ruleSetCompiler.status());
+    }
+
+    /**
+     * WAF 노드별 rule-set 적용 version 과 수렴 상태 (Kafka 배포를 켠 경우)
+     */
+    @GetMapping("/nodes")
+    public ResponseEntity<Map<String, Object>> getRuleSetNodes() {
+        log.info("GET /api/rules/nodes");
+
+        RuleSetDistributor distributor = ruleSetDistributor.getIfAvailable();
+        if (distributor == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        return ResponseEntity.ok(distributor.status());
+    }
+
+    /**
+     * 전체 룰 내보내기 (평가 순서, ndjson 또는 json 배열). 그대로 /bulk 로 다시 가져올 수 있다.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRules(@RequestParam(defaultValue = "ndjson") String format) {
+        log.info("GET /api/rules/export - format: {}", format);
+
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=custom-rules." + (ndjson ? "ndjson" : "json"))
+                .body(out -> bulkImporter.exportRules(out, ndjson));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CustomRuleDto> getRule(@PathVariable String id) {
         log.info("GET /api/rules/{}", id);
@@ -37,6 +146,50 @@ public class CustomRuleController {
         return ResponseEntity.ok(rule);
     }
 
+    /**
+     * 룰 dry-run. 과거 요청(Elasticsearch 시간 범위 또는 캡처 파일)에 패턴을 적용해 히트 수/상위 URI/샘플 반환.
+     * pattern 을 주면 저장된 룰 대신 후보 패턴으로 돌린다. 패턴이 프로파일러에 거부되면 422, 다른 시뮬레이션이 돌고 있으면 429.
+     */
+    @GetMapping("/{id}/simulate")
+    public ResponseEntity<?> simulateRule(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "elasticsearch") String source,
+            @RequestParam(required = false) String file,
+            @RequestParam(required = false) String pattern,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        log.info("GET /api/rules/{}/simulate - source: {}, from: {}, to: {}", id, source, from, to);
+
+        String candidate = pattern;
+        if (candidate == null || candidate.isBlank()) {
+            CustomRuleDto rule = ruleManager.getRule(id);
+            if (rule == null) {
+                return ResponseEntity.notFound().build();
+            }
+            candidate = rule.pattern();
+        }
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        try {
+            return ResponseEntity.ok(simulationService.simulate(id, candidate, source, start, end, file));
+        } catch (RulePatternRejectedException e) {
+            // 저장과 같은 ReDoS 검사에 걸린 패턴은 돌리지 않고 측정 결과(cost)를 돌려준다
+            log.warn("Rejected simulation pattern for rule {}: {}", id, e.getMessage());
+            return ResponseEntity.unprocessableEntity().body(e.getRule());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid simulation request for rule {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected simulation of rule {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (Exception e) {
+            log.error("Error simulating rule {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PostMapping
     public ResponseEntity<CustomRuleDto> createRule(@RequestBody CustomRuleDto ruleDto) {
         log.info("POST /api/rules: {}", ruleDto);
@@ -44,12 +197,39 @@ public class CustomRuleController {
         try {
             CustomRuleDto createdRule = ruleManager.createRule(ruleDto);
             return ResponseEntity.ok(createdRule);
+        } catch (RulePatternRejectedException e) {
+            // 측정 결과(cost)를 담은 룰을 그대로 돌려줘 사유를 보여줄 수 있게 한다
+            return ResponseEntity.unprocessableEntity().body(e.getRule());
         } catch (Exception e) {
             log.error("Error creating rule", e);
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * 룰 일괄 가져오기 (JSON 배열 또는 NDJSON 스트림). 병렬 검증 후 rule-set version 1개로 한 번에 배포한다.
+     * atomic=true(기본) 이면 오류가 하나라도 있을 때 아무것도 반영하지 않고 422 와 오류 목록을 돌려준다.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<RuleImportResultDto> importRules(HttpServletRequest request,
+                                                           @RequestParam(defaultValue = "true") boolean atomic) {
+        log.info("POST /api/rules/bulk - atomic: {}", atomic);
+
+        try {
+            RuleImportResultDto result = bulkImporter.importRules(request.getInputStream(), atomic);
+            if (result.failed() > 0 && !result.applied()) {
+                return ResponseEntity.unprocessableEntity().body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bulk import request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error importing rules", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<CustomRuleDto> updateRule(@PathVariable String id, @RequestBody CustomRuleDto ruleDto) {
         log.info("PUT /api/rules/{}: {}", id, ruleDto);
@@ -57,6 +237,9 @@ public class CustomRuleController {
         try {
             CustomRuleDto updatedRule = ruleManager.updateRule(id, ruleDto);
             return ResponseEntity.ok(updatedRule);
+        } catch (RulePatternRejectedException e) {
+            // 측정 결과(cost)를 담은 룰을 그대로 돌려줘 사유를 보여줄 수 있게 한다
+            return ResponseEntity.unprocessableEntity().body(e.getRule());
         } catch (Exception e) {
             log.error("Error updating rule {}", id, e);
             return ResponseEntity.badRequest().build();
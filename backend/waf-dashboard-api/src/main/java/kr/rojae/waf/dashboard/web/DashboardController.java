@@ -1,16 +1,33 @@
 package kr.rojae.waf.dashboard.web;
 
+import kr.rojae.waf.dashboard.domain.query.LogSearchFilter;
+import kr.rojae.waf.dashboard.domain.query.QueryKind;
+import kr.rojae.waf.dashboard.domain.query.QueryRouter;
+import kr.rojae.waf.dashboard.domain.query.QuerySpec;
+import kr.rojae.waf.dashboard.domain.reputation.IpReputationStore;
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.EntitySummaryDto;
 import kr.rojae.waf.dashboard.dto.WafLogDto;
 import kr.rojae.waf.dashboard.dto.MetricsDto;
-import kr.rojae.waf.dashboard.infrastructure.elasticsearch.ElasticsearchWafLogRepository;
+import kr.rojae.waf.dashboard.infrastructure.elasticsearch.ElasticsearchBulkIndexer;
 import kr.rojae.waf.dashboard.infrastructure.influxdb.InfluxDBMetricsRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/dashboard")
 @RequiredArgsConstructor
@@ -18,7 +35,9 @@ import org.springframework.web.bind.annotation.*;
 public class DashboardController {
 
     private final InfluxDBMetricsRepository metricsRepository;
-    private final ElasticsearchWafLogRepository logRepository;
+    private final QueryRouter queryRouter;
+    private final IpReputationStore reputationStore;
+    private final ObjectProvider<ElasticsearchBulkIndexer> bulkIndexer;
 
     @GetMapping("/metrics")
     public ResponseEntity<MetricsDto> getMetrics() {
@@ -59,20 +78,108 @@ public class DashboardController {
         }
     }
 
+    /**
+     * 로그 검색. from 을 지정하지 않으면 전체 기간 조회 (Elasticsearch 만 처리 가능)
+     */
     @GetMapping("/logs")
     public ResponseEntity<Page<WafLogDto>> getLogs(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String severity,
             @RequestParam(required = false) String attackType,
-            @RequestParam(required = false) String clientIp
+            @RequestParam(required = false) String clientIp,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
     ) {
-        log.info("GET /api/dashboard/logs?page={}&size={}&severity={}&attackType={}&clientIp={}", 
-                page, size, severity, attackType, clientIp);
-        
+        log.info("GET /api/dashboard/logs?page={}&size={}&severity={}&attackType={}&clientIp={}&from={}&to={}",
+                page, size, severity, attackType, clientIp, from, to);
+
         var pageRequest = PageRequest.of(page, size);
-        Page<WafLogDto> logs = logRepository.findWafLogs(pageRequest, severity, attackType, clientIp);
-        
-        return ResponseEntity.ok(logs);
+        var filter = new LogSearchFilter(severity, attackType, clientIp);
+        Set<String> fields = new HashSet<>(filter.requiredFields());
+        fields.add("timestamp");
+        var spec = QuerySpec.of(QueryKind.LOG_SEARCH,
+                from != null ? from : Instant.EPOCH, to != null ? to : Instant.now(), fields);
+
+        try {
+            // 위협 인텔 피드에 있는 출발지 표시 (mmap 테이블 조회라 페이지당 비용은 무시할 만하다)
+            return ResponseEntity.ok(queryRouter.searchLogs(spec, filter, pageRequest).map(reputationStore::flag));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            // 빈 페이지로 돌려주면 "로그 없음" 과 구분되지 않는다
+            log.error("Error fetching WAF logs", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * 공격 추이 (기본 최근 24시간, 버킷 크기는 범위에 따라 자동 결정)
+     */
+    @GetMapping("/timeseries")
+    public ResponseEntity<List<AttackTrendDto>> getTimeSeries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        log.info("GET /api/dashboard/timeseries?from={}&to={}", from, to);
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        var spec = QuerySpec.of(QueryKind.TIME_SERIES, start, end, Set.of("timestamp", "count", "blocked"));
+
+        try {
+            return ResponseEntity.ok(queryRouter.timeSeries(spec));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            log.error("Error fetching time series", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * 엔티티별 상위 N (entity = client_ip, attack_type, country, severity, rule_id, method, uri)
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<EntitySummaryDto>> getTopEntities(
+            @RequestParam(defaultValue = "client_ip") String entity,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        log.info("GET /api/dashboard/top?entity={}&limit={}&from={}&to={}", entity, limit, from, to);
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        var spec = QuerySpec.of(QueryKind.ENTITY_SUMMARY, start, end, Set.of(entity));
+
+        try {
+            return ResponseEntity.ok(queryRouter.topEntities(spec, entity, Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            log.error("Error fetching top entities", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/backends")
+    public ResponseEntity<Map<String, Object>> getBackends() {
+        log.info("GET /api/dashboard/backends");
+        return ResponseEntity.ok(queryRouter.status());
+    }
+
+    /**
+     * Kafka -> Elasticsearch bulk 색인 상태 (docs/sec, p99 지연, 현재 배치 크기)
+     */
+    @GetMapping("/indexing")
+    public ResponseEntity<Map<String, Object>> getIndexingStatus() {
+        log.info("GET /api/dashboard/indexing");
+
+        ElasticsearchBulkIndexer indexer = bulkIndexer.getIfAvailable();
+        if (indexer == null) {
+            return ResponseEntity.ok(Map.of("running", false, "enabled", false));
+        }
+        return ResponseEntity.ok(indexer.status());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package kr.rojae.waf.dashboard.web;
+
+import kr.rojae.waf.dashboard.infrastructure.elasticsearch.WafLogIndexManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/indices")
+@RequiredArgsConstructor
+@Slf4j
+public class IndexAdminController {
+
+    private final WafLogIndexManager indexManager;
+
+    /**
+     * waf-logs-* 인덱스별 phase, 크기, segment 수, read-only 여부 + 마지막 라이프사이클 실행 결과
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getIndices() {
+        log.info("GET /api/admin/indices");
+        return ResponseEntity.ok(indexManager.status());
+    }
+
+    /**
+     * 라이프사이클(롤오버, force-merge, read-only, 삭제) 즉시 실행
+     */
+    @PostMapping("/lifecycle")
+    public ResponseEntity<Map<String, Object>> runLifecycle() {
+        log.info("POST /api/admin/indices/lifecycle");
+
+        List<String> actions = indexManager.runLifecycle();
+        return ResponseEntity.ok(Map.of("actions", actions));
+    }
+}
@@ -0,0 +1,35 @@
+package kr.rojae.waf.dashboard.web;
+
+import kr.rojae.waf.common.ratelimit.RateLimitRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rate-limit")
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitController {
+
+    private final ObjectProvider<RateLimitRegistry> rateLimitRegistry;
+
+    /**
+     * route 별 한도, 추적 중인 클라이언트 수, 허용/거절/축출 수
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        log.info("GET /api/rate-limit/status");
+
+        RateLimitRegistry registry = rateLimitRegistry.getIfAvailable();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", registry != null);
+        status.put("routes", registry != null ? registry.status() : List.of());
+        return ResponseEntity.ok(status);
+    }
+}
@@ -0,0 +1,48 @@
+package kr.rojae.waf.dashboard.web;
+
+import kr.rojae.waf.dashboard.domain.reputation.IpReputationStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reputation")
+@RequiredArgsConstructor
+@Slf4j
+public class ReputationController {
+
+    private final IpReputationStore reputationStore;
+
+    /**
+     * 로드된 피드/범위 수, 테이블 크기, 조회 통계
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        log.info("GET /api/reputation/status");
+        return ResponseEntity.ok(reputationStore.status());
+    }
+
+    @GetMapping("/check")
+    public ResponseEntity<Map<String, Object>> check(@RequestParam String ip) {
+        log.info("GET /api/reputation/check - ip: {}", ip);
+        return ResponseEntity.ok(Map.of("ip", ip, "knownThreat", reputationStore.isKnownThreat(ip)));
+    }
+
+    /**
+     * 피드 변경을 기다리지 않고 바로 다시 빌드
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        log.info("POST /api/reputation/reload");
+
+        try {
+            return ResponseEntity.ok(reputationStore.reload());
+        } catch (Exception e) {
+            log.error("Error reloading IP reputation feeds", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package kr.rojae.waf.dashboard.web;
 
+import kr.rojae.waf.dashboard.domain.whitelist.WhitelistManager;
 import kr.rojae.waf.dashboard.dto.WhitelistDto;
+import kr.rojae.waf.dashboard.dto.WhitelistMatchDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/whitelist")
@@ -16,109 +18,99 @@ import java.util.UUID;
 @Slf4j
 public class WhitelistController {
 
+    private final WhitelistManager whitelistManager;
+
     @GetMapping
     public ResponseEntity<List<WhitelistDto>> getWhitelist() {
         log.info("GET /api/whitelist");
-        
-        // Mock data for now
-        var whitelist = List.of(
-                WhitelistDto.builder()
-                        .id("1")
-                        .ip("192.168.1.0/24")
-                        .description("Internal network")
-                        .enabled(true)
-                        .createdAt(LocalDateTime.now().minusDays(10))
-                        .updatedAt(LocalDateTime.now().minusDays(5))
-                        .build(),
-                WhitelistDto.builder()
-                        .id("2")
-                        .ip("10.0.0.100")
-                        .description("Admin workstation")
-                        .enabled(true)
-                        .createdAt(LocalDateTime.now().minusDays(7))
-                        .updatedAt(LocalDateTime.now().minusDays(2))
-                        .build(),
-                WhitelistDto.builder()
-                        .id("3")
-                        .ip("203.0.113.50")
-                        .description("External monitoring service")
-                        .enabled(false)
-                        .createdAt(LocalDateTime.now().minusDays(3))
-                        .updatedAt(LocalDateTime.now().minusDays(1))
-                        .build()
-        );
-        
-        return ResponseEntity.ok(whitelist);
+        return ResponseEntity.ok(whitelistManager.getAll());
+    }
+
+    /**
+     * 활성 항목 중 ip 를 포함하는 가장 긴 프리픽스 항목 (matched=false 면 화이트리스트 밖)
+     */
+    @GetMapping("/match")
+    public ResponseEntity<WhitelistMatchDto> match(@RequestParam String ip) {
+        log.info("GET /api/whitelist/match - ip: {}", ip);
+
+        try {
+            return ResponseEntity.ok(whitelistManager.match(ip));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * WAF 에 배포되는 합쳐진 CIDR 목록 (@ipMatchFromFile 데이터 파일 내용)
+     */
+    @GetMapping(value = "/compiled", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> getCompiledWhitelist() {
+        log.info("GET /api/whitelist/compiled");
+
+        StringBuilder body = new StringBuilder();
+        whitelistManager.compiledCidrs().forEach(cidr -> body.append(cidr).append('\n'));
+        return ResponseEntity.ok(body.toString());
+    }
+
+    /**
+     * 항목 수, 합친 CIDR 수, 조회 통계
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        log.info("GET /api/whitelist/status");
+        return ResponseEntity.ok(whitelistManager.status());
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<WhitelistDto> getWhitelistEntry(@PathVariable String id) {
         log.info("GET /api/whitelist/{}", id);
-        
-        var entry = WhitelistDto.builder()
-                .id(id)
-                .ip("192.168.1.0/24")
-                .description("Internal network")
-                .enabled(true)
-                .createdAt(LocalDateTime.now().minusDays(10))
-                .updatedAt(LocalDateTime.now().minusDays(5))
-                .build();
-        
-        return ResponseEntity.ok(entry);
+
+        return whitelistManager.get(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
     public ResponseEntity<WhitelistDto> createWhitelistEntry(@RequestBody WhitelistDto whitelistDto) {
         log.info("POST /api/whitelist: {}", whitelistDto);
-        
-        var createdEntry = WhitelistDto.builder()
-                .id(UUID.randomUUID().toString())
-                .ip(whitelistDto.ip())
-                .description(whitelistDto.description())
-                .enabled(whitelistDto.enabled())
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-        
-        return ResponseEntity.ok(createdEntry);
+
+        try {
+            return ResponseEntity.ok(whitelistManager.create(whitelistDto));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid whitelist entry: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<WhitelistDto> updateWhitelistEntry(@PathVariable String id, @RequestBody WhitelistDto whitelistDto) {
         log.info("PUT /api/whitelist/{}: {}", id, whitelistDto);
-        
-        var updatedEntry = WhitelistDto.builder()
-                .id(id)
-                .ip(whitelistDto.ip())
-                .description(whitelistDto.description())
-                .enabled(whitelistDto.enabled())
-                .createdAt(whitelistDto.createdAt())
-                .updatedAt(LocalDateTime.now())
-                .build();
-        
-        return ResponseEntity.ok(updatedEntry);
+
+        try {
+            return whitelistManager.update(id, whitelistDto)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid whitelist entry: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteWhitelistEntry(@PathVariable String id) {
         log.info("DELETE /api/whitelist/{}", id);
-        
-        return ResponseEntity.noContent().build();
+
+        return whitelistManager.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
     }
 
     @PutMapping("/{id}/toggle")
     public ResponseEntity<WhitelistDto> toggleWhitelistEntry(@PathVariable String id) {
         log.info("PUT /api/whitelist/{}/toggle", id);
-        
-        var toggledEntry = WhitelistDto.builder()
-                .id(id)
-                .ip("192.168.1.0/24")
-                .description("Internal network")
-                .enabled(false) // Toggled
-                .createdAt(LocalDateTime.now().minusDays(10))
-                .updatedAt(LocalDateTime.now())
-                .build();
-        
-        return ResponseEntity.ok(toggledEntry);
+
+        return whitelistManager.toggle(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleCostDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 컴파일 결과 파일(Include 목록 순서 = ModSecurity 평가 순서)을 확인한다
+ */
+class RuleSetCompilerTest {
+
+    @TempDir
+    Path dir;
+
+    private RuleSetCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        compiler = new RuleSetCompiler(new ObjectMapper().findAndRegisterModules(),
+                beans.getBeanProvider(RuleSetDistributor.class), beans.getBeanProvider(RuleShardContributor.class),
+                dir.resolve("custom-rules.conf").toString(), Duration.ofMillis(10), true, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        compiler.shutdown();
+    }
+
+    @Test
+    void includesShardsInPriorityThenCostOrder() throws Exception {
+        List<CustomRuleDto> rules = List.of(
+                rule("admin", "/admin", 100, 6_000L),
+                rule("wp-login", "/wp-login", 100, 5_000L),
+                rule("repeat", "(\\w+)=\\1", 100, 100L),
+                rule("early", "^/early", -10, null),
+                rule("earlier", "^/earlier", -20, null));
+
+        RuleSetCompiler.RuleSetVersion version = compiler.requestCompile(() -> rules).get(10, TimeUnit.SECONDS);
+
+        assertThat(version.version()).isEqualTo(1L);
+        assertThat(version.ruleCount()).isEqualTo(5);
+        List<String> includes = Files.readAllLines(dir.resolve("custom-rules.conf"), StandardCharsets.UTF_8).stream()
+                .filter(line -> line.startsWith("Include "))
+                .map(line -> line.substring("Include ".length()))
+                .toList();
+        assertThat(includes).containsExactly(
+                "rules.d/p2147483628-1-c63-block-single.conf",
+                "rules.d/p2147483638-1-c63-block-single.conf",
+                "rules.d/p2147483748-1-c07-block-single.conf",
+                "rules.d/p2147483748-1-c13-block-literal.conf");
+        assertThat(read(includes.get(0))).contains("Rule: earlier").doesNotContain("Rule: early\n");
+        assertThat(read(includes.get(2))).contains("Rule: repeat");
+        String literal = read(includes.get(3));
+        assertThat(literal).contains("@pm /wp-login /admin");
+        assertThat(literal.indexOf("Rule: wp-login")).isLessThan(literal.indexOf("Rule: admin"));
+    }
+
+    private String read(String name) throws Exception {
+        return Files.readString(dir.resolve(name), StandardCharsets.UTF_8);
+    }
+
+    private static CustomRuleDto rule(String name, String pattern, int priority, Long meanNanos) {
+        return CustomRuleDto.builder()
+                .id(name)
+                .name(name)
+                .pattern(pattern)
+                .action("BLOCK")
+                .enabled(true)
+                .priority(priority)
+                .modsecId(RuleSetPlanner.allocateModsecId(name, id -> false))
+                .cost(meanNanos != null ? RuleCostDto.builder().meanNanosPerMatch(meanNanos).build() : null)
+                .build();
+    }
+}
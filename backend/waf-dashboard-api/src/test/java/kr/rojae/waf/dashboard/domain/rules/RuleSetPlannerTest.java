@@ -0,0 +1,73 @@
+package kr.rojae.waf.dashboard.domain.rules;
+
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import kr.rojae.waf.dashboard.dto.RuleCostDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleSetPlannerTest {
+
+    @Test
+    void shardKeysKeepPriorityOrderIncludingNegativePriorities() {
+        List<CustomRuleDto> rules = Stream.of(
+                        rule("max", "^/max", "BLOCK", Integer.MAX_VALUE, null),
+                        rule("default", "^/default", "BLOCK", 100, null),
+                        rule("zero", "^/zero", "BLOCK", 0, null),
+                        rule("minus-one", "^/minus-one", "BLOCK", -1, null),
+                        rule("minus-five", "^/minus-five", "BLOCK", -5, null),
+                        rule("min", "^/min", "BLOCK", Integer.MIN_VALUE, null))
+                .sorted(RuleSetPlanner.EVALUATION_ORDER)
+                .toList();
+
+        List<String> keys = RuleSetPlanner.plan(rules, true).stream().map(RuleSetPlanner.RuleGroup::shardKey).toList();
+
+        // 음수 priority 도 서로 다른 shard 이고, 이름순이 평가 순서와 같다
+        assertThat(keys).doesNotHaveDuplicates().isSorted();
+        assertThat(keys.get(0)).startsWith("p0000000000-");
+        assertThat(keys.get(1)).startsWith("p2147483643-");
+        assertThat(keys.get(3)).startsWith("p2147483648-");
+        assertThat(keys.get(5)).startsWith("p4294967295-");
+    }
+
+    @Test
+    void cheaperSingleRuleShardSortsBeforeExpensiveMergedGroup() {
+        List<CustomRuleDto> rules = Stream.of(
+                        rule("admin", "/admin", "BLOCK", 100, 6_000L),
+                        rule("wp-login", "/wp-login", "BLOCK", 100, 5_000L),
+                        // 역참조가 있어 묶지 못하는 정규식
+                        rule("repeat", "(\\w+)=\\1", "BLOCK", 100, 100L),
+                        rule("unmeasured", "(\\d+)-\\1", "BLOCK", 100, null))
+                .sorted(RuleSetPlanner.EVALUATION_ORDER)
+                .toList();
+
+        List<RuleSetPlanner.RuleGroup> groups = RuleSetPlanner.plan(rules, true);
+
+        assertThat(groups).extracting(RuleSetPlanner.RuleGroup::kind).containsExactly(
+                RuleSetPlanner.GroupKind.SINGLE, RuleSetPlanner.GroupKind.LITERAL, RuleSetPlanner.GroupKind.SINGLE);
+        assertThat(groups.get(1).rules()).extracting(planned -> planned.rule().name())
+                .containsExactly("wp-login", "admin");
+        List<String> keys = groups.stream().map(RuleSetPlanner.RuleGroup::shardKey).toList();
+        // 같은 priority/action 이면 묶음 종류보다 비용 단계가 먼저다. 측정하지 않은 룰은 맨 뒤
+        assertThat(keys).isSorted().containsExactly(
+                "p2147483748-1-c07-block-single",
+                "p2147483748-1-c13-block-literal",
+                "p2147483748-1-c63-block-single");
+    }
+
+    private static CustomRuleDto rule(String name, String pattern, String action, int priority, Long meanNanos) {
+        return CustomRuleDto.builder()
+                .id(name)
+                .name(name)
+                .pattern(pattern)
+                .action(action)
+                .enabled(true)
+                .priority(priority)
+                .modsecId(RuleSetPlanner.allocateModsecId(name, id -> false))
+                .cost(meanNanos != null ? RuleCostDto.builder().meanNanosPerMatch(meanNanos).build() : null)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package kr.rojae.waf.dashboard.infrastructure.clickhouse;
+
+import com.zaxxer.hikari.HikariDataSource;
+import kr.rojae.waf.dashboard.config.ClickHouseConfig;
+import kr.rojae.waf.dashboard.dto.AttackTrendDto;
+import kr.rojae.waf.dashboard.dto.IpAttackSummaryDto;
+import kr.rojae.waf.dashboard.dto.RuleStatisticsDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 로컬 ClickHouse(docker compose 의 clickhouse, clickhouse/init.sql 스키마)에 대해 실행한다.
+ * CLICKHOUSE_URL/USER/PASSWORD 로 바꿀 수 있고, 서버가 없으면 연결이 필요한 테스트는 건너뛴다.
+ */
+class ClickHouseAnalyticsRepositoryTest {
+
+    private static final String RULE_ID = "it-" + UUID.randomUUID();
+    private static final String CLIENT_IP = "198.51.100." + ThreadLocalRandom.current().nextInt(1, 255);
+
+    private static HikariDataSource dataSource;
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+    private static ClickHouseAnalyticsRepository repository;
+    private static boolean available;
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = dataSource(env("CLICKHOUSE_URL", "jdbc:clickhouse://localhost:8123/waf_analytics"));
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        repository = new ClickHouseAnalyticsRepository(jdbcTemplate);
+        available = repository.ping();
+        if (!available) {
+            return;
+        }
+        // materialized view 가 rule_statistics / ip_attack_summary 를 채운다
+        String insert = """
+                INSERT INTO waf_analytics.events
+                    (timestamp, tx_id, client_ip, uri, method, status_code, rule_id, anomaly_score, severity, category, country_code)
+                VALUES (now64(3), :tx, toIPv4(:ip), :uri, 'GET', :status, :rule, :score, 'CRITICAL', 'attack-sqli', 'KR')
+                """;
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update(insert, new MapSqlParameterSource()
+                    .addValue("tx", RULE_ID + "-" + i)
+                    .addValue("ip", CLIENT_IP)
+                    .addValue("uri", "/it/" + i)
+                    .addValue("status", i < 2 ? 403 : 200)
+                    .addValue("rule", RULE_ID)
+                    .addValue("score", 5 * (i + 1)));
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (available) {
+            MapSqlParameterSource params = new MapSqlParameterSource("rule", RULE_ID).addValue("ip", CLIENT_IP);
+            jdbcTemplate.update("ALTER TABLE waf_analytics.events DELETE WHERE rule_id = :rule", params);
+            jdbcTemplate.update("ALTER TABLE waf_analytics.rule_statistics DELETE WHERE rule_id = :rule", params);
+            jdbcTemplate.update("ALTER TABLE waf_analytics.ip_attack_summary DELETE WHERE client_ip = toIPv4(:ip)", params);
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void ruleStatisticsAreReaggregatedPerRule() {
+        assumeTrue(available, "ClickHouse not reachable");
+
+        List<RuleStatisticsDto> stats = repository.findRuleStatistics(today(), today(), 1000);
+
+        assertThat(stats).filteredOn(stat -> RULE_ID.equals(stat.ruleId()))
+                .singleElement()
+                .satisfies(stat -> {
+                    assertThat(stat.triggerCount()).isEqualTo(3);
+                    assertThat(stat.blockedCount()).isEqualTo(2);
+                    assertThat(stat.allowedCount()).isEqualTo(1);
+                    assertThat(stat.activeDays()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void ipSummaryIsAggregatedFromEvents() {
+        assumeTrue(available, "ClickHouse not reachable");
+
+        Optional<IpAttackSummaryDto> summary = repository.findIpSummary(CLIENT_IP, today(), today());
+
+        assertThat(summary).hasValueSatisfying(s -> {
+            assertThat(s.clientIp()).isEqualTo(CLIENT_IP);
+            assertThat(s.attackCount()).isGreaterThanOrEqualTo(3);
+            assertThat(s.maxAnomalyScore()).isGreaterThanOrEqualTo(15);
+            assertThat(s.uniqueRules()).isGreaterThanOrEqualTo(1);
+            assertThat(s.firstSeen()).isBeforeOrEqualTo(s.lastSeen());
+        });
+    }
+
+    @Test
+    void topAttackersAndTrendsIncludeInsertedEvents() {
+        assumeTrue(available, "ClickHouse not reachable");
+
+        List<IpAttackSummaryDto> attackers = repository.findTopAttackers(today(), today(), 1000);
+        List<AttackTrendDto> hourly = repository.findHourlyTrend(today(), today());
+        List<AttackTrendDto> daily = repository.findDailyTrend(today(), today());
+
+        assertThat(attackers).extracting(IpAttackSummaryDto::clientIp).contains(CLIENT_IP);
+        assertThat(hourly).isNotEmpty().allSatisfy(point -> assertThat(point.attackCount()).isPositive());
+        assertThat(daily).singleElement().satisfies(point -> {
+            assertThat(point.bucket()).isEqualTo(today().atStartOfDay());
+            assertThat(point.attackCount()).isGreaterThanOrEqualTo(3);
+        });
+    }
+
+    @Test
+    void unknownIpIsEmptyNotAnError() {
+        assumeTrue(available, "ClickHouse not reachable");
+
+        assertThat(repository.findIpSummary("203.0.113.254", LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 2)))
+                .isEmpty();
+    }
+
+    @Test
+    void queryFailureIsThrownInsteadOfEmptyResult() {
+        // 아무것도 듣지 않는 포트: 연결 실패가 빈 목록/empty 로 바뀌면 안 된다
+        try (HikariDataSource unreachable = dataSource("jdbc:clickhouse://127.0.0.1:1/waf_analytics")) {
+            var broken = new ClickHouseAnalyticsRepository(new NamedParameterJdbcTemplate(unreachable));
+
+            assertThat(broken.ping()).isFalse();
+            assertThatThrownBy(() -> broken.findRuleStatistics(today(), today(), 10))
+                    .isInstanceOf(DataAccessException.class);
+            assertThatThrownBy(() -> broken.findIpSummary("198.51.100.1", today(), today()))
+                    .isInstanceOf(DataAccessException.class);
+        }
+    }
+
+    private static HikariDataSource dataSource(String url) {
+        ClickHouseConfig config = new ClickHouseConfig();
+        ReflectionTestUtils.setField(config, "clickhouseUrl", url);
+        ReflectionTestUtils.setField(config, "clickhouseUsername", env("CLICKHOUSE_USER", "admin"));
+        ReflectionTestUtils.setField(config, "clickhousePassword", env("CLICKHOUSE_PASSWORD", "adminpassword"));
+        ReflectionTestUtils.setField(config, "poolSize", 2);
+        ReflectionTestUtils.setField(config, "fetchSize", 1000);
+        return config.clickHouseDataSource();
+    }
+
+    private static LocalDate today() {
+        // events.date 는 서버 시간대 기준이라 서버에서 읽는다
+        return available
+                ? jdbcTemplate.getJdbcTemplate().queryForObject("SELECT today()", LocalDate.class)
+                : LocalDateTime.now().toLocalDate();
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+}
@@ -0,0 +1,231 @@
+package kr.rojae.waf.dashboard.infrastructure.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.dto.RuleSetAckDto;
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+import kr.rojae.waf.dashboard.dto.RuleShardDto;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 내장 브로커로 rule-set 게시(waf-rule-sets)와 ack 수집(waf-rule-acks) -> 수렴 상태까지 확인한다.
+ * 테스트마다 토픽 이름을 새로 만들어 서로의 레코드를 보지 않게 한다.
+ */
+@EmbeddedKafka(partitions = 1)
+class KafkaRuleSetDistributorTest {
+
+    private static final String BLOCK = "rules.d/p00100-block.conf";
+    private static final String LOG = "rules.d/p00200-log.conf";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private EmbeddedKafkaBroker broker;
+    private String topic;
+    private String ackTopic;
+    private DefaultKafkaProducerFactory<String, String> producerFactory;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private Consumer<String, String> ruleSetConsumer;
+    private Consumer<String, String> ackConsumer;
+    private KafkaRuleSetDistributor distributor;
+
+    @BeforeEach
+    void setUp() {
+        broker = EmbeddedKafkaCondition.getBroker();
+        topic = "waf-rule-sets-" + UUID.randomUUID();
+        ackTopic = "waf-rule-acks-" + UUID.randomUUID();
+        broker.addTopics(new NewTopic(topic, 1, (short) 1), new NewTopic(ackTopic, 1, (short) 1));
+
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+
+        ruleSetConsumer = consumer(topic);
+        ackConsumer = consumer(ackTopic);
+        distributor = new KafkaRuleSetDistributor(kafkaTemplate, objectMapper, topic, ackTopic,
+                Duration.ofSeconds(10), Duration.ofSeconds(90));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ruleSetConsumer.close();
+        ackConsumer.close();
+        producerFactory.destroy();
+    }
+
+    @Test
+    void publishesShardsBeforeManifestAndSkipsUnchangedContent() throws Exception {
+        String block = "SecRule ARGS \"@rx attack\" \"id:900001,phase:2,deny\"\n";
+        // GZIP_THRESHOLD(64KB) 를 넘는 shard 는 압축해서 보낸다
+        String log = "SecRule ARGS \"@rx probe\" \"id:900002,phase:2,pass,log\"\n".repeat(2000);
+        RuleSetManifestDto v1 = manifest(1, Map.of(BLOCK, block, LOG, log));
+        distributor.publish(v1, Map.of(BLOCK, block, LOG, log));
+
+        List<ConsumerRecord<String, String>> records = poll(ruleSetConsumer, 3);
+        assertThat(records).extracting(ConsumerRecord::key).containsExactly(BLOCK, LOG, "manifest");
+        assertThat(records).extracting(ConsumerRecord::partition).containsOnly(0);
+        RuleShardDto sentLog = objectMapper.readValue(records.get(1).value(), RuleShardDto.class);
+        assertThat(sentLog.encoding()).isEqualTo("gzip");
+        assertThat(gunzip(sentLog.content())).isEqualTo(log);
+        assertThat(objectMapper.readValue(records.get(2).value(), RuleSetManifestDto.class).hash()).isEqualTo(v1.hash());
+
+        // 같은 hash 는 다시 보내지 않는다
+        distributor.publish(v1, Map.of(BLOCK, block, LOG, log));
+
+        // 바뀐 shard + 빠진 shard 의 tombstone + manifest 만 보낸다
+        String updated = "SecRule ARGS \"@rx attack|exploit\" \"id:900001,phase:2,deny\"\n";
+        RuleSetManifestDto v2 = manifest(2, Map.of(BLOCK, updated));
+        distributor.publish(v2, Map.of(BLOCK, updated));
+
+        records = poll(ruleSetConsumer, 3);
+        assertThat(records).extracting(ConsumerRecord::key).containsExactly(BLOCK, LOG, "manifest");
+        assertThat(objectMapper.readValue(records.get(0).value(), RuleShardDto.class).content()).isEqualTo(updated);
+        assertThat(records.get(1).value()).isNull();
+        assertThat(objectMapper.readValue(records.get(2).value(), RuleSetManifestDto.class).version()).isEqualTo(2);
+
+        Map<String, Object> status = distributor.status();
+        assertThat(status.get("manifestsSent")).isEqualTo(2L);
+        assertThat(status.get("shardsSent")).isEqualTo(3L);
+        assertThat(status.get("failures")).isEqualTo(0L);
+    }
+
+    @Test
+    void convergesWhenEveryLiveNodeAcksAppliedForTheTarget() throws Exception {
+        String block = "SecRule ARGS \"@rx attack\" \"id:900001,phase:2,deny\"\n";
+        RuleSetManifestDto v1 = manifest(1, Map.of(BLOCK, block));
+        distributor.publish(v1, Map.of(BLOCK, block));
+
+        Instant receivedAt = Instant.now();
+        sendAck(ack("node-a", v1, "APPLIED", receivedAt, Instant.now()));
+        sendAck(ack("node-b", v1, "WRITTEN", receivedAt, null));
+        poll(ackConsumer, 2).forEach(distributor::onAck);
+
+        Map<String, Object> status = distributor.status();
+        assertThat(status.get("targetVersion")).isEqualTo(1L);
+        assertThat(status.get("liveNodes")).isEqualTo(2);
+        assertThat(status.get("convergedNodes")).isEqualTo(1);
+        assertThat(status.get("converged")).isEqualTo(false);
+        assertThat(status.get("rolloutMillis")).isNull();
+
+        // nginx 리로드가 끝난 node-b 의 APPLIED
+        sendAck(ack("node-b", v1, "APPLIED", receivedAt, Instant.now()));
+        poll(ackConsumer, 1).forEach(distributor::onAck);
+
+        status = distributor.status();
+        assertThat(status.get("convergedNodes")).isEqualTo(2);
+        assertThat(status.get("converged")).isEqualTo(true);
+        assertThat(status.get("rolloutMillis")).isNotNull();
+        assertThat(status.get("acks")).isEqualTo(3L);
+
+        // 새 version 을 게시하면 다시 수렴 전 상태가 된다
+        String updated = "SecRule ARGS \"@rx attack|exploit\" \"id:900001,phase:2,deny\"\n";
+        distributor.publish(manifest(2, Map.of(BLOCK, updated)), Map.of(BLOCK, updated));
+        status = distributor.status();
+        assertThat(status.get("targetVersion")).isEqualTo(2L);
+        assertThat(status.get("convergedNodes")).isEqualTo(0);
+        assertThat(status.get("converged")).isEqualTo(false);
+    }
+
+    private void sendAck(RuleSetAckDto ack) throws Exception {
+        kafkaTemplate.send(ackTopic, 0, ack.nodeId(), objectMapper.writeValueAsString(ack)).get();
+    }
+
+    private static RuleSetAckDto ack(String nodeId, RuleSetManifestDto manifest, String status,
+                                     Instant receivedAt, Instant appliedAt) {
+        return RuleSetAckDto.builder()
+                .nodeId(nodeId)
+                .version(manifest.version())
+                .hash(manifest.hash())
+                .status(status)
+                .receivedAt(receivedAt)
+                .appliedAt(appliedAt)
+                .sentAt(Instant.now())
+                .build();
+    }
+
+    private static RuleSetManifestDto manifest(long version, Map<String, String> shards) throws Exception {
+        List<RuleShardDto> files = new ArrayList<>();
+        StringBuilder index = new StringBuilder();
+        StringBuilder combined = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(shards).entrySet()) {
+            String hash = sha256(entry.getValue());
+            files.add(RuleShardDto.builder().name(entry.getKey()).hash(hash).rules(1).build());
+            index.append("Include ").append(entry.getKey()).append('\n');
+            combined.append(entry.getKey()).append(':').append(hash).append('|');
+        }
+        return RuleSetManifestDto.builder()
+                .version(version)
+                .hash(sha256(combined.toString()))
+                .ruleCount(files.size())
+                .generatedAt(Instant.now().toString())
+                .index("custom-rules.conf")
+                .indexContent(index.toString())
+                .files(files)
+                .build();
+    }
+
+    private Consumer<String, String> consumer(String name) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("test-" + UUID.randomUUID(), "false", broker);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<String, String>(props).createConsumer();
+        consumer.assign(List.of(new TopicPartition(name, 0)));
+        consumer.seekToBeginning(List.of(new TopicPartition(name, 0)));
+        return consumer;
+    }
+
+    private static List<ConsumerRecord<String, String>> poll(Consumer<String, String> consumer, int count) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (records.size() < count && System.nanoTime() < deadline) {
+            consumer.poll(Duration.ofMillis(200)).forEach(records::add);
+        }
+        assertThat(records).hasSize(count);
+        return records;
+    }
+
+    private static String gunzip(String base64) throws Exception {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(base64)))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String sha256(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
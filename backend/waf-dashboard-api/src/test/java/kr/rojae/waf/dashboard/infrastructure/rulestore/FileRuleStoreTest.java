@@ -0,0 +1,238 @@
+package kr.rojae.waf.dashboard.infrastructure.rulestore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.dto.CustomRuleDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileRuleStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<FileRuleStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (FileRuleStore store : opened) {
+            store.close();
+        }
+    }
+
+    @Test
+    void recoversPutsDeletesAndBatchesAfterRestart() {
+        FileRuleStore store = open(1000);
+        store.load();
+        store.put(rule("a"));
+        store.putAll(List.of(rule("b"), rule("c")));
+        store.delete("a");
+
+        assertThat(open(1000).load()).containsOnlyKeys("b", "c");
+    }
+
+    @Test
+    void recoversFromSnapshotPlusLog() {
+        FileRuleStore store = open(2);
+        store.load();
+        store.put(rule("a"));
+        store.put(rule("b"));
+        // 두 번째 커밋 뒤 스냅샷이 쓰이고 로그가 비워진다
+        store.put(rule("c"));
+
+        FileRuleStore reopened = open(2);
+        assertThat(reopened.load()).containsOnlyKeys("a", "b", "c");
+        assertThat(reopened.status().get("snapshotSeq")).isEqualTo(2L);
+        assertThat(reopened.status().get("recoveredRecords")).isEqualTo(1);
+    }
+
+    @Test
+    void corruptOrTruncatedSnapshotFailsLoadInsteadOfRecoveringEmpty() throws Exception {
+        FileRuleStore store = open(1);
+        store.load();
+        store.put(rule("a"));
+        store.close();
+        Path snapshot = dir.resolve("rules.snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        // 로그는 스냅샷 때 비워졌으므로 스냅샷을 못 읽으면 룰이 전부 사라진다
+        bytes[bytes.length - 2] ^= 0x20;
+        Files.write(snapshot, bytes);
+        assertThatThrownBy(() -> open(1).load())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThatThrownBy(() -> open(1).load())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("truncated");
+    }
+
+    @Test
+    void failedWriteIsRolledBackSoLaterCommitsSurviveRestart() {
+        FailingFileChannel[] channel = new FailingFileChannel[1];
+        FileRuleStore store = new FileRuleStore(objectMapper, dir.toString(), 1000) {
+            @Override
+            FileChannel openLog(Path path) throws IOException {
+                channel[0] = new FailingFileChannel(super.openLog(path));
+                return channel[0];
+            }
+        };
+        opened.add(store);
+        store.load();
+        store.put(rule("a"));
+
+        // 레코드 절반만 쓰고 실패 (디스크 가득 참 등)
+        channel[0].failNextWrite = true;
+        assertThatThrownBy(() -> store.put(rule("b"))).isInstanceOf(IllegalStateException.class);
+        store.put(rule("c"));
+        assertThat(store.status().get("seq")).isEqualTo(2L);
+
+        assertThat(open(1000).load()).containsOnlyKeys("a", "c");
+    }
+
+    private FileRuleStore open(int snapshotEvery) {
+        FileRuleStore store = new FileRuleStore(objectMapper, dir.toString(), snapshotEvery);
+        opened.add(store);
+        return store;
+    }
+
+    private static CustomRuleDto rule(String id) {
+        return CustomRuleDto.builder()
+                .id(id)
+                .name("rule " + id)
+                .pattern("attack-" + id)
+                .action("BLOCK")
+                .enabled(true)
+                .priority(100)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * 실제 로그 채널에 위임하고, failNextWrite 면 첫 버퍼의 절반만 쓴 뒤 IOException
+     */
+    private static final class FailingFileChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        volatile boolean failNextWrite;
+
+        FailingFileChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer first = srcs[offset];
+                ByteBuffer half = first.duplicate();
+                half.limit(first.position() + first.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package kr.rojae.waf.dashboard.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.domain.rules.RulePatternProfiler;
+import kr.rojae.waf.dashboard.domain.rules.RulePatternRejectedException;
+import kr.rojae.waf.dashboard.dto.RuleSimulationDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * capture-dir 의 캡처 파일(source=file)로 돌린다. Elasticsearch 는 쓰지 않는다
+ */
+class RuleSimulationServiceTest {
+
+    @TempDir
+    Path captureDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RulePatternProfiler profiler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        profiler = new RulePatternProfiler(objectMapper, "", 200_000, Duration.ofMillis(50), Duration.ofSeconds(1));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(i % 10 == 0 ? "/search?q=union select " + i : "/api/products/" + i);
+        }
+        lines.add("{\"uri\":\"/json?q=UNION SELECT 1\",\"status\":403}");
+        Files.write(captureDir.resolve("access.log"), lines);
+    }
+
+    @Test
+    void countsHitsFromCaptureFile() {
+        RuleSimulationDto result = service(Duration.ofSeconds(30))
+                .simulate("r1", "(?i)union\\s+select", "file", Instant.EPOCH, Instant.now(), "access.log");
+
+        assertThat(result.scanned()).isEqualTo(5001L);
+        assertThat(result.hits()).isEqualTo(501L);
+        assertThat(result.errors()).isZero();
+        assertThat(result.truncated()).isFalse();
+        assertThat(result.samples()).isNotEmpty().allMatch(uri -> uri.toLowerCase().contains("union select"));
+    }
+
+    @Test
+    void patternRejectedByProfilerIsNotRun() {
+        assertThatThrownBy(() -> service(Duration.ofSeconds(30))
+                .simulate("r1", "(a+)+$", "file", Instant.EPOCH, Instant.now(), "access.log"))
+                .isInstanceOf(RulePatternRejectedException.class)
+                .satisfies(e -> assertThat(((RulePatternRejectedException) e).getRule().cost().rejected()).isTrue());
+    }
+
+    @Test
+    void stopsAtDeadlineInsteadOfDrainingTheSource() {
+        RuleSimulationDto result = service(Duration.ZERO)
+                .simulate("r1", "(?i)union\\s+select", "file", Instant.EPOCH, Instant.now(), "access.log");
+
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.scanned()).isLessThan(5001);
+    }
+
+    @Test
+    void captureOutsideCaptureDirIsRejected() {
+        assertThatThrownBy(() -> service(Duration.ofSeconds(30))
+                .simulate("r1", "admin", "file", Instant.EPOCH, Instant.now(), "../access.log"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private RuleSimulationService service(Duration maxDuration) {
+        return new RuleSimulationService(null, profiler, objectMapper, captureDir.toString(),
+                maxDuration, Duration.ofMillis(50), 2);
+    }
+}
@@ -0,0 +1,64 @@
+package kr.rojae.waf.dashboard.web;
+
+import kr.rojae.waf.dashboard.infrastructure.clickhouse.ClickHouseAnalyticsRepository;
+import kr.rojae.waf.dashboard.infrastructure.clickhouse.ClickHouseEventIngestor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AnalyticsControllerTest {
+
+    private ClickHouseAnalyticsRepository repository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ClickHouseAnalyticsRepository.class);
+        ObjectProvider<ClickHouseEventIngestor> ingestor = mock(ObjectProvider.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new AnalyticsController(repository, ingestor)).build();
+    }
+
+    @Test
+    void clickHouseOutageIsServiceUnavailable() throws Exception {
+        var down = new DataAccessResourceFailureException("Connection refused");
+        when(repository.findIpSummary(anyString(), any(), any())).thenThrow(down);
+        when(repository.findRuleStatistics(any(), any(), anyInt())).thenThrow(down);
+        when(repository.findDailyTrend(any(), any())).thenThrow(down);
+
+        mockMvc.perform(get("/api/analytics/ips/198.51.100.7"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("ClickHouse unavailable"));
+        mockMvc.perform(get("/api/analytics/rules"))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/api/analytics/trends"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void missingIpIsNotFoundAndEmptyStatsAreOk() throws Exception {
+        when(repository.findIpSummary(anyString(), any(), any())).thenReturn(Optional.empty());
+        when(repository.findTopAttackers(any(), any(), anyInt())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/analytics/ips/198.51.100.7"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/analytics/ips"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+}
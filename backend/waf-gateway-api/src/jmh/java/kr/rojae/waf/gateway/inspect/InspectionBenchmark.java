@@ -0,0 +1,116 @@
+package kr.rojae.waf.gateway.inspect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검사 엔진 요청당 ns (할당 바이트는 -prof gc 의 gc.alloc.rate.norm)
+ *
+ * 말뭉치는 inspection/corpus.tsv (sample/ 공격 스크립트 페이로드 + 정상 요청) 와,
+ * 지정하면 같은 형식(분류 TAB 요청 대상 [TAB form 본문])의 corpusFile 을 더한다.
+ * 탐지 수와 정상 요청 오탐은 setup 에서 한 번 출력한다.
+ *   ./gradlew :waf-gateway-api:jmh -Pjmh.includes=InspectionBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InspectionBenchmark {
+
+    private static final String CORPUS_RESOURCE = "inspection/corpus.tsv";
+
+    @Param({""})
+    private String corpusFile;
+
+    private InspectionEngine engine;
+    private Sample[] attack;
+    private Sample[] benign;
+    private int nextAttack;
+    private int nextBenign;
+
+    @Setup
+    public void setUp() throws IOException {
+        engine = new InspectionEngine();
+
+        List<Sample> samples = new ArrayList<>();
+        try (InputStream in = InspectionBenchmark.class.getClassLoader().getResourceAsStream(CORPUS_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Missing corpus resource " + CORPUS_RESOURCE);
+            }
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines()
+                    .forEach(line -> parse(line, samples));
+        }
+        if (!corpusFile.isBlank()) {
+            Files.readAllLines(Path.of(corpusFile), StandardCharsets.UTF_8).forEach(line -> parse(line, samples));
+        }
+        attack = samples.stream().filter(Sample::attack).toArray(Sample[]::new);
+        benign = samples.stream().filter(sample -> !sample.attack()).toArray(Sample[]::new);
+
+        System.out.printf("%npatterns=%d attack=%d (flagged %d) benign=%d (flagged %d)%n",
+                engine.patternCount(), attack.length, flagged(attack).size(), benign.length, flagged(benign).size());
+        flagged(benign).forEach(match -> System.out.println("  false positive: " + match));
+    }
+
+    @Benchmark
+    public long attack() {
+        return inspect(attack[nextAttack++ % attack.length]);
+    }
+
+    @Benchmark
+    public long benign() {
+        return inspect(benign[nextBenign++ % benign.length]);
+    }
+
+    private List<String> flagged(Sample[] samples) {
+        List<String> flagged = new ArrayList<>();
+        for (Sample sample : samples) {
+            long matched = inspect(sample);
+            if (matched != 0) {
+                flagged.add(sample.target() + " -> " + InspectionEngine.ruleIds(matched)
+                        + " (score " + InspectionEngine.anomalyScore(matched) + ")");
+            }
+        }
+        return flagged;
+    }
+
+    private long inspect(Sample sample) {
+        return engine.inspect(sample.path(), sample.query(), sample.body(), true);
+    }
+
+    private static void parse(String line, List<Sample> samples) {
+        if (line.isBlank() || line.startsWith("#")) {
+            return;
+        }
+        String[] fields = line.split("\t", 3);
+        if (fields.length < 2) {
+            return;
+        }
+        String target = fields[1];
+        int question = target.indexOf('?');
+        samples.add(new Sample(
+                "attack".equalsIgnoreCase(fields[0].strip()),
+                target,
+                question < 0 ? target : target.substring(0, question),
+                question < 0 ? null : target.substring(question + 1),
+                fields.length > 2 ? fields[2].getBytes(StandardCharsets.UTF_8) : null));
+    }
+
+    private record Sample(boolean attack, String target, String path, String query, byte[] body) {
+    }
+}
@@ -0,0 +1,16 @@
+package kr.rojae.waf.gateway;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * WAF 앞단 edge 게이트웨이: IP 차단/허용, 메서드/크기 제한을 먼저 판정하고 나머지만 nginx(ModSecurity)로 프록시한다
+ */
+@SpringBootApplication
+@EnableScheduling
+public class GatewayApiApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(GatewayApiApplication.class, args);
+    }
+}
@@ -0,0 +1,53 @@
+package kr.rojae.waf.gateway.config;
+
+import kr.rojae.waf.gateway.edge.EdgeVerdictFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+
+import java.util.List;
+
+/**
+ * 라우트와 upstream 커넥션 설정
+ *
+ * - waf: 모든 요청을 nginx(ModSecurity)로 프록시
+ * - allowlist-bypass: 허용 IP 요청을 WAF 를 거치지 않고 bypass-uri 로 바로 보냄 (bypass-uri 가 비어 있으면 만들지 않음)
+ *
+ * 커넥션 풀 크기/타임아웃은 spring.cloud.gateway.httpclient.pool 로 설정하고, 여기서는 upstream 프로토콜만 정한다.
+ * HTTP11,H2C 는 HTTP/1.1 로 열어서 h2c 업그레이드를 시도하고, H2C 만 주면 prior-knowledge HTTP/2 로 붙는다.
+ */
+@Configuration
+@Slf4j
+public class GatewayRoutesConfig {
+
+    @Bean
+    public RouteLocator wafRoutes(
+        RouteLocatorBuilder builder,
+        @Value("${app.gateway.upstream.uri}") String upstreamUri,
+        @Value("${app.gateway.upstream.bypass-uri:}") String bypassUri
+    ) {
+        RouteLocatorBuilder.Builder routes = builder.routes();
+        if (!bypassUri.isBlank()) {
+            routes.route("allowlist-bypass", r -> r.order(-1)
+                    .predicate(exchange -> Boolean.TRUE.equals(exchange.getAttribute(EdgeVerdictFilter.BYPASS_ATTRIBUTE)))
+                    .uri(bypassUri));
+        }
+        routes.route("waf", r -> r.order(0)
+                .path("/**")
+                .uri(upstreamUri));
+
+        log.info("Gateway routes: waf -> {}, allowlist-bypass -> {}", upstreamUri, bypassUri.isBlank() ? "(disabled)" : bypassUri);
+        return routes.build();
+    }
+
+    @Bean
+    public HttpClientCustomizer upstreamProtocols(@Value("${app.gateway.upstream.protocols:HTTP11}") List<HttpProtocol> protocols) {
+        HttpProtocol[] configured = protocols.toArray(HttpProtocol[]::new);
+        return httpClient -> httpClient.protocol(configured);
+    }
+}
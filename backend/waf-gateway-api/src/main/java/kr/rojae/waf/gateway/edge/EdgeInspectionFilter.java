@@ -0,0 +1,300 @@
+package kr.rojae.waf.gateway.edge;
+
+import kr.rojae.waf.common.collect.Murmur3Hasher;
+import kr.rojae.waf.gateway.inspect.InspectionEngine;
+import kr.rojae.waf.gateway.inspect.InspectionRule;
+import kr.rojae.waf.gateway.inspect.VerdictCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SQLi/XSS/경로 조작 1차 검사 ({@link InspectionEngine}). rate limit 다음에 실행되고, 허용 IP(BYPASS)는 검사하지 않는다
+ *
+ * - detect: 매칭되면 점수/규칙 id 를 X-WAF-Prefilter-Score / X-WAF-Prefilter-Rules 요청 헤더로 붙여 WAF 로 넘긴다.
+ * - block: 점수가 block-threshold 이상이면 nginx 까지 보내지 않고 403.
+ * 클라이언트가 보낸 같은 이름의 헤더는 항상 지운다.
+ *
+ * 본문은 Content-Length 가 max-body-size 이하인 form/JSON/XML/text 만 모아서 검사하고, 나머지는 URI/query 만 본다.
+ *
+ * {@link VerdictCache} 가 켜져 있으면 본문까지 다 본 요청의 판정을 캐시해서 같은 요청은 다시 검사하지 않고,
+ * 게이트웨이 규칙이 걸린 요청을 WAF 가 차단하면(X-WAF-Blocked) 다음 같은 요청은 nginx 까지 보내지 않고 바로 403.
+ * WAF 차단은 ModSecurity 가 보는 요청 헤더(쿠키, User-Agent, Referer 포함)와 클라이언트 주소까지 같은 요청에만 재사용한다.
+ */
+@Component
+@ConditionalOnProperty(name = "app.gateway.inspection.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class EdgeInspectionFilter implements WebFilter, Ordered {
+
+    public static final String SCORE_HEADER = "X-WAF-Prefilter-Score";
+    public static final String RULES_HEADER = "X-WAF-Prefilter-Rules";
+    /**
+     * nginx 가 ModSecurity 차단 응답(403 페이지)에 붙이는 헤더
+     */
+    public static final String WAF_BLOCKED_HEADER = "X-WAF-Blocked";
+
+    public enum Mode { DETECT, BLOCK }
+
+    private static final InspectionRule[] RULES = InspectionRule.values();
+    private static final ThreadLocal<Murmur3Hasher> HASHERS = ThreadLocal.withInitial(Murmur3Hasher::new);
+
+    private final InspectionEngine engine;
+    private final Mode mode;
+    private final int blockThreshold;
+    private final long maxBodyBytes;
+    private final VerdictCache verdictCache;
+
+    private final AtomicLong inspected = new AtomicLong();
+    private final AtomicLong bodiesInspected = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong wafBlocked = new AtomicLong();
+    private final AtomicLong cachedVerdicts = new AtomicLong();
+    private final AtomicLong inspectNanos = new AtomicLong();
+    private final AtomicLongArray ruleHits = new AtomicLongArray(RULES.length);
+
+    public EdgeInspectionFilter(
+        InspectionEngine engine,
+        @Value("${app.gateway.inspection.mode:detect}") String mode,
+        @Value("${app.gateway.inspection.block-threshold:5}") int blockThreshold,
+        @Value("${app.gateway.inspection.max-body-size:64KB}") DataSize maxBodySize,
+        ObjectProvider<VerdictCache> verdictCache
+    ) {
+        this.engine = engine;
+        this.mode = Mode.valueOf(mode.strip().toUpperCase());
+        this.blockThreshold = blockThreshold;
+        this.maxBodyBytes = maxBodySize.toBytes();
+        this.verdictCache = verdictCache.getIfAvailable();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 2;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (exchange.getAttribute(EdgeVerdictFilter.BYPASS_ATTRIBUTE) != null) {
+            return chain.filter(exchange);
+        }
+
+        MediaType contentType = exchange.getRequest().getHeaders().getContentType();
+        long contentLength = exchange.getRequest().getHeaders().getContentLength();
+        if (contentLength > 0 && contentLength <= maxBodyBytes && isInspectable(contentType)) {
+            // 모은 본문은 CACHED_REQUEST_BODY_ATTR 로 남고, 프록시가 끝나면 게이트웨이(RemoveCachedBodyFilter)가 해제한다
+            return ServerWebExchangeUtils.cacheRequestBody(exchange, cachedRequest -> {
+                DataBuffer body = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+                boolean form = MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(contentType);
+                return verdict(exchange.mutate().request(cachedRequest).build(), chain, body, form);
+            });
+        }
+        return verdict(exchange, chain, null, false);
+    }
+
+    public Map<String, Object> status() {
+        long total = inspected.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", mode.name().toLowerCase());
+        status.put("blockThreshold", blockThreshold);
+        status.put("maxBodyBytes", maxBodyBytes);
+        status.put("patterns", engine.patternCount());
+        status.put("inspected", total);
+        status.put("bodiesInspected", bodiesInspected.get());
+        status.put("flagged", flagged.get());
+        status.put("blocked", blocked.get());
+        status.put("wafBlockedFromCache", wafBlocked.get());
+        status.put("cachedVerdicts", cachedVerdicts.get());
+        status.put("avgInspectNanos", total > 0 ? inspectNanos.get() / total : 0);
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (InspectionRule rule : RULES) {
+            hits.put(Integer.toString(rule.id()), ruleHits.get(rule.ordinal()));
+        }
+        status.put("ruleHits", hits);
+        status.put("verdictCache", verdictCache != null ? verdictCache.status() : Map.of("enabled", false));
+        return status;
+    }
+
+    private Mono<Void> verdict(ServerWebExchange exchange, WebFilterChain chain, DataBuffer body, boolean form) {
+        ServerHttpRequest request = exchange.getRequest();
+        URI uri = request.getURI();
+
+        // 본문까지 다 본 요청(본문 없는 요청 포함)만 키를 만들 수 있다
+        boolean cacheable = verdictCache != null && (body != null || !hasBody(request));
+        long keyHigh = 0;
+        long keyLow = 0;
+        if (cacheable) {
+            Murmur3Hasher hasher = HASHERS.get().reset(0)
+                    .putField(request.getMethod().name())
+                    .putField(uri.getHost())
+                    .putField(uri.getRawPath())
+                    .putField(uri.getRawQuery())
+                    .putField(request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+            if (body != null) {
+                for (int i = body.readPosition(), end = body.writePosition(); i < end; i++) {
+                    hasher.putByte(body.getByte(i));
+                }
+                hasher.putLong(body.readableByteCount());
+            }
+            keyHigh = hasher.high();
+            keyLow = hasher.low();
+            VerdictCache.Entry cached = verdictCache.get(keyHigh, keyLow);
+            if (cached != null) {
+                cachedVerdicts.incrementAndGet();
+                return apply(exchange, chain, cached.matched(), cached.verdict(), true, keyHigh, keyLow);
+            }
+        }
+
+        long started = System.nanoTime();
+        long matched = engine.inspect(uri.getRawPath(), uri.getRawQuery(), body, form);
+        inspectNanos.addAndGet(System.nanoTime() - started);
+        inspected.incrementAndGet();
+        if (body != null) {
+            bodiesInspected.incrementAndGet();
+        }
+
+        VerdictCache.Verdict verdict = mode == Mode.BLOCK && matched != 0 && InspectionEngine.anomalyScore(matched) >= blockThreshold
+                ? VerdictCache.Verdict.BLOCK : VerdictCache.Verdict.ALLOW;
+        if (cacheable) {
+            verdictCache.put(keyHigh, keyLow, matched, verdict);
+        }
+        return apply(exchange, chain, matched, verdict, cacheable, keyHigh, keyLow);
+    }
+
+    /**
+     * @param watchWaf WAF 차단 판정을 캐시에서 찾고, WAF 응답이 차단이면 WAF_BLOCK 으로 기록할지
+     * @param keyHigh  검사 판정 캐시 키 (WAF 판정 키는 여기에 헤더와 클라이언트 주소를 더한다)
+     */
+    private Mono<Void> apply(ServerWebExchange exchange, WebFilterChain chain, long matched, VerdictCache.Verdict verdict,
+                             boolean watchWaf, long keyHigh, long keyLow) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (matched != 0) {
+            flagged.incrementAndGet();
+            for (long bits = matched; bits != 0; bits &= bits - 1) {
+                ruleHits.incrementAndGet(Long.numberOfTrailingZeros(bits));
+            }
+        }
+
+        // 게이트웨이 규칙이 걸린 요청만 WAF 차단 판정을 찾고 기록한다
+        boolean trackWaf = watchWaf && matched != 0 && verdict == VerdictCache.Verdict.ALLOW;
+        long wafHigh = 0;
+        long wafLow = 0;
+        if (trackWaf) {
+            Murmur3Hasher hasher = wafKey(exchange, keyHigh, keyLow);
+            wafHigh = hasher.high();
+            wafLow = hasher.low();
+            VerdictCache.Entry cached = verdictCache.get(wafHigh, wafLow);
+            if (cached != null && cached.verdict() == VerdictCache.Verdict.WAF_BLOCK) {
+                cachedVerdicts.incrementAndGet();
+                verdict = VerdictCache.Verdict.WAF_BLOCK;
+            }
+        }
+
+        if (verdict != VerdictCache.Verdict.ALLOW) {
+            boolean waf = verdict == VerdictCache.Verdict.WAF_BLOCK;
+            (waf ? wafBlocked : blocked).incrementAndGet();
+            log.debug("Blocked {} {} - verdict: {}, rules: {}", request.getMethod(), request.getURI().getRawPath(),
+                    verdict, InspectionEngine.ruleIds(matched));
+            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+            exchange.getResponse().getHeaders().set(EdgeVerdictFilter.VERDICT_HEADER, waf ? "waf-cached" : "inspection");
+            return exchange.getResponse().setComplete();
+        }
+
+        if (matched == 0) {
+            if (!request.getHeaders().containsKey(SCORE_HEADER) && !request.getHeaders().containsKey(RULES_HEADER)) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange.mutate().request(request.mutate().headers(headers -> {
+                headers.remove(SCORE_HEADER);
+                headers.remove(RULES_HEADER);
+            }).build()).build());
+        }
+
+        int score = InspectionEngine.anomalyScore(matched);
+        String ruleIds = InspectionEngine.ruleIds(matched);
+        Mono<Void> forwarded = chain.filter(exchange.mutate().request(request.mutate().headers(headers -> {
+            headers.set(SCORE_HEADER, Integer.toString(score));
+            headers.set(RULES_HEADER, ruleIds);
+        }).build()).build());
+        if (!trackWaf) {
+            return forwarded;
+        }
+
+        // 게이트웨이 규칙도 걸린 요청을 WAF 가 막았으면 다음 같은 요청은 nginx 까지 보내지 않는다.
+        // 어떤 ModSecurity 룰이 막았는지 모르므로 키에 헤더/쿠키/UA 와 클라이언트 주소(IP/국가 룰)까지 넣는다.
+        // 세대는 보내기 전에 읽는다: 응답을 기다리는 동안 룰셋이 바뀌면 이전 룰셋의 차단은 넣지 않는다.
+        long blockHigh = wafHigh;
+        long blockLow = wafLow;
+        long generation = verdictCache.generation();
+        return forwarded.doOnSuccess(done -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            if (status != null && status.value() == HttpStatus.FORBIDDEN.value()
+                    && exchange.getResponse().getHeaders().containsKey(WAF_BLOCKED_HEADER)) {
+                verdictCache.put(blockHigh, blockLow, matched, VerdictCache.Verdict.WAF_BLOCK, generation);
+            }
+        });
+    }
+
+    /**
+     * 검사 판정 키 + 클라이언트 주소 + 요청 헤더(받은 순서). Content-Length 는 본문 해시에 이미 들어 있고,
+     * prefilter 헤더는 게이트웨이가 matched 로 다시 붙이므로 뺀다.
+     */
+    private static Murmur3Hasher wafKey(ServerWebExchange exchange, long keyHigh, long keyLow) {
+        Murmur3Hasher hasher = HASHERS.get().reset(0).putLong(keyHigh).putLong(keyLow);
+        byte[] address = exchange.getAttribute(EdgeVerdictFilter.CLIENT_ADDRESS_ATTRIBUTE);
+        if (address != null) {
+            hasher.putBytes(address, 0, address.length);
+        }
+        hasher.putLong(address != null ? address.length : -1);
+        for (Map.Entry<String, List<String>> header : exchange.getRequest().getHeaders().entrySet()) {
+            String name = header.getKey();
+            if (name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH) || name.equalsIgnoreCase(SCORE_HEADER)
+                    || name.equalsIgnoreCase(RULES_HEADER)) {
+                continue;
+            }
+            hasher.putField(name);
+            for (String value : header.getValue()) {
+                hasher.putField(value);
+            }
+            hasher.putLong(header.getValue().size());
+        }
+        return hasher;
+    }
+
+    private static boolean hasBody(ServerHttpRequest request) {
+        return request.getHeaders().getContentLength() > 0 || request.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    private static boolean isInspectable(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        return MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(contentType)
+                || MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || MediaType.APPLICATION_XML.isCompatibleWith(contentType)
+                || "text".equals(contentType.getType())
+                || contentType.getSubtype().endsWith("+json")
+                || contentType.getSubtype().endsWith("+xml");
+    }
+}
@@ -0,0 +1,149 @@
+package kr.rojae.waf.gateway.edge;
+
+import jakarta.annotation.PostConstruct;
+import kr.rojae.waf.common.net.CidrTrie;
+import kr.rojae.waf.common.net.IpPrefix;
+import kr.rojae.waf.common.net.IpRangeTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * edge 판정용 IP 목록
+ *
+ * - 허용(allowlist): 설정 CIDR + 대시보드가 배포하는 화이트리스트 데이터 파일(rules.d/ip-whitelist.data, 한 줄에 CIDR 하나)
+ * - 차단(blocklist): 설정 CIDR + 대시보드 평판 테이블 파일({@link IpRangeTable}, reputation.table)
+ *
+ * 파일은 수정 시각이 바뀔 때만 다시 읽고, 새로 만든 목록으로 참조를 통째로 교체한다. 조회는 잠금이 없다.
+ */
+@Component
+@Slf4j
+public class EdgeIpLists {
+
+    private final List<String> allowCidrs;
+    private final List<String> blockCidrs;
+    private final Path allowFile;
+    private final Path blockTableFile;
+
+    private volatile CidrTrie<Boolean> allow = new CidrTrie<>();
+    private volatile CidrTrie<Boolean> block = new CidrTrie<>();
+    private volatile IpRangeTable blockTable = IpRangeTable.EMPTY;
+    private volatile long allowFileModified = Long.MIN_VALUE;
+    private volatile long blockTableModified = Long.MIN_VALUE;
+
+    public EdgeIpLists(
+        @Value("${app.gateway.allowlist.cidrs:}") List<String> allowCidrs,
+        @Value("${app.gateway.allowlist.file:}") String allowFile,
+        @Value("${app.gateway.blocklist.cidrs:}") List<String> blockCidrs,
+        @Value("${app.gateway.blocklist.table-file:}") String blockTableFile
+    ) {
+        this.allowCidrs = allowCidrs;
+        this.blockCidrs = blockCidrs;
+        this.allowFile = allowFile.isBlank() ? null : Path.of(allowFile);
+        this.blockTableFile = blockTableFile.isBlank() ? null : Path.of(blockTableFile);
+    }
+
+    @PostConstruct
+    public void init() {
+        block = build(blockCidrs, null);
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${app.gateway.lists.reload-interval:30s}", initialDelayString = "${app.gateway.lists.reload-interval:30s}")
+    public synchronized void reload() {
+        long allowModified = modified(allowFile);
+        if (allowModified != allowFileModified) {
+            allow = build(allowCidrs, allowFile);
+            allowFileModified = allowModified;
+            log.info("Loaded edge allowlist: {} prefixes", allow.size());
+        }
+
+        long blockModified = modified(blockTableFile);
+        if (blockModified != blockTableModified) {
+            try {
+                blockTable = blockModified > 0 ? IpRangeTable.open(blockTableFile) : IpRangeTable.EMPTY;
+                blockTableModified = blockModified;
+                log.info("Loaded edge blocklist table: {} IPv4 / {} IPv6 ranges",
+                        blockTable.ipv4Ranges(), blockTable.ipv6Ranges());
+            } catch (IOException e) {
+                log.warn("Failed to open blocklist table {}: {}", blockTableFile, e.getMessage());
+            }
+        }
+    }
+
+    public boolean isAllowed(byte[] address) {
+        return allow.longestMatch(address) != null;
+    }
+
+    public boolean isBlocked(byte[] address) {
+        if (block.longestMatch(address) != null) {
+            return true;
+        }
+        IpRangeTable table = blockTable;
+        if (address.length == 4) {
+            return table.containsIpv4(((address[0] & 0xFF) << 24) | ((address[1] & 0xFF) << 16)
+                    | ((address[2] & 0xFF) << 8) | (address[3] & 0xFF));
+        }
+        return table.contains(address);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("allowPrefixes", allow.size());
+        status.put("allowFile", allowFile != null ? allowFile.toString() : null);
+        status.put("blockPrefixes", block.size());
+        status.put("blockTableFile", blockTableFile != null ? blockTableFile.toString() : null);
+        status.put("blockTableIpv4Ranges", blockTable.ipv4Ranges());
+        status.put("blockTableIpv6Ranges", blockTable.ipv6Ranges());
+        return status;
+    }
+
+    private static CidrTrie<Boolean> build(List<String> cidrs, Path file) {
+        CidrTrie<Boolean> trie = new CidrTrie<>();
+        cidrs.stream().filter(cidr -> !cidr.isBlank()).forEach(cidr -> add(trie, cidr));
+        if (file != null && Files.exists(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    String cidr = line.strip();
+                    if (!cidr.isEmpty() && !cidr.startsWith("#")) {
+                        add(trie, cidr);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read {}: {}", file, e.getMessage());
+            }
+        }
+        return trie;
+    }
+
+    private static void add(CidrTrie<Boolean> trie, String cidr) {
+        try {
+            trie.put(IpPrefix.parse(cidr), Boolean.TRUE);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid CIDR '{}': {}", cidr, e.getMessage());
+        }
+    }
+
+    /**
+     * @return 파일이 없으면 0
+     */
+    private static long modified(Path file) {
+        if (file == null || !Files.exists(file)) {
+            return 0;
+        }
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
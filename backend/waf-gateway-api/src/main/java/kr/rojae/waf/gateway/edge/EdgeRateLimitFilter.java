@@ -0,0 +1,63 @@
+package kr.rojae.waf.gateway.edge;
+
+import kr.rojae.waf.common.ratelimit.RateLimitRegistry;
+import kr.rojae.waf.common.ratelimit.RateLimitServletFilter;
+import kr.rojae.waf.common.ratelimit.RateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 클라이언트 IP 별 rate limit (app.rate-limit.routes). 한도를 넘으면 429 + Retry-After 로 바로 끊는다
+ *
+ * {@link EdgeVerdictFilter} 바로 다음에 실행되고, 허용 IP(BYPASS)는 제한하지 않는다.
+ * {@link RateLimitRegistry} 는 waf-common-data 의 RateLimitAutoConfiguration 이 등록한다.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class EdgeRateLimitFilter implements WebFilter, Ordered {
+
+    private final RateLimitRegistry registry;
+
+    public EdgeRateLimitFilter(RateLimitRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        byte[] address = exchange.getAttribute(EdgeVerdictFilter.CLIENT_ADDRESS_ATTRIBUTE);
+        if (address == null || exchange.getAttribute(EdgeVerdictFilter.BYPASS_ATTRIBUTE) != null) {
+            return chain.filter(exchange);
+        }
+        RateLimiter limiter = registry.resolve(exchange.getRequest().getMethod().name(), exchange.getRequest().getPath().value());
+        if (limiter == null) {
+            return chain.filter(exchange);
+        }
+
+        // 주소 바이트를 그대로 키로 쓴다 (IPv4 는 4 글자)
+        RateLimiter.Decision decision = limiter.tryAcquire(new String(address, StandardCharsets.ISO_8859_1));
+        if (decision.allowed()) {
+            exchange.getResponse().getHeaders().set(RateLimitServletFilter.REMAINING_HEADER, Long.toString(decision.remaining()));
+            return chain.filter(exchange);
+        }
+
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+        exchange.getResponse().getHeaders().set(RateLimitServletFilter.REMAINING_HEADER, "0");
+        exchange.getResponse().getHeaders().set(EdgeVerdictFilter.VERDICT_HEADER, "rate-limited");
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,194 @@
+package kr.rojae.waf.gateway.edge;
+
+import kr.rojae.waf.common.net.TrustedProxies;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 라우팅 전에 요청 헤더만으로 판정해서 명백한 요청은 nginx(ModSecurity)까지 보내지 않는다
+ *
+ * 순서: 허용 IP → 우회(BYPASS 속성) / 차단 IP → 403 / 허용되지 않은 메서드 → 405 / URI 길이 → 414 / Content-Length → 413
+ * Content-Length 없이 오는 chunked 본문은 흘려보내면서 누적 크기를 세고, 한도를 넘으면 413 으로 끊는다.
+ *
+ * 라우트 predicate 가 BYPASS 속성을 봐야 하므로 GlobalFilter 가 아니라 WebFilter 로 가장 먼저 실행한다.
+ */
+@Component
+@Slf4j
+public class EdgeVerdictFilter implements WebFilter, Ordered {
+
+    /**
+     * 허용 IP 로 판정된 요청에 붙는 exchange 속성 (값: Boolean.TRUE)
+     */
+    public static final String BYPASS_ATTRIBUTE = EdgeVerdictFilter.class.getName() + ".bypass";
+    /**
+     * 판정에 쓴 클라이언트 주소 (값: byte[], 4 또는 16 바이트)
+     */
+    public static final String CLIENT_ADDRESS_ATTRIBUTE = EdgeVerdictFilter.class.getName() + ".clientAddress";
+    public static final String VERDICT_HEADER = "X-WAF-Edge-Verdict";
+
+    private final EdgeIpLists ipLists;
+    private final Set<HttpMethod> allowedMethods;
+    private final long maxBodyBytes;
+    private final int maxUriLength;
+    private final String clientIpHeader;
+    private final TrustedProxies trustedProxies;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong blockedIp = new AtomicLong();
+    private final AtomicLong rejectedMethod = new AtomicLong();
+    private final AtomicLong rejectedUri = new AtomicLong();
+    private final AtomicLong rejectedSize = new AtomicLong();
+    private final AtomicLong verdictNanos = new AtomicLong();
+
+    public EdgeVerdictFilter(
+        EdgeIpLists ipLists,
+        @Value("${app.gateway.allowed-methods:GET,HEAD,POST,PUT,PATCH,DELETE,OPTIONS}") List<String> allowedMethods,
+        @Value("${app.gateway.max-body-size:10MB}") DataSize maxBodySize,
+        @Value("${app.gateway.max-uri-length:8192}") int maxUriLength,
+        @Value("${app.gateway.client-ip-header:}") String clientIpHeader,
+        @Value("${app.gateway.trusted-proxies:}") List<String> trustedProxies
+    ) {
+        this.ipLists = ipLists;
+        this.allowedMethods = allowedMethods.stream()
+                .map(method -> HttpMethod.valueOf(method.strip().toUpperCase()))
+                .collect(Collectors.toUnmodifiableSet());
+        this.maxBodyBytes = maxBodySize.toBytes();
+        this.maxUriLength = maxUriLength;
+        this.clientIpHeader = clientIpHeader.isBlank() ? null : clientIpHeader;
+        this.trustedProxies = new TrustedProxies(trustedProxies);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long started = System.nanoTime();
+        requests.incrementAndGet();
+        ServerHttpRequest request = exchange.getRequest();
+
+        byte[] address = clientAddress(request);
+        if (address != null) {
+            exchange.getAttributes().put(CLIENT_ADDRESS_ATTRIBUTE, address);
+        }
+        if (address != null && ipLists.isAllowed(address)) {
+            bypassed.incrementAndGet();
+            exchange.getAttributes().put(BYPASS_ATTRIBUTE, Boolean.TRUE);
+            verdictNanos.addAndGet(System.nanoTime() - started);
+            return chain.filter(exchange);
+        }
+
+        HttpStatus rejection = null;
+        if (address != null && ipLists.isBlocked(address)) {
+            blockedIp.incrementAndGet();
+            rejection = HttpStatus.FORBIDDEN;
+        } else if (!allowedMethods.contains(request.getMethod())) {
+            rejectedMethod.incrementAndGet();
+            rejection = HttpStatus.METHOD_NOT_ALLOWED;
+        } else if (request.getURI().getRawPath().length() + rawQueryLength(request) > maxUriLength) {
+            rejectedUri.incrementAndGet();
+            rejection = HttpStatus.URI_TOO_LONG;
+        } else if (request.getHeaders().getContentLength() > maxBodyBytes) {
+            rejectedSize.incrementAndGet();
+            rejection = HttpStatus.PAYLOAD_TOO_LARGE;
+        }
+        verdictNanos.addAndGet(System.nanoTime() - started);
+
+        if (rejection != null) {
+            exchange.getResponse().setStatusCode(rejection);
+            exchange.getResponse().getHeaders().set(VERDICT_HEADER, "rejected");
+            exchange.getResponse().getHeaders().set(HttpHeaders.CONNECTION, "close");
+            return exchange.getResponse().setComplete();
+        }
+
+        if (request.getHeaders().getContentLength() < 0 && request.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return chain.filter(exchange.mutate().request(limitBody(request)).build());
+        }
+        return chain.filter(exchange);
+    }
+
+    public Map<String, Object> status() {
+        long total = requests.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("requests", total);
+        status.put("bypassed", bypassed.get());
+        status.put("blockedIp", blockedIp.get());
+        status.put("rejectedMethod", rejectedMethod.get());
+        status.put("rejectedUri", rejectedUri.get());
+        status.put("rejectedSize", rejectedSize.get());
+        status.put("avgVerdictNanos", total > 0 ? verdictNanos.get() / total : 0);
+        status.put("allowedMethods", allowedMethods.stream().map(HttpMethod::name).sorted().toList());
+        status.put("maxBodyBytes", maxBodyBytes);
+        status.put("maxUriLength", maxUriLength);
+        status.put("clientIpHeader", clientIpHeader);
+        status.put("trustedProxies", trustedProxies.size());
+        return status;
+    }
+
+    /**
+     * 본문을 그대로 흘려보내면서 누적 바이트가 한도를 넘는 순간 413 으로 끊는다
+     */
+    private ServerHttpRequest limitBody(ServerHttpRequest request) {
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                AtomicLong seen = new AtomicLong();
+                return super.getBody().handle((buffer, sink) -> {
+                    if (seen.addAndGet(buffer.readableByteCount()) > maxBodyBytes) {
+                        DataBufferUtils.release(buffer);
+                        rejectedSize.incrementAndGet();
+                        sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE));
+                    } else {
+                        sink.next(buffer);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * 소켓 주소가 trusted-proxies 안이고 client-ip-header 가 설정되어 있으면 그 헤더의 오른쪽부터 신뢰 프록시를 건너뛴
+     * 첫 주소(nginx/LB 뒤에 있을 때), 아니면 소켓 주소. 왼쪽 값은 클라이언트가 넣을 수 있어서 쓰지 않는다.
+     */
+    private byte[] clientAddress(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        byte[] peer = remote != null && remote.getAddress() != null ? remote.getAddress().getAddress() : null;
+        if (clientIpHeader == null || !trustedProxies.contains(peer)) {
+            return peer;
+        }
+        List<String> forwarded = request.getHeaders().get(clientIpHeader);
+        return trustedProxies.clientAddress(peer, forwarded != null ? forwarded : List.of());
+    }
+
+    private static int rawQueryLength(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        return query != null ? query.length() + 1 : 0;
+    }
+}
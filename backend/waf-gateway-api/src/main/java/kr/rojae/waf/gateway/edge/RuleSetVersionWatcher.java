@@ -0,0 +1,98 @@
+package kr.rojae.waf.gateway.edge;
+
+import jakarta.annotation.PostConstruct;
+import kr.rojae.waf.gateway.inspect.VerdictCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * nginx 가 룰셋 리로드 후 남기는 .applied ("version hash epochSeconds") 를 보고, 적용 version 이 바뀌면 판정 캐시를 비운다
+ *
+ * WAF 차단 판정을 캐시하므로 룰이 바뀐 뒤에 예전 판정이 남아 있으면 안 된다.
+ */
+@Component
+@Slf4j
+public class RuleSetVersionWatcher {
+
+    private final Path appliedFile;
+    private final ObjectProvider<VerdictCache> verdictCache;
+
+    private volatile String version;
+    private volatile long appliedModified = Long.MIN_VALUE;
+
+    public RuleSetVersionWatcher(
+        @Value("${app.gateway.rule-set.applied-file:/etc/modsecurity/custom-rules/.applied}") String appliedFile,
+        ObjectProvider<VerdictCache> verdictCache
+    ) {
+        this.appliedFile = appliedFile.isBlank() ? null : Path.of(appliedFile);
+        this.verdictCache = verdictCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        check();
+    }
+
+    @Scheduled(fixedDelayString = "${app.gateway.rule-set.check-interval:5s}", initialDelayString = "${app.gateway.rule-set.check-interval:5s}")
+    public synchronized void check() {
+        if (appliedFile == null) {
+            return;
+        }
+        long modified = modified(appliedFile);
+        if (modified == appliedModified) {
+            return;
+        }
+        appliedModified = modified;
+
+        String applied = read(appliedFile);
+        if (Objects.equals(applied, version)) {
+            return;
+        }
+        log.info("Rule-set version changed: {} -> {}", version, applied);
+        version = applied;
+        VerdictCache cache = verdictCache.getIfAvailable();
+        if (cache != null) {
+            cache.invalidateAll(applied);
+        }
+    }
+
+    /**
+     * @return "version hash", .applied 가 없으면 null
+     */
+    public String version() {
+        return version;
+    }
+
+    private static String read(Path file) {
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            String[] fields = Files.readString(file, StandardCharsets.UTF_8).trim().split("\\s+");
+            return fields.length >= 2 ? fields[0] + " " + fields[1] : null;
+        } catch (IOException e) {
+            log.warn("Failed to read {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static long modified(Path file) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
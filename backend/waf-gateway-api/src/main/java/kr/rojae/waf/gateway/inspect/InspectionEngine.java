@@ -0,0 +1,124 @@
+package kr.rojae.waf.gateway.inspect;
+
+import kr.rojae.waf.common.text.AhoCorasick;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 게이트웨이 1차 검사 엔진: SQLi(942xxx) / XSS(941xxx) / 경로 조작(930xxx)
+ *
+ * - 모든 규칙 키워드를 태그(규칙 비트)가 붙은 Aho-Corasick DFA 하나로 묶어 입력을 한 번만 훑는다.
+ * - URI/query/본문 바이트를 String 으로 디코딩하지 않고 제자리에서 읽는다 ({@link InspectionScanner}).
+ * - 결과는 규칙 비트 마스크(long) 하나라 요청마다 할당이 없다. 스캐너는 스레드(Netty event loop)마다 재사용한다.
+ *
+ * 점수는 CRS anomaly scoring 과 같은 척도다. ModSecurity 를 대신하지 않고, 명백한 요청을 앞단에서 거르거나 표시하는 용도.
+ */
+@Component
+public class InspectionEngine {
+
+    private static final InspectionRule[] RULES = InspectionRule.values();
+
+    private final AhoCorasick keywords;
+    private final ThreadLocal<InspectionScanner> scanners;
+
+    public InspectionEngine() {
+        List<String> patterns = new ArrayList<>();
+        List<Long> tags = new ArrayList<>();
+        for (InspectionRule rule : RULES) {
+            for (String keyword : rule.keywords()) {
+                patterns.add(keyword);
+                tags.add(rule.bit());
+            }
+        }
+        this.keywords = AhoCorasick.tagged(patterns, tags.stream().mapToLong(Long::longValue).toArray(), true);
+        this.scanners = ThreadLocal.withInitial(() -> new InspectionScanner(keywords));
+    }
+
+    /**
+     * @param rawPath  인코딩된 그대로의 경로
+     * @param rawQuery 인코딩된 그대로의 query (없으면 null)
+     * @param body     검사할 본문 (없으면 null)
+     * @param formBody 본문이 application/x-www-form-urlencoded 인지
+     * @return 매칭된 규칙 비트 마스크 ({@link InspectionRule#bit()}), 없으면 0
+     */
+    public long inspect(CharSequence rawPath, CharSequence rawQuery, DataBuffer body, boolean formBody) {
+        InspectionScanner scanner = scan(rawPath, rawQuery);
+        if (body != null) {
+            scanner.body(body, formBody);
+        }
+        return scanner.matched();
+    }
+
+    public long inspect(CharSequence rawPath, CharSequence rawQuery, byte[] body, boolean formBody) {
+        InspectionScanner scanner = scan(rawPath, rawQuery);
+        if (body != null) {
+            scanner.body(body, formBody);
+        }
+        return scanner.matched();
+    }
+
+    public int patternCount() {
+        return keywords.patternCount();
+    }
+
+    /**
+     * 매칭된 규칙 심각도 점수의 합 (CRS anomaly score 와 같은 척도)
+     */
+    public static int anomalyScore(long matched) {
+        int score = 0;
+        for (long bits = matched; bits != 0; bits &= bits - 1) {
+            score += RULES[Long.numberOfTrailingZeros(bits)].severity().score();
+        }
+        return score;
+    }
+
+    /**
+     * 규칙 id 목록, 쉼표 구분 (예: "942100,942190")
+     */
+    public static String ruleIds(long matched) {
+        StringBuilder ids = new StringBuilder();
+        for (long bits = matched; bits != 0; bits &= bits - 1) {
+            if (!ids.isEmpty()) {
+                ids.append(',');
+            }
+            ids.append(RULES[Long.numberOfTrailingZeros(bits)].id());
+        }
+        return ids.toString();
+    }
+
+    public static List<InspectionRule> rules(long matched) {
+        List<InspectionRule> rules = new ArrayList<>(Long.bitCount(matched));
+        for (long bits = matched; bits != 0; bits &= bits - 1) {
+            rules.add(RULES[Long.numberOfTrailingZeros(bits)]);
+        }
+        return rules;
+    }
+
+    /**
+     * fluent-bit/waf_classifier.lua 와 같은 트랙 분류: SQLi/XSS 규칙이 있거나 점수 20 이상이면 realtime
+     */
+    public static String track(long matched) {
+        for (long bits = matched; bits != 0; bits &= bits - 1) {
+            int family = RULES[Long.numberOfTrailingZeros(bits)].id() / 1000;
+            if (family == 942 || family == 941) {
+                return "realtime";
+            }
+        }
+        return anomalyScore(matched) >= 20 ? "realtime" : "analytics";
+    }
+
+    private InspectionScanner scan(CharSequence rawPath, CharSequence rawQuery) {
+        InspectionScanner scanner = scanners.get();
+        scanner.reset();
+        if (rawPath != null) {
+            scanner.path(rawPath);
+        }
+        if (rawQuery != null) {
+            scanner.query(rawQuery);
+        }
+        return scanner;
+    }
+}
@@ -0,0 +1,110 @@
+package kr.rojae.waf.gateway.inspect;
+
+import java.util.List;
+
+/**
+ * 게이트웨이 1차 검사 규칙. id/심각도는 OWASP CRS 규칙을 따라 ModSecurity 감사 로그와 같은 축으로 읽힌다
+ *
+ * - 심각도 점수는 CRS anomaly scoring 과 같다 (CRITICAL 5, ERROR 4, WARNING 3, NOTICE 2).
+ *   합계는 fluent-bit/waf_classifier.lua 의 anomaly_score 와 같은 척도라 20 이상이면 realtime 트랙이다.
+ * - 키워드는 URL 디코딩 + 공백 압축 후의 바이트에 대소문자 구분 없이 매칭한다 (ModSecurity @pm 의미).
+ * - 키워드가 없는 규칙(942100)은 {@link SqlTokenizer} 지문으로 판정한다.
+ * - 디코딩 뒤에 매칭하므로 한 번 인코딩된 경로 탐색(%2e%2e%2f)은 930110 이 잡는다.
+ *   930100 의 인코딩 키워드는 디코딩 뒤에도 남는 이중 인코딩(%252e%252e%252f)만 잡는다.
+ *
+ * ordinal 이 매칭 마스크의 비트 번호라 64 개를 넘을 수 없다.
+ */
+public enum InspectionRule {
+
+    SQLI_LIBINJECTION(942100, Severity.CRITICAL, "SQL Injection Attack Detected via libinjection", List.of()),
+    SQLI_DB_NAMES(942140, Severity.CRITICAL, "SQL Injection Attack: Common DB Names Detected", List.of(
+            "information_schema", "mysql.user", "mysql.db", "pg_catalog", "pg_shadow", "sysobjects", "syscolumns",
+            "sysdatabases", "sqlite_master", "msysaccessobjects", "msysobjects", "all_tables", "user_tables")),
+    SQLI_BLIND(942160, Severity.CRITICAL, "Detects blind sqli tests using sleep() or benchmark()", List.of(
+            "sleep(", "sleep (", "benchmark(", "benchmark (", "pg_sleep", "waitfor delay", "dbms_lock.sleep",
+            "dbms_pipe.receive_message")),
+    SQLI_MSSQL_EXEC(942190, Severity.CRITICAL, "Detects MSSQL code execution and information gathering attempts", List.of(
+            "union select", "union all select", "union distinct select", "xp_cmdshell", "exec master",
+            "sp_executesql", "sp_oacreate", "@@version", "into outfile", "into dumpfile", "load_file(")),
+    SQLI_STACKED(942350, Severity.CRITICAL, "Detects MySQL UDF injection and other data/structure manipulation attempts", List.of(
+            ";drop ", "; drop ", ";alter ", "; alter ", ";create ", "; create ", ";truncate ", "; truncate ",
+            ";insert ", "; insert ", ";delete ", "; delete ", ";update ", "; update ", ";shutdown", "; shutdown",
+            "create function")),
+    SQLI_MYSQL_COMMENT(942440, Severity.CRITICAL, "SQL Comment Sequence Detected", List.of("/*!")),
+
+    XSS_SCRIPT_TAG(941110, Severity.CRITICAL, "XSS Filter - Category 1: Script Tag Vector", List.of("<script")),
+    XSS_EVENT_HANDLER(941120, Severity.CRITICAL, "XSS Filter - Category 2: Event Handler Vector", List.of(
+            "onerror=", "onerror =", "onload=", "onload =", "onmouseover=", "onmouseover =", "onfocus=", "onfocus =",
+            "onclick=", "onclick =", "ontoggle=", "ontoggle =", "onanimationstart=", "onpointerover=", "onbegin=")),
+    XSS_HTML_INJECTION(941160, Severity.CRITICAL, "NoScript XSS InjectionChecker: HTML Injection", List.of(
+            "<iframe", "<object", "<embed", "<svg", "<img ", "<img/", "<body ", "<meta ", "<base ", "<form ",
+            "<style", "<link ", "<frameset", "<applet", "<isindex", "<math")),
+    XSS_ATTRIBUTE(941170, Severity.CRITICAL, "NoScript XSS InjectionChecker: Attribute Injection", List.of(
+            "javascript:", "vbscript:", "livescript:", "data:text/html", "-moz-binding", "expression(")),
+    XSS_BLACKLIST(941180, Severity.CRITICAL, "Node-Validator Blacklist Keywords", List.of(
+            "document.cookie", "document.write", "document.domain", ".innerhtml", ".outerhtml", ".parentnode",
+            "window.location", "fromcharcode")),
+    XSS_JS_METHOD(941390, Severity.CRITICAL, "Javascript method detected", List.of(
+            "eval(", "alert(", "confirm(", "prompt(", "settimeout(", "setinterval(", "new function(", "atob(")),
+
+    LFI_DOUBLE_ENCODED_TRAVERSAL(930100, Severity.CRITICAL, "Path Traversal Attack (/../) - Double URL Encoded", List.of(
+            "%2e%2e/", "%2e%2e%2f", "%2e%2e\\", "%2e%2e%5c", "..%2f", "..%5c", ".%2e/", "%2e./", "..%c0%af",
+            "..%c0%ae")),
+    LFI_TRAVERSAL(930110, Severity.CRITICAL, "Path Traversal Attack (/../) or (/.../)", List.of(
+            "../", "..\\", "/..;", "/...")),
+    LFI_OS_FILES(930120, Severity.CRITICAL, "OS File Access Attempt", List.of(
+            "etc/passwd", "etc/shadow", "etc/group", "etc/hosts", "etc/issue", "proc/self/", "proc/version",
+            "boot.ini", "win.ini", "system.ini", "system32/", "system32\\", "windows/system", "id_rsa",
+            "authorized_keys", ".bash_history")),
+    LFI_RESTRICTED_FILES(930130, Severity.CRITICAL, "Restricted File Access Attempt", List.of(
+            ".htaccess", ".htpasswd", ".git/", ".svn/", ".hg/", "web.config", "wp-config.php", ".ds_store"));
+
+    /**
+     * CRS anomaly scoring 가중치 (crs-setup.conf 의 tx.*_anomaly_score 기본값)
+     */
+    public enum Severity {
+        CRITICAL(5), ERROR(4), WARNING(3), NOTICE(2);
+
+        private final int score;
+
+        Severity(int score) {
+            this.score = score;
+        }
+
+        public int score() {
+            return score;
+        }
+    }
+
+    private final int id;
+    private final Severity severity;
+    private final String message;
+    private final List<String> keywords;
+
+    InspectionRule(int id, Severity severity, String message, List<String> keywords) {
+        this.id = id;
+        this.severity = severity;
+        this.message = message;
+        this.keywords = keywords;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Severity severity() {
+        return severity;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    public List<String> keywords() {
+        return keywords;
+    }
+
+    public long bit() {
+        return 1L << ordinal();
+    }
+}
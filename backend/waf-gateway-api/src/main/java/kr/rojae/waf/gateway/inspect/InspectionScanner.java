@@ -0,0 +1,220 @@
+package kr.rojae.waf.gateway.inspect;
+
+import kr.rojae.waf.common.text.AhoCorasick;
+import org.springframework.core.io.buffer.DataBuffer;
+
+/**
+ * 요청 한 건을 훑는 상태 기계. 원본 바이트를 제자리에서 읽으며 URL 디코딩한 바이트를 키워드 DFA 와 SQL 토큰화에 바로 먹인다
+ *
+ * - 디코딩: %XX (잘못된 % 는 그대로), query/form 은 '+' → 공백. 디코딩 결과를 버퍼에 모으지 않는다.
+ * - 키워드 DFA 에는 공백류를 공백 하나로 압축하고 NUL 은 빼서 넣는다 (t:compressWhitespace, t:removeNulls).
+ * - query/form 은 원본 '&amp;' 와 첫 '=' 로 이름/값을 나눠 값마다 {@link SqlTokenizer} 세 개(따옴표 없음/'/")로 지문을 본다.
+ *
+ * 스레드마다 하나씩 재사용하므로({@link InspectionEngine}) 한 요청을 끝까지 같은 스레드에서 훑어야 한다.
+ */
+final class InspectionScanner {
+
+    private final AhoCorasick keywords;
+    private final SqlTokenizer bare = new SqlTokenizer(0);
+    private final SqlTokenizer singleQuoted = new SqlTokenizer('\'');
+    private final SqlTokenizer doubleQuoted = new SqlTokenizer('"');
+
+    private long matched;
+    private int state;
+    private boolean space;
+    /** 0: 평문, 1: '%' 뒤, 2: '%' + 16진수 한 자리 뒤 */
+    private int escape;
+    private int escapeFirst;
+    private boolean form;
+    private boolean inValue;
+    private boolean singleSeen;
+    private boolean doubleSeen;
+    private int segmentBytes;
+
+    InspectionScanner(AhoCorasick keywords) {
+        this.keywords = keywords;
+    }
+
+    void reset() {
+        matched = 0;
+    }
+
+    /**
+     * @return 매칭된 규칙 비트 ({@link InspectionRule#bit()})
+     */
+    long matched() {
+        return matched;
+    }
+
+    void path(CharSequence rawPath) {
+        begin(false);
+        for (int i = 0, n = rawPath.length(); i < n; i++) {
+            raw(narrow(rawPath.charAt(i)));
+        }
+        end();
+    }
+
+    void query(CharSequence rawQuery) {
+        begin(true);
+        for (int i = 0, n = rawQuery.length(); i < n; i++) {
+            raw(narrow(rawQuery.charAt(i)));
+        }
+        end();
+    }
+
+    /**
+     * @param form application/x-www-form-urlencoded 면 true (이름/값 분리 + SQL 토큰화), 아니면 키워드만
+     */
+    void body(DataBuffer body, boolean form) {
+        begin(form);
+        for (int i = body.readPosition(), end = body.writePosition(); i < end; i++) {
+            raw(body.getByte(i) & 0xFF);
+        }
+        end();
+    }
+
+    void body(byte[] body, boolean form) {
+        begin(form);
+        for (byte b : body) {
+            raw(b & 0xFF);
+        }
+        end();
+    }
+
+    private void begin(boolean form) {
+        this.form = form;
+        state = AhoCorasick.initialState();
+        space = false;
+        escape = 0;
+        inValue = false;
+        startSegment();
+    }
+
+    private void end() {
+        flushEscape();
+        if (form) {
+            endSegment();
+        }
+    }
+
+    private void raw(int c) {
+        if (escape == 1) {
+            if (hex(c) >= 0) {
+                escapeFirst = c;
+                escape = 2;
+                return;
+            }
+            escape = 0;
+            decoded('%');
+        } else if (escape == 2) {
+            escape = 0;
+            if (hex(c) >= 0) {
+                decoded((hex(escapeFirst) << 4) | hex(c));
+                return;
+            }
+            decoded('%');
+            decoded(escapeFirst);
+        }
+
+        if (c == '%') {
+            escape = 1;
+            return;
+        }
+        if (form) {
+            if (c == '&' || (c == '=' && !inValue)) {
+                endSegment();
+                inValue = c == '=';
+                step(c);
+                startSegment();
+                return;
+            }
+            if (c == '+') {
+                decoded(' ');
+                return;
+            }
+        }
+        decoded(c);
+    }
+
+    private void decoded(int b) {
+        if (b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B) {
+            if (!space) {
+                space = true;
+                step(' ');
+            }
+        } else if (b != 0) {
+            space = false;
+            step(b);
+        }
+
+        if (form) {
+            segmentBytes++;
+            if (b == '\'') {
+                singleSeen = true;
+            } else if (b == '"') {
+                doubleSeen = true;
+            }
+            bare.accept(b);
+            singleQuoted.accept(b);
+            doubleQuoted.accept(b);
+        }
+    }
+
+    private void step(int b) {
+        state = keywords.step(state, b);
+        matched |= keywords.tags(state);
+    }
+
+    private void flushEscape() {
+        if (escape == 1) {
+            decoded('%');
+        } else if (escape == 2) {
+            decoded('%');
+            decoded(escapeFirst);
+        }
+        escape = 0;
+    }
+
+    private void startSegment() {
+        bare.reset();
+        singleQuoted.reset();
+        doubleQuoted.reset();
+        singleSeen = false;
+        doubleSeen = false;
+        segmentBytes = 0;
+    }
+
+    private void endSegment() {
+        flushEscape();
+        if (segmentBytes == 0) {
+            return;
+        }
+        // 따옴표 context 는 입력에 그 따옴표가 있을 때만 의미가 있다 (libinjection 과 같음)
+        boolean sqli = bare.finish();
+        sqli |= singleSeen && singleQuoted.finish();
+        sqli |= doubleSeen && doubleQuoted.finish();
+        if (sqli) {
+            matched |= InspectionRule.SQLI_LIBINJECTION.bit();
+        }
+    }
+
+    /**
+     * 원본 URI 는 ASCII 라 char 하나가 바이트 하나. 비 ASCII 는 단어 문자 하나로 본다
+     */
+    private static int narrow(char ch) {
+        return ch < 0x80 ? ch : 0x80;
+    }
+
+    private static int hex(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,391 @@
+package kr.rojae.waf.gateway.inspect;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * libinjection 방식의 SQL 토큰 지문. 디코딩된 바이트를 하나씩 받아 앞 5 개 토큰의 종류만 남긴다 (할당 없음)
+ *
+ * 토큰 종류 (libinjection 과 같은 글자):
+ * s 문자열, 1 숫자/상수, n 이름, v 변수(@, @@), f 함수(이름 바로 뒤 '('), k 키워드, U union, E 문장(select/drop/...),
+ * B order/group by, &amp; and/or/&amp;&amp;/||, o 연산자, ( ) , ; 그대로, c 마지막 주석
+ *
+ * 접기(fold): "값 o 값" → "값", 맨 앞/연산자 뒤의 단항 연산자는 버리고, 중간 주석은 공백으로 본다.
+ * context 가 따옴표면 입력이 그 따옴표 안에 들어간다고 보고 문자열 상태로 시작한다 (' or 1=1-- → "s&amp;1c").
+ * 지문은 5 토큰 안에서 정확히 같거나, '*' 로 끝나는 패턴이면 앞부분이 같을 때 SQLi 로 본다.
+ */
+final class SqlTokenizer {
+
+    static final int MAX_TOKENS = 5;
+
+    private static final int IDLE = 0;
+    private static final int WORD = 1;
+    private static final int NUMBER = 2;
+    private static final int STRING = 3;
+    private static final int STRING_CLOSE = 4;
+    private static final int LINE_COMMENT = 5;
+    private static final int BLOCK_COMMENT = 6;
+    private static final int BLOCK_COMMENT_STAR = 7;
+    private static final int OPERATOR = 8;
+
+    /** 바로 앞이 'B' 면 합쳐지는 by */
+    private static final byte MERGE_BY = 'b';
+    /** 바로 앞이 'U' 면 합쳐지는 all/distinct */
+    private static final byte MERGE_UNION = 'a';
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long[] KEYWORD_HASHES;
+    private static final byte[] KEYWORD_TYPES;
+    private static final long[] FINGERPRINTS;
+
+    static {
+        Map<String, Character> keywords = new LinkedHashMap<>();
+        keywords.put("union", 'U');
+        for (String k : new String[]{"select", "insert", "update", "delete", "drop", "create", "alter", "truncate",
+                "exec", "execute", "declare", "shutdown", "rename", "grant", "revoke", "waitfor", "handler"}) {
+            keywords.put(k, 'E');
+        }
+        for (String k : new String[]{"from", "where", "into", "values", "table", "having", "limit", "offset", "as",
+                "case", "when", "then", "else", "end", "top", "procedure", "delay", "set", "join", "on", "using",
+                "outfile", "dumpfile"}) {
+            keywords.put(k, 'k');
+        }
+        for (String k : new String[]{"like", "rlike", "regexp", "between", "in", "is", "not", "div", "mod",
+                "sounds", "collate", "escape"}) {
+            keywords.put(k, 'o');
+        }
+        for (String k : new String[]{"and", "or", "xor"}) {
+            keywords.put(k, '&');
+        }
+        for (String k : new String[]{"null", "true", "false", "current_timestamp"}) {
+            keywords.put(k, '1');
+        }
+        for (String k : new String[]{"sleep", "benchmark", "pg_sleep", "concat", "concat_ws", "char", "chr", "ascii",
+                "ord", "substring", "substr", "mid", "version", "database", "schema", "user", "current_user",
+                "system_user", "session_user", "load_file", "count", "cast", "convert", "extractvalue", "updatexml",
+                "md5", "sha1", "hex", "unhex", "if", "ifnull", "isnull", "coalesce", "group_concat", "length", "len",
+                "rand", "floor", "now", "name_const", "char_length", "lower", "upper", "elt", "make_set",
+                "json_extract", "exp", "dbms_pipe.receive_message", "utl_inaddr.get_host_name"}) {
+            keywords.put(k, 'f');
+        }
+        keywords.put("order", 'B');
+        keywords.put("group", 'B');
+        keywords.put("by", (char) MERGE_BY);
+        keywords.put("all", (char) MERGE_UNION);
+        keywords.put("distinct", (char) MERGE_UNION);
+
+        long[][] entries = keywords.entrySet().stream()
+                .map(e -> new long[]{hash(e.getKey()), e.getValue()})
+                .sorted((a, b) -> Long.compare(a[0], b[0]))
+                .toArray(long[][]::new);
+        KEYWORD_HASHES = new long[entries.length];
+        KEYWORD_TYPES = new byte[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            KEYWORD_HASHES[i] = entries[i][0];
+            KEYWORD_TYPES[i] = (byte) entries[i][1];
+        }
+
+        FINGERPRINTS = Arrays.stream(new String[]{
+                // 따옴표 context: ' or 1=1--, ' or 'a'='a, ' union select, '; drop, ' and sleep(5), admin'--
+                "s&1*", "s&s*", "s&v*", "s&f(*", "s&(*", "s)&*", "sUE*", "s)UE*", "s;E*", "sB1*", "so(E*",
+                "sc", "s;c", "s)c",
+                // 따옴표 없는 숫자/이름 context: 1 union select, 1;drop, 1 and sleep(5), (select 1 ...)
+                "1UE*", "nUE*", ")UE*", "1;E*", "1&1c", "1&1&*", "1&f(*", "1&(*", "1&v*", "1)&*", "1B1c",
+                "(E1*", "(Ef(*", "(Ev*", "(Ekn*"
+        }).mapToLong(SqlTokenizer::patternKey).sorted().toArray();
+    }
+
+    private final int context;
+
+    private int state;
+    private int quote;
+    private boolean escaped;
+    private int pending;
+    private long wordHash;
+    private boolean variable;
+    private int numberStart;
+    private int numberLength;
+    private boolean hexNumber;
+    private boolean comment;
+    private long fingerprint;
+    private int count;
+
+    /**
+     * @param context 0 또는 시작 따옴표(' ")
+     */
+    SqlTokenizer(int context) {
+        this.context = context;
+        reset();
+    }
+
+    void reset() {
+        fingerprint = 0;
+        count = 0;
+        comment = false;
+        escaped = false;
+        if (context != 0) {
+            state = STRING;
+            quote = context;
+        } else {
+            state = IDLE;
+        }
+    }
+
+    void accept(int b) {
+        if (count >= MAX_TOKENS) {
+            return;
+        }
+        int c = b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+        switch (state) {
+            case WORD -> {
+                if (isWordChar(c)) {
+                    wordHash = (wordHash ^ c) * FNV_PRIME;
+                    return;
+                }
+                endWord(c);
+            }
+            case NUMBER -> {
+                if (continuesNumber(c)) {
+                    numberLength++;
+                    return;
+                }
+                emit('1');
+            }
+            case STRING -> {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == quote) {
+                    state = STRING_CLOSE;
+                }
+                return;
+            }
+            case STRING_CLOSE -> {
+                // '' 는 문자열 안의 따옴표
+                if (c == quote) {
+                    state = STRING;
+                    return;
+                }
+                emit(quote == '`' ? 'n' : 's');
+            }
+            case LINE_COMMENT -> {
+                if (c == '\n') {
+                    state = IDLE;
+                    comment = true;
+                }
+                return;
+            }
+            case BLOCK_COMMENT -> {
+                if (c == '*') {
+                    state = BLOCK_COMMENT_STAR;
+                }
+                return;
+            }
+            case BLOCK_COMMENT_STAR -> {
+                if (c == '/') {
+                    state = IDLE;
+                    comment = true;
+                } else if (c != '*') {
+                    state = BLOCK_COMMENT;
+                }
+                return;
+            }
+            case OPERATOR -> {
+                if (pending == '-' && c == '-') {
+                    state = LINE_COMMENT;
+                    return;
+                }
+                if (pending == '/' && c == '*') {
+                    state = BLOCK_COMMENT;
+                    return;
+                }
+                if ((pending == '|' || pending == '&') && c == pending) {
+                    // || &&
+                    state = IDLE;
+                    emit('&');
+                    return;
+                }
+                emit('o');
+            }
+            default -> {
+            }
+        }
+        state = IDLE;
+        start(c);
+    }
+
+    /**
+     * 입력 끝: 진행 중인 토큰을 마무리하고 지문이 SQLi 패턴에 걸리는지
+     */
+    boolean finish() {
+        if (count < MAX_TOKENS) {
+            switch (state) {
+                case WORD -> endWord(-1);
+                case NUMBER -> emit('1');
+                case STRING, STRING_CLOSE -> emit(quote == '`' ? 'n' : 's');
+                case LINE_COMMENT, BLOCK_COMMENT, BLOCK_COMMENT_STAR -> comment = true;
+                case OPERATOR -> emit('o');
+                default -> {
+                }
+            }
+            if (comment && count < MAX_TOKENS) {
+                fingerprint = (fingerprint << 8) | 'c';
+                count++;
+            }
+        }
+        state = IDLE;
+        return matches();
+    }
+
+    /**
+     * 마지막 {@link #finish()} 까지의 지문 (디버깅/상태 표시용)
+     */
+    String fingerprint() {
+        char[] chars = new char[count];
+        for (int i = 0; i < count; i++) {
+            chars[i] = (char) ((fingerprint >>> (8 * (count - 1 - i))) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private boolean matches() {
+        if (count == 0) {
+            return false;
+        }
+        if (Arrays.binarySearch(FINGERPRINTS, key(fingerprint, count, false)) >= 0) {
+            return true;
+        }
+        for (int length = 1; length <= count; length++) {
+            if (Arrays.binarySearch(FINGERPRINTS, key(fingerprint >>> (8 * (count - length)), length, true)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void start(int c) {
+        if (isWordStart(c)) {
+            state = WORD;
+            variable = c == '@';
+            wordHash = (FNV_OFFSET ^ c) * FNV_PRIME;
+            return;
+        }
+        if (c >= '0' && c <= '9') {
+            state = NUMBER;
+            numberLength = 1;
+            hexNumber = false;
+            numberStart = c;
+            return;
+        }
+        switch (c) {
+            case '\'', '"', '`' -> {
+                state = STRING;
+                quote = c;
+            }
+            case '#' -> state = LINE_COMMENT;
+            case '-', '/', '|', '&' -> {
+                state = OPERATOR;
+                pending = c;
+            }
+            case '=', '<', '>', '!', '+', '*', '%', '^', '~', ':' -> emit('o');
+            case '(', ')', ',', ';' -> emit(c);
+            default -> {
+                // 공백, 그 밖의 구분 문자
+            }
+        }
+    }
+
+    private void endWord(int next) {
+        if (variable) {
+            emit('v');
+            return;
+        }
+        int index = Arrays.binarySearch(KEYWORD_HASHES, wordHash);
+        int type = index >= 0 ? KEYWORD_TYPES[index] : 'n';
+        int last = count > 0 ? (int) (fingerprint & 0xFF) : 0;
+        if (type == MERGE_BY) {
+            if (last == 'B') {
+                return;
+            }
+            type = 'n';
+        } else if (type == MERGE_UNION) {
+            if (last == 'U') {
+                return;
+            }
+            type = 'k';
+        }
+        if (type == 'n' && next == '(') {
+            type = 'f';
+        }
+        emit(type);
+    }
+
+    private void emit(int type) {
+        if (count >= MAX_TOKENS) {
+            return;
+        }
+        // 토큰 사이의 주석은 공백 취급 (union/**/select)
+        comment = false;
+        int last = count > 0 ? (int) (fingerprint & 0xFF) : 0;
+        if (type == 'o' && (count == 0 || last == 'o' || last == '(' || last == '&' || last == ','
+                || last == ';' || last == 'E' || last == 'U' || last == 'k' || last == 'B')) {
+            return;
+        }
+        if (isValue(type) && last == 'o' && count >= 2 && isValue((int) ((fingerprint >>> 8) & 0xFF))) {
+            fingerprint >>>= 8;
+            count--;
+            return;
+        }
+        fingerprint = (fingerprint << 8) | type;
+        count++;
+    }
+
+    private boolean continuesNumber(int c) {
+        if (c >= '0' && c <= '9' || c == '.') {
+            return true;
+        }
+        if (numberLength == 1 && numberStart == '0' && c == 'x') {
+            hexNumber = true;
+            return true;
+        }
+        return hexNumber ? c >= 'a' && c <= 'f' : c == 'e';
+    }
+
+    private static boolean isValue(int type) {
+        return type == '1' || type == 's' || type == 'n' || type == 'v';
+    }
+
+    private static boolean isWordStart(int c) {
+        return c >= 'a' && c <= 'z' || c == '_' || c == '$' || c == '@' || c >= 0x80;
+    }
+
+    private static boolean isWordChar(int c) {
+        return isWordStart(c) || c >= '0' && c <= '9' || c == '.';
+    }
+
+    private static long hash(String word) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < word.length(); i++) {
+            h = (h ^ word.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long patternKey(String pattern) {
+        boolean prefix = pattern.endsWith("*");
+        String tokens = prefix ? pattern.substring(0, pattern.length() - 1) : pattern;
+        long packed = 0;
+        for (int i = 0; i < tokens.length(); i++) {
+            packed = (packed << 8) | tokens.charAt(i);
+        }
+        return key(packed, tokens.length(), prefix);
+    }
+
+    private static long key(long packed, int length, boolean prefix) {
+        return ((long) length << 48) | (prefix ? 1L << 47 : 0L) | packed;
+    }
+}
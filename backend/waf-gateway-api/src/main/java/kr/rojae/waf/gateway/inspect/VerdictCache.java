@@ -0,0 +1,182 @@
+package kr.rojae.waf.gateway.inspect;
+
+import kr.rojae.waf.common.collect.FrequencySketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 똑같은 요청의 판정 결과 캐시 (스캐너/봇넷의 같은 공격 반복, 같은 GET 반복은 검사를 다시 하지 않는다)
+ *
+ * - 키는 (메서드, 호스트, 경로, query, Content-Type, 본문) 의 128 비트 Murmur3 해시. 값은 판정 + 매칭 규칙 비트 + 만료 시각.
+ *   WAF_BLOCK 은 이 키에 요청 헤더와 클라이언트 주소를 더한 별도 키로 저장한다 (EdgeInspectionFilter).
+ * - 4-way set-associative 배열이라 조회는 잠금/할당이 없고, 항목은 불변 객체로 통째로 교체한다.
+ * - 입장(admission)은 TinyLFU: 모든 조회가 빈도 sketch 를 올리고, 빈도가 admit-frequency 미만인 한 번짜리 요청은 넣지 않는다.
+ *   세트가 차 있으면 희생 후보(가장 빈도가 낮은 항목)보다 빈도가 높을 때만 교체한다.
+ * - 룰셋 version 이 바뀌면 세대(generation)를 올려 전부 무효화한다 (이전 세대 항목은 빈 칸으로 본다).
+ */
+@Component
+@ConditionalOnProperty(name = "app.gateway.verdict-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class VerdictCache {
+
+    public enum Verdict {
+        /** 게이트웨이 검사 통과 (매칭 규칙이 있으면 헤더로만 표시) */
+        ALLOW,
+        /** 게이트웨이 검사로 차단 (block 모드) */
+        BLOCK,
+        /** WAF(ModSecurity)가 차단한 요청 */
+        WAF_BLOCK
+    }
+
+    public record Entry(long high, long low, long matched, Verdict verdict, long expiresAt, long generation) {
+    }
+
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int setMask;
+    private final FrequencySketch sketch;
+    private final long ttlNanos;
+    private final int admitFrequency;
+
+    private volatile long generation;
+    private volatile String ruleSetVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public VerdictCache(
+        @Value("${app.gateway.verdict-cache.max-entries:65536}") int maxEntries,
+        @Value("${app.gateway.verdict-cache.ttl:60s}") Duration ttl,
+        @Value("${app.gateway.verdict-cache.admit-frequency:2}") int admitFrequency
+    ) {
+        int sets = Math.max(1, Integer.highestOneBit(Math.max(WAYS, maxEntries) / WAYS - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(sets * WAYS);
+        this.setMask = sets - 1;
+        this.sketch = new FrequencySketch(sets * WAYS);
+        this.ttlNanos = ttl.toNanos();
+        this.admitFrequency = admitFrequency;
+    }
+
+    /**
+     * 조회와 동시에 빈도를 올린다. 만료되었거나 이전 세대 항목이면 null
+     */
+    public Entry get(long high, long low) {
+        sketch.increment(low);
+        long now = System.nanoTime();
+        long current = generation;
+        int base = setIndex(high) * WAYS;
+        for (int way = 0; way < WAYS; way++) {
+            Entry entry = slots.get(base + way);
+            if (entry != null && entry.high() == high && entry.low() == low) {
+                if (entry.generation() == current && entry.expiresAt() - now > 0) {
+                    hits.incrementAndGet();
+                    return entry;
+                }
+                break;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 현재 세대. 판정을 내린 뒤 나중에 넣을 때(WAF 응답을 받은 뒤) 판정 시점의 세대로 넣으려고 미리 읽어 둔다
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * 같은 키가 있으면 판정을 바꾸고(TTL 도 새로), 없으면 TinyLFU 입장 심사 후 넣는다
+     */
+    public void put(long high, long low, long matched, Verdict verdict) {
+        put(high, low, matched, verdict, generation);
+    }
+
+    /**
+     * @param generation 판정 시점의 세대. 그사이 룰셋이 바뀌어 세대가 올라갔으면 넣지 않는다
+     */
+    public void put(long high, long low, long matched, Verdict verdict, long generation) {
+        long now = System.nanoTime();
+        long current = this.generation;
+        if (generation != current) {
+            rejected.incrementAndGet();
+            return;
+        }
+        Entry entry = new Entry(high, low, matched, verdict, now + ttlNanos, current);
+        int base = setIndex(high) * WAYS;
+
+        int victim = -1;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int way = 0; way < WAYS; way++) {
+            Entry existing = slots.get(base + way);
+            if (existing != null && existing.high() == high && existing.low() == low) {
+                slots.set(base + way, entry);
+                updated.incrementAndGet();
+                return;
+            }
+            int frequency = existing == null || existing.generation() != current || existing.expiresAt() - now <= 0
+                    ? -1 : sketch.frequency(existing.low());
+            if (frequency < victimFrequency) {
+                victim = way;
+                victimFrequency = frequency;
+            }
+        }
+
+        int candidateFrequency = sketch.frequency(low);
+        if (candidateFrequency < admitFrequency || (victimFrequency >= 0 && candidateFrequency <= victimFrequency)) {
+            rejected.incrementAndGet();
+            return;
+        }
+        if (victimFrequency >= 0) {
+            evicted.incrementAndGet();
+        }
+        slots.set(base + victim, entry);
+        admitted.incrementAndGet();
+    }
+
+    /**
+     * 룰셋 version 변경: 모든 항목을 무효화 (O(1), 이전 세대 칸은 다음 put 에서 재사용된다)
+     */
+    public synchronized void invalidateAll(String version) {
+        generation++;
+        ruleSetVersion = version;
+        invalidations.incrementAndGet();
+    }
+
+    public Map<String, Object> status() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("capacity", slots.length());
+        status.put("ttlSeconds", ttlNanos / 1_000_000_000L);
+        status.put("admitFrequency", admitFrequency);
+        status.put("ruleSetVersion", ruleSetVersion);
+        status.put("generation", generation);
+        status.put("hits", hit);
+        status.put("misses", total - hit);
+        status.put("hitRate", total > 0 ? (double) hit / total : 0);
+        status.put("admitted", admitted.get());
+        status.put("rejected", rejected.get());
+        status.put("evicted", evicted.get());
+        status.put("updated", updated.get());
+        status.put("invalidations", invalidations.get());
+        return status;
+    }
+
+    private int setIndex(long high) {
+        return (int) (high ^ (high >>> 32)) & setMask;
+    }
+}
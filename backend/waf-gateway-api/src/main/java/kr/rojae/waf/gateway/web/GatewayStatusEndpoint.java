@@ -0,0 +1,67 @@
+package kr.rojae.waf.gateway.web;
+
+import kr.rojae.waf.common.ratelimit.RateLimitRegistry;
+import kr.rojae.waf.gateway.edge.EdgeInspectionFilter;
+import kr.rojae.waf.gateway.edge.EdgeIpLists;
+import kr.rojae.waf.gateway.edge.EdgeVerdictFilter;
+import kr.rojae.waf.gateway.edge.RuleSetVersionWatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * edge 게이트웨이 자체 상태 (/actuator/edge)
+ *
+ * 공개 포트(server.port)가 아니라 관리 포트(management.server.port)에서만 열린다. 공개 포트의 요청은 전부 프록시된다.
+ */
+@Component
+@Endpoint(id = "edge")
+@RequiredArgsConstructor
+@Slf4j
+public class GatewayStatusEndpoint {
+
+    private final EdgeVerdictFilter verdictFilter;
+    private final EdgeIpLists ipLists;
+    private final RuleSetVersionWatcher ruleSetVersion;
+    private final ObjectProvider<RateLimitRegistry> rateLimitRegistry;
+    private final ObjectProvider<EdgeInspectionFilter> inspectionFilter;
+
+    /**
+     * 판정별 요청 수, 평균 판정 시간, 로드된 IP 목록 크기, route 별 rate limit, 1차 검사 규칙별 매칭 수
+     */
+    @ReadOperation
+    public Map<String, Object> status() {
+        log.info("GET /actuator/edge");
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("verdicts", verdictFilter.status());
+        status.put("ipLists", ipLists.status());
+        RateLimitRegistry registry = rateLimitRegistry.getIfAvailable();
+        status.put("rateLimits", registry != null ? registry.status() : List.of());
+        EdgeInspectionFilter inspection = inspectionFilter.getIfAvailable();
+        status.put("inspection", inspection != null ? inspection.status() : Map.of("enabled", false));
+        return status;
+    }
+
+    /**
+     * 파일 변경 주기를 기다리지 않고 IP 목록과 룰셋 version(판정 캐시 무효화)을 다시 읽는다
+     */
+    @WriteOperation
+    public Map<String, Object> reload() {
+        log.info("POST /actuator/edge");
+
+        ipLists.reload();
+        ruleSetVersion.check();
+        Map<String, Object> status = new LinkedHashMap<>(ipLists.status());
+        status.put("ruleSetVersion", ruleSetVersion.version());
+        return status;
+    }
+}
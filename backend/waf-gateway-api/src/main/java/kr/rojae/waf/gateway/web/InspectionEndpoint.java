@@ -0,0 +1,51 @@
+package kr.rojae.waf.gateway.web;
+
+import kr.rojae.waf.gateway.inspect.InspectionEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 게이트웨이 1차 검사 엔진 확인 (/actuator/inspection, 처리량 측정은 src/jmh 의 InspectionBenchmark)
+ *
+ * 규칙 목록과 점수를 그대로 돌려주므로 관리 포트(management.server.port)에서만 연다.
+ */
+@Component
+@Endpoint(id = "inspection")
+@RequiredArgsConstructor
+@Slf4j
+public class InspectionEndpoint {
+
+    private final InspectionEngine engine;
+
+    /**
+     * 인코딩된 요청 대상(경로?query)과 form 본문을 검사해서 매칭 규칙, 점수, 분류 트랙을 돌려준다
+     */
+    @ReadOperation
+    public Map<String, Object> check(String target, @Nullable String body) {
+        log.info("GET /actuator/inspection - target: {}", target);
+
+        int question = target.indexOf('?');
+        long matched = engine.inspect(
+                question < 0 ? target : target.substring(0, question),
+                question < 0 ? null : target.substring(question + 1),
+                body != null ? body.getBytes(StandardCharsets.UTF_8) : null,
+                true);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("target", target);
+        result.put("anomalyScore", InspectionEngine.anomalyScore(matched));
+        result.put("track", InspectionEngine.track(matched));
+        result.put("rules", InspectionEngine.rules(matched).stream()
+                .map(rule -> Map.of("id", rule.id(), "severity", rule.severity().name(), "message", rule.message()))
+                .toList());
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package kr.rojae.waf.agent;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * WAF 노드 sidecar: Kafka(waf-rule-sets) 의 rule-set 을 로컬 custom-rules 디렉터리에 반영하고 결과를 ack 한다
+ */
+@SpringBootApplication
+@EnableScheduling
+public class RuleAgentApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(RuleAgentApplication.class, args);
+    }
+}
@@ -0,0 +1,278 @@
+package kr.rojae.waf.agent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kr.rojae.waf.dashboard.dto.RuleSetAckDto;
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+import kr.rojae.waf.dashboard.dto.RuleShardDto;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Properties;
+
+/**
+ * waf-rule-sets 토픽을 구독해 로컬 custom-rules 디렉터리를 대시보드와 같은 rule-set 으로 맞춘다.
+ *
+ * 토픽은 compact 된 단일 파티션이다. key 가 shard 이름이면 shard, "manifest" 면 manifest, value 가 null 이면 삭제된 shard.
+ * 컨슈머 그룹 없이 처음부터 읽어 최신 상태를 복원하고, 끝까지 따라잡은 뒤 manifest 의 모든 shard 가
+ * 같은 hash 로 모였을 때만 디스크에 쓴다. 결과는 waf-rule-acks 에 WRITTEN -> APPLIED / FAILED 로 보고한다.
+ */
+@Component
+@Slf4j
+public class RuleSetAgent {
+
+    private static final String MANIFEST_KEY = "manifest";
+    private static final int PARTITION = 0;
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final RuleSetFileWriter fileWriter;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final String topic;
+    private final String ackTopic;
+    private final boolean awaitReload;
+    private final Duration reloadTimeout;
+
+    // poll 스레드에서만 접근
+    private final Map<String, RuleShardDto> shards = new HashMap<>();
+    private RuleSetManifestDto pending;
+
+    private volatile Awaiting awaiting;
+    private volatile RuleSetAckDto lastAck;
+    private volatile boolean running;
+    private Consumer<String, String> consumer;
+    private Thread worker;
+
+    public RuleSetAgent(
+        ConsumerFactory<String, String> consumerFactory,
+        KafkaTemplate<String, String> kafkaTemplate,
+        RuleSetFileWriter fileWriter,
+        ObjectMapper objectMapper,
+        @Value("${app.agent.node-id}") String nodeId,
+        @Value("${app.agent.topic:waf-rule-sets}") String topic,
+        @Value("${app.agent.ack-topic:waf-rule-acks}") String ackTopic,
+        @Value("${app.agent.await-reload:true}") boolean awaitReload,
+        @Value("${app.agent.reload-timeout:60s}") Duration reloadTimeout
+    ) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.fileWriter = fileWriter;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId;
+        this.topic = topic;
+        this.ackTopic = ackTopic;
+        this.awaitReload = awaitReload;
+        this.reloadTimeout = reloadTimeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // shard 는 gzip 해도 수백 KB 가 될 수 있다
+        overrides.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, String.valueOf(8 * 1024 * 1024));
+        consumer = consumerFactory.createConsumer(null, "rule-agent-" + nodeId, null, overrides);
+
+        running = true;
+        worker = new Thread(this::run, "rule-agent");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Rule agent started: nodeId={}, topic={}", nodeId, topic);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (worker != null) {
+            worker.join(5000);
+        }
+    }
+
+    private void run() {
+        TopicPartition partition = new TopicPartition(topic, PARTITION);
+        try {
+            consumer.assign(List.of(partition));
+            consumer.seekToBeginning(List.of(partition));
+            while (running) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofSeconds(1))) {
+                    handle(record);
+                }
+                if (pending != null && caughtUp(partition)) {
+                    apply(pending);
+                    pending = null;
+                }
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            log.error("Rule agent stopped: {}", e.getMessage(), e);
+        } finally {
+            consumer.close(Duration.ofSeconds(5));
+        }
+    }
+
+    private void handle(ConsumerRecord<String, String> record) {
+        if (record.key() == null) {
+            return;
+        }
+        try {
+            if (MANIFEST_KEY.equals(record.key())) {
+                if (record.value() != null) {
+                    pending = objectMapper.readValue(record.value(), RuleSetManifestDto.class);
+                }
+            } else if (record.value() == null) {
+                shards.remove(record.key());
+            } else {
+                shards.put(record.key(), objectMapper.readValue(record.value(), RuleShardDto.class));
+            }
+        } catch (Exception e) {
+            log.warn("Skipping unreadable record key={} offset={}: {}", record.key(), record.offset(), e.getMessage());
+        }
+    }
+
+    /**
+     * 토픽 끝까지 읽었는지. 중간 manifest 를 쓰지 않도록 마지막 manifest 만 적용한다.
+     */
+    private boolean caughtUp(TopicPartition partition) {
+        OptionalLong lag = consumer.currentLag(partition);
+        if (lag.isPresent()) {
+            return lag.getAsLong() == 0;
+        }
+        Long end = consumer.endOffsets(List.of(partition)).get(partition);
+        return end == null || consumer.position(partition) >= end;
+    }
+
+    private void apply(RuleSetManifestDto manifest) {
+        Instant receivedAt = Instant.now();
+        RuleSetManifestDto current = fileWriter.current();
+        if (current != null && manifest.hash().equals(current.hash())) {
+            RuleSetFileWriter.Applied applied = checkApplied(manifest);
+            ack(manifest, applied != null || !awaitReload ? "APPLIED" : "WRITTEN", "already deployed",
+                    receivedAt, applied != null ? applied.at() : null);
+            if (applied == null && awaitReload) {
+                awaiting = new Awaiting(manifest, receivedAt, System.nanoTime());
+            }
+            return;
+        }
+
+        for (RuleShardDto file : manifest.files()) {
+            RuleShardDto shard = shards.get(file.name());
+            boolean onDisk = current != null && current.files() != null && current.files().stream()
+                    .anyMatch(f -> f.name().equals(file.name()) && f.hash().equals(file.hash()));
+            if (!onDisk && (shard == null || !file.hash().equals(shard.hash()))) {
+                // 대시보드 전송이 중간에 실패한 경우. 다음 compile 에서 전체 shard 를 다시 보낸다
+                ack(manifest, "FAILED", "missing shard " + file.name(), receivedAt, null);
+                return;
+            }
+        }
+
+        try {
+            List<String> changed = fileWriter.write(manifest, shards);
+            log.info("Rule set v{} written ({} rules, changed={})", manifest.version(), manifest.ruleCount(), changed);
+        } catch (Exception e) {
+            log.error("Failed to write rule set v{}: {}", manifest.version(), e.getMessage());
+            ack(manifest, "FAILED", e.getMessage(), receivedAt, null);
+            return;
+        }
+
+        if (awaitReload) {
+            ack(manifest, "WRITTEN", null, receivedAt, null);
+            awaiting = new Awaiting(manifest, receivedAt, System.nanoTime());
+        } else {
+            ack(manifest, "APPLIED", "reload not awaited", receivedAt, Instant.now());
+        }
+    }
+
+    /**
+     * nginx 가 .applied 에 같은 hash 를 남겼는지 확인 (nginx/init.sh 가 리로드 후 기록)
+     */
+    @Scheduled(fixedDelayString = "${app.agent.applied-poll-interval:2s}")
+    public void checkReload() {
+        Awaiting current = awaiting;
+        if (current == null) {
+            return;
+        }
+        RuleSetFileWriter.Applied applied = checkApplied(current.manifest());
+        if (applied != null) {
+            awaiting = null;
+            ack(current.manifest(), "APPLIED", null, current.receivedAt(), applied.at());
+            log.info("Rule set v{} applied by nginx", current.manifest().version());
+        } else if (System.nanoTime() - current.startedNanos() > reloadTimeout.toNanos()) {
+            awaiting = null;
+            ack(current.manifest(), "FAILED", "nginx did not reload within " + reloadTimeout, current.receivedAt(), null);
+            log.warn("Rule set v{} not applied within {}", current.manifest().version(), reloadTimeout);
+        }
+    }
+
+    /**
+     * 마지막 ack 를 다시 보내 대시보드가 살아있는 노드를 알 수 있게 한다
+     */
+    @Scheduled(fixedDelayString = "${app.agent.heartbeat-interval:30s}")
+    public void heartbeat() {
+        RuleSetAckDto ack = lastAck;
+        if (ack != null) {
+            send(ack);
+        }
+    }
+
+    private RuleSetFileWriter.Applied checkApplied(RuleSetManifestDto manifest) {
+        RuleSetFileWriter.Applied applied = fileWriter.applied();
+        return applied != null && manifest.hash().equals(applied.hash()) ? applied : null;
+    }
+
+    private void ack(RuleSetManifestDto manifest, String status, String message, Instant receivedAt, Instant appliedAt) {
+        lastAck = RuleSetAckDto.builder()
+                .nodeId(nodeId)
+                .version(manifest.version())
+                .hash(manifest.hash())
+                .status(status)
+                .message(message)
+                .receivedAt(receivedAt)
+                .appliedAt(appliedAt)
+                .build();
+        send(lastAck);
+    }
+
+    private void send(RuleSetAckDto ack) {
+        try {
+            RuleSetAckDto stamped = RuleSetAckDto.builder()
+                    .nodeId(ack.nodeId())
+                    .version(ack.version())
+                    .hash(ack.hash())
+                    .status(ack.status())
+                    .message(ack.message())
+                    .receivedAt(ack.receivedAt())
+                    .appliedAt(ack.appliedAt())
+                    .sentAt(Instant.now())
+                    .build();
+            kafkaTemplate.send(ackTopic, PARTITION, nodeId, objectMapper.writeValueAsString(stamped));
+        } catch (Exception e) {
+            log.warn("Failed to send ack v{} {}: {}", ack.version(), ack.status(), e.getMessage());
+        }
+    }
+
+    private record Awaiting(RuleSetManifestDto manifest, Instant receivedAt, long startedNanos) {}
+}
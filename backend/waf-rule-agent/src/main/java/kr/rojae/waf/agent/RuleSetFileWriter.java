@@ -0,0 +1,229 @@
+package kr.rojae.waf.agent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+import kr.rojae.waf.dashboard.dto.RuleShardDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * rule-set 을 로컬 custom-rules 디렉터리에 반영 (대시보드 RuleSetCompiler 와 같은 배치)
+ *
+ * 바뀐 shard -> Include 목록 -> 안 쓰는 shard 삭제 -> manifest.json 순으로 임시 파일 + fsync + rename 한다.
+ * manifest.json 이 마지막이라 nginx/init.sh 는 항상 완성된 파일 집합을 보고 리로드한다.
+ */
+@Component
+@Slf4j
+public class RuleSetFileWriter {
+
+    private static final String SHARD_DIR = "rules.d";
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String APPLIED_FILE = ".applied";
+
+    private final ObjectMapper objectMapper;
+    private final Path rulesDir;
+
+    public RuleSetFileWriter(
+        ObjectMapper objectMapper,
+        @Value("${app.agent.rules-dir:/etc/modsecurity/custom-rules}") String rulesDir
+    ) {
+        this.objectMapper = objectMapper;
+        this.rulesDir = Path.of(rulesDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 디스크에 있는 manifest (없으면 null)
+     */
+    public RuleSetManifestDto current() {
+        Path path = rulesDir.resolve(MANIFEST_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), RuleSetManifestDto.class);
+        } catch (IOException e) {
+            log.warn("Failed to read {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param shards Kafka 에서 받은 shard (이름 -> 내용 포함 shard)
+     * @return 바뀐 파일 목록
+     * @throws IllegalStateException 내용 hash 가 manifest 와 다르거나 shard 이름이 rules.d 밖을, index 이름이 rules-dir 밖을 가리킬 때
+     */
+    public List<String> write(RuleSetManifestDto manifest, Map<String, RuleShardDto> shards) throws IOException {
+        RuleSetManifestDto previous = current();
+        Map<String, String> previousHashes = new HashMap<>();
+        if (previous != null && previous.files() != null) {
+            previous.files().forEach(file -> previousHashes.put(file.name(), file.hash()));
+        }
+
+        // 먼저 전부 풀어 검증한다. 하나라도 틀리면 아무것도 쓰지 않는다
+        Path index = resolveIndex(manifest.index());
+        Map<String, String> contents = new HashMap<>();
+        for (RuleShardDto file : manifest.files()) {
+            Path path = resolveShard(file.name());
+            if (file.hash().equals(previousHashes.get(file.name())) && Files.exists(path)) {
+                continue;
+            }
+            String content = decode(shards.get(file.name()));
+            if (!sha256(content).equals(file.hash())) {
+                throw new IllegalStateException("Content hash mismatch for " + file.name());
+            }
+            contents.put(file.name(), content);
+        }
+
+        List<String> changed = new ArrayList<>();
+        Path shardDir = rulesDir.resolve(SHARD_DIR);
+        Files.createDirectories(shardDir);
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            writeAtomically(resolveShard(entry.getKey()), entry.getValue());
+            changed.add(entry.getKey());
+        }
+
+        String deployedIndex = Files.exists(index) ? Files.readString(index, StandardCharsets.UTF_8) : null;
+        if (!manifest.indexContent().equals(deployedIndex)) {
+            writeAtomically(index, manifest.indexContent());
+            changed.add(manifest.index());
+        }
+
+        Set<String> live = new HashSet<>();
+        manifest.files().forEach(file -> live.add(file.name()));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardDir, "*.{conf,data}")) {
+            for (Path path : stream) {
+                String name = SHARD_DIR + "/" + path.getFileName();
+                if (!live.contains(name)) {
+                    Files.deleteIfExists(path);
+                    changed.add("-" + name);
+                }
+            }
+        }
+
+        RuleSetManifestDto onDisk = RuleSetManifestDto.builder()
+                .version(manifest.version())
+                .hash(manifest.hash())
+                .ruleCount(manifest.ruleCount())
+                .generatedAt(manifest.generatedAt())
+                .index(manifest.index())
+                .files(manifest.files())
+                .build();
+        writeAtomically(rulesDir.resolve(MANIFEST_FILE), objectMapper.writeValueAsString(onDisk));
+        return changed;
+    }
+
+    /**
+     * nginx 가 리로드 후 남긴 .applied ("version hash epochSeconds"), 없으면 null
+     */
+    public Applied applied() {
+        Path path = rulesDir.resolve(APPLIED_FILE);
+        try {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            String[] fields = Files.readString(path, StandardCharsets.UTF_8).trim().split("\\s+");
+            if (fields.length < 2) {
+                return null;
+            }
+            Instant at = fields.length > 2 ? Instant.ofEpochSecond(Long.parseLong(fields[2])) : Instant.now();
+            return new Applied(Long.parseLong(fields[0]), fields[1], at);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed to read {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    public record Applied(long version, String hash, Instant at) {}
+
+    /**
+     * Kafka 로 받은 이름이 rules.d 밖을 가리키지 않는지 확인 (.conf shard 또는 룰이 참조하는 .data 파일만 허용)
+     */
+    private Path resolveShard(String name) {
+        Path path = rulesDir.resolve(name).normalize();
+        if (!path.startsWith(rulesDir.resolve(SHARD_DIR)) || !(name.endsWith(".conf") || name.endsWith(".data"))) {
+            throw new IllegalStateException("Invalid shard name: " + name);
+        }
+        return path;
+    }
+
+    /**
+     * Include 목록 파일은 rules-dir 바로 아래의 .conf 만 허용 (manifest.json, .applied 는 덮어쓰지 않는다)
+     */
+    private Path resolveIndex(String name) {
+        if (name == null) {
+            throw new IllegalStateException("Missing index name");
+        }
+        Path path = rulesDir.resolve(name).normalize();
+        if (!path.startsWith(rulesDir) || !rulesDir.equals(path.getParent()) || !name.endsWith(".conf")) {
+            throw new IllegalStateException("Invalid index name: " + name);
+        }
+        return path;
+    }
+
+    private static String decode(RuleShardDto shard) throws IOException {
+        if (shard == null || shard.content() == null) {
+            throw new IllegalStateException("Missing shard content");
+        }
+        if (!"gzip".equals(shard.encoding())) {
+            return shard.content();
+        }
+        byte[] compressed = Base64.getDecoder().decode(shard.content());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void writeAtomically(Path target, String content) throws IOException {
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync not supported for {}: {}", dir, e.getMessage());
+        }
+    }
+
+    static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package kr.rojae.waf.agent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kr.rojae.waf.dashboard.dto.RuleSetAckDto;
+import kr.rojae.waf.dashboard.dto.RuleSetManifestDto;
+import kr.rojae.waf.dashboard.dto.RuleShardDto;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * 내장 브로커로 waf-rule-sets 구독 -> 파일 반영 -> waf-rule-acks 보고까지 확인한다.
+ * 테스트마다 토픽 이름을 새로 만들어 서로의 레코드를 보지 않게 한다.
+ */
+@EmbeddedKafka(partitions = 1)
+class RuleSetAgentTest {
+
+    private static final String NODE_ID = "node-a";
+    private static final String INDEX = "custom-rules.conf";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @TempDir
+    Path rulesDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private EmbeddedKafkaBroker broker;
+    private String topic;
+    private String ackTopic;
+    private DefaultKafkaProducerFactory<String, String> producerFactory;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private Consumer<String, String> ackConsumer;
+    private RuleSetAgent agent;
+
+    @BeforeEach
+    void setUp() {
+        broker = EmbeddedKafkaCondition.getBroker();
+        topic = "waf-rule-sets-" + UUID.randomUUID();
+        ackTopic = "waf-rule-acks-" + UUID.randomUUID();
+        broker.addTopics(new NewTopic(topic, 1, (short) 1), new NewTopic(ackTopic, 1, (short) 1));
+
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+
+        ackConsumer = consumerFactory("acks").createConsumer();
+        ackConsumer.assign(List.of(new TopicPartition(ackTopic, 0)));
+        ackConsumer.seekToBeginning(List.of(new TopicPartition(ackTopic, 0)));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (agent != null) {
+            agent.stop();
+        }
+        ackConsumer.close();
+        producerFactory.destroy();
+    }
+
+    @Test
+    void appliesRuleSetPublishedBeforeStartAndAcksAfterReload() throws Exception {
+        String blockRules = "SecRule ARGS \"@rx attack\" \"id:900001,phase:2,deny\"\n";
+        String logRules = "SecRule ARGS \"@rx probe\" \"id:900002,phase:2,pass,log\"\n";
+        RuleSetManifestDto v1 = manifest(1, Map.of(
+                "rules.d/p00100-block.conf", blockRules,
+                "rules.d/p00200-log.conf", logRules));
+        publish(v1, Map.of("rules.d/p00100-block.conf", blockRules, "rules.d/p00200-log.conf", logRules), List.of());
+
+        // 늦게 뜬 노드도 토픽 처음부터 읽어 같은 rule-set 을 받는다
+        startAgent();
+
+        RuleSetAckDto written = awaitAck("WRITTEN");
+        assertThat(written.nodeId()).isEqualTo(NODE_ID);
+        assertThat(written.version()).isEqualTo(1);
+        assertThat(written.hash()).isEqualTo(v1.hash());
+        assertThat(read("rules.d/p00100-block.conf")).isEqualTo(blockRules);
+        assertThat(read("rules.d/p00200-log.conf")).isEqualTo(logRules);
+        assertThat(read(INDEX)).isEqualTo(v1.indexContent());
+        assertThat(objectMapper.readValue(rulesDir.resolve("manifest.json").toFile(), RuleSetManifestDto.class).hash())
+                .isEqualTo(v1.hash());
+        assertThat(tmpFiles()).isEmpty();
+
+        // nginx/init.sh 가 리로드 후 남기는 파일
+        Files.writeString(rulesDir.resolve(".applied"), "1 " + v1.hash() + " " + Instant.now().getEpochSecond());
+        agent.checkReload();
+
+        RuleSetAckDto applied = awaitAck("APPLIED");
+        assertThat(applied.hash()).isEqualTo(v1.hash());
+        assertThat(applied.appliedAt()).isNotNull();
+    }
+
+    @Test
+    void updateReplacesChangedShardAndDeletesRemovedOne() throws Exception {
+        String blockRules = "SecRule ARGS \"@rx attack\" \"id:900001,phase:2,deny\"\n";
+        String logRules = "SecRule ARGS \"@rx probe\" \"id:900002,phase:2,pass,log\"\n";
+        publish(manifest(1, Map.of("rules.d/p00100-block.conf", blockRules, "rules.d/p00200-log.conf", logRules)),
+                Map.of("rules.d/p00100-block.conf", blockRules, "rules.d/p00200-log.conf", logRules), List.of());
+        startAgent();
+        awaitAck("WRITTEN");
+
+        String updated = "SecRule ARGS \"@rx attack|exploit\" \"id:900001,phase:2,deny\"\n";
+        RuleSetManifestDto v2 = manifest(2, Map.of("rules.d/p00100-block.conf", updated));
+        publish(v2, Map.of("rules.d/p00100-block.conf", updated), List.of("rules.d/p00200-log.conf"));
+
+        RuleSetAckDto written = awaitAck("WRITTEN", 2);
+        assertThat(written.hash()).isEqualTo(v2.hash());
+        assertThat(read("rules.d/p00100-block.conf")).isEqualTo(updated);
+        assertThat(rulesDir.resolve("rules.d/p00200-log.conf")).doesNotExist();
+        assertThat(read(INDEX)).isEqualTo(v2.indexContent());
+        assertThat(tmpFiles()).isEmpty();
+    }
+
+    @Test
+    void corruptShardFailsWithoutTouchingDisk() throws Exception {
+        String good = "SecRule ARGS \"@rx attack\" \"id:900001,phase:2,deny\"\n";
+        String other = "SecRule ARGS \"@rx probe\" \"id:900002,phase:2,pass,log\"\n";
+        RuleSetManifestDto v1 = manifest(1, Map.of("rules.d/p00100-block.conf", good, "rules.d/p00200-log.conf", other));
+        // 두 번째 shard 의 내용이 manifest hash 와 다르다
+        publish(v1, Map.of("rules.d/p00100-block.conf", good, "rules.d/p00200-log.conf", other + "# tampered\n"),
+                List.of());
+        startAgent();
+
+        RuleSetAckDto failed = awaitAck("FAILED");
+        assertThat(failed.message()).contains("hash mismatch");
+        // 검증이 끝나기 전에는 아무 파일도 쓰지 않는다
+        assertThat(rulesDir.resolve("rules.d/p00100-block.conf")).doesNotExist();
+        assertThat(rulesDir.resolve(INDEX)).doesNotExist();
+        assertThat(rulesDir.resolve("manifest.json")).doesNotExist();
+    }
+
+    @Test
+    void indexOutsideRulesDirFailsWithoutTouchingDisk() throws Exception {
+        String good = "SecRule ARGS \"@rx attack\" \"id:900001,phase:2,deny\"\n";
+        RuleSetManifestDto valid = manifest(1, Map.of("rules.d/p00100-block.conf", good));
+        // Include 목록 파일 이름이 rules-dir 밖을 가리킨다
+        RuleSetManifestDto v1 = RuleSetManifestDto.builder()
+                .version(valid.version())
+                .hash(valid.hash())
+                .ruleCount(valid.ruleCount())
+                .generatedAt(valid.generatedAt())
+                .index("rules.d/../../escape.conf")
+                .indexContent(valid.indexContent())
+                .files(valid.files())
+                .build();
+        publish(v1, Map.of("rules.d/p00100-block.conf", good), List.of());
+        startAgent();
+
+        RuleSetAckDto failed = awaitAck("FAILED");
+        assertThat(failed.message()).contains("Invalid index name");
+        assertThat(rulesDir.resolveSibling("escape.conf")).doesNotExist();
+        assertThat(rulesDir.resolve("rules.d/p00100-block.conf")).doesNotExist();
+        assertThat(rulesDir.resolve("manifest.json")).doesNotExist();
+    }
+
+    private void startAgent() {
+        agent = new RuleSetAgent(consumerFactory("agent"), kafkaTemplate,
+                new RuleSetFileWriter(objectMapper, rulesDir.toString()), objectMapper,
+                NODE_ID, topic, ackTopic, true, Duration.ofSeconds(60));
+        agent.start();
+    }
+
+    /**
+     * 대시보드 KafkaRuleSetDistributor 와 같은 순서: shard, tombstone, 마지막에 manifest
+     *
+     * @param contents 보낼 shard 내용 (manifest hash 와 다르게 줄 수 있다)
+     */
+    private void publish(RuleSetManifestDto manifest, Map<String, String> contents, List<String> removed)
+            throws Exception {
+        for (RuleShardDto file : manifest.files()) {
+            RuleShardDto shard = RuleShardDto.builder()
+                    .name(file.name())
+                    .hash(file.hash())
+                    .rules(file.rules())
+                    .version(manifest.version())
+                    .encoding("identity")
+                    .content(contents.get(file.name()))
+                    .build();
+            kafkaTemplate.send(topic, 0, file.name(), objectMapper.writeValueAsString(shard)).get();
+        }
+        for (String name : removed) {
+            kafkaTemplate.send(topic, 0, name, null).get();
+        }
+        kafkaTemplate.send(topic, 0, "manifest", objectMapper.writeValueAsString(manifest)).get();
+    }
+
+    private static RuleSetManifestDto manifest(long version, Map<String, String> shards) {
+        List<RuleShardDto> files = shards.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> RuleShardDto.builder()
+                        .name(entry.getKey())
+                        .hash(RuleSetFileWriter.sha256(entry.getValue()))
+                        .rules(1)
+                        .build())
+                .toList();
+        StringBuilder index = new StringBuilder();
+        files.forEach(file -> index.append("Include ").append(file.name()).append('\n'));
+        StringBuilder combined = new StringBuilder(INDEX + ":" + RuleSetFileWriter.sha256(index.toString()));
+        files.forEach(file -> combined.append('|').append(file.name()).append(':').append(file.hash()));
+        return RuleSetManifestDto.builder()
+                .version(version)
+                .hash(RuleSetFileWriter.sha256(combined.toString()))
+                .ruleCount(files.size())
+                .generatedAt(Instant.now().toString())
+                .index(INDEX)
+                .indexContent(index.toString())
+                .files(files)
+                .build();
+    }
+
+    private RuleSetAckDto awaitAck(String status) throws Exception {
+        return awaitAck(status, 1);
+    }
+
+    private RuleSetAckDto awaitAck(String status, long version) throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            for (ConsumerRecord<String, String> record : ackConsumer.poll(Duration.ofMillis(200))) {
+                RuleSetAckDto ack = objectMapper.readValue(record.value(), RuleSetAckDto.class);
+                assertThat(record.key()).isEqualTo(NODE_ID);
+                if (status.equals(ack.status()) && ack.version() == version) {
+                    return ack;
+                }
+            }
+        }
+        return fail("No " + status + " ack for version " + version + " within " + TIMEOUT);
+    }
+
+    private DefaultKafkaConsumerFactory<String, String> consumerFactory(String group) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(group + "-" + UUID.randomUUID(), "false", broker);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    private String read(String name) throws Exception {
+        return Files.readString(rulesDir.resolve(name), StandardCharsets.UTF_8);
+    }
+
+    private List<Path> tmpFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(rulesDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".tmp")).toList();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package kr.rojae.waf.social.domain.token;
+
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import kr.rojae.waf.social.dto.OAuthUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccessTokenService} 토큰 검증 비용 (/session/is-alive, /session/me 의 요청당 비용)
+ *
+ * - perCall: 매번 MACVerifier 를 새로 만들어 파싱 + 검증 (캐시 도입 전 방식)
+ * - cold: 매 호출이 캐시 miss (검증 + SHA-256 키). 캐시 크기 0 인 서비스로 잰다
+ * - warm: 매 호출이 캐시 hit
+ * - revocationLive / revocationRevoked: 폐기 목록에 revoked 개가 있을 때 요청마다 붙는 isRevoked 만
+ *   (대부분의 요청인 폐기되지 않은 jti 는 Bloom filter 에서 끝나고, 폐기된 jti 는 set 까지 본다)
+ *
+ * 할당량은 -prof gc 로 본다.
+ *   ./gradlew :waf-social-api:jmh -Pjmh.includes=AccessTokenBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccessTokenBenchmark {
+
+    private static final String SECRET = "benchmark-secret-at-least-32-bytes-long";
+
+    @Param({"1000"})
+    private int tokens;
+
+    @Param({"10000"})
+    private int revoked;
+
+    private AccessTokenService cached;
+    private AccessTokenService uncached;
+    private String[] jwts;
+    private RevocationList revocations;
+    private String[] revokedJtis;
+    private String[] liveJtis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RevocationList revocations = new RevocationList(100_000, 0.01);
+        cached = new AccessTokenService(SECRET, 3600, tokens * 2, revocations);
+        uncached = new AccessTokenService(SECRET, 3600, 0, revocations);
+        jwts = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            jwts[i] = cached.issue(OAuthUser.builder()
+                    .sub("bench-" + i).email("bench-" + i + "@example.com").name("bench").build());
+            cached.verifyAndClaims(jwts[i]);
+        }
+
+        revocations = new RevocationList(100_000, 0.01);
+        long exp = System.currentTimeMillis() + 3_600_000;
+        revokedJtis = new String[revoked];
+        liveJtis = new String[revoked];
+        for (int i = 0; i < revoked; i++) {
+            revokedJtis[i] = UUID.randomUUID().toString();
+            liveJtis[i] = UUID.randomUUID().toString();
+            revocations.revokeLocal(revokedJtis[i], exp);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%ncache=%s revocations=%s%n", cached.cacheStatus(), revocations.status());
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int bound) {
+            int i = next;
+            next = i + 1 == bound ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    @Benchmark
+    public JWTClaimsSet perCall(Cursor cursor) throws Exception {
+        SignedJWT parsed = SignedJWT.parse(jwts[cursor.next(tokens)]);
+        if (!parsed.verify(new MACVerifier(SECRET.getBytes(StandardCharsets.UTF_8)))) {
+            throw new SecurityException("invalid_signature");
+        }
+        return parsed.getJWTClaimsSet();
+    }
+
+    @Benchmark
+    public JWTClaimsSet cold(Cursor cursor) {
+        return uncached.verifyAndClaims(jwts[cursor.next(tokens)]);
+    }
+
+    @Benchmark
+    public JWTClaimsSet warm(Cursor cursor) {
+        return cached.verifyAndClaims(jwts[cursor.next(tokens)]);
+    }
+
+    @Benchmark
+    public boolean revocationLive(Cursor cursor) {
+        return revocations.isRevoked(liveJtis[cursor.next(revoked)]);
+    }
+
+    @Benchmark
+    public boolean revocationRevoked(Cursor cursor) {
+        return revocations.isRevoked(revokedJtis[cursor.next(revoked)]);
+    }
+}
@@ -43,7 +43,10 @@ public class SessionUseCase {
     }
 
     public LogoutResult logout(String jwt) {
-        // Session revocation removed - JWT tokens are stateless
+        // stateless JWT 라 쿠키만 지우면 탈취된 토큰이 exp 까지 살아 있으므로 jti 를 폐기 목록에 넣는다
+        if (jwt != null) {
+            accessTokenService.revoke(jwt);
+        }
         ResponseCookie del = ResponseCookie.from(cookieName, "")
                 .httpOnly(true).secure(false)  // HTTPS면 true
                 .sameSite("Lax")
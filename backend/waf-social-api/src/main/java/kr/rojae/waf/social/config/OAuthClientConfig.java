@@ -0,0 +1,54 @@
+package kr.rojae.waf.social.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * OAuth 공급자(token endpoint) 호출용 HTTP 클라이언트
+ *
+ * 기본 DefaultAuthorizationCodeTokenResponseClient 는 요청마다 HttpURLConnection 을 여는데,
+ * 공유 JDK HttpClient 를 쓰면 커넥션(HTTP/2 포함)이 재사용되어 로그인마다 TLS 핸드셰이크를 다시 하지 않는다.
+ */
+@Configuration
+public class OAuthClientConfig {
+
+    @Bean
+    public HttpClient oauthHttpClient(@Value("${app.oauth.http.connect-timeout:3s}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Bean
+    public OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> authorizationCodeTokenResponseClient(
+            HttpClient oauthHttpClient,
+            @Value("${app.oauth.http.read-timeout:5s}") Duration readTimeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(oauthHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        // DefaultAuthorizationCodeTokenResponseClient 기본 RestTemplate 과 같은 converter / error handler
+        RestTemplate restTemplate = new RestTemplate(
+                List.of(new FormHttpMessageConverter(), new OAuth2AccessTokenResponseHttpMessageConverter()));
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        restTemplate.setRequestFactory(requestFactory);
+
+        DefaultAuthorizationCodeTokenResponseClient client = new DefaultAuthorizationCodeTokenResponseClient();
+        client.setRestOperations(restTemplate);
+        return client;
+    }
+}
@@ -1,37 +1,89 @@
 package kr.rojae.waf.social.domain.oauth;
 
 import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
 import kr.rojae.waf.common.enums.SocialType;
 import kr.rojae.waf.social.dto.OAuthUser;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
 import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
-import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
-import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationExchange;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponse;
-import org.springframework.security.oauth2.core.oidc.OidcIdToken;
 import org.springframework.stereotype.Service;
 
+import java.net.MalformedURLException;
 import java.net.URI;
+import java.text.ParseException;
+import java.time.Duration;
 import java.util.Collections;
 
+/**
+ * Google OIDC 로그인. 콜백에서 upstream 호출은 token endpoint 한 번뿐이다
+ *
+ * - registration(공급자 메타데이터 포함)은 처음 한 번 찾아 둔다
+ * - id_token 은 캐시된 JWKS 로 로컬 검증하고 email/name/picture 를 그대로 쓴다 (userinfo 호출 없음)
+ */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class GoogleOAuthService implements SocialOAuthService {
 
     private final ClientRegistrationRepository registrationRepo;
-    private final OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> tokenClient =
-            new DefaultAuthorizationCodeTokenResponseClient();
-    private final OidcUserService oidcUserService = new OidcUserService();
+    private final OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> tokenClient;
+
+    @Value("${app.oauth.jwks.ttl:1h}")
+    Duration jwksTtl;
+    @Value("${app.oauth.jwks.refresh-ahead:5m}")
+    Duration jwksRefreshAhead;
+
+    private volatile ClientRegistration registration;
+    private volatile IdTokenVerifier idTokenVerifier;
 
     private ClientRegistration reg() {
-        return (ClientRegistration) registrationRepo.findByRegistrationId("google");
+        var r = registration;
+        if (r == null) {
+            r = registrationRepo.findByRegistrationId("google");
+            if (r == null) throw new IllegalStateException("No client registration for google");
+            registration = r;
+        }
+        return r;
+    }
+
+    private IdTokenVerifier idTokenVerifier() {
+        var v = idTokenVerifier;
+        if (v == null) {
+            synchronized (this) {
+                v = idTokenVerifier;
+                if (v == null) {
+                    try {
+                        v = new IdTokenVerifier(reg(), jwksTtl, jwksRefreshAhead);
+                    } catch (MalformedURLException e) {
+                        throw new IllegalStateException("Invalid jwk-set-uri", e);
+                    }
+                    idTokenVerifier = v;
+                }
+            }
+        }
+        return v;
+    }
+
+    /**
+     * 기동 직후 JWKS 를 미리 받아 둔다. 실패해도 첫 로그인 때 다시 시도한다
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            idTokenVerifier().warmUp();
+            log.info("Loaded JWKS for {}", reg().getProviderDetails().getJwkSetUri());
+        } catch (Exception e) {
+            log.warn("JWKS warm-up failed: {}", e.getMessage());
+        }
     }
 
     @Override
@@ -69,30 +121,25 @@ public class GoogleOAuthService implements SocialOAuthService {
         );
         var token = tokenClient.getTokenResponse(new OAuth2AuthorizationCodeGrantRequest(r, exchange));
 
-        // id_token -> OidcUser
+        // id_token -> 로컬 검증한 claims (scope profile email 이면 email/name/picture 포함)
         var id = (String) token.getAdditionalParameters().get("id_token");
         if (id == null) throw new IllegalStateException("Missing id_token (check scope=openid)");
-        var cs = parseIdTokenClaims(id);
-        var oidc = oidcUserService.loadUser(
-                new OidcUserRequest(r, token.getAccessToken(),
-                        new OidcIdToken(id, cs.getIssueTime().toInstant(), cs.getExpirationTime().toInstant(), cs.getClaims()),
-                        token.getAdditionalParameters())
-        );
+        var claims = idTokenVerifier().verify(id);
 
         // DTO 매핑
         return OAuthUser.builder()
-                .sub(oidc.getSubject())
-                .email(oidc.getEmail())
-                .name(oidc.getFullName())
-                .picture(oidc.getPicture())
+                .sub(claims.getSubject())
+                .email(stringClaim(claims, "email"))
+                .name(stringClaim(claims, "name"))
+                .picture(stringClaim(claims, "picture"))
                 .build();
     }
 
-    private JWTClaimsSet parseIdTokenClaims(String idToken) {
+    private static String stringClaim(JWTClaimsSet claims, String name) {
         try {
-            return SignedJWT.parse(idToken).getJWTClaimsSet();
-        } catch (java.text.ParseException e) {
-            throw new IllegalStateException("Invalid id_token", e);
+            return claims.getStringClaim(name);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid id_token claim: " + name, e);
         }
     }
 
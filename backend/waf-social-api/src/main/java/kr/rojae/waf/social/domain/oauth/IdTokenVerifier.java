@@ -0,0 +1,75 @@
+package kr.rojae.waf.social.domain.oauth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * id_token 을 공급자 JWKS 로 로컬 검증하고 claims 를 꺼낸다 (userinfo 호출 없음)
+ *
+ * - 서명(RS256/ES256), aud = client id, iss = 공급자 issuer, exp/iat (허용 오차 60초)
+ * - JWKS 는 캐시하고 만료 refreshAhead 전에 백그라운드에서 미리 다시 받는다. 모르는 kid 가 오면 한 번 다시 받아 본다.
+ */
+public class IdTokenVerifier {
+
+    private final JWKSource<SecurityContext> jwkSource;
+    private final ConfigurableJWTProcessor<SecurityContext> processor;
+    private final Set<String> issuers;
+
+    public IdTokenVerifier(ClientRegistration registration, Duration jwksTtl, Duration refreshAhead)
+            throws MalformedURLException {
+        var provider = registration.getProviderDetails();
+        this.jwkSource = JWKSourceBuilder.<SecurityContext>create(URI.create(provider.getJwkSetUri()).toURL())
+                .cache(jwksTtl.toMillis(), 15_000)
+                .refreshAheadCache(refreshAhead.toMillis(), true)
+                .retrying(true)
+                .build();
+
+        this.processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256), jwkSource));
+        processor.setJWTClaimsSetVerifier(new DefaultJWTClaimsVerifier<>(
+                registration.getClientId(), null, Set.of("sub", "iss", "iat", "exp")));
+
+        // Google 은 iss 를 "https://accounts.google.com" 또는 "accounts.google.com" 으로 준다
+        String issuer = provider.getIssuerUri();
+        this.issuers = issuer == null ? Set.of() : Set.of(issuer, issuer.replaceFirst("^https://", ""));
+    }
+
+    public JWTClaimsSet verify(String idToken) {
+        JWTClaimsSet claims;
+        try {
+            claims = processor.process(idToken, null);
+        } catch (ParseException | BadJOSEException | JOSEException e) {
+            throw new IllegalStateException("Invalid id_token: " + e.getMessage(), e);
+        }
+        if (!issuers.isEmpty() && !issuers.contains(claims.getIssuer())) {
+            throw new IllegalStateException("Unexpected id_token issuer: " + claims.getIssuer());
+        }
+        return claims;
+    }
+
+    /**
+     * JWKS 를 미리 받아 둔다 (첫 로그인이 JWKS 왕복을 기다리지 않도록, refresh-ahead 스케줄도 이때 시작)
+     */
+    public void warmUp() throws KeySourceException {
+        jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+    }
+}
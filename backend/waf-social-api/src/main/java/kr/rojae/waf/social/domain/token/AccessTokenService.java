@@ -8,22 +8,54 @@ import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import kr.rojae.waf.social.dto.OAuthUser;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
+@Slf4j
 public class AccessTokenService {
     private final byte[] secret;
     private final long ttlSeconds;
 
+    // MACSigner / MACVerifier 는 thread-safe 라 한 번 만들어 재사용한다
+    private final MACSigner signer;
+    private final MACVerifier verifier;
+    private final JOSEException keyError;
+
+    // /session/is-alive, /session/me 는 열린 대시보드 탭마다 주기적으로 호출되므로 검증 결과를 캐시
+    private final VerifiedTokenCache verifiedTokens;
+    private final RevocationList revocationList;
+
     public AccessTokenService(@Value("${app.jwt.secret}") String secret,
-                              @Value("${app.jwt.access-ttl-seconds}") long ttlSeconds) {
+                              @Value("${app.jwt.access-ttl-seconds}") long ttlSeconds,
+                              @Value("${app.jwt.verified-cache-size:10000}") int verifiedCacheSize,
+                              RevocationList revocationList) {
         this.secret = secret.getBytes(StandardCharsets.UTF_8);
         this.ttlSeconds = ttlSeconds;
+        this.verifiedTokens = new VerifiedTokenCache(verifiedCacheSize);
+        this.revocationList = revocationList;
+
+        MACSigner signer = null;
+        MACVerifier verifier = null;
+        JOSEException keyError = null;
+        try {
+            signer = new MACSigner(this.secret);
+            verifier = new MACVerifier(this.secret);
+        } catch (JOSEException e) {
+            // 키가 HS256 에 너무 짧으면 발급/검증 시점에 실패시킨다 (기동은 막지 않음)
+            log.warn("app.jwt.secret is not usable for HS256: {}", e.getMessage());
+            keyError = e;
+        }
+        this.signer = signer;
+        this.verifier = verifier;
+        this.keyError = keyError;
     }
 
     public String issue(OAuthUser u) {
@@ -38,7 +70,10 @@ public class AccessTokenService {
                 .build();
         var jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
         try {
-            jwt.sign(new MACSigner(secret));
+            if (signer == null) {
+                throw keyError;
+            }
+            jwt.sign(signer);
             return jwt.serialize();
         } catch (JOSEException e) {
             throw new RuntimeException(e);
@@ -50,14 +85,68 @@ public class AccessTokenService {
     }
 
     public JWTClaimsSet verifyAndClaims(String jwt) {
+        if (jwt == null) {
+            throw new SecurityException("invalid_token");
+        }
+        long now = System.currentTimeMillis();
+        var key = verifiedTokens.key(jwt);
+        var claims = verifiedTokens.get(key, now);
+        if (claims == null) {
+            claims = verify(jwt, now);
+            var exp = claims.getExpirationTime();
+            verifiedTokens.put(key, claims, exp != null ? exp.getTime() : Long.MAX_VALUE, now);
+        }
+
+        // 로그아웃된 토큰 (캐시에 남아 있어도 여기서 막힌다)
+        if (revocationList.isRevoked(claims.getJWTID())) {
+            throw new SecurityException("revoked");
+        }
+        return claims;
+    }
+
+    /**
+     * 토큰을 exp 까지 쓸 수 없게 한다. 이미 무효한 토큰이면 아무것도 하지 않는다
+     */
+    public void revoke(String jwt) {
+        try {
+            var claims = verifyAndClaims(jwt);
+            var exp = claims.getExpirationTime();
+            revocationList.revoke(claims.getJWTID(),
+                    exp != null ? exp.getTime() : System.currentTimeMillis() + ttlSeconds * 1000);
+        } catch (SecurityException ignored) {
+            // 만료/위조/이미 폐기된 토큰
+        }
+    }
+
+    public String jti(String jwt) {
+        var claims = verifyAndClaims(jwt);
+        return claims.getJWTID();
+    }
+
+    public Map<String, Object> cacheStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("entries", verifiedTokens.size());
+        status.put("hits", verifiedTokens.hits());
+        status.put("misses", verifiedTokens.misses());
+        status.put("evictions", verifiedTokens.evictions());
+        return status;
+    }
+
+    /**
+     * 캐시 없이 파싱 + 서명/만료 검증
+     */
+    JWTClaimsSet verify(String jwt, long nowMillis) {
         try {
             var parsed = SignedJWT.parse(jwt);
-            if (!parsed.verify(new MACVerifier(secret))) {
+            if (verifier == null) {
+                throw keyError;
+            }
+            if (!parsed.verify(verifier)) {
                 throw new SecurityException("invalid_signature");
             }
             var claims = parsed.getJWTClaimsSet();
             if (claims.getExpirationTime() != null &&
-                claims.getExpirationTime().before(new Date())) {
+                claims.getExpirationTime().getTime() < nowMillis) {
                 throw new SecurityException("expired");
             }
             return claims;
@@ -65,9 +154,4 @@ public class AccessTokenService {
             throw new SecurityException("invalid_token", e);
         }
     }
-
-    public String jti(String jwt) {
-        var claims = verifyAndClaims(jwt);
-        return claims.getJWTID();
-    }
 }
@@ -0,0 +1,76 @@
+package kr.rojae.waf.social.domain.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Kafka 로 jti 폐기를 전파 (app.revocation.broadcast.enabled). key: jti, value: "{보낸 인스턴스} {exp millis}"
+ *
+ * 요청 경로에서는 Kafka 를 보지 않는다. 인스턴스마다 기동 시 파티션을 처음부터 다시 읽어
+ * 내려가 있던 동안의 폐기도 채운다 (exp 가 지난 항목은 {@link RevocationList#revokeLocal} 이 버린다).
+ * 그래서 토픽 보존 기간은 access-ttl-seconds 보다 길어야 한다.
+ */
+@Component
+@ConditionalOnProperty(name = "app.revocation.broadcast.enabled", havingValue = "true")
+@Slf4j
+public class KafkaRevocationBroadcaster implements RevocationBroadcaster {
+
+    private static final int PARTITION = 0;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final RevocationList revocationList;
+    private final String topic;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public KafkaRevocationBroadcaster(
+        KafkaTemplate<String, String> kafkaTemplate,
+        RevocationList revocationList,
+        @Value("${app.revocation.broadcast.topic:waf-jwt-revocations}") String topic
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.revocationList = revocationList;
+        this.topic = topic;
+    }
+
+    @Override
+    public void publish(String jti, long expiresAtMillis) {
+        try {
+            kafkaTemplate.send(topic, PARTITION, jti, instanceId + " " + expiresAtMillis)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            // 로컬에는 이미 들어갔으므로 이 인스턴스에서는 막힌다
+                            log.warn("Failed to broadcast revocation of {}: {}", jti, e.getMessage());
+                        }
+                    });
+        } catch (Exception e) {
+            log.warn("Failed to broadcast revocation of {}: {}", jti, e.getMessage());
+        }
+    }
+
+    @KafkaListener(
+            id = "jwt-revocations",
+            groupId = "social-revocations-${HOSTNAME:local}",
+            topicPartitions = @TopicPartition(topic = "${app.revocation.broadcast.topic:waf-jwt-revocations}",
+                    partitionOffsets = @PartitionOffset(partition = "0", initialOffset = "0"))
+    )
+    public void onRevocation(ConsumerRecord<String, String> record) {
+        String[] parts = record.value() != null ? record.value().split(" ") : new String[0];
+        if (record.key() == null || parts.length != 2 || parts[0].equals(instanceId)) {
+            return;
+        }
+        try {
+            revocationList.revokeLocal(record.key(), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed revocation record on {}", topic);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package kr.rojae.waf.social.domain.token;
+
+/**
+ * 로그아웃(jti 폐기)을 다른 social-api 인스턴스에 알린다. 받는 쪽은 {@link RevocationList#revokeLocal} 로 넣는다
+ */
+public interface RevocationBroadcaster {
+
+    void publish(String jti, long expiresAtMillis);
+}
@@ -0,0 +1,121 @@
+package kr.rojae.waf.social.domain.token;
+
+import kr.rojae.waf.common.collect.BloomFilter;
+import kr.rojae.waf.common.collect.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 로그아웃된 토큰(jti) 목록. 요청마다 네트워크 조회 없이 프로세스 안에서 판정한다
+ *
+ * - 조회: Bloom filter 가 "없음"이면 바로 false (대부분의 요청), 있을 수도 있으면 정확한 set 확인. 잠금 없음
+ * - 만료: 토큰 exp 가 지나면 어차피 검증에서 걸러지므로 타이밍 휠로 그때 목록에서 뺀다
+ * - 전파: 로컬에 넣은 뒤 {@link RevocationBroadcaster} 로 다른 인스턴스에 알린다 (설정 시)
+ *
+ * Bloom filter 는 삭제가 안 되므로, 빠진 항목이 남은 항목 수보다 많아지면 남은 항목으로 새로 만들어 교체한다.
+ */
+@Component
+@Slf4j
+public class RevocationList {
+
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final ObjectProvider<RevocationBroadcaster> broadcaster;
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final TimingWheel<String> expiries = new TimingWheel<>(1000, 3, System.currentTimeMillis());
+    private volatile BloomFilter filter;
+    private int removedSinceRebuild;
+
+    @Autowired
+    public RevocationList(@Value("${app.revocation.expected-entries:100000}") long expectedEntries,
+                          @Value("${app.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                          ObjectProvider<RevocationBroadcaster> broadcaster) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.broadcaster = broadcaster;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    /**
+     * 전파하지 않는 로컬 전용 목록 (테스트, src/jmh 벤치마크용)
+     */
+    RevocationList(long expectedEntries, double falsePositiveRate) {
+        this(expectedEntries, falsePositiveRate, null);
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(BloomFilter.hash(jti))) {
+            return false;
+        }
+        return revoked.containsKey(jti);
+    }
+
+    /**
+     * 로컬 목록에 넣고 다른 인스턴스에 전파
+     *
+     * @param expiresAtMillis 토큰 exp. 이 시각이 지나면 목록에서 빠진다
+     */
+    public void revoke(String jti, long expiresAtMillis) {
+        if (revokeLocal(jti, expiresAtMillis) && broadcaster != null) {
+            RevocationBroadcaster publisher = broadcaster.getIfAvailable();
+            if (publisher != null) {
+                publisher.publish(jti, expiresAtMillis);
+            }
+        }
+    }
+
+    /**
+     * 다른 인스턴스에서 전파된 항목용 (다시 전파하지 않음)
+     *
+     * @return 새로 넣었으면 true (이미 있거나 이미 만료된 토큰이면 false)
+     */
+    public synchronized boolean revokeLocal(String jti, long expiresAtMillis) {
+        if (jti == null || revoked.containsKey(jti) || !expiries.add(jti, expiresAtMillis)) {
+            return false;
+        }
+        revoked.put(jti, expiresAtMillis);
+        filter.put(BloomFilter.hash(jti));
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.revocation.tick-interval:1s}")
+    public void expire() {
+        expire(System.currentTimeMillis());
+    }
+
+    synchronized void expire(long nowMillis) {
+        int before = revoked.size();
+        expiries.advance(nowMillis, revoked::remove);
+        removedSinceRebuild += before - revoked.size();
+
+        if (removedSinceRebuild > 0 && removedSinceRebuild >= revoked.size()) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2L), falsePositiveRate);
+            revoked.keySet().forEach(jti -> rebuilt.put(BloomFilter.hash(jti)));
+            filter = rebuilt;
+            removedSinceRebuild = 0;
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    public Map<String, Object> status() {
+        BloomFilter current = filter;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("revoked", revoked.size());
+        status.put("filterBits", current.bits());
+        status.put("filterHashes", current.hashes());
+        status.put("broadcast", broadcaster != null && broadcaster.getIfAvailable() != null);
+        return status;
+    }
+}
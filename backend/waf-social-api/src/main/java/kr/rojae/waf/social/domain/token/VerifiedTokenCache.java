@@ -0,0 +1,123 @@
+package kr.rojae.waf.social.domain.token;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 검증을 통과한 토큰의 claims 캐시
+ *
+ * 키는 토큰 전체의 SHA-256 이라 원문 토큰은 메모리에 남기지 않는다. 항목은 토큰의 exp 시각까지만 유효하고,
+ * 검증에 실패한 토큰은 넣지 않는다 (임의 토큰으로 캐시를 채울 수 없음).
+ * maxEntries 를 넘으면 만료된 항목부터 지우고, 그래도 넘치면 임의 항목을 10% 정도 비운다.
+ */
+final class VerifiedTokenCache {
+
+    private static final MessageDigest SHA256 = sha256();
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<TokenKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    TokenKey key(String jwt) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) SHA256.clone();
+        } catch (CloneNotSupportedException e) {
+            digest = sha256();
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(jwt.getBytes(StandardCharsets.US_ASCII)));
+        return new TokenKey(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * @return 없거나 exp 가 지났으면 null
+     */
+    JWTClaimsSet get(TokenKey key, long nowMillis) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (nowMillis > entry.expiresAtMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims();
+    }
+
+    /**
+     * @param expiresAtMillis 토큰 exp (없으면 Long.MAX_VALUE)
+     */
+    void put(TokenKey key, JWTClaimsSet claims, long expiresAtMillis, long nowMillis) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(nowMillis);
+        }
+        entries.put(key, new Entry(claims, expiresAtMillis));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private void evict(long nowMillis) {
+        int removed = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (nowMillis > it.next().expiresAtMillis()) {
+                it.remove();
+                removed++;
+            }
+        }
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        for (Iterator<Entry> it = entries.values().iterator(); entries.size() > target && it.hasNext(); ) {
+            it.next();
+            it.remove();
+            removed++;
+        }
+        evictions.add(removed);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record TokenKey(long h0, long h1, long h2, long h3) {
+    }
+
+    private record Entry(JWTClaimsSet claims, long expiresAtMillis) {
+    }
+}
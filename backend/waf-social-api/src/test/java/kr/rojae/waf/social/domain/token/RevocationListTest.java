@@ -0,0 +1,81 @@
+package kr.rojae.waf.social.domain.token;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevocationListTest {
+
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    void revokedJtiIsReportedUntilItsTokenExpires() {
+        RevocationList revocations = new RevocationList(1000, 0.01);
+        assertThat(revocations.revokeLocal("a", now + 5_000)).isTrue();
+
+        assertThat(revocations.isRevoked("a")).isTrue();
+        assertThat(revocations.isRevoked("b")).isFalse();
+        assertThat(revocations.isRevoked(null)).isFalse();
+
+        revocations.expire(now + 4_000);
+        assertThat(revocations.isRevoked("a")).isTrue();
+
+        revocations.expire(now + 7_000);
+        assertThat(revocations.isRevoked("a")).isFalse();
+        assertThat(revocations.size()).isZero();
+    }
+
+    @Test
+    void alreadyExpiredOrDuplicateEntriesAreNotAdded() {
+        RevocationList revocations = new RevocationList(1000, 0.01);
+
+        assertThat(revocations.revokeLocal("expired", now - 5_000)).isFalse();
+        assertThat(revocations.revokeLocal("a", now + 60_000)).isTrue();
+        assertThat(revocations.revokeLocal("a", now + 60_000)).isFalse();
+        assertThat(revocations.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remainingEntriesSurviveFilterRebuildAfterMassExpiry() {
+        RevocationList revocations = new RevocationList(1000, 0.01);
+        for (int i = 0; i < 500; i++) {
+            revocations.revokeLocal("short-" + i, now + 5_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            revocations.revokeLocal("long-" + i, now + 3_600_000);
+        }
+
+        // 빠진 항목이 남은 항목보다 많아 Bloom filter 를 새로 만든다
+        revocations.expire(now + 10_000);
+
+        assertThat(revocations.size()).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(revocations.isRevoked("long-" + i)).isTrue();
+        }
+        for (int i = 0; i < 500; i++) {
+            assertThat(revocations.isRevoked("short-" + i)).isFalse();
+        }
+    }
+
+    @Test
+    void revokeBroadcastsNewEntriesButRemoteEntriesAreNotRebroadcast() {
+        List<String> published = new ArrayList<>();
+        RevocationBroadcaster broadcaster = (jti, expiresAtMillis) -> published.add(jti);
+        RevocationList revocations = new RevocationList(1000, 0.01,
+                new StaticListableBeanFactory(Map.of("broadcaster", broadcaster))
+                        .getBeanProvider(RevocationBroadcaster.class));
+
+        revocations.revoke("a", now + 60_000);
+        revocations.revoke("a", now + 60_000);
+        revocations.revokeLocal("remote", now + 60_000);
+
+        assertThat(published).containsExactly("a");
+        assertThat(revocations.isRevoked("remote")).isTrue();
+        assertThat(revocations.status().get("broadcast")).isEqualTo(true);
+    }
+}
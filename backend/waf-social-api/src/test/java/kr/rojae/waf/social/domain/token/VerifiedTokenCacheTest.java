@@ -0,0 +1,87 @@
+package kr.rojae.waf.social.domain.token;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void sameTokenMapsToSameKey() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        assertThat(cache.key("a.b.c")).isEqualTo(cache.key("a.b.c"));
+        assertThat(cache.key("a.b.c")).isNotEqualTo(cache.key("a.b.d"));
+    }
+
+    @Test
+    void entryIsServedUntilTokenExpiryThenDropped() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        VerifiedTokenCache.TokenKey key = cache.key("token");
+        JWTClaimsSet claims = claims("user");
+        cache.put(key, claims, NOW + 1000, NOW);
+
+        assertThat(cache.get(key, NOW + 1000)).isSameAs(claims);
+        assertThat(cache.get(key, NOW + 1001)).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void fullCacheEvictsExpiredEntriesFirst() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        List<VerifiedTokenCache.TokenKey> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            VerifiedTokenCache.TokenKey key = cache.key("token-" + i);
+            boolean expired = i % 2 == 0;
+            cache.put(key, claims("user-" + i), expired ? NOW - 1 : Long.MAX_VALUE, NOW - 1000);
+            if (!expired) {
+                live.add(key);
+            }
+        }
+
+        VerifiedTokenCache.TokenKey added = cache.key("token-new");
+        cache.put(added, claims("new"), Long.MAX_VALUE, NOW);
+
+        assertThat(cache.evictions()).isEqualTo(5);
+        assertThat(cache.size()).isEqualTo(6);
+        assertThat(cache.get(added, NOW)).isNotNull();
+        live.forEach(key -> assertThat(cache.get(key, NOW)).isNotNull());
+    }
+
+    @Test
+    void fullCacheOfLiveEntriesTrimsToNinetyPercent() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(cache.key("token-" + i), claims("user-" + i), Long.MAX_VALUE, NOW);
+        }
+
+        VerifiedTokenCache.TokenKey added = cache.key("token-new");
+        cache.put(added, claims("new"), Long.MAX_VALUE, NOW);
+
+        assertThat(cache.evictions()).isEqualTo(10);
+        assertThat(cache.size()).isEqualTo(91);
+        assertThat(cache.get(added, NOW)).isNotNull();
+    }
+
+    @Test
+    void zeroSizeNeverCaches() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0);
+        VerifiedTokenCache.TokenKey key = cache.key("token");
+        cache.put(key, claims("user"), Long.MAX_VALUE, NOW);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(key, NOW)).isNull();
+    }
+
+    private static JWTClaimsSet claims(String subject) {
+        return new JWTClaimsSet.Builder().subject(subject).build();
+    }
+}
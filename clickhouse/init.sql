@@ -12,6 +12,7 @@ CREATE TABLE IF NOT EXISTS waf_analytics.events (
     status_code UInt16,
     rule_id String,
     anomaly_score UInt16,
+    blocked Bool DEFAULT false,
     severity String,
     category String,
     msg String,
@@ -25,7 +26,13 @@ CREATE TABLE IF NOT EXISTS waf_analytics.events (
 PARTITION BY date
 ORDER BY (timestamp, client_ip, rule_id)
 TTL timestamp + INTERVAL 1 YEAR
-SETTINGS index_granularity = 8192;
+SETTINGS index_granularity = 8192, non_replicated_deduplication_window = 1000;
+
+-- 기존 설치본에도 insert_deduplication_token 기반 중복 제거 적용 (Kafka 적재 재시도 대비)
+ALTER TABLE waf_analytics.events MODIFY SETTING non_replicated_deduplication_window = 1000;
+
+-- WAF 차단 판정 (차단 룰 매칭 기준, 응답 코드 403 과 다를 수 있다). 기존 설치본에도 추가
+ALTER TABLE waf_analytics.events ADD COLUMN IF NOT EXISTS blocked Bool DEFAULT false AFTER anomaly_score;
 
 -- IP별 공격 패턴 집계 테이블  
 CREATE TABLE IF NOT EXISTS waf_analytics.ip_attack_summary (
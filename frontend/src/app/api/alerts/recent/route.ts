@@ -1,5 +1,6 @@
 import { NextRequest, NextResponse } from 'next/server'
 import { ENV, HTTP_STATUS } from '@/lib/constants'
+import { forwardedHeaders } from '@/lib/utils/forwarded-headers'
 
 export async function GET(request: NextRequest) {
   try {
@@ -10,7 +11,8 @@ export async function GET(request: NextRequest) {
       method: 'GET',
       headers: {
         'Content-Type': 'application/json',
-        ...(cookieHeader && { Cookie: cookieHeader })
+        ...(cookieHeader && { Cookie: cookieHeader }),
+        ...forwardedHeaders(request)
       }
     })
     
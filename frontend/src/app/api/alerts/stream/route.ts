@@ -1,5 +1,6 @@
 import { NextRequest } from 'next/server'
 import { ENV, HTTP_STATUS } from '@/lib/constants'
+import { forwardedHeaders } from '@/lib/utils/forwarded-headers'
 
 export async function GET(request: NextRequest) {
   try {
@@ -16,6 +17,7 @@ export async function GET(request: NextRequest) {
         'Accept': 'text/event-stream',
         'Cache-Control': 'no-cache',
         'Connection': 'keep-alive',
+        ...forwardedHeaders(request),
       },
     })
 
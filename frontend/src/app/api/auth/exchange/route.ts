@@ -1,5 +1,6 @@
 import { NextRequest } from 'next/server'
 import { ENV } from '@/lib/constants'
+import { forwardedHeaders } from '@/lib/utils/forwarded-headers'
 
 export async function POST(request: NextRequest) {
   try {
@@ -17,6 +18,7 @@ export async function POST(request: NextRequest) {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
+        ...forwardedHeaders(request),
       },
       body: JSON.stringify({
         code,
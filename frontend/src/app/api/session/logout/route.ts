@@ -1,5 +1,6 @@
 import { NextRequest, NextResponse } from 'next/server'
 import { COOKIE_NAMES, COOKIE_CONFIG, ENV, HTTP_STATUS } from '@/lib/constants'
+import { forwardedHeaders } from '@/lib/utils/forwarded-headers'
 
 export async function POST(request: NextRequest) {
   try {
@@ -10,7 +11,8 @@ export async function POST(request: NextRequest) {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
-        ...(cookieHeader && { Cookie: cookieHeader })
+        ...(cookieHeader && { Cookie: cookieHeader }),
+        ...forwardedHeaders(request)
       }
     })
     
@@ -1,4 +1,5 @@
 import { NextRequest } from 'next/server'
+import { forwardedHeaders } from '@/lib/utils/forwarded-headers'
 
 export async function GET(request: NextRequest) {
   const { searchParams } = new URL(request.url)
@@ -21,6 +22,7 @@ export async function GET(request: NextRequest) {
       method: 'GET',
       headers: {
         'Accept': 'application/json',
+        ...forwardedHeaders(request),
       },
     })
 
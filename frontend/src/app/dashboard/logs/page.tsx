@@ -34,6 +34,7 @@ interface WafLogEntry {
   blocked: boolean
   userAgent: string
   responseTime: number
+  knownThreat?: boolean
 }
 
 export default function LogsPage() {
@@ -251,6 +252,9 @@ export default function LogsPage() {
                         <code className="text-sm bg-gray-100 px-2 py-1 rounded">
                           {log.clientIp}
                         </code>
+                        {log.knownThreat && (
+                          <Badge variant="destructive" className="ml-2">Known threat</Badge>
+                        )}
                       </TableCell>
                       <TableCell>
                         <div className="max-w-xs">
@@ -0,0 +1,16 @@
+/**
+ * Client address forwarding for the API proxy routes
+ */
+import { NextRequest } from 'next/server'
+
+/**
+ * Headers that let the backend see the real client instead of this proxy.
+ *
+ * The incoming X-Forwarded-For chain (set by the ingress and the Next.js server) is passed
+ * on unchanged. The backend only reads it when the request comes from a trusted proxy and
+ * walks it from the right, so values a client puts on the left are never used as its key.
+ */
+export function forwardedHeaders(request: NextRequest): Record<string, string> {
+  const forwardedFor = request.headers.get('x-forwarded-for')
+  return forwardedFor ? { 'X-Forwarded-For': forwardedFor } : {}
+}
@@ -81,6 +81,11 @@ create_topic "waf-realtime-events"  3 1 "retention.ms=604800000"  # 7일 보존
 # ===== Lookup Tables =====
 create_topic "waf-rulemap"          6 1 "cleanup.policy=compact"  # 룰 메타데이터 (압축)
 
+# ===== Rule Distribution (대시보드 -> WAF 노드 rule agent) =====
+# 순서 보장을 위해 단일 파티션. compact 로 shard/manifest 의 최신 값만 남는다
+create_topic "waf-rule-sets"        1 1 "cleanup.policy=compact" "max.message.bytes=8388608"
+create_topic "waf-rule-acks"        1 1 "cleanup.policy=compact"  # 노드별 마지막 적용 결과
+
 # ===== Archive & Backup =====
 create_topic "waf-archive"          3 1 "retention.ms=2592000000" # 30일 보존
 
@@ -22,27 +22,55 @@ if [ ! -f "/etc/modsecurity/custom-rules/custom-rules.conf" ]; then
     echo "# No custom rules defined yet" >> /etc/modsecurity/custom-rules/custom-rules.conf
 fi
 
-# 백그라운드에서 리로드 신호 모니터링
+# 백그라운드에서 커스텀 룰 변경 모니터링
+# - manifest.json 의 전체 hash 가 마지막으로 적용한 hash 와 다를 때만 리로드한다 (no-op 리로드 생략)
+# - 적용 결과는 .applied ("version hash epoch") 로 남겨 대시보드가 리로드 횟수/배포 지연을 측정한다
+RULES_DIR=/etc/modsecurity/custom-rules
+MANIFEST="$RULES_DIR/manifest.json"
+APPLIED="$RULES_DIR/.applied"
+
+manifest_field() {
+    grep -o "\"$1\":[^,}]*" "$MANIFEST" | head -n 1 | cut -d: -f2 | tr -d '"'
+}
+
+reload_nginx() {
+    # 설정 파일 유효성 검사 후 Graceful reload (무중단)
+    if nginx -t; then
+        nginx -s reload
+        echo "$(date): ModSecurity rules reloaded ($1)"
+        return 0
+    fi
+    echo "$(date): Configuration test failed, skipping reload ($1)"
+    return 1
+}
+
 monitor_reload() {
+    applied_hash=""
+    if [ -f "$APPLIED" ]; then
+        applied_hash=$(cut -d' ' -f2 "$APPLIED")
+    fi
+
     while true; do
+        if [ -f "$MANIFEST" ]; then
+            hash=$(manifest_field hash)
+            if [ -n "$hash" ] && [ "$hash" != "$applied_hash" ]; then
+                version=$(manifest_field version)
+                echo "$(date): Rule set version $version detected (hash $hash)"
+                if reload_nginx "version $version"; then
+                    applied_hash="$hash"
+                    echo "$version $hash $(date +%s)" > "$APPLIED.tmp" && mv "$APPLIED.tmp" "$APPLIED"
+                fi
+            fi
+        fi
+
+        # 이전 방식의 리로드 신호 (수동 리로드용)
         if [ -f "/tmp/modsec_reload_signal" ]; then
             echo "$(date): ModSecurity reload signal detected"
-            
-            # 설정 파일 유효성 검사
-            nginx -t
-            if [ $? -eq 0 ]; then
-                # Graceful reload (무중단)
-                nginx -s reload
-                echo "$(date): ModSecurity rules reloaded successfully"
-            else
-                echo "$(date): Configuration test failed, skipping reload"
-            fi
-            
-            # 신호 파일 제거
+            reload_nginx "signal"
             rm -f /tmp/modsec_reload_signal
         fi
-        
-        sleep 5
+
+        sleep 2
     done
 }
 
@@ -0,0 +1,154 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * waf-social-api 로그인 경로 시험용 로컬 OIDC 공급자 stub (JDK 만 사용)
+ *
+ * - /.well-known/openid-configuration, /jwks (기동 시 만든 RSA 키), /authorize (바로 code 와 함께 redirect), /token (RS256 id_token)
+ * - 요청 수를 엔드포인트별로 세어 /stats 로 보여 준다 (로그인 한 번에 /token 한 번만 불리는지 확인)
+ *
+ * 실행: java sample/OidcStub.java [포트]
+ * social-api: GOOGLE_ISSUER_URI=http://localhost:9998 GOOGLE_CLIENT_ID=stub-client GOOGLE_CLIENT_SECRET=stub-secret
+ */
+public class OidcStub {
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Map<String, Integer> HITS = new HashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9998;
+        String issuer = "http://localhost:" + port;
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keys = generator.generateKeyPair();
+        String kid = UUID.randomUUID().toString();
+        RSAPublicKey publicKey = (RSAPublicKey) keys.getPublic();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/.well-known/openid-configuration", ex -> json(ex, 200, """
+                {"issuer":"%1$s","authorization_endpoint":"%1$s/authorize","token_endpoint":"%1$s/token",
+                 "userinfo_endpoint":"%1$s/userinfo","jwks_uri":"%1$s/jwks","response_types_supported":["code"],
+                 "subject_types_supported":["public"],"id_token_signing_alg_values_supported":["RS256"],
+                 "scopes_supported":["openid","email","profile"]}""".formatted(issuer)));
+        server.createContext("/jwks", ex -> json(ex, 200, """
+                {"keys":[{"kty":"RSA","use":"sig","alg":"RS256","kid":"%s","n":"%s","e":"%s"}]}""".formatted(
+                kid, unsigned(publicKey.getModulus()), unsigned(publicKey.getPublicExponent()))));
+        server.createContext("/authorize", ex -> {
+            Map<String, String> query = form(ex.getRequestURI().getRawQuery());
+            String location = query.get("redirect_uri") + "?code=" + UUID.randomUUID()
+                    + "&state=" + URLEncoder.encode(query.getOrDefault("state", ""), StandardCharsets.UTF_8);
+            count(ex);
+            ex.getResponseHeaders().set("Location", location);
+            ex.sendResponseHeaders(302, -1);
+            ex.close();
+        });
+        server.createContext("/token", ex -> {
+            Map<String, String> body = form(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String clientId = clientId(ex, body);
+            long now = System.currentTimeMillis() / 1000;
+            String sub = "stub-" + Math.abs(body.getOrDefault("code", "").hashCode());
+            String claims = """
+                    {"iss":"%s","sub":"%s","aud":"%s","iat":%d,"exp":%d,"email":"%s@example.com","email_verified":true,
+                     "name":"Stub User","picture":"https://example.com/%s.png"}""".formatted(
+                    issuer, sub, clientId, now, now + 3600, sub, sub);
+            json(ex, 200, """
+                    {"access_token":"%s","token_type":"Bearer","expires_in":3600,"scope":"openid email profile","id_token":"%s"}"""
+                    .formatted(UUID.randomUUID(), sign(keys, kid, claims)));
+        });
+        server.createContext("/userinfo", ex -> json(ex, 200, "{\"sub\":\"stub\"}"));
+        server.createContext("/stats", ex -> {
+            String stats;
+            synchronized (HITS) {
+                stats = HITS.toString();
+            }
+            byte[] bytes = stats.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        System.out.println("OIDC stub issuer " + issuer);
+    }
+
+    private static String sign(KeyPair keys, String kid, String claims) {
+        try {
+            String header = B64.encodeToString(("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.UTF_8));
+            String payload = B64.encodeToString(claims.replaceAll("\\s*\\n\\s*", "").getBytes(StandardCharsets.UTF_8));
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keys.getPrivate());
+            signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+            return header + "." + payload + "." + B64.encodeToString(signature.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * client_secret_basic 이면 Authorization 헤더, client_secret_post 면 본문에서
+     */
+    private static String clientId(HttpExchange ex, Map<String, String> body) {
+        String authorization = ex.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null && authorization.startsWith("Basic ")) {
+            String decoded = new String(Base64.getDecoder().decode(authorization.substring(6)), StandardCharsets.UTF_8);
+            return URLDecoder.decode(decoded.substring(0, decoded.indexOf(':')), StandardCharsets.UTF_8);
+        }
+        return body.getOrDefault("client_id", "stub-client");
+    }
+
+    private static String unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = java.util.Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return B64.encodeToString(bytes);
+    }
+
+    private static Map<String, String> form(String raw) {
+        Map<String, String> values = new HashMap<>();
+        if (raw != null && !raw.isEmpty()) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    values.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static void count(HttpExchange ex) {
+        synchronized (HITS) {
+            HITS.merge(ex.getRequestURI().getPath(), 1, Integer::sum);
+        }
+    }
+
+    private static void json(HttpExchange ex, int status, String body) throws IOException {
+        count(ex);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
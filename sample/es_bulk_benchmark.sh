@@ -0,0 +1,60 @@
+#!/bin/bash
+
+# Elasticsearch bulk 색인 벤치마크 (로컬 single-node 기준)
+# 합성 ModSecurity 이벤트를 Kafka(waf-realtime-events)에 밀어넣고
+# waf-dashboard-api 의 bulk indexer 처리량(docs/sec)과 p99 지연을 출력한다.
+#
+# 사전 조건: waf-dashboard-api 가 ES_INGEST_ENABLED=true 로 떠 있어야 함
+# 사용법: ./es_bulk_benchmark.sh [이벤트 수]
+
+RECORDS="${1:-200000}"
+KAFKA_CONTAINER="${KAFKA_CONTAINER:-waf-kafka}"
+TOPIC="${TOPIC:-waf-realtime-events}"
+DASHBOARD_URL="${DASHBOARD_URL:-http://localhost:8082}"
+PAYLOAD_FILE="/tmp/es_bulk_payloads.jsonl"
+
+echo "=== 📦 Elasticsearch bulk 색인 벤치마크 ==="
+echo "이벤트 수: $RECORDS / 토픽: $TOPIC"
+
+# 서로 다른 unique_id 를 가진 페이로드 10,000개 생성 (perf-test 가 순환하며 사용)
+> "$PAYLOAD_FILE"
+RULES=("942100:attack-sqli" "941100:attack-xss" "930120:attack-lfi" "932160:attack-rce" "913100:attack-reputation-scanner")
+for i in $(seq 1 10000); do
+  RULE="${RULES[$((i % 5))]}"
+  RULE_ID="${RULE%%:*}"
+  TAG="${RULE##*:}"
+  TS=$(date -u -d "-$((i % 3600)) seconds" '+%a %b %e %H:%M:%S %Y')
+  echo "{\"transaction\":{\"client_ip\":\"10.$((i % 250)).$((i / 250 % 250)).$((i % 7 + 1))\",\"time_stamp\":\"$TS\",\"unique_id\":\"bench-$$-$i\",\"request\":{\"method\":\"GET\",\"uri\":\"/bench/$i\",\"headers\":{\"User-Agent\":\"bench\"}},\"response\":{\"http_code\":403},\"messages\":[{\"message\":\"benchmark\",\"details\":{\"ruleId\":\"$RULE_ID\",\"severity\":\"2\",\"tags\":[\"$TAG\"]}}]}}" >> "$PAYLOAD_FILE"
+done
+docker cp "$PAYLOAD_FILE" "$KAFKA_CONTAINER:$PAYLOAD_FILE" > /dev/null
+
+BEFORE=$(curl -s "$DASHBOARD_URL/api/dashboard/indexing" | grep -o '"indexedDocs":[0-9]*' | cut -d: -f2)
+BEFORE="${BEFORE:-0}"
+START=$(date +%s)
+
+echo "🚀 Kafka 로 이벤트 전송 중..."
+docker exec "$KAFKA_CONTAINER" kafka-producer-perf-test \
+  --topic "$TOPIC" \
+  --num-records "$RECORDS" \
+  --throughput -1 \
+  --payload-file "$PAYLOAD_FILE" \
+  --producer-props bootstrap.servers=localhost:9092 linger.ms=20 batch.size=262144 compression.type=lz4 \
+  | tail -1
+
+echo "⏳ 색인 완료 대기..."
+TARGET=$((BEFORE + RECORDS))
+while true; do
+  STATUS=$(curl -s "$DASHBOARD_URL/api/dashboard/indexing")
+  INDEXED=$(echo "$STATUS" | grep -o '"indexedDocs":[0-9]*' | cut -d: -f2)
+  if [ "${INDEXED:-0}" -ge "$TARGET" ] || [ $(( $(date +%s) - START )) -gt 600 ]; then
+    break
+  fi
+  sleep 2
+done
+ELAPSED=$(( $(date +%s) - START ))
+
+echo ""
+echo "=== 📊 결과 ==="
+echo "색인 문서: $(( ${INDEXED:-0} - BEFORE )) / 소요: ${ELAPSED}s"
+echo "docs/sec (구간): $(( (${INDEXED:-0} - BEFORE) / (ELAPSED > 0 ? ELAPSED : 1) ))"
+echo "$STATUS" | tr ',' '\n' | grep -E 'docsPerSecond|p50LatencyMs|p99LatencyMs|maxLatencyMs|batchSize|rejected'
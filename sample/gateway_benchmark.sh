@@ -0,0 +1,51 @@
+#!/bin/bash
+
+# edge 게이트웨이(waf-gateway-api) 처리량/지연 벤치마크
+# 같은 부하를 stub backend 에 직접 / 게이트웨이를 거쳐서 보내고 req/sec 와 지연 분포를 비교한다.
+# 게이트웨이에서 바로 거절되는 요청(405/413)의 처리량도 따로 잰다.
+#
+# 사전 조건: wrk (HTTP/1.1) 또는 h2load (HTTP/2, nghttp2) 설치
+#   stub:    java sample/GatewayStubBackend.java 9000
+#   gateway: WAF_UPSTREAM_URI=http://localhost:9000 java -jar waf-gateway-api.jar
+# 사용법: ./gateway_benchmark.sh [시간(초)] [커넥션 수]
+
+DURATION="${1:-30}"
+CONNECTIONS="${2:-256}"
+THREADS="${THREADS:-8}"
+STUB_URL="${STUB_URL:-http://localhost:9000}"
+GATEWAY_URL="${GATEWAY_URL:-http://localhost:8083}"
+# 판정 통계/메트릭은 관리 포트(management.server.port)에서만 열린다
+MANAGEMENT_URL="${MANAGEMENT_URL:-http://localhost:8093}"
+TOOL="${TOOL:-wrk}"
+
+run_load() {
+  local label="$1" url="$2" method="${3:-GET}"
+  echo ""
+  echo "--- $label ($method $url) ---"
+  if [ "$TOOL" = "h2load" ]; then
+    # h2load 는 GET 만 보낸다 (method 인자는 wrk 에서만 적용)
+    h2load -D "$DURATION" -c "$CONNECTIONS" -t "$THREADS" -m 10 "$url" \
+      | grep -E 'finished in|requests:|status codes:|time for request:'
+  else
+    wrk -t "$THREADS" -c "$CONNECTIONS" -d "${DURATION}s" --latency \
+      -s <(echo "wrk.method = \"$method\"") "$url" \
+      | grep -E 'Requests/sec|Latency|50%|90%|99%|Non-2xx|Socket errors'
+  fi
+}
+
+echo "=== 🚪 Edge gateway 벤치마크 ==="
+echo "도구: $TOOL / 시간: ${DURATION}s / 커넥션: $CONNECTIONS / 스레드: $THREADS"
+
+run_load "stub 직접" "$STUB_URL/bench"
+run_load "게이트웨이 경유" "$GATEWAY_URL/bench"
+# 허용되지 않은 메서드: upstream 까지 가지 않고 게이트웨이에서 바로 405
+[ "$TOOL" = "wrk" ] && run_load "게이트웨이 즉시 거절" "$GATEWAY_URL/bench" "TRACE"
+
+echo ""
+echo "=== 📊 게이트웨이 판정 통계 ==="
+curl -s "$MANAGEMENT_URL/actuator/edge" | tr ',' '\n' | grep -E 'requests|bypassed|blocked|rejected|avgVerdictNanos'
+echo ""
+echo "=== 🔌 upstream 커넥션 풀 ==="
+for metric in reactor.netty.connection.provider.total.connections reactor.netty.connection.provider.active.connections reactor.netty.connection.provider.pending.connections; do
+  echo "$metric: $(curl -s "$MANAGEMENT_URL/actuator/metrics/$metric" | grep -o '"value":[0-9.]*' | head -1 | cut -d: -f2)"
+done
@@ -0,0 +1,75 @@
+#!/bin/bash
+
+# 가상 스레드 모드 처리량/p99 비교 (waf-dashboard-api, waf-social-api)
+# 외부 저장소를 기다리는 엔드포인트(InfluxDB 집계, ES 검색)에 기본 동시성과 그 10배로 부하를 주고
+# req/sec 와 p99 를 모드 이름별로 저장한다. 두 모드를 한 번씩 돌리면 결과를 나란히 보여 준다.
+# 기본 동시성 10배(500)는 Tomcat 플랫폼 스레드 기본값(200)을 넘도록 잡았다.
+#
+# 사전 조건: wrk 설치, docker compose 스택 기동
+#   VIRTUAL_THREADS_ENABLED=false docker compose up -d waf-dashboard-api waf-social-api && ./virtual_thread_benchmark.sh platform
+#   VIRTUAL_THREADS_ENABLED=true  docker compose up -d waf-dashboard-api waf-social-api && ./virtual_thread_benchmark.sh virtual
+# 사용법: ./virtual_thread_benchmark.sh <모드 이름> [시간(초)] [기본 동시성]
+
+MODE="${1:?모드 이름(platform/virtual)을 지정하세요}"
+DURATION="${2:-30}"
+CONCURRENCY="${3:-50}"
+THREADS="${THREADS:-8}"
+DASHBOARD_URL="${DASHBOARD_URL:-http://localhost:8082}"
+SOCIAL_URL="${SOCIAL_URL:-http://localhost:8081}"
+RESULT_DIR="${RESULT_DIR:-/tmp/virtual_thread_benchmark}"
+RESULT_FILE="$RESULT_DIR/$MODE.tsv"
+
+TARGETS=(
+  "dashboard-metrics|$DASHBOARD_URL/api/dashboard/metrics"
+  "dashboard-logs|$DASHBOARD_URL/api/dashboard/logs?size=50"
+  "dashboard-timeseries|$DASHBOARD_URL/api/dashboard/timeseries"
+  "social-session|$SOCIAL_URL/session/me"
+)
+
+mkdir -p "$RESULT_DIR"
+> "$RESULT_FILE"
+
+# wrk --latency 출력에서 req/sec 와 p99(ms) 추출
+run_load() {
+  local label="$1" url="$2" connections="$3"
+  local output rps p99 errors
+  output=$(wrk -t "$THREADS" -c "$connections" -d "${DURATION}s" --timeout 30s --latency "$url")
+  rps=$(echo "$output" | awk '/Requests\/sec/ {print $2}')
+  p99=$(echo "$output" | awk '$1 == "99%" {
+    v = $2
+    if (v ~ /us$/) { sub(/us$/, "", v); v = v / 1000 }
+    else if (v ~ /ms$/) { sub(/ms$/, "", v) }
+    else if (v ~ /s$/) { sub(/s$/, "", v); v = v * 1000 }
+    printf "%.2f", v
+  }')
+  errors=$(echo "$output" | awk '/Non-2xx|Socket errors/ {printf "%s ", $0}')
+  printf "%-22s c=%-5s %10s req/s   p99 %10s ms   %s\n" "$label" "$connections" "$rps" "$p99" "$errors"
+  printf "%s\t%s\t%s\t%s\n" "$label" "$connections" "$rps" "$p99" >> "$RESULT_FILE"
+}
+
+echo "=== 🧵 가상 스레드 모드 벤치마크: $MODE ==="
+echo "시간: ${DURATION}s / 동시성: $CONCURRENCY -> $((CONCURRENCY * 10)) / wrk 스레드: $THREADS"
+
+for target in "${TARGETS[@]}"; do
+  label="${target%%|*}"
+  url="${target#*|}"
+  # 예열 (JIT, 커넥션 풀)
+  wrk -t 2 -c 10 -d 5s "$url" > /dev/null
+  run_load "$label" "$url" "$CONCURRENCY"
+  run_load "$label" "$url" "$((CONCURRENCY * 10))"
+done
+
+echo ""
+echo "결과 저장: $RESULT_FILE"
+
+# 다른 모드 결과가 있으면 나란히 비교
+for other in "$RESULT_DIR"/*.tsv; do
+  other_mode=$(basename "$other" .tsv)
+  [ "$other_mode" = "$MODE" ] && continue
+  echo ""
+  echo "=== 📊 $other_mode vs $MODE ==="
+  printf "%-22s %-6s %14s %14s %12s %12s\n" "endpoint" "c" "$other_mode req/s" "$MODE req/s" "p99(ms)" "p99(ms)"
+  awk -F'\t' 'NR == FNR { rps[$1 FS $2] = $3; p99[$1 FS $2] = $4; next }
+    ($1 FS $2) in rps { printf "%-22s %-6s %14s %14s %12s %12s\n", $1, $2, rps[$1 FS $2], $3, p99[$1 FS $2], $4 }' \
+    "$other" "$RESULT_FILE"
+done